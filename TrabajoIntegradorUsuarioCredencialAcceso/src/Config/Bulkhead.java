@@ -0,0 +1,129 @@
+package Config;
+
+import Metrics.MetricsRegistry;
+import Metrics.Timer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Control de admisión (bulkhead) para las conexiones a la BD.
+ *
+ * - Como máximo 'limite' conexiones abiertas a la vez: el permiso se toma antes de abrir la
+ *   conexión y se devuelve al cerrarla.
+ * - Cola de espera acotada: si ya hay 'maxCola' hilos esperando, se rechaza enseguida.
+ * - Espera acotada: si no se libera un permiso en 'esperaMs', se rechaza.
+ * - El rechazo es una SobrecargaException: la carga excedente falla rápido en lugar de
+ *   apilar conexiones hasta tirar la BD.
+ *
+ * Ojo con las conexiones anidadas: un hilo que ya tiene una conexión y pide otra del mismo
+ * bulkhead puede quedar esperando a otros hilos en la misma situación; la espera acotada
+ * lo convierte en un rechazo en vez de un bloqueo.
+ *
+ * Métricas: bulkhead{entidad=nombre,operacion=admitidos|rechazosCola|rechazosTimeout},
+ * timer bulkhead{entidad=nombre,operacion=espera} y gauges bulkhead.&lt;nombre&gt;.enUso / .enEspera.
+ */
+public final class Bulkhead {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+
+    /** Apertura de la conexión real. */
+    @FunctionalInterface
+    public interface Apertura {
+        Connection abrir() throws SQLException;
+    }
+
+    private final String nombre;
+    private final int limite;
+    private final int maxCola;
+    private final long esperaMs;
+    private final Semaphore permisos;
+    private final AtomicInteger enEspera = new AtomicInteger();
+
+    private final LongAdder admitidos;
+    private final LongAdder rechazosCola;
+    private final LongAdder rechazosTimeout;
+    private final Timer espera;
+
+    /**
+     * @param nombre nombre para métricas y mensajes
+     * @param limite conexiones simultáneas (0 o menos = sin límite)
+     * @param maxCola hilos esperando como máximo
+     * @param esperaMs espera máxima por un permiso
+     */
+    public Bulkhead(String nombre, int limite, int maxCola, long esperaMs) {
+        this.nombre = nombre;
+        this.limite = limite;
+        this.maxCola = maxCola;
+        this.esperaMs = esperaMs;
+        this.permisos = limite > 0 ? new Semaphore(limite, true) : null;
+        this.admitidos = METRICS.contador("bulkhead", nombre, "admitidos");
+        this.rechazosCola = METRICS.contador("bulkhead", nombre, "rechazosCola");
+        this.rechazosTimeout = METRICS.contador("bulkhead", nombre, "rechazosTimeout");
+        this.espera = METRICS.timer("bulkhead", nombre, "espera");
+        if (permisos != null) {
+            METRICS.gauge("bulkhead." + nombre + ".enUso", () -> limite - permisos.availablePermits());
+            METRICS.gauge("bulkhead." + nombre + ".enEspera", enEspera::get);
+        }
+    }
+
+    /**
+     * Bulkhead configurado por -Ddb.bulkhead.&lt;nombre&gt; (límite), y los comunes
+     * -Ddb.bulkhead.cola (64) y -Ddb.bulkhead.esperaMs (1000).
+     */
+    public static Bulkhead desdePropiedades(String nombre, int limitePorDefecto) {
+        return new Bulkhead(nombre,
+                Integer.getInteger("db.bulkhead." + nombre, limitePorDefecto),
+                Integer.getInteger("db.bulkhead.cola", 64),
+                Long.getLong("db.bulkhead.esperaMs", 1000L));
+    }
+
+    /**
+     * Abre una conexión dentro del límite. El permiso se libera al cerrar la conexión.
+     * @throws SobrecargaException si no hay lugar en la cola o se agota la espera
+     */
+    public Connection abrir(Apertura apertura) throws SQLException {
+        if (permisos == null) {
+            return apertura.abrir();
+        }
+        adquirir();
+        try {
+            return ConexionConCierre.envolver(apertura.abrir(), permisos::release);
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    private void adquirir() throws SobrecargaException {
+        if (permisos.tryAcquire()) {
+            admitidos.increment();
+            return;
+        }
+        if (enEspera.incrementAndGet() > maxCola) {
+            enEspera.decrementAndGet();
+            rechazosCola.increment();
+            throw new SobrecargaException(nombre, SobrecargaException.Motivo.COLA_LLENA);
+        }
+        long inicio = System.nanoTime();
+        boolean obtenido = false;
+        try {
+            obtenido = permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SobrecargaException(nombre, SobrecargaException.Motivo.INTERRUMPIDO);
+        } finally {
+            enEspera.decrementAndGet();
+            espera.registrar(System.nanoTime() - inicio, obtenido);
+        }
+        if (!obtenido) {
+            rechazosTimeout.increment();
+            throw new SobrecargaException(nombre, SobrecargaException.Motivo.TIMEOUT);
+        }
+        admitidos.increment();
+    }
+}
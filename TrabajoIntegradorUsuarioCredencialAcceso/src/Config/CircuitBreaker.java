@@ -0,0 +1,212 @@
+package Config;
+
+import Metrics.MetricsRegistry;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker para llamadas a la BD.
+ *
+ * Estados:
+ * - CERRADO: las llamadas pasan. Se registra el resultado de las últimas 'ventana' llamadas
+ *   (falla de infraestructura y/o lentitud). Con al menos 'minLlamadas' registradas, si el
+ *   porcentaje de fallas supera umbralErrores o el de lentas supera umbralLentas, se abre.
+ * - ABIERTO: las llamadas se rechazan enseguida con CircuitoAbiertoException durante abiertoMs.
+ * - SEMIABIERTO: pasado ese tiempo se dejan pasar 'pruebas' llamadas; si todas salen bien
+ *   (sin falla ni lentitud) se cierra, y ante la primera mala se vuelve a abrir.
+ *
+ * Sólo cuentan como falla los errores de infraestructura (conexión, timeouts, sobrecarga):
+ * una violación de UNIQUE o un argumento inválido no dicen nada sobre la salud de la BD.
+ *
+ * Métricas: circuito{entidad=nombre,operacion=aperturas|rechazos} y gauge
+ * circuito.&lt;nombre&gt;.estado (0 = cerrado, 1 = abierto, 2 = semiabierto).
+ */
+public final class CircuitBreaker {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    /** Llamada protegida. */
+    @FunctionalInterface
+    public interface Llamada<R> {
+        R ejecutar() throws Exception;
+    }
+
+    private static final byte FALLA = 1;
+    private static final byte LENTA = 2;
+
+    private final String nombre;
+    private final int minLlamadas;
+    private final int umbralErrores;
+    private final int umbralLentas;
+    private final long lentoNanos;
+    private final long abiertoNanos;
+    private final int pruebas;
+
+    /** Resultados recientes (ventana circular), protegidos por el lock del objeto. */
+    private final byte[] resultados;
+    private int posicion;
+    private int registradas;
+    private int fallas;
+    private int lentas;
+
+    private volatile Estado estado = Estado.CERRADO;
+    private long abiertoHasta;
+    private int pruebasEnCurso;
+    private int pruebasOk;
+
+    private final LongAdder aperturas;
+    private final LongAdder rechazos;
+
+    /**
+     * @param ventana llamadas recientes consideradas
+     * @param minLlamadas llamadas mínimas en la ventana para evaluar los umbrales
+     * @param umbralErrores porcentaje de fallas que abre el circuito
+     * @param umbralLentas porcentaje de llamadas lentas que abre el circuito
+     * @param lentoMs duración a partir de la que una llamada es lenta
+     * @param abiertoMs tiempo abierto antes de probar de nuevo
+     * @param pruebas llamadas de prueba en semiabierto
+     */
+    public CircuitBreaker(String nombre, int ventana, int minLlamadas, int umbralErrores, int umbralLentas,
+                          long lentoMs, long abiertoMs, int pruebas) {
+        if (ventana <= 0 || minLlamadas <= 0 || minLlamadas > ventana || pruebas <= 0) {
+            throw new IllegalArgumentException("Configuración de circuito inválida: " + nombre);
+        }
+        this.nombre = nombre;
+        this.resultados = new byte[ventana];
+        this.minLlamadas = minLlamadas;
+        this.umbralErrores = umbralErrores;
+        this.umbralLentas = umbralLentas;
+        this.lentoNanos = lentoMs * 1_000_000L;
+        this.abiertoNanos = abiertoMs * 1_000_000L;
+        this.pruebas = pruebas;
+        this.aperturas = METRICS.contador("circuito", nombre, "aperturas");
+        this.rechazos = METRICS.contador("circuito", nombre, "rechazos");
+        METRICS.gauge("circuito." + nombre + ".estado", () -> estado.ordinal());
+    }
+
+    /**
+     * Circuito configurado por -Dcircuito.* : ventana (20), minLlamadas (10),
+     * umbralErrores (50 %), umbralLentas (80 %), lentoMs (1000), abiertoMs (5000), pruebas (3).
+     */
+    public static CircuitBreaker desdePropiedades(String nombre) {
+        return new CircuitBreaker(nombre,
+                Integer.getInteger("circuito.ventana", 20),
+                Integer.getInteger("circuito.minLlamadas", 10),
+                Integer.getInteger("circuito.umbralErrores", 50),
+                Integer.getInteger("circuito.umbralLentas", 80),
+                Long.getLong("circuito.lentoMs", 1000L),
+                Long.getLong("circuito.abiertoMs", 5000L),
+                Integer.getInteger("circuito.pruebas", 3));
+    }
+
+    /**
+     * Ejecuta la llamada si el circuito lo permite y registra su resultado.
+     * @throws CircuitoAbiertoException si el circuito está abierto (o sin lugar para pruebas)
+     */
+    public <R> R ejecutar(Llamada<R> llamada) throws Exception {
+        if (!permitir()) {
+            rechazos.increment();
+            throw new CircuitoAbiertoException(nombre);
+        }
+        long inicio = System.nanoTime();
+        try {
+            R resultado = llamada.ejecutar();
+            registrar(false, System.nanoTime() - inicio);
+            return resultado;
+        } catch (Exception e) {
+            registrar(esFallaDeInfraestructura(e), System.nanoTime() - inicio);
+            throw e;
+        }
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * true si el error indica que la BD no está disponible (conexión, timeout, sobrecarga),
+     * recorriendo las causas (los DAOs a veces envuelven la SQLException).
+     */
+    public static boolean esFallaDeInfraestructura(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientException || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized boolean permitir() {
+        if (estado == Estado.CERRADO) {
+            return true;
+        }
+        if (estado == Estado.ABIERTO) {
+            if (System.nanoTime() - abiertoHasta < 0) {
+                return false;
+            }
+            estado = Estado.SEMIABIERTO;
+            pruebasEnCurso = 0;
+            pruebasOk = 0;
+        }
+        if (pruebasEnCurso < pruebas) {
+            pruebasEnCurso++;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void registrar(boolean falla, long nanos) {
+        boolean lenta = nanos > lentoNanos;
+        if (estado == Estado.SEMIABIERTO) {
+            if (falla || lenta) {
+                abrir();
+            } else if (++pruebasOk >= pruebas) {
+                estado = Estado.CERRADO;
+                reiniciarVentana();
+            }
+            return;
+        }
+        if (estado == Estado.ABIERTO) {
+            // llamada iniciada antes de abrir: ya no aporta información
+            return;
+        }
+        byte resultado = (byte) ((falla ? FALLA : 0) | (lenta ? LENTA : 0));
+        if (registradas == resultados.length) {
+            byte viejo = resultados[posicion];
+            fallas -= viejo & FALLA;
+            lentas -= (viejo & LENTA) >> 1;
+        } else {
+            registradas++;
+        }
+        resultados[posicion] = resultado;
+        posicion = (posicion + 1) % resultados.length;
+        fallas += resultado & FALLA;
+        lentas += (resultado & LENTA) >> 1;
+        if (registradas >= minLlamadas
+                && (fallas * 100 >= umbralErrores * registradas || lentas * 100 >= umbralLentas * registradas)) {
+            abrir();
+        }
+    }
+
+    private void abrir() {
+        estado = Estado.ABIERTO;
+        abiertoHasta = System.nanoTime() + abiertoNanos;
+        aperturas.increment();
+        reiniciarVentana();
+    }
+
+    private void reiniciarVentana() {
+        posicion = 0;
+        registradas = 0;
+        fallas = 0;
+        lentas = 0;
+    }
+}
@@ -0,0 +1,25 @@
+package Config;
+
+import java.sql.SQLTransientException;
+
+/**
+ * El circuit breaker está abierto: la llamada se rechazó sin ir a la BD.
+ *
+ * Es una SQLTransientException (SQLState 08001): la BD se considera no disponible por
+ * un rato y el pedido puede funcionar más tarde.
+ */
+public class CircuitoAbiertoException extends SQLTransientException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String circuito;
+
+    public CircuitoAbiertoException(String circuito) {
+        super("Base de datos no disponible (circuito " + circuito + " abierto)", "08001");
+        this.circuito = circuito;
+    }
+
+    public String getCircuito() {
+        return circuito;
+    }
+}
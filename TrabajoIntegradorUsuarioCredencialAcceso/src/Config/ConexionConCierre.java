@@ -0,0 +1,39 @@
+package Config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Envuelve una Connection para ejecutar una acción en su primer close().
+ *
+ * Lo usan Bulkhead (devolver el permiso), ReplicaSet (contar conexiones en uso por réplica)
+ * y DataBaseConnection (marcar la escritura para leer-lo-propio). El resto de los métodos
+ * se delegan sin cambios; la acción corre aunque close() lance una excepción.
+ */
+final class ConexionConCierre {
+
+    private ConexionConCierre() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    static Connection envolver(Connection conn, Runnable alCerrar) {
+        AtomicBoolean cerrada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                ConexionConCierre.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    boolean esClose = method.getName().equals("close") && method.getParameterCount() == 0;
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (esClose && cerrada.compareAndSet(false, true)) {
+                            alCerrar.run();
+                        }
+                    }
+                });
+    }
+}
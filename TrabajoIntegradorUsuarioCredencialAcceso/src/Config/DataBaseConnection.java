@@ -1,8 +1,12 @@
 package Config;
 
+import Metrics.ConexionEvent;
+import Metrics.MetricsRegistry;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Clase utilitaria para gestionar conexiones a la base de datos MySQL.
@@ -19,6 +23,22 @@ import java.sql.SQLException;
  *
  * Override mediante system properties:
  * - java -Ddb.url=... -Ddb.user=... -Ddb.password=...
+ *
+ * Control de admisión (Bulkhead, límites separados para lecturas y escrituras):
+ * - -Ddb.bulkhead.lecturas=32   conexiones simultáneas de getReadConnection() (0 = sin límite)
+ * - -Ddb.bulkhead.escrituras=16 conexiones simultáneas de getConnection() (0 = sin límite)
+ * - -Ddb.bulkhead.cola=64       hilos esperando como máximo en cada bulkhead
+ * - -Ddb.bulkhead.esperaMs=1000 espera máxima por una conexión
+ * Si se excede, se lanza SobrecargaException en lugar de abrir otra conexión.
+ *
+ * Réplicas de lectura (ver ReplicaSet):
+ * - -Ddb.replicas=url1,url2         getReadConnection() va a las réplicas (mismo usuario y contraseña)
+ * - -Ddb.replicas.politica=ROUND_ROBIN | MENOS_CONEXIONES
+ * - -Ddb.replicas.reintentoMs=5000  tiempo fuera de rotación de una réplica que no responde
+ * - -Ddb.leerPropiasEscriturasMs=2000 después de usar getConnection(), las lecturas del mismo
+ *   hilo van al primario durante este tiempo (0 = desactivado). Debe superar el retraso de
+ *   replicación habitual.
+ * Sin db.replicas todas las conexiones van a db.url, como antes.
  */
 
 public final class DataBaseConnection {
@@ -31,6 +51,45 @@ public final class DataBaseConnection {
     /** Contraseña del usuario. Configurable via -Ddb.password */
     private static final String PASSWORD = System.getProperty("db.password", "");
 
+    /** Límite de conexiones para escrituras y transacciones. */
+    private static final Bulkhead ESCRITURAS = Bulkhead.desdePropiedades("escrituras", 16);
+
+    /** Límite de conexiones para consultas de sólo lectura. */
+    private static final Bulkhead LECTURAS = Bulkhead.desdePropiedades("lecturas", 32);
+
+    /** Réplicas de lectura (null si no se configuraron). */
+    private static final ReplicaSet REPLICAS = ReplicaSet.desdePropiedades();
+
+    /** Ventana de leer-lo-propio posterior a una escritura. Configurable via -Ddb.leerPropiasEscriturasMs */
+    private static final long LEER_PROPIAS_NANOS = Long.getLong("db.leerPropiasEscriturasMs", 2000L) * 1_000_000L;
+
+    /** Estado de leer-lo-propio de cada hilo (la "sesión" de esta aplicación es el hilo). */
+    private static final class Sesion {
+        /** Conexiones de getConnection() todavía abiertas: mientras haya alguna, se lee del primario. */
+        int escriturasAbiertas;
+        /** Momento (nanoTime) en que se cerró la última conexión de escritura. */
+        long ultimaEscrituraNanos;
+        boolean escribio;
+        /** Profundidad de desdePrimario(). */
+        int primarioForzado;
+
+        boolean fijadaAlPrimario() {
+            return escriturasAbiertas > 0 || primarioForzado > 0
+                    || (escribio && System.nanoTime() - ultimaEscrituraNanos < LEER_PROPIAS_NANOS);
+        }
+    }
+
+    private static final ThreadLocal<Sesion> SESION = ThreadLocal.withInitial(Sesion::new);
+
+    private static final LongAdder LECTURAS_FIJADAS =
+            MetricsRegistry.global().contador("replica", "primario", "leerPropias");
+
+    /** Lectura que debe ver el estado del primario (ver desdePrimario). */
+    @FunctionalInterface
+    public interface Lectura<T> {
+        T leer() throws Exception;
+    }
+
     /**
      * Bloque de inicialización estática.
      * Se ejecuta UNA SOLA VEZ cuando la clase se carga en memoria.
@@ -79,11 +138,103 @@ public final class DataBaseConnection {
      * } // se cierra automáticamente
      * </pre>
      *
+     * Observabilidad: cada obtención emite un evento JFR (ConexionEvent) con su duración.
+     * Admisión: cuenta contra el bulkhead de escrituras (usar getReadConnection() para consultas).
+     * Con réplicas: siempre va al primario y fija las lecturas del hilo al primario mientras la
+     * conexión esté abierta y durante db.leerPropiasEscriturasMs después de cerrarla.
+     *
      * @return Conexión JDBC activa
+     * @throws SobrecargaException Si el bulkhead de escrituras está saturado
      * @throws SQLException Si no se puede establecer la conexión
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        Connection conn = ESCRITURAS.abrir(DataBaseConnection::abrir);
+        if (REPLICAS == null) {
+            return conn;
+        }
+        Sesion sesion = SESION.get();
+        sesion.escriturasAbiertas++;
+        return ConexionConCierre.envolver(conn, () -> {
+            sesion.escriturasAbiertas--;
+            sesion.ultimaEscrituraNanos = System.nanoTime();
+            sesion.escribio = true;
+        });
+    }
+
+    /**
+     * Conexión al primario que NO pasa por el bulkhead de escrituras.
+     *
+     * Sólo para sentencias cortas en autocommit que se ejecutan mientras el hilo ya tiene una
+     * conexión de getConnection() abierta y cuya cantidad simultánea está acotada por el caller
+     * (HiLoIdAllocator reserva un bloque a la vez por tabla). Si pasaran por el bulkhead, con
+     * todos los permisos tomados por transacciones que esperan esa misma reserva, ninguna
+     * avanzaría y todas terminarían en SobrecargaException.
+     *
+     * @return Conexión JDBC activa
+     * @throws SQLException Si no se puede establecer la conexión
+     */
+    public static Connection getConexionAuxiliar() throws SQLException {
+        return abrir();
+    }
+
+    /**
+     * Obtiene una conexión para consultas de sólo lectura.
+     * Igual que getConnection(), pero cuenta contra el bulkhead de lecturas: una ráfaga de
+     * consultas no deja sin conexiones a las escrituras, ni al revés.
+     *
+     * Con réplicas configuradas la conexión es de una réplica, salvo que el hilo haya escrito
+     * hace poco o esté dentro de desdePrimario(): en ese caso va al primario para no leer un
+     * dato anterior a la propia escritura.
+     *
+     * @return Conexión JDBC activa
+     * @throws SobrecargaException Si el bulkhead de lecturas está saturado
+     * @throws SQLException Si no se puede establecer la conexión
+     */
+    public static Connection getReadConnection() throws SQLException {
+        if (REPLICAS == null) {
+            return LECTURAS.abrir(DataBaseConnection::abrir);
+        }
+        if (SESION.get().fijadaAlPrimario()) {
+            LECTURAS_FIJADAS.increment();
+            return LECTURAS.abrir(DataBaseConnection::abrir);
+        }
+        return LECTURAS.abrir(() -> REPLICAS.abrir(DataBaseConnection::abrir, DataBaseConnection::abrir));
+    }
+
+    /**
+     * Ejecuta una lectura cuyas consultas (getReadConnection) van al primario.
+     * Para lecturas que no toleran retraso de replicación aunque el hilo no haya escrito,
+     * por ejemplo cargar un cache después de una invalidación que llegó desde el primario.
+     */
+    public static <T> T desdePrimario(Lectura<T> lectura) throws Exception {
+        if (REPLICAS == null) {
+            return lectura.leer();
+        }
+        Sesion sesion = SESION.get();
+        sesion.primarioForzado++;
+        try {
+            return lectura.leer();
+        } finally {
+            sesion.primarioForzado--;
+        }
+    }
+
+    /** Abre la conexión física contra el primario. */
+    private static Connection abrir() throws SQLException {
+        return abrir(URL);
+    }
+
+    /** Abre la conexión física y emite el evento JFR. */
+    private static Connection abrir(String url) throws SQLException {
+        ConexionEvent evento = new ConexionEvent();
+        evento.begin();
+        try {
+            Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+            evento.exitosa = true;
+            return conn;
+        } finally {
+            evento.commit();
+        }
     }
 
     /**
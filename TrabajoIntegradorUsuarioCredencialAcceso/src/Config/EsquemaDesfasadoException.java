@@ -0,0 +1,30 @@
+package Config;
+
+import java.sql.SQLNonTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * El esquema de la base no coincide con las migraciones de esta versión (ver MigradorEsquema).
+ *
+ * Es una SQLNonTransientException: reintentar no sirve, hace falta corregir el esquema o
+ * desplegar la versión que corresponde. La aplicación no arranca mientras tanto.
+ */
+public class EsquemaDesfasadoException extends SQLNonTransientException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Copia propia: ArrayList es serializable, a diferencia de la lista que recibe. */
+    private final ArrayList<String> diferencias;
+
+    public EsquemaDesfasadoException(List<String> diferencias) {
+        super("El esquema de la base no coincide con las migraciones: " + String.join("; ", diferencias));
+        this.diferencias = new ArrayList<>(diferencias);
+    }
+
+    /** Una descripción por cada diferencia encontrada (no modificable). */
+    public List<String> getDiferencias() {
+        return Collections.unmodifiableList(diferencias);
+    }
+}
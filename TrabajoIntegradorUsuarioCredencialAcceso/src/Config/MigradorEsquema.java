@@ -0,0 +1,425 @@
+package Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Migraciones versionadas del esquema MySQL, aplicadas al iniciar.
+ *
+ * - Los scripts viven junto a esta clase en migraciones/VNNN__descripcion.sql y se listan en
+ *   SCRIPTS, en orden. Un script aplicado no se edita nunca: los cambios van en uno nuevo.
+ * - schema_migraciones guarda la versión, la descripción y el SHA-256 de cada script aplicado.
+ * - Antes de aplicar nada se compara la base con los scripts, y la aplicación NO arranca
+ *   (EsquemaDesfasadoException) si:
+ *   - hay versiones aplicadas que esta versión del código no conoce (base más nueva que el código),
+ *   - un script aplicado cambió (checksum distinto),
+ *   - queda pendiente una versión anterior a otra ya aplicada,
+ *   - falta una tabla, columna o índice que los scripts aplicados crean (borrado a mano).
+ * - Modo migrar (default): aplica las pendientes en orden. Modo validar: sólo compara, y
+ *   también se niega a arrancar si hay pendientes. Modo no: no hace nada.
+ * - Varios nodos pueden arrancar a la vez: la migración toma GET_LOCK('schema_migraciones').
+ * - En MySQL el DDL no es transaccional: si un script falla a mitad de camino, lo ya ejecutado
+ *   queda hecho y la versión NO se registra. Hay que completar o deshacer el script a mano.
+ * - Bases creadas a mano con el DDL del README: -Desquema.baseline=N registra las versiones
+ *   1..N que falten como aplicadas, sin ejecutarlas. Sólo si no hay aplicada ninguna versión
+ *   mayor a N: sirve también para registrar un script que falló porque su objeto ya existía.
+ *
+ * Configuración: -Desquema.migraciones (migrar | validar | no), -Desquema.baseline (0).
+ */
+public final class MigradorEsquema {
+
+    /** Qué hacer al iniciar. */
+    public enum Modo {
+        MIGRAR,
+        VALIDAR,
+        NO
+    }
+
+    /**
+     * Script de migración.
+     * @param checksum SHA-256 (hex) del script con saltos de línea normalizados
+     */
+    public record Migracion(int version, String descripcion, String sql, String checksum) {
+    }
+
+    /** Scripts en orden de versión (recursos migraciones/ junto a esta clase). */
+    private static final String[] SCRIPTS = {
+        "V001__esquema_base.sql",
+        "V002__cambios_incrementales.sql",
+        "V003__infraestructura.sql",
+        "V004__vencimiento.sql",
+        "V005__actividad.sql",
+        "V006__auditoria.sql",
+        "V007__archivo.sql",
+        "V008__indices_activos.sql",
+        "V009__replicacion_conflictos.sql",
+        "V010__baja_huerfana.sql",
+        "V011__archivo_actividad.sql"
+    };
+
+    private static final Pattern NOMBRE = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern CREATE_TABLE = Pattern.compile("(?i)\\bCREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)");
+    private static final Pattern ALTER_TABLE = Pattern.compile("(?i)\\bALTER\\s+TABLE\\s+(\\w+)");
+    private static final Pattern ADD_COLUMN = Pattern.compile("(?i)\\bADD\\s+COLUMN\\s+(\\w+)");
+    private static final Pattern INDICE = Pattern.compile("(?i)\\b(?:INDEX\\s+(\\w+)|CONSTRAINT\\s+(\\w+)\\s+UNIQUE)");
+
+    private static final String LOCK = "schema_migraciones";
+    private static final int ESPERA_LOCK_SEG = 60;
+
+    // =======================
+    // SQL BASE
+    // =======================
+
+    private static final String CREAR_TABLA_SQL = """
+        CREATE TABLE IF NOT EXISTS schema_migraciones (
+            version INT PRIMARY KEY,
+            descripcion VARCHAR(200) NOT NULL,
+            checksum CHAR(64) NOT NULL,
+            aplicada_en TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+            duracion_ms BIGINT NOT NULL
+        ) ENGINE=InnoDB
+    """;
+
+    private static final String SELECT_APLICADAS_SQL = "SELECT version, checksum FROM schema_migraciones ORDER BY version";
+
+    private static final String INSERT_APLICADA_SQL = """
+        INSERT INTO schema_migraciones (version, descripcion, checksum, duracion_ms)
+        VALUES (?, ?, ?, ?)
+    """;
+
+    private static final String SELECT_TABLAS_SQL = """
+        SELECT LOWER(table_name) FROM information_schema.tables WHERE table_schema = DATABASE()
+    """;
+
+    private static final String SELECT_COLUMNAS_SQL = """
+        SELECT LOWER(CONCAT(table_name, '.', column_name)) FROM information_schema.columns WHERE table_schema = DATABASE()
+    """;
+
+    private static final String SELECT_INDICES_SQL = """
+        SELECT DISTINCT LOWER(index_name) FROM information_schema.statistics WHERE table_schema = DATABASE()
+    """;
+
+    private final List<Migracion> migraciones;
+
+    /**
+     * @param migraciones en orden estrictamente creciente de versión
+     */
+    public MigradorEsquema(List<Migracion> migraciones) {
+        if (migraciones == null || migraciones.isEmpty()) {
+            throw new IllegalArgumentException("Las migraciones no pueden ser null ni estar vacías");
+        }
+        for (int i = 1; i < migraciones.size(); i++) {
+            if (migraciones.get(i).version() <= migraciones.get(i - 1).version()) {
+                throw new IllegalArgumentException("Las versiones deben ser estrictamente crecientes: V" + migraciones.get(i).version());
+            }
+        }
+        this.migraciones = List.copyOf(migraciones);
+    }
+
+    /**
+     * Migrador con los scripts de SCRIPTS.
+     * @throws IllegalStateException si falta un script o su nombre no es VNNN__descripcion.sql
+     */
+    public static MigradorEsquema desdeRecursos() {
+        List<Migracion> lista = new ArrayList<>();
+        for (String script : SCRIPTS) {
+            Matcher m = NOMBRE.matcher(script);
+            if (!m.matches()) {
+                throw new IllegalStateException("Nombre de migración inválido: " + script);
+            }
+            try (InputStream in = MigradorEsquema.class.getResourceAsStream("migraciones/" + script)) {
+                if (in == null) {
+                    throw new IllegalStateException("No se encontró la migración " + script);
+                }
+                String sql = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+                lista.add(new Migracion(Integer.parseInt(m.group(1)), m.group(2), sql, sha256(sql)));
+            } catch (IOException e) {
+                throw new IllegalStateException("No se pudo leer la migración " + script, e);
+            }
+        }
+        return new MigradorEsquema(lista);
+    }
+
+    /**
+     * Migra o valida según -Desquema.migraciones (ver javadoc de la clase).
+     * @throws EsquemaDesfasadoException si el esquema no coincide con las migraciones
+     * @throws IllegalArgumentException si esquema.migraciones no es migrar, validar ni no
+     */
+    public static void alIniciar() throws SQLException {
+        String valor = System.getProperty("esquema.migraciones", "migrar").trim();
+        Modo modo;
+        try {
+            modo = Modo.valueOf(valor.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Valor inválido para -Desquema.migraciones: \"" + valor
+                    + "\" (se espera migrar, validar o no)", e);
+        }
+        if (modo == Modo.NO) {
+            return;
+        }
+        List<Migracion> aplicadas = desdeRecursos().ejecutar(modo, Integer.getInteger("esquema.baseline", 0));
+        if (!aplicadas.isEmpty()) {
+            System.out.println("Esquema: " + aplicadas.size() + " migraciones aplicadas, versión actual V"
+                    + aplicadas.get(aplicadas.size() - 1).version());
+        }
+    }
+
+    /**
+     * Compara la base con las migraciones y, en modo MIGRAR, aplica las pendientes.
+     * @param baseline versiones 1..baseline a registrar sin ejecutar, las que falten, si no hay
+     *                 aplicada ninguna mayor (0 = ninguna)
+     * @return migraciones aplicadas en esta llamada
+     * @throws EsquemaDesfasadoException si el esquema no coincide (o, en VALIDAR, si hay pendientes)
+     */
+    public List<Migracion> ejecutar(Modo modo, int baseline) throws SQLException {
+        List<Migracion> aplicadasAhora = new ArrayList<>();
+        if (modo == Modo.NO) {
+            return aplicadasAhora;
+        }
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            boolean migrar = modo == Modo.MIGRAR;
+            if (migrar) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREAR_TABLA_SQL);
+                }
+                tomarLock(conn);
+            }
+            try {
+                Map<Integer, String> aplicadas = leerAplicadas(conn);
+                if (migrar && baseline > 0 && aplicadas.keySet().stream().allMatch(v -> v <= baseline)) {
+                    registrarBaseline(conn, baseline, aplicadas);
+                }
+                List<Migracion> pendientes = comparar(aplicadas, !migrar);
+                if (migrar) {
+                    for (Migracion mig : pendientes) {
+                        aplicar(conn, mig);
+                        aplicadas.put(mig.version(), mig.checksum());
+                        aplicadasAhora.add(mig);
+                    }
+                }
+                verificarObjetos(conn, aplicadas);
+            } finally {
+                if (migrar) {
+                    liberarLock(conn);
+                }
+            }
+        }
+        return aplicadasAhora;
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    /**
+     * Diferencias entre lo aplicado y los scripts.
+     * @return migraciones pendientes, en orden
+     */
+    private List<Migracion> comparar(Map<Integer, String> aplicadas, boolean sinPendientes) throws EsquemaDesfasadoException {
+        List<String> diferencias = new ArrayList<>();
+        Map<Integer, Migracion> porVersion = new TreeMap<>();
+        for (Migracion mig : migraciones) {
+            porVersion.put(mig.version(), mig);
+        }
+        int maxAplicada = 0;
+        for (Map.Entry<Integer, String> e : aplicadas.entrySet()) {
+            maxAplicada = Math.max(maxAplicada, e.getKey());
+            Migracion mig = porVersion.get(e.getKey());
+            if (mig == null) {
+                diferencias.add("V" + e.getKey() + " está aplicada pero esta versión del código no la conoce");
+            } else if (!mig.checksum().equals(e.getValue())) {
+                diferencias.add("V" + mig.version() + " (" + mig.descripcion() + ") cambió después de aplicarse");
+            }
+        }
+        List<Migracion> pendientes = new ArrayList<>();
+        for (Migracion mig : migraciones) {
+            if (aplicadas.containsKey(mig.version())) {
+                continue;
+            }
+            if (mig.version() < maxAplicada) {
+                diferencias.add("V" + mig.version() + " (" + mig.descripcion() + ") está pendiente pero ya se aplicó V" + maxAplicada);
+            } else if (sinPendientes) {
+                diferencias.add("V" + mig.version() + " (" + mig.descripcion() + ") no está aplicada");
+            }
+            pendientes.add(mig);
+        }
+        if (!diferencias.isEmpty()) {
+            throw new EsquemaDesfasadoException(diferencias);
+        }
+        return pendientes;
+    }
+
+    /** Ejecuta las sentencias del script y registra la versión. */
+    private void aplicar(Connection conn, Migracion mig) throws SQLException {
+        long inicio = System.nanoTime();
+        List<String> sentencias = sentencias(mig.sql());
+        try (Statement stmt = conn.createStatement()) {
+            for (int i = 0; i < sentencias.size(); i++) {
+                try {
+                    stmt.execute(sentencias.get(i));
+                } catch (SQLException e) {
+                    throw new SQLException("La migración V" + mig.version() + " (" + mig.descripcion() + ") falló en la sentencia "
+                            + (i + 1) + " de " + sentencias.size() + "; las anteriores ya se ejecutaron y la versión no se registró"
+                            + " (si sus objetos ya existían, completarlos a mano y registrarla con -Desquema.baseline="
+                            + mig.version() + "): " + e.getMessage(), e.getSQLState(), e);
+                }
+            }
+        }
+        registrar(conn, mig, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /** Registra las versiones hasta baseline que falten como aplicadas, sin ejecutarlas. */
+    private void registrarBaseline(Connection conn, int baseline, Map<Integer, String> aplicadas) throws SQLException {
+        for (Migracion mig : migraciones) {
+            if (mig.version() <= baseline && !aplicadas.containsKey(mig.version())) {
+                registrar(conn, mig, 0);
+                aplicadas.put(mig.version(), mig.checksum());
+            }
+        }
+    }
+
+    private static void registrar(Connection conn, Migracion mig, long duracionMs) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_APLICADA_SQL)) {
+            stmt.setInt(1, mig.version());
+            stmt.setString(2, mig.descripcion());
+            stmt.setString(3, mig.checksum());
+            stmt.setLong(4, duracionMs);
+            stmt.executeUpdate();
+        }
+    }
+
+    /** Versiones aplicadas y su checksum (vacío si schema_migraciones no existe). */
+    private static Map<Integer, String> leerAplicadas(Connection conn) throws SQLException {
+        Map<Integer, String> aplicadas = new TreeMap<>();
+        if (!consultar(conn, SELECT_TABLAS_SQL).contains("schema_migraciones")) {
+            return aplicadas;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_APLICADAS_SQL)) {
+            while (rs.next()) {
+                aplicadas.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return aplicadas;
+    }
+
+    /** Cada tabla, columna agregada e índice que crean los scripts aplicados tiene que existir. */
+    private void verificarObjetos(Connection conn, Map<Integer, String> aplicadas) throws SQLException {
+        Set<String> tablas = new LinkedHashSet<>();
+        Set<String> columnas = new LinkedHashSet<>();
+        Set<String> indices = new LinkedHashSet<>();
+        for (Migracion mig : migraciones) {
+            if (!aplicadas.containsKey(mig.version())) {
+                continue;
+            }
+            for (String sentencia : sentencias(mig.sql())) {
+                Matcher m = CREATE_TABLE.matcher(sentencia);
+                if (m.find()) {
+                    tablas.add(m.group(1).toLowerCase(Locale.ROOT));
+                }
+                Matcher alter = ALTER_TABLE.matcher(sentencia);
+                if (alter.find()) {
+                    Matcher col = ADD_COLUMN.matcher(sentencia);
+                    while (col.find()) {
+                        columnas.add((alter.group(1) + "." + col.group(1)).toLowerCase(Locale.ROOT));
+                    }
+                }
+                Matcher idx = INDICE.matcher(sentencia);
+                while (idx.find()) {
+                    indices.add((idx.group(1) != null ? idx.group(1) : idx.group(2)).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        List<String> diferencias = new ArrayList<>();
+        faltantes("la tabla", tablas, consultar(conn, SELECT_TABLAS_SQL), diferencias);
+        faltantes("la columna", columnas, consultar(conn, SELECT_COLUMNAS_SQL), diferencias);
+        faltantes("el índice", indices, consultar(conn, SELECT_INDICES_SQL), diferencias);
+        if (!diferencias.isEmpty()) {
+            throw new EsquemaDesfasadoException(diferencias);
+        }
+    }
+
+    private static void faltantes(String tipo, Set<String> esperados, Set<String> existentes, List<String> diferencias) {
+        for (String nombre : esperados) {
+            if (!existentes.contains(nombre)) {
+                diferencias.add("falta " + tipo + " " + nombre);
+            }
+        }
+    }
+
+    private static Set<String> consultar(Connection conn, String sql) throws SQLException {
+        Set<String> valores = new LinkedHashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                valores.add(rs.getString(1));
+            }
+        }
+        return valores;
+    }
+
+    private static void tomarLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK);
+            stmt.setInt(2, ESPERA_LOCK_SEG);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Otro nodo está migrando el esquema desde hace más de " + ESPERA_LOCK_SEG + " segundos");
+                }
+            }
+        }
+    }
+
+    private static void liberarLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            // El lock se libera igual al cerrar la conexión
+        }
+    }
+
+    /** Sentencias del script: separadas por ';' al final de línea, sin las líneas de comentario. */
+    static List<String> sentencias(String sql) {
+        List<String> sentencias = new ArrayList<>();
+        for (String bloque : sql.split(";[ \\t]*(?:\\n|$)")) {
+            StringBuilder sb = new StringBuilder();
+            for (String linea : bloque.split("\n")) {
+                if (!linea.isBlank() && !linea.trim().startsWith("--")) {
+                    sb.append(linea).append('\n');
+                }
+            }
+            if (!sb.isEmpty()) {
+                sentencias.add(sb.toString().trim());
+            }
+        }
+        return sentencias;
+    }
+
+    private static String sha256(String texto) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(texto.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package Config;
+
+import Metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conjunto de réplicas de lectura de MySQL con balanceo de carga.
+ *
+ * - Política ROUND_ROBIN: reparte las conexiones en orden entre las réplicas.
+ * - Política MENOS_CONEXIONES: elige la réplica con menos conexiones abiertas por este
+ *   proceso (útil si las réplicas no son iguales o algunas consultas son mucho más largas).
+ * - Si abrir la conexión falla, la réplica queda marcada como caída durante reintentoMs y
+ *   se prueba la siguiente. Si no queda ninguna disponible se usa el primario (respaldo):
+ *   una réplica caída degrada la capacidad de lectura, no la disponibilidad.
+ *
+ * No mide el retraso de replicación: la consistencia de leer-lo-propio la resuelve
+ * DataBaseConnection fijando la sesión al primario después de escribir.
+ *
+ * Métricas: replica{entidad=replicaN,operacion=conexiones|fallas}, replica{entidad=primario,
+ * operacion=respaldo} y gauges replica.replicaN.enUso / .disponible.
+ */
+public final class ReplicaSet {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+
+    public enum Politica {
+        ROUND_ROBIN,
+        MENOS_CONEXIONES
+    }
+
+    /** Apertura de la conexión física contra una URL. */
+    @FunctionalInterface
+    public interface Apertura {
+        Connection abrir(String url) throws SQLException;
+    }
+
+    private static final class Replica {
+        final String url;
+        final AtomicInteger enUso = new AtomicInteger();
+        final LongAdder conexiones;
+        final LongAdder fallas;
+        volatile long caidaHastaNanos;
+        volatile boolean caida;
+
+        Replica(String nombre, String url) {
+            this.url = url;
+            this.conexiones = METRICS.contador("replica", nombre, "conexiones");
+            this.fallas = METRICS.contador("replica", nombre, "fallas");
+        }
+
+        boolean disponible(long ahora) {
+            return !caida || ahora - caidaHastaNanos >= 0;
+        }
+    }
+
+    private final Replica[] replicas;
+    private final Politica politica;
+    private final long reintentoNanos;
+    private final AtomicInteger siguiente = new AtomicInteger();
+    private final LongAdder respaldos = METRICS.contador("replica", "primario", "respaldo");
+
+    /**
+     * @param urls URLs JDBC de las réplicas (al menos una)
+     * @param politica política de balanceo
+     * @param reintentoMs tiempo que una réplica caída queda fuera de la rotación
+     */
+    public ReplicaSet(List<String> urls, Politica politica, long reintentoMs) {
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos una réplica");
+        }
+        this.replicas = new Replica[urls.size()];
+        for (int i = 0; i < replicas.length; i++) {
+            String nombre = "replica" + i;
+            Replica r = new Replica(nombre, urls.get(i));
+            replicas[i] = r;
+            METRICS.gauge("replica." + nombre + ".enUso", r.enUso::get);
+            METRICS.gauge("replica." + nombre + ".disponible", () -> r.disponible(System.nanoTime()) ? 1 : 0);
+        }
+        this.politica = politica;
+        this.reintentoNanos = reintentoMs * 1_000_000L;
+    }
+
+    /**
+     * Réplicas configuradas por -Ddb.replicas (URLs separadas por coma), -Ddb.replicas.politica
+     * (ROUND_ROBIN o MENOS_CONEXIONES) y -Ddb.replicas.reintentoMs (5000).
+     * @return null si no hay réplicas configuradas
+     */
+    public static ReplicaSet desdePropiedades() {
+        String valor = System.getProperty("db.replicas", "").trim();
+        if (valor.isEmpty()) {
+            return null;
+        }
+        List<String> urls = new ArrayList<>();
+        for (String url : valor.split(",")) {
+            if (!url.isBlank()) {
+                urls.add(url.trim());
+            }
+        }
+        Politica politica = Politica.valueOf(
+                System.getProperty("db.replicas.politica", "ROUND_ROBIN").trim().toUpperCase(Locale.ROOT));
+        return new ReplicaSet(urls, politica, Long.getLong("db.replicas.reintentoMs", 5000L));
+    }
+
+    public int getCantidad() {
+        return replicas.length;
+    }
+
+    /**
+     * Abre una conexión contra una réplica disponible, o contra el primario si no hay ninguna.
+     * @param apertura apertura física de una réplica
+     * @param respaldo apertura del primario
+     */
+    public Connection abrir(Apertura apertura, Bulkhead.Apertura respaldo) throws SQLException {
+        int inicio = elegir();
+        long ahora = System.nanoTime();
+        for (int i = 0; i < replicas.length; i++) {
+            Replica r = replicas[(inicio + i) % replicas.length];
+            if (!r.disponible(ahora)) {
+                continue;
+            }
+            Connection conn;
+            try {
+                conn = apertura.abrir(r.url);
+            } catch (SQLException e) {
+                r.fallas.increment();
+                r.caidaHastaNanos = System.nanoTime() + reintentoNanos;
+                r.caida = true;
+                continue;
+            }
+            r.caida = false;
+            r.conexiones.increment();
+            r.enUso.incrementAndGet();
+            return ConexionConCierre.envolver(conn, r.enUso::decrementAndGet);
+        }
+        respaldos.increment();
+        return respaldo.abrir();
+    }
+
+    /** Índice de la primera réplica a probar según la política. */
+    private int elegir() {
+        int rr = Math.floorMod(siguiente.getAndIncrement(), replicas.length);
+        if (politica == Politica.ROUND_ROBIN) {
+            return rr;
+        }
+        // Empieza en la posición round-robin para repartir los empates
+        int mejor = rr;
+        int menor = Integer.MAX_VALUE;
+        long ahora = System.nanoTime();
+        for (int i = 0; i < replicas.length; i++) {
+            int idx = (rr + i) % replicas.length;
+            Replica r = replicas[idx];
+            int uso = r.enUso.get();
+            if (uso < menor && r.disponible(ahora)) {
+                menor = uso;
+                mejor = idx;
+            }
+        }
+        return mejor;
+    }
+}
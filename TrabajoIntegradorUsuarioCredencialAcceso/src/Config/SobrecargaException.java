@@ -0,0 +1,42 @@
+package Config;
+
+import java.sql.SQLTransientException;
+
+/**
+ * La base de datos está saturada: el bulkhead rechazó la operación sin abrir conexión.
+ *
+ * Es una SQLTransientException (SQLState 08004, conexión rechazada): el mismo pedido puede
+ * funcionar más tarde, y los callers que ya distinguen errores transitorios (por ejemplo el
+ * Replicador) la tratan como tal.
+ */
+public class SobrecargaException extends SQLTransientException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Por qué se rechazó. */
+    public enum Motivo {
+        /** Ya había demasiados hilos esperando. */
+        COLA_LLENA,
+        /** No se liberó un permiso dentro del tiempo de espera. */
+        TIMEOUT,
+        /** El hilo fue interrumpido mientras esperaba. */
+        INTERRUMPIDO
+    }
+
+    private final String bulkhead;
+    private final Motivo motivo;
+
+    public SobrecargaException(String bulkhead, Motivo motivo) {
+        super("Base de datos saturada (" + bulkhead + ": " + motivo + ")", "08004");
+        this.bulkhead = bulkhead;
+        this.motivo = motivo;
+    }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+
+    public Motivo getMotivo() {
+        return motivo;
+    }
+}
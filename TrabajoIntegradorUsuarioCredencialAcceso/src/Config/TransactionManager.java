@@ -1,12 +1,28 @@
 package Config;
 
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+import Metrics.TransaccionEvent;
+
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TransactionManager implements AutoCloseable {
+    /** Métricas: tx{entidad=conexion,operacion=commit|rollback} y gauge tx.activas */
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final AtomicInteger ACTIVAS = new AtomicInteger();
+
+    static {
+        METRICS.gauge("tx.activas", ACTIVAS::get);
+    }
+
     private Connection conn;
     private boolean transactionActive;
 
+    /** Evento JFR de la transacción en curso (null si no hay transacción activa). */
+    private TransaccionEvent evento;
+
     public TransactionManager(Connection conn) throws SQLException {
         if (conn == null) {
             throw new IllegalArgumentException("La conexión no puede ser null");
@@ -27,6 +43,11 @@ public class TransactionManager implements AutoCloseable {
             throw new SQLException("No se puede iniciar la transacción: conexión cerrada");
         }
         conn.setAutoCommit(false);
+        if (!transactionActive) {
+            ACTIVAS.incrementAndGet();
+            evento = new TransaccionEvent();
+            evento.begin();
+        }
         transactionActive = true;
     }
 
@@ -37,17 +58,31 @@ public class TransactionManager implements AutoCloseable {
         if (!transactionActive) {
             throw new SQLException("No hay una transacción activa para hacer commit");
         }
-        conn.commit();
-        transactionActive = false;
+        boolean confirmada = false;
+        try (Medicion m = METRICS.medir("tx", "conexion", "commit")) {
+            conn.commit();
+            m.ok();
+            confirmada = true;
+        } finally {
+            if (confirmada) {
+                cerrarTransaccion("commit");
+            } else {
+                rollback();
+            }
+        }
     }
 
     public void rollback() {
         if (conn != null && transactionActive) {
-            try {
+            String resultado = "error";
+            try (Medicion m = METRICS.medir("tx", "conexion", "rollback")) {
                 conn.rollback();
-                transactionActive = false;
+                m.ok();
+                resultado = "rollback";
             } catch (SQLException e) {
                 System.err.println("Error durante el rollback: " + e.getMessage());
+            } finally {
+                cerrarTransaccion(resultado);
             }
         }
     }
@@ -67,7 +102,41 @@ public class TransactionManager implements AutoCloseable {
         }
     }
 
+    /** Da la transacción por terminada (también si el commit o el rollback fallaron): descuenta tx.activas. */
+    private void cerrarTransaccion(String resultado) {
+        transactionActive = false;
+        ACTIVAS.decrementAndGet();
+        finalizarEvento(resultado);
+    }
+
+    /** Cierra el evento JFR de la transacción con el resultado indicado. */
+    private void finalizarEvento(String resultado) {
+        if (evento != null) {
+            evento.resultado = resultado;
+            evento.commit();
+            evento = null;
+        }
+    }
+
     public boolean isTransactionActive() {
         return transactionActive;
     }
+
+    /** Operación JDBC a ejecutar dentro de una transacción. */
+    @FunctionalInterface
+    public interface OperacionTx {
+        void ejecutar(Connection conn) throws Exception;
+    }
+
+    /**
+     * Ejecuta la operación en una transacción propia sobre una conexión nueva
+     * (commit al terminar, rollback si falla).
+     */
+    public static void enTransaccion(OperacionTx operacion) throws Exception {
+        try (TransactionManager tx = new TransactionManager(DataBaseConnection.getConnection())) {
+            tx.startTransaction();
+            operacion.ejecutar(tx.getConnection());
+            tx.commit();
+        }
+    }
 }
\ No newline at end of file
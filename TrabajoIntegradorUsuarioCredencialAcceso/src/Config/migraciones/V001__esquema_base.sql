@@ -0,0 +1,30 @@
+-- Tablas base: credenciales_acceso y usuarios (relación 1→1 opcional)
+
+CREATE TABLE IF NOT EXISTS credenciales_acceso (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    hash_password VARCHAR(255) NOT NULL,    -- pbkdf2_sha256$iteraciones$clave
+    salt VARCHAR(64) NULL,
+    requiere_reset BOOLEAN NOT NULL DEFAULT FALSE,
+    ultimo_cambio DATETIME DEFAULT CURRENT_TIMESTAMP
+                ON UPDATE CURRENT_TIMESTAMP,
+    eliminado BOOLEAN NOT NULL DEFAULT FALSE
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS usuarios (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(30)  NOT NULL,
+    email    VARCHAR(120) NOT NULL,
+    activo   BOOLEAN      NOT NULL DEFAULT TRUE,
+    fecha_registro DATETIME DEFAULT CURRENT_TIMESTAMP,
+    credencial_id INT NULL,
+    eliminado BOOLEAN NOT NULL DEFAULT FALSE,
+    CONSTRAINT uq_usuarios_username UNIQUE (username),
+    CONSTRAINT uq_usuarios_email    UNIQUE (email),
+    CONSTRAINT fk_usuarios_credencial
+        FOREIGN KEY (credencial_id)
+        REFERENCES credenciales_acceso(id)
+        ON UPDATE CASCADE
+        ON DELETE SET NULL,
+    -- También es el índice de los joins usuarios.credencial_id = credenciales_acceso.id
+    CONSTRAINT uq_usuarios_credencial UNIQUE (credencial_id)
+) ENGINE=InnoDB;
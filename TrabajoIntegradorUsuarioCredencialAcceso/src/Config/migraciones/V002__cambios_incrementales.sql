@@ -0,0 +1,9 @@
+-- Consultas incrementales (CambiosDAO): keyset sobre (actualizado_en, id)
+
+ALTER TABLE usuarios
+    ADD COLUMN actualizado_en TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+    ADD INDEX idx_usuarios_actualizado (actualizado_en, id);
+
+ALTER TABLE credenciales_acceso
+    ADD COLUMN actualizado_en TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+    ADD INDEX idx_credenciales_actualizado (actualizado_en, id);
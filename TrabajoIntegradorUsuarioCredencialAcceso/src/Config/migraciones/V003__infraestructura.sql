@@ -0,0 +1,42 @@
+-- IDs por bloques, outbox, invalidación de caches y replicación desde el log local
+
+CREATE TABLE IF NOT EXISTS id_secuencias (
+    nombre VARCHAR(64) PRIMARY KEY,
+    siguiente BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS outbox_eventos (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entidad VARCHAR(32) NOT NULL,
+    entidad_id INT NOT NULL,
+    tipo VARCHAR(16) NOT NULL,
+    creado_en TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX idx_outbox_creado (creado_en)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS cache_invalidaciones (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entidad VARCHAR(32) NOT NULL,
+    entidad_id INT NOT NULL,
+    username VARCHAR(30) NULL,
+    email VARCHAR(120) NULL,
+    nodo VARCHAR(64) NOT NULL,
+    creado_en TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX idx_cache_inv_creado (creado_en)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS replicacion_origen (
+    nodo VARCHAR(64) NOT NULL,
+    tabla VARCHAR(32) NOT NULL,
+    id_local INT NOT NULL,
+    id_remoto INT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (nodo, tabla, id_local)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS replicacion_posicion (
+    nodo VARCHAR(64) NOT NULL,
+    tabla VARCHAR(32) NOT NULL,
+    lsn BIGINT NOT NULL,
+    PRIMARY KEY (nodo, tabla)
+) ENGINE=InnoDB;
@@ -0,0 +1,5 @@
+-- Vencimiento de contraseñas: rango sobre ultimo_cambio de las credenciales activas sin reset.
+-- Con el id implícito al final, cubre SELECT id, ultimo_cambio ... ORDER BY ultimo_cambio, id.
+
+ALTER TABLE credenciales_acceso
+    ADD INDEX idx_credenciales_vencimiento (eliminado, requiere_reset, ultimo_cambio);
@@ -0,0 +1,5 @@
+-- Actividad de inicio de sesión (RegistroActividad)
+
+ALTER TABLE usuarios
+    ADD COLUMN ultimo_login DATETIME NULL,
+    ADD COLUMN intentos_fallidos INT NOT NULL DEFAULT 0;
@@ -0,0 +1,12 @@
+-- Historial de cambios de credenciales, sin secretos (AuditoriaCredenciales)
+
+CREATE TABLE IF NOT EXISTS auditoria_credenciales (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    credencial_id INT NOT NULL,
+    accion VARCHAR(20) NOT NULL,
+    actor VARCHAR(100) NOT NULL,
+    fecha DATETIME(6) NOT NULL,
+    antes VARCHAR(255) NULL,
+    despues VARCHAR(255) NULL,
+    INDEX idx_auditoria_credencial (credencial_id, fecha)
+) ENGINE=InnoDB;
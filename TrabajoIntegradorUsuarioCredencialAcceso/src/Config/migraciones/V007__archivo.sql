@@ -0,0 +1,29 @@
+-- Archivo de filas eliminadas lógicamente (Archivador). El lote a archivar sale de un rango
+-- de (eliminado, actualizado_en), sin recorrer las filas activas.
+
+CREATE TABLE IF NOT EXISTS usuarios_archivo (
+    id INT PRIMARY KEY,
+    username VARCHAR(30) NOT NULL,
+    email VARCHAR(120) NOT NULL,
+    activo BOOLEAN NOT NULL,
+    fecha_registro DATETIME NULL,
+    credencial_id INT NULL,
+    eliminado_en TIMESTAMP(6) NOT NULL,
+    archivado_en TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX idx_usuarios_archivo_username (username),
+    INDEX idx_usuarios_archivo_credencial (credencial_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS credenciales_acceso_archivo (
+    id INT PRIMARY KEY,
+    hash_password VARCHAR(255) NOT NULL,
+    salt VARCHAR(64) NULL,
+    ultimo_cambio DATETIME NULL,
+    requiere_reset BOOLEAN NOT NULL,
+    eliminado_en TIMESTAMP(6) NOT NULL,
+    archivado_en TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)
+) ENGINE=InnoDB;
+
+ALTER TABLE usuarios ADD INDEX idx_usuarios_eliminado (eliminado, actualizado_en);
+
+ALTER TABLE credenciales_acceso ADD INDEX idx_credenciales_eliminado (eliminado, actualizado_en);
@@ -0,0 +1,8 @@
+-- Listados de filas activas: WHERE eliminado = FALSE ORDER BY id (getAll). El índice entrega
+-- los ids activos en orden sin leer las bajas lógicas.
+-- Las búsquedas por username/email usan uq_usuarios_username / uq_usuarios_email y los joins
+-- por credencial_id usan uq_usuarios_credencial.
+
+ALTER TABLE usuarios ADD INDEX idx_usuarios_activos (eliminado, id);
+
+ALTER TABLE credenciales_acceso ADD INDEX idx_credenciales_activas (eliminado, id);
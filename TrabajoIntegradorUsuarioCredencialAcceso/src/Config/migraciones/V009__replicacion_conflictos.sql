@@ -0,0 +1,12 @@
+-- Cambios locales que la replicación salteó por conflicto (gana la BD central). Se registran
+-- en la misma transacción que avanza la posición, así ningún salteo queda sin rastro.
+
+CREATE TABLE IF NOT EXISTS replicacion_conflictos (
+    nodo VARCHAR(64) NOT NULL,
+    tabla VARCHAR(32) NOT NULL,
+    id_local INT NOT NULL,
+    version BIGINT NOT NULL,
+    error VARCHAR(500) NOT NULL,
+    registrado_en TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    PRIMARY KEY (nodo, tabla, id_local, version)
+) ENGINE=InnoDB;
@@ -0,0 +1,5 @@
+-- Marca de las bajas lógicas que hizo RecolectorHuerfanas. El modo purgar sólo borra filas con
+-- la marca: una credencial dada de baja por el usuario o el servicio queda para el Archivador.
+
+ALTER TABLE credenciales_acceso
+    ADD COLUMN baja_huerfana BOOLEAN NOT NULL DEFAULT FALSE;
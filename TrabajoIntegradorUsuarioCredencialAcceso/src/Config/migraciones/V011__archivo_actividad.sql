@@ -0,0 +1,5 @@
+-- Actividad de inicio de sesión (V005) también en el archivo de usuarios.
+
+ALTER TABLE usuarios_archivo
+    ADD COLUMN ultimo_login DATETIME NULL,
+    ADD COLUMN intentos_fallidos INT NOT NULL DEFAULT 0;
@@ -0,0 +1,83 @@
+package Dao;
+
+import Config.TransactionManager;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Access Object de la actividad de inicio de sesión en usuarios (ultimo_login e
+ * intentos_fallidos).
+ *
+ * No se escribe en cada login: RegistroActividad acumula la actividad en memoria y la vuelca
+ * de a lotes con aplicarLote(), un UPDATE por usuario en un único JDBC batch y una única
+ * transacción.
+ *
+ * - Los UPDATE dejan actualizado_en como estaba: la actividad no es un cambio del usuario,
+ *   así que no aparece en las consultas incrementales (CambiosDAO) ni emite eventos de outbox.
+ * - Tampoco invalida caches: Usuario no expone estas columnas.
+ * - Un usuario inexistente o eliminado simplemente no actualiza filas.
+ * - ultimo_login sólo avanza: un volcado atrasado de otro nodo no lo mueve hacia atrás.
+ */
+public class ActividadDAO {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "actividad";
+
+    /**
+     * Actividad acumulada de un usuario desde el último volcado.
+     * @param usuarioId usuario
+     * @param ultimoLogin último inicio de sesión correcto (null si no hubo)
+     * @param reiniciarFallidos hubo un login correcto: el contador vuelve a 0 antes de sumar
+     * @param fallidos intentos fallidos a sumar (posteriores al último login correcto)
+     */
+    public record Actividad(int usuarioId, LocalDateTime ultimoLogin, boolean reiniciarFallidos, int fallidos) {
+    }
+
+    // =======================
+    // SQL BASE
+    // =======================
+
+    private static final String UPDATE_ACTIVIDAD_SQL = """
+        UPDATE usuarios
+        SET ultimo_login = GREATEST(COALESCE(?, ultimo_login), COALESCE(ultimo_login, ?)),
+            intentos_fallidos = IF(?, 0, intentos_fallidos) + ?,
+            actualizado_en = actualizado_en
+        WHERE id = ? AND eliminado = FALSE
+    """;
+
+    /**
+     * Aplica el lote en una transacción propia (JDBC batch).
+     * @return usuarios actualizados
+     */
+    public int aplicarLote(List<Actividad> lote) throws Exception {
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        int[] actualizados = new int[1];
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "aplicarLote")) {
+            TransactionManager.enTransaccion(conn -> {
+                try (PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.UPDATE_ACTIVIDAD_SQL", UPDATE_ACTIVIDAD_SQL)) {
+                    for (Actividad a : lote) {
+                        Timestamp login = a.ultimoLogin() == null ? null : Timestamp.valueOf(a.ultimoLogin());
+                        stmt.setTimestamp(1, login);
+                        stmt.setTimestamp(2, login);
+                        stmt.setBoolean(3, a.reiniciarFallidos());
+                        stmt.setInt(4, a.fallidos());
+                        stmt.setInt(5, a.usuarioId());
+                        stmt.addBatch();
+                    }
+                    for (int n : stmt.executeBatch()) {
+                        actualizados[0] += n > 0 || n == Statement.SUCCESS_NO_INFO ? 1 : 0;
+                    }
+                }
+            });
+            return m.ok(actualizados[0]);
+        }
+    }
+}
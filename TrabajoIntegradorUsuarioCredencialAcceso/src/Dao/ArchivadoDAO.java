@@ -0,0 +1,329 @@
+package Dao;
+
+import Config.DataBaseConnection;
+import Config.TransactionManager;
+import Eventos.TipoCambio;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+import Models.CredencialAcceso;
+import Models.Usuario;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Archivo de filas eliminadas lógicamente: las mueve de usuarios / credenciales_acceso a
+ * usuarios_archivo / credenciales_acceso_archivo y permite consultarlas.
+ *
+ * Movimiento (Service.Archivador):
+ * - archivarUsuarios() / archivarCredenciales() mueven como máximo max filas por transacción:
+ *   SELECT ... FOR UPDATE del lote, INSERT ... SELECT en la tabla de archivo y DELETE.
+ * - Sólo se mueven filas con eliminado = TRUE y actualizado_en (el momento de la baja) anterior
+ *   al límite. El lote sale de un rango de idx_usuarios_eliminado / idx_credenciales_eliminado
+ *   (eliminado, actualizado_en): no se recorren las filas activas.
+ * - Una credencial sólo se archiva si ninguna fila de usuarios la referencia (el DELETE
+ *   dispararía el ON DELETE SET NULL de la FK). Por eso conviene archivar primero los usuarios.
+ * - Un usuario se archiva con su actividad (ultimo_login, intentos_fallidos). Si su credencial
+ *   seguía activa, la misma transacción la da de baja lógica (ultimo_cambio intacto, evento
+ *   ELIMINADO en el outbox): sin usuario quedaría huérfana; así pasa su propio período y se
+ *   archiva como cualquier credencial eliminada.
+ * - El DELETE no emite eventos de outbox ni invalidaciones: las filas ya estaban eliminadas,
+ *   el evento ELIMINADO se emitió en la baja y los DAOs nunca las devuelven.
+ *
+ * Consulta (opt-in): los DAOs de siempre sólo ven las tablas activas; las filas archivadas se
+ * leen explícitamente con usuarioArchivado(), usuariosArchivadosPorUsername() y
+ * credencialArchivada(). Los objetos devueltos tienen isEliminado() = true.
+ */
+public class ArchivadoDAO {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "archivo";
+
+    // =======================
+    // SQL BASE (movimiento)
+    // =======================
+
+    private static final String SELECT_USUARIOS_ARCHIVABLES_SQL = """
+        SELECT id
+        FROM usuarios
+        WHERE eliminado = TRUE AND actualizado_en < ?
+        ORDER BY actualizado_en, id
+        LIMIT ?
+        FOR UPDATE
+    """;
+
+    private static final String COPIAR_USUARIOS_SQL = """
+        INSERT INTO usuarios_archivo (id, username, email, activo, fecha_registro, credencial_id,
+                                      ultimo_login, intentos_fallidos, eliminado_en)
+        SELECT id, username, email, activo, fecha_registro, credencial_id,
+               ultimo_login, intentos_fallidos, actualizado_en
+        FROM usuarios
+        WHERE id IN (%s)
+    """;
+
+    /** Credenciales todavía activas de los usuarios del lote (el IN se completa con un ? por id). */
+    private static final String SELECT_CREDENCIALES_ACTIVAS_SQL = """
+        SELECT c.id
+        FROM usuarios u
+        JOIN credenciales_acceso c ON c.id = u.credencial_id
+        WHERE u.id IN (%s) AND c.eliminado = FALSE
+        FOR UPDATE
+    """;
+
+    /** ultimo_cambio = ultimo_cambio evita el ON UPDATE CURRENT_TIMESTAMP (no es un cambio de contraseña). */
+    private static final String ELIMINAR_CREDENCIALES_SQL = """
+        UPDATE credenciales_acceso
+        SET eliminado = TRUE, ultimo_cambio = ultimo_cambio
+        WHERE id IN (%s)
+    """;
+
+    private static final String BORRAR_USUARIOS_SQL = "DELETE FROM usuarios WHERE id IN (%s)";
+
+    private static final String SELECT_CREDENCIALES_ARCHIVABLES_SQL = """
+        SELECT c.id
+        FROM credenciales_acceso c
+        WHERE c.eliminado = TRUE AND c.actualizado_en < ?
+          AND NOT EXISTS (SELECT 1 FROM usuarios u WHERE u.credencial_id = c.id)
+        ORDER BY c.actualizado_en, c.id
+        LIMIT ?
+        FOR UPDATE
+    """;
+
+    private static final String COPIAR_CREDENCIALES_SQL = """
+        INSERT INTO credenciales_acceso_archivo (id, hash_password, salt, ultimo_cambio, requiere_reset, eliminado_en)
+        SELECT id, hash_password, salt, ultimo_cambio, requiere_reset, actualizado_en
+        FROM credenciales_acceso
+        WHERE id IN (%s)
+    """;
+
+    private static final String BORRAR_CREDENCIALES_SQL = "DELETE FROM credenciales_acceso WHERE id IN (%s)";
+
+    // =======================
+    // SQL BASE (consulta)
+    // =======================
+
+    /** La credencial de un usuario archivado puede seguir activa o estar archivada también. */
+    private static final String SELECT_USUARIO_ARCHIVADO_SQL = """
+        SELECT
+            u.id, u.username, u.email, u.activo, u.fecha_registro, u.credencial_id,
+            COALESCE(c.id, ca.id) AS cred_id,
+            COALESCE(c.hash_password, ca.hash_password) AS hash_password,
+            COALESCE(c.salt, ca.salt) AS salt,
+            COALESCE(c.ultimo_cambio, ca.ultimo_cambio) AS ultimo_cambio,
+            COALESCE(c.requiere_reset, ca.requiere_reset) AS requiere_reset,
+            COALESCE(c.eliminado, ca.id IS NOT NULL) AS cred_eliminado
+        FROM usuarios_archivo u
+        LEFT JOIN credenciales_acceso c ON u.credencial_id = c.id
+        LEFT JOIN credenciales_acceso_archivo ca ON u.credencial_id = ca.id
+    """;
+
+    private static final String SELECT_USUARIO_ARCHIVADO_BY_ID_SQL = SELECT_USUARIO_ARCHIVADO_SQL + "WHERE u.id = ?";
+
+    /** En el archivo el username no es único: puede haber varias bajas con el mismo. */
+    private static final String SELECT_USUARIOS_ARCHIVADOS_BY_USERNAME_SQL =
+            SELECT_USUARIO_ARCHIVADO_SQL + "WHERE u.username = ? ORDER BY u.id";
+
+    private static final String SELECT_CREDENCIAL_ARCHIVADA_BY_ID_SQL = """
+        SELECT id, hash_password, salt, ultimo_cambio, requiere_reset
+        FROM credenciales_acceso_archivo
+        WHERE id = ?
+    """;
+
+    /** Outbox de eventos de cambio; null = sin eventos. */
+    private final OutboxDAO outbox;
+
+    /**
+     * @param outbox registra un evento ELIMINADO por credencial dada de baja al archivar su
+     *               usuario (null = sin eventos)
+     */
+    public ArchivadoDAO(OutboxDAO outbox) {
+        this.outbox = outbox;
+    }
+
+    // =======================
+    // Movimiento
+    // =======================
+
+    /**
+     * Mueve al archivo hasta max usuarios eliminados antes de limite, en una transacción. En la
+     * misma transacción da de baja sus credenciales todavía activas.
+     * @return ids archivados (menos que max: no queda nada más por archivar)
+     */
+    public List<Integer> archivarUsuarios(LocalDateTime limite, int max) throws Exception {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "archivarUsuarios")) {
+            return m.ok(mover("usuarios", SELECT_USUARIOS_ARCHIVABLES_SQL, COPIAR_USUARIOS_SQL, BORRAR_USUARIOS_SQL,
+                    true, limite, max));
+        }
+    }
+
+    /**
+     * Mueve al archivo hasta max credenciales eliminadas antes de limite y sin usuario que las
+     * referencie, en una transacción.
+     * @return ids archivados (menos que max: no queda nada más por archivar)
+     */
+    public List<Integer> archivarCredenciales(LocalDateTime limite, int max) throws Exception {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "archivarCredenciales")) {
+            return m.ok(mover("credenciales_acceso", SELECT_CREDENCIALES_ARCHIVABLES_SQL, COPIAR_CREDENCIALES_SQL,
+                    BORRAR_CREDENCIALES_SQL, false, limite, max));
+        }
+    }
+
+    // =======================
+    // Consulta (opt-in)
+    // =======================
+
+    /** Usuario archivado por ID, o null. */
+    public Usuario usuarioArchivado(int id) throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "usuarioArchivado");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios_archivo.SELECT_BY_ID_SQL",
+                     SELECT_USUARIO_ARCHIVADO_BY_ID_SQL)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return m.ok(rs.next() ? mapUsuario(rs) : null);
+            }
+        }
+    }
+
+    /** Usuarios archivados con ese username (puede haber más de uno), en orden de id. */
+    public List<Usuario> usuariosArchivadosPorUsername(String username) throws SQLException {
+        List<Usuario> usuarios = new ArrayList<>();
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "usuariosArchivadosPorUsername");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios_archivo.SEARCH_BY_USERNAME_SQL",
+                     SELECT_USUARIOS_ARCHIVADOS_BY_USERNAME_SQL)) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    usuarios.add(mapUsuario(rs));
+                }
+            }
+            return m.ok(usuarios);
+        }
+    }
+
+    /** Credencial archivada por ID, o null. */
+    public CredencialAcceso credencialArchivada(int id) throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "credencialArchivada");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso_archivo.SELECT_BY_ID_SQL",
+                     SELECT_CREDENCIAL_ARCHIVADA_BY_ID_SQL)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return m.ok(null);
+                }
+                CredencialAcceso c = new CredencialAcceso();
+                c.setId(rs.getInt("id"));
+                c.setHashPassword(rs.getString("hash_password"));
+                c.setSalt(rs.getString("salt"));
+                Timestamp tc = rs.getTimestamp("ultimo_cambio");
+                c.setUltimoCambio(tc == null ? null : tc.toLocalDateTime());
+                c.setRequiereReset(rs.getBoolean("requiere_reset"));
+                c.setEliminado(true);
+                return m.ok(c);
+            }
+        }
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    /**
+     * Bloquea el lote, lo copia al archivo y lo borra, en una transacción.
+     * @param bajaCredenciales el lote son usuarios: antes del DELETE da de baja sus credenciales activas
+     */
+    private List<Integer> mover(String tabla, String selectSql, String copiarSql, String borrarSql,
+                                boolean bajaCredenciales, LocalDateTime limite, int max) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        TransactionManager.enTransaccion(conn -> {
+            try (PreparedStatement stmt = StatementTracer.prepare(conn, tabla + ".SELECT_ARCHIVABLES_SQL", selectSql)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(limite));
+                stmt.setInt(2, max);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+            String marcadores = CredencialAccesoDAO.marcadores(ids.size());
+            try (PreparedStatement stmt = StatementTracer.prepare(conn, tabla + ".COPIAR_ARCHIVO_SQL", copiarSql.formatted(marcadores))) {
+                CredencialAccesoDAO.setIds(stmt, ids);
+                stmt.executeUpdate();
+            }
+            if (bajaCredenciales) {
+                eliminarCredencialesTx(ids, conn);
+            }
+            try (PreparedStatement stmt = StatementTracer.prepare(conn, tabla + ".BORRAR_ARCHIVADOS_SQL", borrarSql.formatted(marcadores))) {
+                CredencialAccesoDAO.setIds(stmt, ids);
+                if (stmt.executeUpdate() != ids.size()) {
+                    throw new SQLException("El archivo de " + tabla + " no borró todas las filas copiadas");
+                }
+            }
+        });
+        return ids;
+    }
+
+    /** Baja lógica de las credenciales activas de los usuarios, en la transacción del caller. */
+    private void eliminarCredencialesTx(List<Integer> usuarioIds, Connection conn) throws Exception {
+        List<Integer> credenciales = new ArrayList<>();
+        try (PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_ACTIVAS_ARCHIVO_SQL",
+                SELECT_CREDENCIALES_ACTIVAS_SQL.formatted(CredencialAccesoDAO.marcadores(usuarioIds.size())))) {
+            CredencialAccesoDAO.setIds(stmt, usuarioIds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    credenciales.add(rs.getInt(1));
+                }
+            }
+        }
+        if (credenciales.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.ELIMINAR_ARCHIVO_SQL",
+                ELIMINAR_CREDENCIALES_SQL.formatted(CredencialAccesoDAO.marcadores(credenciales.size())))) {
+            CredencialAccesoDAO.setIds(stmt, credenciales);
+            stmt.executeUpdate();
+        }
+        if (outbox != null) {
+            outbox.registrarLoteTx("credencial", credenciales, TipoCambio.ELIMINADO, conn);
+        }
+    }
+
+    private Usuario mapUsuario(ResultSet rs) throws SQLException {
+        Usuario u = new Usuario();
+        u.setId(rs.getInt("id"));
+        u.setUsername(rs.getString("username"));
+        u.setEmail(rs.getString("email"));
+        u.setActivo(rs.getBoolean("activo"));
+        u.setEliminado(true);
+
+        Timestamp ts = rs.getTimestamp("fecha_registro");
+        u.setFechaRegistro(ts == null ? null : ts.toLocalDateTime());
+
+        int credId = rs.getInt("cred_id");
+        if (credId > 0 && !rs.wasNull()) {
+            CredencialAcceso c = new CredencialAcceso();
+            c.setId(credId);
+            c.setHashPassword(rs.getString("hash_password"));
+            c.setSalt(rs.getString("salt"));
+
+            Timestamp tc = rs.getTimestamp("ultimo_cambio");
+            c.setUltimoCambio(tc == null ? null : tc.toLocalDateTime());
+
+            c.setRequiereReset(rs.getBoolean("requiere_reset"));
+            c.setEliminado(rs.getBoolean("cred_eliminado"));
+            u.setCredencial(c);
+        }
+        return u;
+    }
+}
@@ -0,0 +1,72 @@
+package Dao;
+
+import Config.TransactionManager;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Access Object de la tabla auditoria_credenciales: historial de cambios de las credenciales.
+ *
+ * Sólo inserta, de a lotes: AuditoriaCredenciales encola los registros y un único hilo los
+ * escribe con insertarLote(). Los registros NUNCA llevan hash_password ni salt: antes y despues
+ * describen el esquema del hash, requiere_reset, ultimo_cambio y eliminado.
+ */
+public class AuditoriaDAO {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "auditoria";
+
+    /**
+     * Registro de auditoría.
+     * @param credencialId credencial afectada
+     * @param accion ALTA, MODIFICACION, CAMBIO_CONTRASENA, REHASH, VENCIMIENTO, BAJA o PURGA
+     * @param actor quién hizo el cambio
+     * @param fecha cuándo se hizo (no cuándo se escribió el registro)
+     * @param antes estado anterior sin secretos (null en un alta)
+     * @param despues estado posterior sin secretos
+     */
+    public record Registro(int credencialId, String accion, String actor, LocalDateTime fecha,
+                           String antes, String despues) {
+    }
+
+    // =======================
+    // SQL BASE
+    // =======================
+
+    private static final String INSERT_SQL = """
+        INSERT INTO auditoria_credenciales (credencial_id, accion, actor, fecha, antes, despues)
+        VALUES (?, ?, ?, ?, ?, ?)
+    """;
+
+    /**
+     * Inserta el lote en una transacción propia (JDBC batch).
+     * Con rewriteBatchedStatements=true en la URL el driver lo envía como un único INSERT multi-fila.
+     */
+    public void insertarLote(List<Registro> registros) throws Exception {
+        if (registros.isEmpty()) {
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "insertarLote")) {
+            TransactionManager.enTransaccion(conn -> {
+                try (PreparedStatement stmt = StatementTracer.prepare(conn, "auditoria_credenciales.INSERT_SQL", INSERT_SQL)) {
+                    for (Registro r : registros) {
+                        stmt.setInt(1, r.credencialId());
+                        stmt.setString(2, r.accion());
+                        stmt.setString(3, r.actor());
+                        stmt.setTimestamp(4, Timestamp.valueOf(r.fecha()));
+                        stmt.setString(5, r.antes());
+                        stmt.setString(6, r.despues());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            });
+            m.ok();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package Dao;
+
+import Config.DataBaseConnection;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object de la tabla cache_invalidaciones: canal de invalidación de caches
+ * entre nodos sin broker externo.
+ *
+ * Cada escritura cacheable agrega (en su misma transacción) un registro con la entidad,
+ * el ID y las claves alternativas afectadas (username/email). Cada nodo lee la tabla de
+ * forma incremental por id con CacheInvalidador y desaloja esas claves de su cache.
+ */
+public class CacheInvalidacionDAO {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "cache_invalidacion";
+
+    /**
+     * Registro de invalidación.
+     * @param id id del registro (0 hasta persistirlo)
+     * @param entidad "usuario" o "credencial"
+     * @param entidadId ID afectado
+     * @param username username afectado (null si no aplica)
+     * @param email email afectado (null si no aplica)
+     * @param nodo nodo que hizo la escritura
+     */
+    public record Invalidacion(long id, String entidad, int entidadId, String username, String email, String nodo) {
+    }
+
+    // =======================
+    // SQL BASE
+    // =======================
+
+    private static final String INSERT_SQL = """
+        INSERT INTO cache_invalidaciones (entidad, entidad_id, username, email, nodo)
+        VALUES (?, ?, ?, ?, ?)
+    """;
+
+    private static final String SELECT_DESDE_SQL = """
+        SELECT id, entidad, entidad_id, username, email, nodo
+        FROM cache_invalidaciones
+        WHERE id > ?
+        ORDER BY id
+        LIMIT ?
+    """;
+
+    /** Relectura de huecos pendientes (el IN se completa con un ? por id). */
+    private static final String SELECT_IDS_SQL = """
+        SELECT id, entidad, entidad_id, username, email, nodo
+        FROM cache_invalidaciones
+        WHERE id IN (%s)
+        ORDER BY id
+    """;
+
+    private static final String SELECT_MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM cache_invalidaciones";
+
+    private static final String PURGAR_SQL = """
+        DELETE FROM cache_invalidaciones
+        WHERE creado_en < ?
+        ORDER BY id
+        LIMIT ?
+    """;
+
+    // =======================
+    // Escritura (dentro de la transacción del cambio)
+    // =======================
+
+    /** Registra las invalidaciones (JDBC batch). NO cierra la conexión. */
+    public void registrarTx(List<Invalidacion> invalidaciones, Connection conn) throws SQLException {
+        if (invalidaciones.isEmpty()) {
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "registrarTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "cache_invalidaciones.INSERT_SQL", INSERT_SQL)) {
+            for (Invalidacion inv : invalidaciones) {
+                stmt.setString(1, inv.entidad());
+                stmt.setInt(2, inv.entidadId());
+                setNullable(stmt, 3, inv.username());
+                setNullable(stmt, 4, inv.email());
+                stmt.setString(5, inv.nodo());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            m.ok();
+        }
+    }
+
+    // =======================
+    // Lectura (poller de cada nodo)
+    // =======================
+
+    /** Registros con id mayor a desdeId, en orden (hasta max). */
+    public List<Invalidacion> leerDesde(long desdeId, int max) throws SQLException {
+        List<Invalidacion> registros = new ArrayList<>();
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "leerDesde");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "cache_invalidaciones.SELECT_DESDE_SQL", SELECT_DESDE_SQL)) {
+            stmt.setLong(1, desdeId);
+            stmt.setInt(2, max);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    registros.add(mapInvalidacion(rs));
+                }
+            }
+            m.ok();
+        }
+        return registros;
+    }
+
+    /** Registros con esos ids que ya existen (huecos que se confirmaron tarde), en orden. */
+    public List<Invalidacion> leerIds(List<Long> ids) throws SQLException {
+        List<Invalidacion> registros = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return registros;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "leerIds");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "cache_invalidaciones.SELECT_IDS_SQL",
+                     SELECT_IDS_SQL.formatted(CredencialAccesoDAO.marcadores(ids.size())))) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setLong(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    registros.add(mapInvalidacion(rs));
+                }
+            }
+            m.ok();
+        }
+        return registros;
+    }
+
+    /** Id del último registro (0 si la tabla está vacía). */
+    public long getMaxId() throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "getMaxId");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "cache_invalidaciones.SELECT_MAX_ID_SQL", SELECT_MAX_ID_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return m.ok(rs.getLong(1));
+        }
+    }
+
+    /**
+     * Borra hasta max registros creados antes de la fecha indicada.
+     * @return filas borradas
+     */
+    public int purgarAnteriores(LocalDateTime limite, int max) throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "purgarAnteriores");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "cache_invalidaciones.PURGAR_SQL", PURGAR_SQL)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(limite));
+            stmt.setInt(2, max);
+            return m.ok(stmt.executeUpdate());
+        }
+    }
+
+    private static Invalidacion mapInvalidacion(ResultSet rs) throws SQLException {
+        return new Invalidacion(
+                rs.getLong("id"),
+                rs.getString("entidad"),
+                rs.getInt("entidad_id"),
+                rs.getString("username"),
+                rs.getString("email"),
+                rs.getString("nodo"));
+    }
+
+    private void setNullable(PreparedStatement stmt, int index, String valor) throws SQLException {
+        if (valor != null) {
+            stmt.setString(index, valor);
+        } else {
+            stmt.setNull(index, Types.VARCHAR);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package Dao;
+
+import Dao.CacheInvalidacionDAO.Invalidacion;
+import Metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Canal de invalidación de caches entre nodos, sobre la tabla cache_invalidaciones.
+ *
+ * - Escritura: los DAOs cacheados registran la invalidación en la transacción del cambio
+ *   (registrarTx) y la aplican enseguida en el propio nodo (aplicarLocal).
+ * - Lectura: un hilo daemon lee la tabla por id desde la última marca (high-water mark)
+ *   y entrega los registros en lotes a los oyentes. Los del propio nodo también se aplican:
+ *   cubren escrituras con insertTx/...Tx cuyo commit ocurre después de aplicarLocal().
+ * - Huecos: un id faltante puede ser una transacción todavía sin commit. Perder una
+ *   invalidación deja la entrada vieja hasta que venza su TTL, así que nunca se saltea por
+ *   tiempo: se anota (HuecosPendientes), se vuelve a buscar en cada sondeo y se aplica cuando
+ *   aparece. Se descarta sólo cuando ninguna transacción abierta puede confirmarla.
+ * - Al posicionarse por primera vez se invalida todo (lo cacheado antes no está cubierto).
+ *
+ * Métricas: cache{entidad=invalidacion,operacion=recibidas|huecos|tardias|errores} y gauge
+ * cache.invalidacion.ultimoId.
+ */
+public final class CacheInvalidador implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+
+    /** Lecturas entre purgas de registros viejos. */
+    private static final int LECTURAS_POR_PURGA = 600;
+
+    /** Huecos pendientes como máximo (por encima se descartan los más viejos). */
+    private static final int MAX_HUECOS = 10_000;
+
+    /** Receptor de invalidaciones (un cache). */
+    public interface Oyente {
+        /** Desaloja las claves de los registros. */
+        void invalidar(List<Invalidacion> lote);
+
+        /** Desaloja todo el cache. */
+        void invalidarTodo();
+    }
+
+    private final CacheInvalidacionDAO dao;
+    private final String nodo;
+    private final int lote;
+    private final long retencionHoras;
+    private final HuecosPendientes pendientes = new HuecosPendientes(MAX_HUECOS);
+    private final CopyOnWriteArrayList<Oyente> oyentes = new CopyOnWriteArrayList<>();
+
+    private final LongAdder recibidas = METRICS.contador("cache", "invalidacion", "recibidas");
+    private final LongAdder huecos = METRICS.contador("cache", "invalidacion", "huecos");
+    private final LongAdder tardias = METRICS.contador("cache", "invalidacion", "tardias");
+    private final LongAdder errores = METRICS.contador("cache", "invalidacion", "errores");
+
+    private volatile long ultimoId = -1;
+    private int lecturas;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param nodo identificador de este nodo (se guarda en cada registro para diagnóstico)
+     * @param lote registros por lectura
+     * @param retencionHoras antigüedad a partir de la que se purgan registros
+     */
+    public CacheInvalidador(CacheInvalidacionDAO dao, String nodo, int lote, long retencionHoras) {
+        this.dao = dao;
+        this.nodo = nodo;
+        this.lote = lote;
+        this.retencionHoras = retencionHoras;
+        METRICS.gauge("cache.invalidacion.ultimoId", () -> ultimoId);
+    }
+
+    public void agregarOyente(Oyente oyente) {
+        oyentes.add(oyente);
+    }
+
+    /** Crea un registro de invalidación de este nodo. */
+    public Invalidacion crear(String entidad, int entidadId, String username, String email) {
+        return new Invalidacion(0, entidad, entidadId, username, email, nodo);
+    }
+
+    /** Registra las invalidaciones en la transacción del caller. NO cierra la conexión. */
+    public void registrarTx(List<Invalidacion> invalidaciones, Connection conn) throws SQLException {
+        dao.registrarTx(invalidaciones, conn);
+    }
+
+    /** Aplica las invalidaciones en este nodo (sin esperar al sondeo). */
+    public void aplicarLocal(List<Invalidacion> invalidaciones) {
+        for (Oyente oyente : oyentes) {
+            oyente.invalidar(invalidaciones);
+        }
+    }
+
+    /** Sondea la tabla cada periodoMs en un hilo daemon. */
+    public synchronized void iniciar(long periodoMs) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cache-invalidador");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::sondearSeguro, 0, periodoMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    private void sondearSeguro() {
+        try {
+            sondear();
+        } catch (SQLException e) {
+            errores.increment();
+            System.err.println("Error al leer invalidaciones de cache: " + e.getMessage());
+        } catch (RuntimeException e) {
+            errores.increment();
+            System.err.println("Error al aplicar invalidaciones de cache: " + e.getMessage());
+        }
+    }
+
+    /** Lee todo lo nuevo desde la marca y lo entrega a los oyentes. */
+    synchronized void sondear() throws SQLException {
+        if (ultimoId < 0) {
+            ultimoId = dao.getMaxId();
+            for (Oyente oyente : oyentes) {
+                oyente.invalidarTodo();
+            }
+        }
+        while (true) {
+            List<Invalidacion> registros = dao.leerDesde(ultimoId, lote);
+            // La marca se lee después de la lectura: la transacción de cada hueco ya había empezado.
+            boolean conHuecos = !registros.isEmpty()
+                    && registros.get(registros.size() - 1).id() != ultimoId + registros.size();
+            HuecosPendientes.Marca vistos = conHuecos ? HuecosPendientes.leerMarca() : null;
+            for (Invalidacion inv : registros) {
+                if (inv.id() != ultimoId + 1) {
+                    int excedidos = pendientes.registrar(ultimoId, inv.id(), vistos);
+                    if (excedidos > 0) {
+                        huecos.add(excedidos);
+                        System.err.println("Invalidación de cache: " + excedidos + " huecos descartados por superar "
+                                + MAX_HUECOS + " pendientes");
+                    }
+                }
+                ultimoId = inv.id();
+            }
+            entregar(registros);
+            if (registros.size() < lote) {
+                break;
+            }
+        }
+        if (!pendientes.isEmpty()) {
+            // La marca se lee antes de releer: lo que terminó antes de la marca ya es visible.
+            HuecosPendientes.Marca marca = HuecosPendientes.leerMarca();
+            List<Invalidacion> llegadas = dao.leerIds(pendientes.primeros(lote));
+            for (Invalidacion inv : llegadas) {
+                pendientes.llegado(inv.id());
+            }
+            tardias.add(llegadas.size());
+            entregar(llegadas);
+            huecos.add(pendientes.resolver(marca));
+        }
+        if (++lecturas >= LECTURAS_POR_PURGA) {
+            lecturas = 0;
+            dao.purgarAnteriores(LocalDateTime.now().minusHours(retencionHoras), lote * 10);
+        }
+    }
+
+    private void entregar(List<Invalidacion> registros) {
+        if (registros.isEmpty()) {
+            return;
+        }
+        recibidas.add(registros.size());
+        for (Oyente oyente : oyentes) {
+            oyente.invalidar(registros);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package Dao;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Consultas incrementales ("cambiado desde") para sincronizar consumidores sin releer
+ * toda la tabla con getAll().
+ *
+ * Devuelve las filas cuyo actualizado_en es posterior al cursor, incluidas las eliminadas
+ * lógicamente, en orden (actualizado_en, id). Sólo entrega filas con actualizado_en anterior
+ * a NOW(6) - MARGEN_SEGUNDOS: una transacción todavía abierta puede confirmar después con un
+ * actualizado_en menor al de filas ya entregadas, y sin el margen esa fila se perdería.
+ *
+ * Implementaciones: UsuarioDAO, CredencialAccesoDAO.
+ *
+ * @param <T> entidad
+ */
+public interface CambiosDAO<T> {
+
+    /** Margen en segundos contra transacciones largas (-Ddao.cambios.margenSegundos, default 2). */
+    int MARGEN_SEGUNDOS = Integer.getInteger("dao.cambios.margenSegundos", 2);
+
+    /** Consumidor de páginas; recibe el cursor a guardar una vez procesadas las filas. */
+    @FunctionalInterface
+    interface Consumidor<T> {
+        void aceptar(List<T> filas, CursorCambios hasta) throws Exception;
+    }
+
+    /**
+     * Una página de cambios posteriores al cursor.
+     * @param max filas como máximo (mayor a 0)
+     * @throws IllegalArgumentException si max &lt;= 0
+     */
+    PaginaCambios<T> cambiosDesde(CursorCambios desde, int max) throws SQLException;
+
+    /**
+     * Recorre todos los cambios disponibles desde el cursor, página por página.
+     * Si el consumidor falla se corta el recorrido: basta retomar desde el último cursor
+     * que el consumidor guardó.
+     * @return cursor final (el desde el que retomar en la próxima sincronización)
+     * @throws IllegalArgumentException si lote &lt;= 0 (con 0 filas la página siempre parece llena)
+     */
+    default CursorCambios recorrerCambios(CursorCambios desde, int lote, Consumidor<T> consumidor) throws Exception {
+        if (lote <= 0) {
+            throw new IllegalArgumentException("El lote debe ser mayor a 0");
+        }
+        CursorCambios cursor = desde;
+        while (true) {
+            PaginaCambios<T> pagina = cambiosDesde(cursor, lote);
+            if (!pagina.filas().isEmpty()) {
+                consumidor.aceptar(pagina.filas(), pagina.siguiente());
+            }
+            cursor = pagina.siguiente();
+            if (!pagina.hayMas()) {
+                return cursor;
+            }
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package Dao;
 
 import Config.DataBaseConnection;
+import Config.TransactionManager;
+import Eventos.TipoCambio;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
 import Models.CredencialAcceso;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Data Access Object para la entidad CredencialAcceso.
@@ -17,11 +23,24 @@ import java.util.List;
  * - Usa PreparedStatements en TODAS las consultas (protección contra SQL injection)
  * - Implementa soft delete (eliminado=TRUE, no DELETE físico)
  * - NO maneja relaciones inversas (la relación 1→1 se resuelve desde UsuarioDAO con LEFT JOIN)
- * - Soporta transacciones mediante insertTx() (recibe Connection externa)
+ * - Soporta transacciones mediante insertTx(), actualizarTx() y eliminarTx() (reciben Connection externa)
+ * - Consultas incrementales por actualizado_en (CambiosDAO), incluidas las bajas lógicas
  *
  * Patrón: DAO con try-with-resources para manejo automático de recursos JDBC
+ * Sentencias: se preparan con StatementTracer (evento JFR por cada ejecución SQL)
+ * IDs: por defecto AUTO_INCREMENT + RETURN_GENERATED_KEYS; con un HiLoIdAllocator el ID se asigna
+ *      del lado del cliente antes del INSERT (sin leer claves generadas)
+ * Métricas: cada operación se mide en MetricsRegistry como dao{entidad=credencial,operacion=...}
+ * Eventos: con un OutboxDAO cada alta/modificación/baja registra un evento en outbox_eventos en la
+ *          misma transacción (las versiones sin Tx abren su propia transacción)
+ * Rehash: reemplazarHash() es un compare-and-set sobre hash_password (RehashDAO)
+ * Vencimiento: rangos por ultimo_cambio y marcado de requiere_reset por lotes (VencimientoDAO)
  */
-public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
+public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso>, CambiosDAO<CredencialAcceso>, RehashDAO,
+        VencimientoDAO {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "credencial";
 
     // =======================
     // SQL BASE
@@ -38,6 +57,12 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
         VALUES (?, ?, ?, ?)
     """;
 
+    /** Igual que INSERT_SQL pero con el id asignado por HiLoIdAllocator (último parámetro). */
+    private static final String INSERT_CON_ID_SQL = """
+        INSERT INTO credenciales_acceso (hash_password, salt, ultimo_cambio, requiere_reset, id)
+        VALUES (?, ?, ?, ?, ?)
+    """;
+
     /**
      * Actualiza una credencial por id.
      * NO actualiza el flag eliminado (solo se modifica en soft delete).
@@ -72,6 +97,99 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
         ORDER BY id
     """;
 
+    /**
+     * Cambios posteriores a un cursor (actualizado_en, id), incluidas las bajas lógicas.
+     * Keyset sobre idx_credenciales_actualizado (actualizado_en, id): no hay OFFSET.
+     */
+    private static final String SELECT_CAMBIOS_SQL = """
+        SELECT id, hash_password, salt, ultimo_cambio, requiere_reset, eliminado, actualizado_en
+        FROM credenciales_acceso
+        WHERE (actualizado_en > ? OR (actualizado_en = ? AND id > ?))
+          AND actualizado_en < NOW(6) - INTERVAL ? SECOND
+        ORDER BY actualizado_en, id
+        LIMIT ?
+    """;
+
+    /**
+     * Reemplaza hash y salt sólo si el hash sigue siendo el leído (compare-and-set).
+     * COLLATE utf8mb4_bin: la colación de la tabla no distingue mayúsculas y un hash Base64 sí.
+     * ultimo_cambio = ultimo_cambio evita el ON UPDATE CURRENT_TIMESTAMP (no es un cambio de contraseña).
+     */
+    private static final String REEMPLAZAR_HASH_SQL = """
+        UPDATE credenciales_acceso
+        SET hash_password = ?, salt = ?, requiere_reset = (requiere_reset OR ?), ultimo_cambio = ultimo_cambio
+        WHERE id = ? AND hash_password COLLATE utf8mb4_bin = ? AND eliminado = FALSE
+    """;
+
+    /**
+     * Credenciales activas sin prefijo de esquema en un rango de ids.
+     * El rango acota las filas que recorre cada consulta aunque ninguna sea de legado.
+     */
+    private static final String SELECT_LEGADOS_SQL = """
+        SELECT id, hash_password, salt, ultimo_cambio, requiere_reset
+        FROM credenciales_acceso
+        WHERE id > ? AND id <= ? AND eliminado = FALSE AND hash_password NOT LIKE 'pbkdf2\\_%'
+        ORDER BY id
+    """;
+
+    private static final String SELECT_MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM credenciales_acceso";
+
+    /**
+     * Credenciales activas sin reset por (ultimo_cambio, id), con cursor.
+     * Rango sobre idx_credenciales_vencimiento (eliminado, requiere_reset, ultimo_cambio).
+     */
+    private static final String SELECT_POR_ULTIMO_CAMBIO_SQL = """
+        SELECT id, ultimo_cambio
+        FROM credenciales_acceso
+        WHERE eliminado = FALSE AND requiere_reset = FALSE
+          AND (ultimo_cambio > ? OR (ultimo_cambio = ? AND id > ?))
+          AND ultimo_cambio < ?
+        ORDER BY ultimo_cambio, id
+        LIMIT ?
+    """;
+
+    /** Bloquea las filas del lote que siguen vencidas (el IN se completa con un ? por id). */
+    private static final String SELECT_VENCIDAS_SQL = """
+        SELECT id
+        FROM credenciales_acceso
+        WHERE id IN (%s) AND eliminado = FALSE AND requiere_reset = FALSE AND ultimo_cambio < ?
+        FOR UPDATE
+    """;
+
+    /** ultimo_cambio = ultimo_cambio evita el ON UPDATE CURRENT_TIMESTAMP (el vencimiento no es un cambio). */
+    private static final String MARCAR_VENCIDAS_SQL = """
+        UPDATE credenciales_acceso
+        SET requiere_reset = TRUE, ultimo_cambio = ultimo_cambio
+        WHERE id IN (%s)
+    """;
+
+    /** Asignador de IDs por bloques; null = AUTO_INCREMENT. */
+    private final HiLoIdAllocator ids;
+
+    /** Outbox de eventos de cambio; null = sin eventos. */
+    private final OutboxDAO outbox;
+
+    /** DAO con IDs por AUTO_INCREMENT. */
+    public CredencialAccesoDAO() {
+        this(null);
+    }
+
+    /**
+     * @param ids asignador de IDs por bloques (null = AUTO_INCREMENT)
+     */
+    public CredencialAccesoDAO(HiLoIdAllocator ids) {
+        this(ids, null);
+    }
+
+    /**
+     * @param ids asignador de IDs por bloques (null = AUTO_INCREMENT)
+     * @param outbox outbox donde registrar los eventos de cambio (null = sin eventos)
+     */
+    public CredencialAccesoDAO(HiLoIdAllocator ids, OutboxDAO outbox) {
+        this.ids = ids;
+        this.outbox = outbox;
+    }
+
     // =======================
     // CRUD (GenericDAO)
     // =======================
@@ -89,12 +207,18 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
      */
     @Override
     public void insertar(CredencialAcceso cred) throws Exception {
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+        if (outbox != null) {
+            TransactionManager.enTransaccion(conn -> insertTx(cred, conn));
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "insertar");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = prepararInsert(conn)) {
 
-            setCredencialParameters(stmt, cred);
+            setInsertParameters(stmt, cred);
             stmt.executeUpdate();
             setGeneratedId(stmt, cred);
+            m.ok();
         }
     }
 
@@ -105,10 +229,52 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
      */
     @Override
     public void insertTx(CredencialAcceso cred, Connection conn) throws Exception {
-        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            setCredencialParameters(stmt, cred);
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "insertTx");
+             PreparedStatement stmt = prepararInsert(conn)) {
+            setInsertParameters(stmt, cred);
             stmt.executeUpdate();
             setGeneratedId(stmt, cred);
+            registrarEvento(cred.getId(), TipoCambio.CREADO, conn);
+            m.ok();
+        }
+    }
+
+    /**
+     * Inserta un lote de credenciales dentro de una transacción existente (JDBC batch).
+     * Asigna a cada credencial el ID generado, en el mismo orden de la lista.
+     * NO cierra la conexión (responsabilidad del caller).
+     *
+     * Rendimiento: con MySQL conviene agregar rewriteBatchedStatements=true a la URL
+     * para que el driver envíe un único INSERT multi-fila por lote.
+     * @param creds
+     * @param conn
+     */
+    public void insertarLoteTx(List<CredencialAcceso> creds, Connection conn) throws Exception {
+        if (creds.isEmpty()) {
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "insertarLoteTx");
+             PreparedStatement stmt = prepararInsert(conn)) {
+            for (CredencialAcceso cred : creds) {
+                setInsertParameters(stmt, cred);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            if (ids == null) {
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    for (CredencialAcceso cred : creds) {
+                        if (!keys.next()) {
+                            throw new SQLException("La inserción del lote de credenciales falló: faltan IDs generados");
+                        }
+                        cred.setId(keys.getInt(1));
+                    }
+                }
+            }
+            if (outbox != null) {
+                List<Integer> creadas = creds.stream().map(CredencialAcceso::getId).collect(Collectors.toList());
+                outbox.registrarLoteTx(ENTIDAD, creadas, TipoCambio.CREADO, conn);
+            }
+            m.ok();
         }
     }
 
@@ -119,8 +285,13 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
      */
     @Override
     public void actualizar(CredencialAcceso cred) throws Exception {
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+        if (outbox != null) {
+            TransactionManager.enTransaccion(conn -> actualizarTx(cred, conn));
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "actualizar");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.UPDATE_SQL", UPDATE_SQL)) {
 
             stmt.setString(1, cred.getHashPassword());
             stmt.setString(2, cred.getSalt());
@@ -132,6 +303,7 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
             if (rows == 0) {
                 throw new SQLException("No se pudo actualizar la credencial con ID: " + cred.getId());
             }
+            m.ok();
         }
     }
 
@@ -141,14 +313,59 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
      */
     @Override
     public void eliminar(int id) throws Exception {
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
+        if (outbox != null) {
+            TransactionManager.enTransaccion(conn -> eliminarTx(id, conn));
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "eliminar");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.DELETE_SQL", DELETE_SQL)) {
 
             stmt.setInt(1, id);
             int rows = stmt.executeUpdate();
             if (rows == 0) {
                 throw new SQLException("No se encontró credencial con ID: " + id);
             }
+            m.ok();
+        }
+    }
+
+    /**
+     * Actualiza una credencial dentro de una transacción existente.
+     * NO cierra la conexión (responsabilidad del caller).
+     * Lanza excepción si no se afecta ninguna fila.
+     * @param cred
+     * @param conn
+     */
+    public void actualizarTx(CredencialAcceso cred, Connection conn) throws Exception {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "actualizarTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.UPDATE_SQL", UPDATE_SQL)) {
+            setCredencialParameters(stmt, cred);
+            stmt.setInt(5, cred.getId());
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException("No se pudo actualizar la credencial con ID: " + cred.getId());
+            }
+            registrarEvento(cred.getId(), TipoCambio.ACTUALIZADO, conn);
+            m.ok();
+        }
+    }
+
+    /**
+     * Soft delete dentro de una transacción existente.
+     * NO cierra la conexión (responsabilidad del caller).
+     * Lanza excepción si no se afecta ninguna fila.
+     * @param id
+     * @param conn
+     */
+    public void eliminarTx(int id, Connection conn) throws Exception {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "eliminarTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.DELETE_SQL", DELETE_SQL)) {
+            stmt.setInt(1, id);
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException("No se encontró credencial con ID: " + id);
+            }
+            registrarEvento(id, TipoCambio.ELIMINADO, conn);
+            m.ok();
         }
     }
 
@@ -157,19 +374,17 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
      */
     @Override
     public CredencialAcceso getById(int id) throws Exception {
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SELECT_BY_ID_SQL)) {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "getById");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_BY_ID_SQL", SELECT_BY_ID_SQL)) {
 
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToCredencial(rs);
-                }
+                return m.ok(rs.next() ? mapResultSetToCredencial(rs) : null);
             }
         } catch (SQLException e) {
             throw new Exception("Error al obtener credencial por ID: " + e.getMessage(), e);
         }
-        return null;
     }
 
     /**
@@ -179,19 +394,203 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
     public List<CredencialAcceso> getAll() throws Exception {
         List<CredencialAcceso> list = new ArrayList<>();
 
-        try (Connection conn = DataBaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(SELECT_ALL_SQL)) {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "getAll");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_ALL_SQL", SELECT_ALL_SQL);
+             ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
                 list.add(mapResultSetToCredencial(rs));
             }
+            m.ok();
         } catch (SQLException e) {
             throw new Exception("Error al obtener todas las credenciales: " + e.getMessage(), e);
         }
         return list;
     }
 
+    // =======================
+    // REHASH (RehashDAO)
+    // =======================
+
+    /**
+     * Reemplaza hash y salt si la credencial sigue teniendo hashAnterior (versión sin transacción).
+     * Con outbox abre su propia transacción para registrar el evento.
+     */
+    @Override
+    public boolean reemplazarHash(int id, String hashAnterior, String hashNuevo, String saltNuevo,
+                                  boolean marcarReset) throws Exception {
+        if (outbox != null) {
+            boolean[] reemplazado = new boolean[1];
+            TransactionManager.enTransaccion(conn -> {
+                reemplazado[0] = reemplazarHashTx(id, hashAnterior, hashNuevo, saltNuevo, marcarReset, conn);
+            });
+            return reemplazado[0];
+        }
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            return reemplazarHashTx(id, hashAnterior, hashNuevo, saltNuevo, marcarReset, conn);
+        }
+    }
+
+    /**
+     * reemplazarHash dentro de una transacción existente (registra el evento sólo si escribió).
+     * NO cierra la conexión (responsabilidad del caller).
+     */
+    public boolean reemplazarHashTx(int id, String hashAnterior, String hashNuevo, String saltNuevo,
+                                    boolean marcarReset, Connection conn) throws Exception {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "reemplazarHash");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.REEMPLAZAR_HASH_SQL", REEMPLAZAR_HASH_SQL)) {
+            stmt.setString(1, hashNuevo);
+            stmt.setString(2, saltNuevo);
+            stmt.setBoolean(3, marcarReset);
+            stmt.setInt(4, id);
+            stmt.setString(5, hashAnterior);
+            boolean reemplazado = stmt.executeUpdate() > 0;
+            if (reemplazado) {
+                registrarEvento(id, TipoCambio.ACTUALIZADO, conn);
+            }
+            return m.ok(reemplazado);
+        }
+    }
+
+    /** Lee del primario: una réplica atrasada devolvería filas ya migradas. */
+    @Override
+    public List<CredencialAcceso> legadosEnRango(int desdeId, int hastaId) throws Exception {
+        List<CredencialAcceso> list = new ArrayList<>();
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "legadosEnRango");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_LEGADOS_SQL", SELECT_LEGADOS_SQL)) {
+            stmt.setInt(1, desdeId);
+            stmt.setInt(2, hastaId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapResultSetToCredencial(rs));
+                }
+            }
+            m.ok();
+        }
+        return list;
+    }
+
+    @Override
+    public int maxId() throws Exception {
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_MAX_ID_SQL", SELECT_MAX_ID_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // =======================
+    // VENCIMIENTO (VencimientoDAO)
+    // =======================
+
+    @Override
+    public List<Vencimiento> porUltimoCambio(LocalDateTime desde, int desdeId, LocalDateTime hasta, int max) throws Exception {
+        List<Vencimiento> list = new ArrayList<>();
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "porUltimoCambio");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_POR_ULTIMO_CAMBIO_SQL",
+                     SELECT_POR_ULTIMO_CAMBIO_SQL)) {
+            Timestamp ts = Timestamp.valueOf(desde);
+            stmt.setTimestamp(1, ts);
+            stmt.setTimestamp(2, ts);
+            stmt.setInt(3, desdeId);
+            stmt.setTimestamp(4, Timestamp.valueOf(hasta));
+            stmt.setInt(5, max);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new Vencimiento(rs.getInt("id"), rs.getTimestamp("ultimo_cambio").toLocalDateTime()));
+                }
+            }
+            m.ok();
+        }
+        return list;
+    }
+
+    /** Abre su propia transacción: el SELECT ... FOR UPDATE y el UPDATE deben ser atómicos. */
+    @Override
+    public List<Integer> marcarVencidas(List<Integer> ids, LocalDateTime limite) throws Exception {
+        List<Integer> marcadas = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return marcadas;
+        }
+        TransactionManager.enTransaccion(conn -> marcadas.addAll(marcarVencidasTx(ids, limite, conn)));
+        return marcadas;
+    }
+
+    /**
+     * marcarVencidas dentro de una transacción existente (registra un evento por credencial marcada).
+     * NO cierra la conexión (responsabilidad del caller).
+     */
+    public List<Integer> marcarVencidasTx(List<Integer> ids, LocalDateTime limite, Connection conn) throws Exception {
+        List<Integer> marcadas = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return marcadas;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "marcarVencidasTx")) {
+            try (PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_VENCIDAS_SQL",
+                    SELECT_VENCIDAS_SQL.formatted(marcadores(ids.size())))) {
+                int i = setIds(stmt, ids);
+                stmt.setTimestamp(i, Timestamp.valueOf(limite));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        marcadas.add(rs.getInt(1));
+                    }
+                }
+            }
+            if (!marcadas.isEmpty()) {
+                try (PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.MARCAR_VENCIDAS_SQL",
+                        MARCAR_VENCIDAS_SQL.formatted(marcadores(marcadas.size())))) {
+                    setIds(stmt, marcadas);
+                    stmt.executeUpdate();
+                }
+                if (outbox != null) {
+                    outbox.registrarLoteTx(ENTIDAD, marcadas, TipoCambio.ACTUALIZADO, conn);
+                }
+            }
+            return m.ok(marcadas);
+        }
+    }
+
+    // =======================
+    // CAMBIOS INCREMENTALES (CambiosDAO)
+    // =======================
+
+    /**
+     * Credenciales modificadas después del cursor, en orden (actualizado_en, id).
+     * Incluye las eliminadas lógicamente (isEliminado() = true). Lee del primario: el margen de
+     * CambiosDAO no cubre el atraso de una réplica y el cursor saltearía filas que todavía no llegaron.
+     */
+    @Override
+    public PaginaCambios<CredencialAcceso> cambiosDesde(CursorCambios desde, int max) throws SQLException {
+        if (max <= 0) {
+            throw new IllegalArgumentException("El máximo de filas debe ser mayor a 0");
+        }
+        List<CredencialAcceso> creds = new ArrayList<>();
+        CursorCambios siguiente = desde;
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "cambiosDesde");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_CAMBIOS_SQL", SELECT_CAMBIOS_SQL)) {
+            Timestamp ts = Timestamp.valueOf(desde.actualizadoEn());
+            stmt.setTimestamp(1, ts);
+            stmt.setTimestamp(2, ts);
+            stmt.setInt(3, desde.id());
+            stmt.setInt(4, MARGEN_SEGUNDOS);
+            stmt.setInt(5, max);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    CredencialAcceso c = mapResultSetToCredencial(rs);
+                    c.setEliminado(rs.getBoolean("eliminado"));
+                    creds.add(c);
+                    siguiente = new CursorCambios(rs.getTimestamp("actualizado_en").toLocalDateTime(), c.getId());
+                }
+            }
+            m.ok();
+        }
+        return new PaginaCambios<>(creds, siguiente, creds.size() == max);
+    }
+
     // =======================
     // HELPERS DE SETEO / ID
     // =======================
@@ -219,8 +618,33 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
         }
     }
 
+    /** INSERT según la estrategia de IDs: id explícito con HiLoIdAllocator, o AUTO_INCREMENT. */
+    private PreparedStatement prepararInsert(Connection conn) throws SQLException {
+        if (ids != null) {
+            return StatementTracer.prepare(conn, "credenciales_acceso.INSERT_CON_ID_SQL", INSERT_CON_ID_SQL);
+        }
+        return StatementTracer.prepare(conn, "credenciales_acceso.INSERT_SQL", INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    /**
+     * Setea los parámetros del INSERT. Con HiLoIdAllocator asigna el ID antes de ejecutar
+     * (si la entidad ya trae uno asignado, se respeta) y lo agrega como parámetro 5.
+     */
+    private void setInsertParameters(PreparedStatement stmt, CredencialAcceso cred) throws SQLException {
+        setCredencialParameters(stmt, cred);
+        if (ids != null) {
+            if (cred.getId() <= 0) {
+                cred.setId(ids.siguiente());
+            }
+            stmt.setInt(5, cred.getId());
+        }
+    }
+
     /** Asigna el ID autogenerado a la entidad CredencialAcceso. */
     private void setGeneratedId(PreparedStatement stmt, CredencialAcceso cred) throws SQLException {
+        if (ids != null) {
+            return;
+        }
         try (ResultSet keys = stmt.getGeneratedKeys()) {
             if (keys.next()) {
                 cred.setId(keys.getInt(1));
@@ -230,6 +654,27 @@ public class CredencialAccesoDAO implements GenericDAO<CredencialAcceso> {
         }
     }
 
+    /** "?, ?, ?" con n marcadores, para un IN de largo variable. */
+    static String marcadores(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    /** Setea los ids desde el parámetro 1; devuelve el índice del siguiente parámetro. */
+    static int setIds(PreparedStatement stmt, List<Integer> ids) throws SQLException {
+        int i = 1;
+        for (int id : ids) {
+            stmt.setInt(i++, id);
+        }
+        return i;
+    }
+
+    /** Registra el evento de cambio en el outbox, en la transacción del caller. */
+    private void registrarEvento(int id, TipoCambio tipo, Connection conn) throws SQLException {
+        if (outbox != null) {
+            outbox.registrarTx(ENTIDAD, id, tipo, conn);
+        }
+    }
+
     // =======================
     // MAPEOS
     // =======================
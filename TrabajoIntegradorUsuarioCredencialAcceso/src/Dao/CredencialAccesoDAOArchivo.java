@@ -0,0 +1,217 @@
+package Dao;
+
+import Models.CredencialAcceso;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Implementación de GenericDAO<CredencialAcceso> sobre un LogStore local (sin MySQL).
+ * Pensada para operar desconectado: las lecturas se resuelven desde el archivo mapeado
+ * en memoria y los datos sobreviven a reinicios.
+ *
+ * Semántica equivalente a CredencialAccesoDAO (IDs autoincrementales, soft delete,
+ * SQLException si actualizar/eliminar no encuentran el ID).
+ *
+ * Las escrituras se serializan en el DAO (el log es de un único escritor);
+ * las lecturas no toman el monitor del DAO.
+ * Rehash: reemplazarHash compara y escribe bajo el mismo monitor (compare-and-set).
+ * Vencimiento: sin índice por ultimo_cambio, porUltimoCambio recorre y ordena las filas activas.
+ */
+public class CredencialAccesoDAOArchivo implements GenericDAO<CredencialAcceso>, RehashDAO, VencimientoDAO {
+
+    /** Formato: id, eliminado, hash_password, salt, ultimo_cambio, requiere_reset. */
+    static final LogStore.Codec<CredencialAcceso> CODEC = new LogStore.Codec<>() {
+        @Override
+        public int id(CredencialAcceso c) {
+            return c.getId();
+        }
+
+        @Override
+        public boolean eliminado(CredencialAcceso c) {
+            return c.isEliminado();
+        }
+
+        @Override
+        public void escribir(CredencialAcceso c, DataOutput out) throws IOException {
+            out.writeInt(c.getId());
+            out.writeBoolean(c.isEliminado());
+            LogStore.escribirTexto(out, c.getHashPassword());
+            LogStore.escribirTexto(out, c.getSalt());
+            LogStore.escribirFecha(out, c.getUltimoCambio());
+            out.writeBoolean(c.isRequiereReset());
+        }
+
+        @Override
+        public CredencialAcceso leer(ByteBuffer in) {
+            int id = in.getInt();
+            boolean eliminado = in.get() != 0;
+            CredencialAcceso c = new CredencialAcceso(id, LogStore.leerTexto(in), LogStore.leerTexto(in),
+                    LogStore.leerFecha(in), in.get() != 0);
+            c.setEliminado(eliminado);
+            return c;
+        }
+    };
+
+    private final LogStore<CredencialAcceso> store;
+
+    /**
+     * @param archivo ruta del log (se crea si no existe; si existe se recupera)
+     * @param sync true para forzar a disco cada escritura
+     * @throws IOException si no se puede abrir el log
+     */
+    public CredencialAccesoDAOArchivo(Path archivo, boolean sync) throws IOException {
+        this.store = new LogStore<>(archivo, CODEC, sync);
+    }
+
+    /** Log subyacente (compactación, cierre). */
+    public LogStore<CredencialAcceso> getStore() {
+        return store;
+    }
+
+    // =======================
+    // CRUD (GenericDAO)
+    // =======================
+
+    @Override
+    public synchronized void insertar(CredencialAcceso cred) throws Exception {
+        int id = store.siguienteId();
+        store.agregar(copia(id, cred, false));
+        cred.setId(id);
+    }
+
+    /** Igual que insertar(): el log local no participa de la transacción JDBC. */
+    @Override
+    public void insertTx(CredencialAcceso cred, Connection conn) throws Exception {
+        insertar(cred);
+    }
+
+    /** Actualiza hash_password, salt, ultimo_cambio y requiere_reset (no toca eliminado). */
+    @Override
+    public synchronized void actualizar(CredencialAcceso cred) throws Exception {
+        CredencialAcceso actual = store.leer(cred.getId());
+        if (actual == null) {
+            throw new SQLException("No se pudo actualizar la credencial con ID: " + cred.getId());
+        }
+        store.agregar(copia(cred.getId(), cred, actual.isEliminado()));
+    }
+
+    /** Soft delete: agrega la versión con eliminado=true. */
+    @Override
+    public synchronized void eliminar(int id) throws Exception {
+        CredencialAcceso actual = store.leer(id);
+        if (actual == null) {
+            throw new SQLException("No se encontró credencial con ID: " + id);
+        }
+        actual.setEliminado(true);
+        store.agregar(actual);
+    }
+
+    @Override
+    public CredencialAcceso getById(int id) throws Exception {
+        CredencialAcceso c = store.leer(id);
+        return c == null || c.isEliminado() ? null : c;
+    }
+
+    @Override
+    public List<CredencialAcceso> getAll() throws Exception {
+        return store.filas(false);
+    }
+
+    // =======================
+    // REHASH (RehashDAO)
+    // =======================
+
+    @Override
+    public synchronized boolean reemplazarHash(int id, String hashAnterior, String hashNuevo, String saltNuevo,
+                                               boolean marcarReset) throws Exception {
+        CredencialAcceso actual = store.leer(id);
+        if (actual == null || actual.isEliminado() || !actual.getHashPassword().equals(hashAnterior)) {
+            return false;
+        }
+        actual.setHashPassword(hashNuevo);
+        actual.setSalt(saltNuevo);
+        actual.setRequiereReset(actual.isRequiereReset() || marcarReset);
+        store.agregar(actual);
+        return true;
+    }
+
+    @Override
+    public List<CredencialAcceso> legadosEnRango(int desdeId, int hastaId) throws Exception {
+        List<CredencialAcceso> list = new ArrayList<>();
+        for (int id = desdeId + 1; id <= hastaId; id++) {
+            CredencialAcceso c = store.leer(id);
+            if (c != null && !c.isEliminado() && !c.getHashPassword().startsWith("pbkdf2_")) {
+                list.add(c);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public int maxId() throws Exception {
+        return store.ultimoId();
+    }
+
+    // =======================
+    // VENCIMIENTO (VencimientoDAO)
+    // =======================
+
+    @Override
+    public List<Vencimiento> porUltimoCambio(LocalDateTime desde, int desdeId, LocalDateTime hasta, int max) throws Exception {
+        return store.filas(false).stream()
+                .filter(c -> !c.isRequiereReset() && c.getUltimoCambio() != null)
+                .map(c -> new Vencimiento(c.getId(), c.getUltimoCambio()))
+                .filter(v -> v.ultimoCambio().isBefore(hasta) && (v.ultimoCambio().isAfter(desde)
+                        || (v.ultimoCambio().isEqual(desde) && v.id() > desdeId)))
+                .sorted(Comparator.comparing(Vencimiento::ultimoCambio).thenComparingInt(Vencimiento::id))
+                .limit(max)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized List<Integer> marcarVencidas(List<Integer> ids, LocalDateTime limite) throws Exception {
+        List<Integer> marcadas = new ArrayList<>();
+        for (int id : ids) {
+            CredencialAcceso actual = store.leer(id);
+            if (actual == null || actual.isEliminado() || actual.isRequiereReset() || actual.getUltimoCambio() == null
+                    || !actual.getUltimoCambio().isBefore(limite)) {
+                continue;
+            }
+            actual.setRequiereReset(true);
+            store.agregar(actual);
+            marcadas.add(id);
+        }
+        return marcadas;
+    }
+
+    // =======================
+    // Acceso para UsuarioDAOArchivo (equivalente al LEFT JOIN / FK)
+    // =======================
+
+    /** true si existe una fila con ese ID (activa o eliminada). */
+    boolean existe(int id) {
+        return store.existe(id);
+    }
+
+    /** Credencial con ese ID aunque esté eliminada (el LEFT JOIN no filtra por eliminado). */
+    CredencialAcceso buscarParaJoin(int id) {
+        return store.leer(id);
+    }
+
+    private static CredencialAcceso copia(int id, CredencialAcceso c, boolean eliminado) {
+        CredencialAcceso copia = new CredencialAcceso(id, c.getHashPassword(), c.getSalt(),
+                c.getUltimoCambio(), c.isRequiereReset());
+        copia.setEliminado(eliminado);
+        return copia;
+    }
+}
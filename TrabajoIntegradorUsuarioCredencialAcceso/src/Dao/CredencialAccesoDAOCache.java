@@ -0,0 +1,123 @@
+package Dao;
+
+import Config.TransactionManager;
+import Dao.CacheInvalidacionDAO.Invalidacion;
+import Models.CredencialAcceso;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lado credencial del cache de usuarios (UsuarioDAOCache).
+ *
+ * No cachea credenciales: las lecturas van directo a CredencialAccesoDAO. Lo que hace es
+ * registrar cada modificación o baja en cache_invalidaciones, en la misma transacción, para
+ * que todos los nodos desalojen al usuario que tiene la credencial (su hash y salt viajan
+ * con el usuario cacheado). Sin esto, un nodo podría seguir validando una contraseña vieja.
+ * Lo mismo para reemplazarHash (rehash y migración de esquema) y marcarVencidas (un usuario
+ * cacheado sin requiere_reset podría seguir entrando con una contraseña vencida).
+ */
+public class CredencialAccesoDAOCache implements GenericDAO<CredencialAcceso>, RehashDAO, VencimientoDAO {
+
+    private static final String ENTIDAD = "credencial";
+
+    private final CredencialAccesoDAO delegado;
+    private final CacheInvalidador invalidador;
+
+    public CredencialAccesoDAOCache(CredencialAccesoDAO delegado, CacheInvalidador invalidador) {
+        if (delegado == null || invalidador == null) {
+            throw new IllegalArgumentException("El DAO y el invalidador no pueden ser null");
+        }
+        this.delegado = delegado;
+        this.invalidador = invalidador;
+    }
+
+    @Override
+    public void insertar(CredencialAcceso cred) throws Exception {
+        delegado.insertar(cred);
+    }
+
+    @Override
+    public void insertTx(CredencialAcceso cred, Connection conn) throws Exception {
+        delegado.insertTx(cred, conn);
+    }
+
+    @Override
+    public void actualizar(CredencialAcceso cred) throws Exception {
+        List<Invalidacion> registros = List.of(invalidador.crear(ENTIDAD, cred.getId(), null, null));
+        TransactionManager.enTransaccion(conn -> {
+            delegado.actualizarTx(cred, conn);
+            invalidador.registrarTx(registros, conn);
+        });
+        invalidador.aplicarLocal(registros);
+    }
+
+    @Override
+    public void eliminar(int id) throws Exception {
+        List<Invalidacion> registros = List.of(invalidador.crear(ENTIDAD, id, null, null));
+        TransactionManager.enTransaccion(conn -> {
+            delegado.eliminarTx(id, conn);
+            invalidador.registrarTx(registros, conn);
+        });
+        invalidador.aplicarLocal(registros);
+    }
+
+    @Override
+    public boolean reemplazarHash(int id, String hashAnterior, String hashNuevo, String saltNuevo,
+                                  boolean marcarReset) throws Exception {
+        List<Invalidacion> registros = List.of(invalidador.crear(ENTIDAD, id, null, null));
+        boolean[] reemplazado = new boolean[1];
+        TransactionManager.enTransaccion(conn -> {
+            reemplazado[0] = delegado.reemplazarHashTx(id, hashAnterior, hashNuevo, saltNuevo, marcarReset, conn);
+            if (reemplazado[0]) {
+                invalidador.registrarTx(registros, conn);
+            }
+        });
+        if (reemplazado[0]) {
+            invalidador.aplicarLocal(registros);
+        }
+        return reemplazado[0];
+    }
+
+    @Override
+    public List<CredencialAcceso> legadosEnRango(int desdeId, int hastaId) throws Exception {
+        return delegado.legadosEnRango(desdeId, hastaId);
+    }
+
+    @Override
+    public int maxId() throws Exception {
+        return delegado.maxId();
+    }
+
+    @Override
+    public List<Vencimiento> porUltimoCambio(LocalDateTime desde, int desdeId, LocalDateTime hasta, int max) throws Exception {
+        return delegado.porUltimoCambio(desde, desdeId, hasta, max);
+    }
+
+    @Override
+    public List<Integer> marcarVencidas(List<Integer> ids, LocalDateTime limite) throws Exception {
+        List<Integer> marcadas = new ArrayList<>();
+        List<Invalidacion> registros = new ArrayList<>();
+        TransactionManager.enTransaccion(conn -> {
+            marcadas.addAll(delegado.marcarVencidasTx(ids, limite, conn));
+            for (int id : marcadas) {
+                registros.add(invalidador.crear(ENTIDAD, id, null, null));
+            }
+            invalidador.registrarTx(registros, conn);
+        });
+        invalidador.aplicarLocal(registros);
+        return marcadas;
+    }
+
+    @Override
+    public CredencialAcceso getById(int id) throws Exception {
+        return delegado.getById(id);
+    }
+
+    @Override
+    public List<CredencialAcceso> getAll() throws Exception {
+        return delegado.getAll();
+    }
+}
@@ -0,0 +1,186 @@
+package Dao;
+
+import Models.CredencialAcceso;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Implementación en memoria de GenericDAO<CredencialAcceso> (sin MySQL).
+ * Pensada para nodos edge y pruebas de integración.
+ *
+ * Semántica equivalente a CredencialAccesoDAO:
+ * - IDs autoincrementales asignados al insertar
+ * - Soft delete: eliminar() marca eliminado=true; getById/getAll sólo devuelven activas
+ * - actualizar/eliminar lanzan SQLException si el ID no existe (0 filas afectadas)
+ *
+ * Concurrencia:
+ * - Índice primario ConcurrentSkipListMap (ordenado por ID, como el ORDER BY id de getAll)
+ * - Se guardan filas inmutables y se devuelven copias: los objetos del caller nunca se comparten
+ *
+ * Transacciones: insertTx ignora la Connection (no hay rollback en memoria).
+ * Rehash: reemplazarHash es atómico por fila (computeIfPresent), como el UPDATE condicional de MySQL.
+ * Vencimiento: sin índice por ultimo_cambio, porUltimoCambio recorre y ordena las filas (volúmenes de prueba).
+ */
+public class CredencialAccesoDAOMemoria implements GenericDAO<CredencialAcceso>, RehashDAO, VencimientoDAO {
+
+    /** Fila almacenada (inmutable). */
+    private record Fila(int id, String hashPassword, String salt, LocalDateTime ultimoCambio,
+                        boolean requiereReset, boolean eliminado) {
+
+        static Fila de(int id, CredencialAcceso c, boolean eliminado) {
+            return new Fila(id, c.getHashPassword(), c.getSalt(), c.getUltimoCambio(), c.isRequiereReset(), eliminado);
+        }
+
+        CredencialAcceso aEntidad() {
+            CredencialAcceso c = new CredencialAcceso(id, hashPassword, salt, ultimoCambio, requiereReset);
+            c.setEliminado(eliminado);
+            return c;
+        }
+    }
+
+    private final ConcurrentSkipListMap<Integer, Fila> filas = new ConcurrentSkipListMap<>();
+    private final AtomicInteger secuencia = new AtomicInteger();
+
+    // =======================
+    // CRUD (GenericDAO)
+    // =======================
+
+    @Override
+    public void insertar(CredencialAcceso cred) throws Exception {
+        int id = secuencia.incrementAndGet();
+        filas.put(id, Fila.de(id, cred, false));
+        cred.setId(id);
+    }
+
+    /** Igual que insertar(): en memoria no hay transacción que compartir. */
+    @Override
+    public void insertTx(CredencialAcceso cred, Connection conn) throws Exception {
+        insertar(cred);
+    }
+
+    /** Actualiza hash_password, salt, ultimo_cambio y requiere_reset (no toca eliminado). */
+    @Override
+    public void actualizar(CredencialAcceso cred) throws Exception {
+        Fila nueva = filas.computeIfPresent(cred.getId(), (id, actual) -> Fila.de(id, cred, actual.eliminado()));
+        if (nueva == null) {
+            throw new SQLException("No se pudo actualizar la credencial con ID: " + cred.getId());
+        }
+    }
+
+    /** Soft delete: marca eliminado=true. */
+    @Override
+    public void eliminar(int id) throws Exception {
+        Fila nueva = filas.computeIfPresent(id, (k, actual) -> new Fila(k, actual.hashPassword(), actual.salt(),
+                actual.ultimoCambio(), actual.requiereReset(), true));
+        if (nueva == null) {
+            throw new SQLException("No se encontró credencial con ID: " + id);
+        }
+    }
+
+    @Override
+    public CredencialAcceso getById(int id) throws Exception {
+        Fila f = filas.get(id);
+        return f == null || f.eliminado() ? null : f.aEntidad();
+    }
+
+    @Override
+    public List<CredencialAcceso> getAll() throws Exception {
+        List<CredencialAcceso> list = new ArrayList<>();
+        for (Fila f : filas.values()) {
+            if (!f.eliminado()) {
+                list.add(f.aEntidad());
+            }
+        }
+        return list;
+    }
+
+    // =======================
+    // REHASH (RehashDAO)
+    // =======================
+
+    @Override
+    public boolean reemplazarHash(int id, String hashAnterior, String hashNuevo, String saltNuevo,
+                                  boolean marcarReset) throws Exception {
+        boolean[] reemplazado = new boolean[1];
+        filas.computeIfPresent(id, (k, actual) -> {
+            if (actual.eliminado() || !actual.hashPassword().equals(hashAnterior)) {
+                return actual;
+            }
+            reemplazado[0] = true;
+            return new Fila(k, hashNuevo, saltNuevo, actual.ultimoCambio(),
+                    actual.requiereReset() || marcarReset, false);
+        });
+        return reemplazado[0];
+    }
+
+    @Override
+    public List<CredencialAcceso> legadosEnRango(int desdeId, int hastaId) throws Exception {
+        List<CredencialAcceso> list = new ArrayList<>();
+        for (Fila f : filas.subMap(desdeId, false, hastaId, true).values()) {
+            if (!f.eliminado() && !f.hashPassword().startsWith("pbkdf2_")) {
+                list.add(f.aEntidad());
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public int maxId() throws Exception {
+        return filas.isEmpty() ? 0 : filas.lastKey();
+    }
+
+    // =======================
+    // VENCIMIENTO (VencimientoDAO)
+    // =======================
+
+    @Override
+    public List<Vencimiento> porUltimoCambio(LocalDateTime desde, int desdeId, LocalDateTime hasta, int max) throws Exception {
+        return filas.values().stream()
+                .filter(f -> !f.eliminado() && !f.requiereReset() && f.ultimoCambio() != null)
+                .map(f -> new Vencimiento(f.id(), f.ultimoCambio()))
+                .filter(v -> v.ultimoCambio().isBefore(hasta) && (v.ultimoCambio().isAfter(desde)
+                        || (v.ultimoCambio().isEqual(desde) && v.id() > desdeId)))
+                .sorted(Comparator.comparing(Vencimiento::ultimoCambio).thenComparingInt(Vencimiento::id))
+                .limit(max)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Integer> marcarVencidas(List<Integer> ids, LocalDateTime limite) throws Exception {
+        List<Integer> marcadas = new ArrayList<>();
+        for (int id : ids) {
+            filas.computeIfPresent(id, (k, actual) -> {
+                if (actual.eliminado() || actual.requiereReset() || actual.ultimoCambio() == null
+                        || !actual.ultimoCambio().isBefore(limite)) {
+                    return actual;
+                }
+                marcadas.add(k);
+                return new Fila(k, actual.hashPassword(), actual.salt(), actual.ultimoCambio(), true, false);
+            });
+        }
+        return marcadas;
+    }
+
+    // =======================
+    // Acceso para UsuarioDAOMemoria (equivalente al LEFT JOIN / FK)
+    // =======================
+
+    /** true si existe una fila con ese ID (activa o eliminada), como exige la FK de usuarios. */
+    boolean existe(int id) {
+        return filas.containsKey(id);
+    }
+
+    /** Credencial con ese ID aunque esté eliminada (el LEFT JOIN de UsuarioDAO no filtra por eliminado). */
+    CredencialAcceso buscarParaJoin(int id) {
+        Fila f = filas.get(id);
+        return f == null ? null : f.aEntidad();
+    }
+}
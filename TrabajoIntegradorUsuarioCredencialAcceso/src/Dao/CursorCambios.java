@@ -0,0 +1,47 @@
+package Dao;
+
+import java.time.LocalDateTime;
+
+/**
+ * Posición en el flujo de cambios de una tabla: (actualizado_en, id) de la última fila
+ * entregada. Los cambios se recorren en ese orden (keyset), así que el cursor alcanza para
+ * retomar exactamente donde se dejó, aunque pase tiempo entre una lectura y la siguiente.
+ *
+ * Se puede persistir como texto con toString() y recuperar con parse().
+ *
+ * @param actualizadoEn actualizado_en de la última fila entregada
+ * @param id id de la última fila entregada (desempata filas con el mismo instante)
+ */
+public record CursorCambios(LocalDateTime actualizadoEn, int id) {
+
+    /** Antes de cualquier fila (TIMESTAMP de MySQL empieza en 1970). */
+    public static final CursorCambios INICIO = new CursorCambios(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+
+    public CursorCambios {
+        if (actualizadoEn == null) {
+            throw new IllegalArgumentException("actualizadoEn no puede ser null");
+        }
+    }
+
+    /**
+     * Reconstruye un cursor guardado con toString().
+     * @throws IllegalArgumentException si el texto no tiene el formato fecha/id
+     */
+    public static CursorCambios parse(String texto) {
+        int separador = texto == null ? -1 : texto.lastIndexOf('/');
+        if (separador <= 0) {
+            throw new IllegalArgumentException("Cursor inválido: " + texto);
+        }
+        try {
+            return new CursorCambios(LocalDateTime.parse(texto.substring(0, separador)),
+                    Integer.parseInt(texto.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + texto, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return actualizadoEn + "/" + id;
+    }
+}
@@ -0,0 +1,267 @@
+package Dao;
+
+import Config.CircuitBreaker;
+import Models.CredencialAcceso;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Elige la implementación de los DAOs según configuración.
+ *
+ * -Ddao.modo=mysql   (default) UsuarioDAO / CredencialAccesoDAO sobre JDBC
+ *    -Ddao.ids=autoincrement (default) | hilo  IDs por AUTO_INCREMENT o por bloques (HiLoIdAllocator)
+ *    -Ddao.ids.bloque=1000                      IDs reservados por viaje a la BD en modo hilo
+ *    -Ddao.outbox=false                         registrar eventos de cambio en outbox_eventos
+ *    -Dcache.usuarios=false                     cache de usuarios con invalidación entre nodos
+ *    -Dcache.ttlSegundos=300                    vigencia máxima de una entrada
+ *    -Dcache.maxEntradas=10000                  usuarios cacheados como máximo
+ *    -Dcache.invalidacion.periodoMs=500         sondeo de cache_invalidaciones
+ *    -Dcache.nodo=&lt;hostname&gt;                  identificador del nodo en los registros
+ *    -Dcircuito.usuarios=false                  circuit breaker en las lecturas de usuarios, con
+ *                                               respaldo en el último valor conocido (ver CircuitBreaker)
+ *    -Dcircuito.maxConocidos=10000              usuarios guardados como respaldo
+ * -Ddao.modo=memoria UsuarioDAOMemoria / CredencialAccesoDAOMemoria, sin base de datos
+ * -Ddao.modo=archivo UsuarioDAOArchivo / CredencialAccesoDAOArchivo, log local persistente:
+ *    -Ddao.archivo.dir=datos                   directorio de los .log
+ *    -Ddao.archivo.sync=false                  forzar a disco cada escritura
+ *    -Ddao.archivo.compactacionSegundos=60     período de la compactación (0 = deshabilitada)
+ *    -Ddao.archivo.purgarEliminados=true       la compactación descarta filas eliminadas
+ *    -Dreplica.periodoSegundos=0               replicar hacia MySQL cada N segundos (0 = no)
+ *    -Dreplica.nodo=&lt;hostname&gt;                identificador del nodo en la BD central
+ *    -Dreplica.lote=500                        cambios por transacción
+ *
+ * En modo memoria y archivo las instancias son únicas por proceso: todos los services comparten
+ * los mismos datos (como comparten la misma BD en modo mysql).
+ */
+public final class DAOFactory {
+
+    public static final String MODO_MYSQL = "mysql";
+    public static final String MODO_MEMORIA = "memoria";
+    public static final String MODO_ARCHIVO = "archivo";
+
+    /** Registros obsoletos mínimos para que la compactación periódica reescriba el log. */
+    private static final long MINIMO_OBSOLETOS = 1000;
+
+    private static final String MODO = System.getProperty("dao.modo", MODO_MYSQL).trim().toLowerCase(Locale.ROOT);
+    private static final boolean IDS_HILO = System.getProperty("dao.ids", "autoincrement").trim()
+            .equalsIgnoreCase("hilo");
+    private static final OutboxDAO OUTBOX = Boolean.getBoolean("dao.outbox") ? new OutboxDAO() : null;
+
+    /** Un allocator por tabla, compartido por todos los DAOs del proceso. */
+    private static final Map<String, HiLoIdAllocator> ALLOCATORS = new ConcurrentHashMap<>();
+
+    private static CredencialAccesoDAOMemoria credencialesMemoria;
+    private static UsuarioDAOMemoria usuariosMemoria;
+    private static CredencialAccesoDAOArchivo credencialesArchivo;
+    private static UsuarioDAOArchivo usuariosArchivo;
+    private static CacheInvalidador invalidador;
+    /** DAO de usuarios del modo mysql con sus decoradores (cache, circuito), compartido. */
+    private static UsuarioGenericDAO usuariosMysql;
+
+    static {
+        if (!MODO.equals(MODO_MYSQL) && !MODO.equals(MODO_MEMORIA) && !MODO.equals(MODO_ARCHIVO)) {
+            throw new ExceptionInInitializerError("dao.modo inválido: '" + MODO + "' (valores: mysql, memoria, archivo)");
+        }
+    }
+
+    private DAOFactory() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /** Modo configurado (mysql, memoria o archivo). */
+    public static String getModo() {
+        return MODO;
+    }
+
+    /**
+     * DAO de credenciales del modo configurado.
+     * @throws UncheckedIOException si en modo archivo no se puede abrir el log
+     */
+    public static synchronized GenericDAO<CredencialAcceso> credencialDAO() {
+        if (MODO.equals(MODO_MEMORIA)) {
+            return credencialesMemoria();
+        }
+        if (MODO.equals(MODO_ARCHIVO)) {
+            return credencialesArchivo();
+        }
+        CredencialAccesoDAO dao = new CredencialAccesoDAO(idsPara("credenciales_acceso"), OUTBOX);
+        return cacheHabilitado() || circuitoHabilitado() ? new CredencialAccesoDAOCache(dao, invalidador()) : dao;
+    }
+
+    /**
+     * DAO de usuarios del modo configurado.
+     * @throws UncheckedIOException si en modo archivo no se puede abrir el log
+     */
+    public static synchronized UsuarioGenericDAO usuarioDAO() {
+        if (MODO.equals(MODO_MEMORIA)) {
+            if (usuariosMemoria == null) {
+                usuariosMemoria = new UsuarioDAOMemoria(credencialesMemoria());
+            }
+            return usuariosMemoria;
+        }
+        if (MODO.equals(MODO_ARCHIVO)) {
+            if (usuariosArchivo == null) {
+                try {
+                    usuariosArchivo = new UsuarioDAOArchivo(directorio().resolve("usuarios.log"), sync(),
+                            credencialesArchivo());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("No se pudo abrir el log de usuarios", e);
+                }
+                prepararStore(usuariosArchivo.getStore());
+                iniciarReplicacion();
+            }
+            return usuariosArchivo;
+        }
+        if (usuariosMysql == null) {
+            UsuarioDAO jdbc = new UsuarioDAO(idsPara("usuarios"), OUTBOX);
+            UsuarioGenericDAO dao = jdbc;
+            if (cacheHabilitado()) {
+                dao = new UsuarioDAOCache(jdbc, invalidador(),
+                        Long.getLong("cache.ttlSegundos", 300L), Integer.getInteger("cache.maxEntradas", 10_000));
+            }
+            if (circuitoHabilitado()) {
+                UsuarioDAOResiliente resiliente = new UsuarioDAOResiliente(dao, CircuitBreaker.desdePropiedades("usuario"),
+                        Integer.getInteger("circuito.maxConocidos", 10_000));
+                invalidador().agregarOyente(resiliente);
+                dao = resiliente;
+            }
+            usuariosMysql = dao;
+        }
+        return usuariosMysql;
+    }
+
+    /**
+     * Allocator de IDs por bloques para la tabla, o null si dao.ids no es "hilo"
+     * (los DAOs JDBC usan entonces AUTO_INCREMENT).
+     */
+    public static HiLoIdAllocator idsPara(String tabla) {
+        if (!IDS_HILO) {
+            return null;
+        }
+        return ALLOCATORS.computeIfAbsent(tabla, t -> new HiLoIdAllocator(t, Integer.getInteger("dao.ids.bloque", 1000)));
+    }
+
+    /** Escritura de ultimo_login / intentos_fallidos, o null fuera del modo mysql. */
+    public static ActividadDAO actividadDAO() {
+        return MODO.equals(MODO_MYSQL) ? new ActividadDAO() : null;
+    }
+
+    /** Escritura de auditoria_credenciales, o null fuera del modo mysql. */
+    public static AuditoriaDAO auditoriaDAO() {
+        return MODO.equals(MODO_MYSQL) ? new AuditoriaDAO() : null;
+    }
+
+    /** Consultas de credenciales huérfanas, o null fuera del modo mysql. */
+    public static HuerfanasDAO huerfanasDAO() {
+        return MODO.equals(MODO_MYSQL) ? new HuerfanasDAO(OUTBOX) : null;
+    }
+
+    /** Movimiento y consulta de filas archivadas, o null fuera del modo mysql (el log local las purga al compactar). */
+    public static ArchivadoDAO archivadoDAO() {
+        return MODO.equals(MODO_MYSQL) ? new ArchivadoDAO(OUTBOX) : null;
+    }
+
+    /** Outbox de eventos de cambio, o null si dao.outbox no está habilitado. */
+    public static OutboxDAO outbox() {
+        return OUTBOX;
+    }
+
+    private static boolean cacheHabilitado() {
+        return Boolean.getBoolean("cache.usuarios");
+    }
+
+    /**
+     * Circuito con respaldo en lecturas de usuarios. También registra los cambios de credencial en
+     * cache_invalidaciones (CredencialAccesoDAOCache): el respaldo los escucha para no validar
+     * contra una credencial vieja.
+     */
+    private static boolean circuitoHabilitado() {
+        return Boolean.getBoolean("circuito.usuarios");
+    }
+
+    /** Canal de invalidación de caches del proceso (se inicia al crearlo). */
+    private static CacheInvalidador invalidador() {
+        if (invalidador == null) {
+            invalidador = new CacheInvalidador(new CacheInvalidacionDAO(), nodo("cache.nodo"), 500, 1);
+            invalidador.iniciar(Long.getLong("cache.invalidacion.periodoMs", 500L));
+        }
+        return invalidador;
+    }
+
+    private static CredencialAccesoDAOMemoria credencialesMemoria() {
+        if (credencialesMemoria == null) {
+            credencialesMemoria = new CredencialAccesoDAOMemoria();
+        }
+        return credencialesMemoria;
+    }
+
+    private static CredencialAccesoDAOArchivo credencialesArchivo() {
+        if (credencialesArchivo == null) {
+            try {
+                credencialesArchivo = new CredencialAccesoDAOArchivo(directorio().resolve("credenciales_acceso.log"), sync());
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo abrir el log de credenciales", e);
+            }
+            prepararStore(credencialesArchivo.getStore());
+        }
+        return credencialesArchivo;
+    }
+
+    /** Inicia la replicación write-behind hacia MySQL si está configurada. */
+    private static void iniciarReplicacion() {
+        long segundos = Long.getLong("replica.periodoSegundos", 0L);
+        if (segundos <= 0) {
+            return;
+        }
+        Replicador replicador = new Replicador(nodo("replica.nodo"), credencialesArchivo(), usuariosArchivo,
+                new CredencialAccesoDAO(idsPara("credenciales_acceso"), OUTBOX), new UsuarioDAO(idsPara("usuarios"), OUTBOX),
+                new ReplicacionDAO(),
+                Integer.getInteger("replica.lote", 500));
+        replicador.iniciar(segundos);
+    }
+
+    /** Identificador del nodo: la propiedad indicada o, si no está, el hostname. */
+    private static String nodo(String propiedad) {
+        String nodo = System.getProperty(propiedad);
+        if (nodo != null && !nodo.isBlank()) {
+            return nodo.trim();
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("No se pudo determinar el nodo; configurar -D" + propiedad, e);
+        }
+    }
+
+    private static Path directorio() {
+        return Paths.get(System.getProperty("dao.archivo.dir", "datos"));
+    }
+
+    private static boolean sync() {
+        return Boolean.getBoolean("dao.archivo.sync");
+    }
+
+    /** Programa la compactación periódica y el cierre ordenado del log al terminar el proceso. */
+    private static void prepararStore(LogStore<?> store) {
+        long segundos = Long.getLong("dao.archivo.compactacionSegundos", 60L);
+        if (segundos > 0) {
+            boolean purgar = Boolean.parseBoolean(System.getProperty("dao.archivo.purgarEliminados", "true"));
+            store.programarCompactacion(segundos, MINIMO_OBSOLETOS, purgar);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Error al cerrar el log local: " + e.getMessage());
+            }
+        }, "logstore-cierre"));
+    }
+}
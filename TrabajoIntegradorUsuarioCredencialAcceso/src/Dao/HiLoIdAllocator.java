@@ -0,0 +1,141 @@
+package Dao;
+
+import Config.DataBaseConnection;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asignador de IDs por bloques (hi/lo) sobre la tabla id_secuencias.
+ *
+ * En lugar de AUTO_INCREMENT + RETURN_GENERATED_KEYS por cada INSERT, reserva en la BD un
+ * bloque de N IDs con una sola sentencia y los entrega desde memoria. Así el ID se conoce
+ * antes del INSERT: usuarios y credenciales se pueden insertar en lote y vincular (FK)
+ * sin esperar las claves generadas.
+ *
+ * Reserva atómica (un solo round trip, autocommit, no retiene locks en la transacción del caller).
+ * Usa DataBaseConnection.getConexionAuxiliar(): el caller suele estar dentro de insertTx con un
+ * permiso de escritura tomado, y pedir otro al bulkhead podría dejar a todas las inserciones
+ * esperando permisos que sólo ellas tienen. El recambio es sincronizado, así que hay como
+ * máximo una conexión auxiliar por tabla:
+ * <pre>
+ * UPDATE id_secuencias SET siguiente = LAST_INSERT_ID(siguiente + N) WHERE nombre = ?
+ * SELECT LAST_INSERT_ID()      -- bloque = [valor - N, valor)
+ * </pre>
+ * Si la secuencia no existe se inicializa con MAX(id) + 1 de la tabla.
+ *
+ * Importante: con el allocator habilitado TODOS los procesos que insertan en la tabla deben
+ * usarlo; un INSERT por AUTO_INCREMENT podría tomar un ID de un bloque ya reservado.
+ * Los IDs de un bloque no usado (reinicio del proceso) se pierden, igual que con AUTO_INCREMENT.
+ *
+ * Thread-safe: el camino rápido es un getAndIncrement sobre el bloque actual; sólo el
+ * recambio de bloque se sincroniza.
+ */
+public final class HiLoIdAllocator {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+
+    private static final String RESERVAR_SQL =
+            "UPDATE id_secuencias SET siguiente = LAST_INSERT_ID(siguiente + ?) WHERE nombre = ?";
+
+    private static final String ULTIMO_SQL = "SELECT LAST_INSERT_ID()";
+
+    /** La tabla es un identificador validado en el constructor, no un dato del usuario. */
+    private static final String INICIALIZAR_SQL =
+            "INSERT IGNORE INTO id_secuencias (nombre, siguiente) SELECT ?, COALESCE(MAX(id), 0) + 1 FROM %s";
+
+    /** Rango [proximo, fin) de IDs disponibles. */
+    private static final class Bloque {
+        final AtomicLong proximo;
+        final long fin;
+
+        Bloque(long inicio, long fin) {
+            this.proximo = new AtomicLong(inicio);
+            this.fin = fin;
+        }
+    }
+
+    private final String tabla;
+    private final int tamañoBloque;
+    private final String inicializarSql;
+    private final LongAdder bloques;
+
+    private volatile Bloque actual = new Bloque(0, 0);
+
+    /**
+     * @param tabla tabla cuyos IDs se asignan (también es el nombre de la secuencia)
+     * @param tamañoBloque IDs reservados por viaje a la BD
+     */
+    public HiLoIdAllocator(String tabla, int tamañoBloque) {
+        if (tabla == null || !tabla.matches("\\w+")) {
+            throw new IllegalArgumentException("Nombre de tabla inválido: " + tabla);
+        }
+        if (tamañoBloque <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser mayor a 0");
+        }
+        this.tabla = tabla;
+        this.tamañoBloque = tamañoBloque;
+        this.inicializarSql = String.format(INICIALIZAR_SQL, tabla);
+        this.bloques = METRICS.contador("ids", tabla, "bloques");
+    }
+
+    /**
+     * Devuelve el próximo ID libre (reserva un bloque nuevo si el actual se agotó).
+     * @throws SQLException si no se puede reservar un bloque
+     */
+    public int siguiente() throws SQLException {
+        while (true) {
+            Bloque bloque = actual;
+            long id = bloque.proximo.getAndIncrement();
+            if (id < bloque.fin) {
+                return Math.toIntExact(id);
+            }
+            synchronized (this) {
+                if (actual == bloque) {
+                    actual = reservar();
+                }
+            }
+        }
+    }
+
+    public String getTabla() {
+        return tabla;
+    }
+
+    /** Reserva [valor - N, valor) en id_secuencias, inicializando la secuencia si hace falta. */
+    private Bloque reservar() throws SQLException {
+        try (Medicion m = METRICS.medir("dao", "id_secuencias", "reservar");
+             Connection conn = DataBaseConnection.getConexionAuxiliar()) {
+            if (!incrementar(conn)) {
+                try (PreparedStatement stmt = StatementTracer.prepare(conn, "id_secuencias.INICIALIZAR_SQL", inicializarSql)) {
+                    stmt.setString(1, tabla);
+                    stmt.executeUpdate();
+                }
+                if (!incrementar(conn)) {
+                    throw new SQLException("No se pudo reservar un bloque de IDs para " + tabla);
+                }
+            }
+            try (PreparedStatement stmt = StatementTracer.prepare(conn, "id_secuencias.ULTIMO_SQL", ULTIMO_SQL);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                long fin = rs.getLong(1);
+                bloques.increment();
+                return m.ok(new Bloque(fin - tamañoBloque, fin));
+            }
+        }
+    }
+
+    private boolean incrementar(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = StatementTracer.prepare(conn, "id_secuencias.RESERVAR_SQL", RESERVAR_SQL)) {
+            stmt.setInt(1, tamañoBloque);
+            stmt.setString(2, tabla);
+            return stmt.executeUpdate() == 1;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package Dao;
+
+import Config.DataBaseConnection;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Huecos de una lectura incremental por id AUTO_INCREMENT (OutboxRelay, CacheInvalidador).
+ *
+ * Un id se asigna al insertar pero se ve recién al hacer commit: un id faltante por debajo de
+ * la marca puede ser un rollback o una transacción todavía abierta. El tiempo no distingue
+ * los dos casos, así que un hueco nunca se descarta por esperar:
+ * - El lector sigue de largo y anota el hueco con el instante de la BD en que lo vio.
+ * - En cada lectura vuelve a buscar los ids pendientes (primeros()) y entrega los que
+ *   aparecieron (llegado()).
+ * - resolver() descarta un hueco sólo cuando la transacción abierta más antigua de otra
+ *   conexión empezó después de verlo (marca baja de information_schema.innodb_trx): la
+ *   transacción que tenía ese id ya terminó, y si no apareció fue un rollback.
+ * - Como máximo guarda maximo huecos; por encima descarta los más viejos (y los informa).
+ *
+ * leerMarca() consulta information_schema.innodb_trx, que requiere el privilegio PROCESS. Sin
+ * él la consulta falla y el lector no avanza más allá de un hueco hasta que se otorgue.
+ */
+public final class HuecosPendientes {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "huecos";
+
+    /**
+     * Reloj de la BD y marca baja de las transacciones abiertas.
+     * @param ahora NOW(6) de la BD
+     * @param inicioMasAntiguo trx_started de la transacción abierta más antigua de otra conexión
+     *                         (precisión de segundos; null si no hay ninguna)
+     */
+    public record Marca(LocalDateTime ahora, LocalDateTime inicioMasAntiguo) {
+    }
+
+    private static final String SELECT_MARCA_SQL = """
+        SELECT NOW(6),
+               (SELECT MIN(trx_started) FROM information_schema.innodb_trx
+                WHERE trx_mysql_thread_id <> CONNECTION_ID())
+    """;
+
+    /** Id pendiente -> instante (reloj de la BD) en que se vio el hueco. */
+    private final TreeMap<Long, LocalDateTime> pendientes = new TreeMap<>();
+    private final int maximo;
+
+    /**
+     * @param maximo huecos pendientes como máximo
+     */
+    public HuecosPendientes(int maximo) {
+        if (maximo <= 0) {
+            throw new IllegalArgumentException("El máximo de huecos debe ser mayor a 0");
+        }
+        this.maximo = maximo;
+    }
+
+    /** Lee la marca del primario. Llamarla después de la lectura que encontró los huecos. */
+    public static Marca leerMarca() throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "leerMarca");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "innodb_trx.SELECT_MARCA_SQL", SELECT_MARCA_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            Timestamp inicio = rs.getTimestamp(2);
+            return m.ok(new Marca(rs.getTimestamp(1).toLocalDateTime(), inicio == null ? null : inicio.toLocalDateTime()));
+        }
+    }
+
+    /**
+     * Anota como pendientes los ids entre desdeId y hastaId (ambos exclusivos).
+     * @return huecos descartados por superar el máximo
+     */
+    public int registrar(long desdeId, long hastaId, Marca marca) {
+        int descartados = 0;
+        long primero = desdeId + 1;
+        if (hastaId - primero > maximo) {
+            descartados += (int) Math.min(Integer.MAX_VALUE, hastaId - primero - maximo);
+            primero = hastaId - maximo;
+        }
+        for (long id = primero; id < hastaId; id++) {
+            if (pendientes.size() >= maximo) {
+                pendientes.pollFirstEntry();
+                descartados++;
+            }
+            pendientes.put(id, marca.ahora());
+        }
+        return descartados;
+    }
+
+    public boolean isEmpty() {
+        return pendientes.isEmpty();
+    }
+
+    public int size() {
+        return pendientes.size();
+    }
+
+    /** Los max ids pendientes más bajos, para volver a buscarlos. */
+    public List<Long> primeros(int max) {
+        List<Long> ids = new ArrayList<>(Math.min(max, pendientes.size()));
+        for (Long id : pendientes.keySet()) {
+            if (ids.size() == max) {
+                break;
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    /** El id apareció (se confirmó después de verse el hueco). */
+    public void llegado(long id) {
+        pendientes.remove(id);
+    }
+
+    /**
+     * Descarta los huecos que ya ninguna transacción abierta puede confirmar.
+     * @return huecos descartados
+     */
+    public int resolver(Marca marca) {
+        int descartados = 0;
+        // Los huecos se anotan en orden de id con marcas no decrecientes: se corta en el primero que sigue abierto.
+        while (!pendientes.isEmpty()) {
+            Map.Entry<Long, LocalDateTime> hueco = pendientes.firstEntry();
+            LocalDateTime visto = hueco.getValue().truncatedTo(ChronoUnit.SECONDS);
+            if (marca.inicioMasAntiguo() != null && !marca.inicioMasAntiguo().isAfter(visto)) {
+                break;
+            }
+            pendientes.pollFirstEntry();
+            descartados++;
+        }
+        return descartados;
+    }
+}
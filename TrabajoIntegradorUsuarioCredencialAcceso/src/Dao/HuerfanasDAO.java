@@ -0,0 +1,205 @@
+package Dao;
+
+import Config.DataBaseConnection;
+import Config.TransactionManager;
+import Eventos.TipoCambio;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Credenciales huérfanas: filas de credenciales_acceso que ningún usuarios.credencial_id referencia.
+ *
+ * Aparecen cuando UsuarioServiceImpl.insertar guarda la credencial y después falla el INSERT del
+ * usuario (por ejemplo, una violación de unicidad). También son huérfanas, legítimamente, las
+ * credenciales independientes todavía sin asignar (opción 5 del menú).
+ *
+ * - enRango() es un anti-join por rango de PK: NOT EXISTS sobre uq_usuarios_credencial, una
+ *   búsqueda por índice por credencial, nunca un recorrido de usuarios. Los usuarios eliminados
+ *   lógicamente siguen referenciando su credencial y la protegen.
+ * - Sólo se consideran filas con actualizado_en anterior al límite (período de gracia): una
+ *   credencial recién creada cuyo usuario todavía se está insertando no se toca.
+ * - eliminar() y purgar() bloquean las filas (FOR UPDATE) y vuelven a verificar todo en la
+ *   misma transacción: si la credencial se asignó entretanto, se omite.
+ * - La baja lógica marca baja_huerfana, deja ultimo_cambio como estaba y registra ELIMINADO en
+ *   el outbox.
+ * - La purga borra físicamente sólo filas con baja_huerfana (su evento se emitió en la baja).
+ *   Una credencial dada de baja por el servicio (por ejemplo, al quitársela a su usuario) queda
+ *   eliminada lógicamente y la mueve el Archivador, con su auditoría intacta.
+ */
+public class HuerfanasDAO {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "credencial";
+
+    /**
+     * Credencial sin usuario.
+     * @param eliminado ya estaba eliminada lógicamente
+     * @param bajaHuerfana la baja la hizo eliminar() (sólo esas se purgan)
+     */
+    public record Huerfana(int id, boolean eliminado, boolean bajaHuerfana) {
+    }
+
+    // =======================
+    // SQL BASE
+    // =======================
+
+    private static final String SELECT_MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM credenciales_acceso";
+
+    private static final String SELECT_HUERFANAS_SQL = """
+        SELECT c.id, c.eliminado, c.baja_huerfana
+        FROM credenciales_acceso c
+        WHERE c.id > ? AND c.id <= ? AND c.actualizado_en < ?
+          AND NOT EXISTS (SELECT 1 FROM usuarios u WHERE u.credencial_id = c.id)
+        ORDER BY c.id
+    """;
+
+    /** Bloquea las filas del lote que siguen huérfanas y activas (el IN se completa con un ? por id). */
+    private static final String SELECT_ELIMINABLES_SQL = """
+        SELECT c.id
+        FROM credenciales_acceso c
+        WHERE c.id IN (%s) AND c.eliminado = FALSE AND c.actualizado_en < ?
+          AND NOT EXISTS (SELECT 1 FROM usuarios u WHERE u.credencial_id = c.id)
+        FOR UPDATE
+    """;
+
+    /** ultimo_cambio = ultimo_cambio evita el ON UPDATE CURRENT_TIMESTAMP (no es un cambio de contraseña). */
+    private static final String ELIMINAR_SQL = """
+        UPDATE credenciales_acceso
+        SET eliminado = TRUE, baja_huerfana = TRUE, ultimo_cambio = ultimo_cambio
+        WHERE id IN (%s)
+    """;
+
+    /** Bloquea las filas del lote que siguen huérfanas y que dio de baja eliminar(). */
+    private static final String SELECT_PURGABLES_SQL = """
+        SELECT c.id
+        FROM credenciales_acceso c
+        WHERE c.id IN (%s) AND c.eliminado = TRUE AND c.baja_huerfana = TRUE AND c.actualizado_en < ?
+          AND NOT EXISTS (SELECT 1 FROM usuarios u WHERE u.credencial_id = c.id)
+        FOR UPDATE
+    """;
+
+    private static final String PURGAR_SQL = "DELETE FROM credenciales_acceso WHERE id IN (%s)";
+
+    /** Outbox de eventos de cambio; null = sin eventos. */
+    private final OutboxDAO outbox;
+
+    /**
+     * @param outbox registra un evento ELIMINADO por baja lógica (null = sin eventos)
+     */
+    public HuerfanasDAO(OutboxDAO outbox) {
+        this.outbox = outbox;
+    }
+
+    /** Mayor id de credenciales_acceso (0 si la tabla está vacía). */
+    public int maxId() throws Exception {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "maxIdHuerfanas");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_MAX_ID_SQL", SELECT_MAX_ID_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return m.ok(rs.getInt(1));
+        }
+    }
+
+    /**
+     * Credenciales con id en (desdeId, hastaId], sin usuario y con actualizado_en anterior a limite,
+     * eliminadas o no. Lee del primario: la réplica podría no ver todavía el usuario recién insertado.
+     */
+    public List<Huerfana> enRango(int desdeId, int hastaId, LocalDateTime limite) throws Exception {
+        List<Huerfana> huerfanas = new ArrayList<>();
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "huerfanasEnRango");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_HUERFANAS_SQL", SELECT_HUERFANAS_SQL)) {
+            stmt.setInt(1, desdeId);
+            stmt.setInt(2, hastaId);
+            stmt.setTimestamp(3, Timestamp.valueOf(limite));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    huerfanas.add(new Huerfana(rs.getInt("id"), rs.getBoolean("eliminado"), rs.getBoolean("baja_huerfana")));
+                }
+            }
+            return m.ok(huerfanas);
+        }
+    }
+
+    /**
+     * Baja lógica de las credenciales del lote que siguen huérfanas, activas y con actualizado_en
+     * anterior a limite.
+     * @return ids efectivamente eliminados
+     */
+    public List<Integer> eliminar(List<Integer> ids, LocalDateTime limite) throws Exception {
+        List<Integer> eliminadas = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return eliminadas;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "eliminarHuerfanas")) {
+            TransactionManager.enTransaccion(conn -> {
+                try (PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_ELIMINABLES_SQL",
+                        SELECT_ELIMINABLES_SQL.formatted(CredencialAccesoDAO.marcadores(ids.size())))) {
+                    int i = CredencialAccesoDAO.setIds(stmt, ids);
+                    stmt.setTimestamp(i, Timestamp.valueOf(limite));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            eliminadas.add(rs.getInt(1));
+                        }
+                    }
+                }
+                if (eliminadas.isEmpty()) {
+                    return;
+                }
+                try (PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.ELIMINAR_HUERFANAS_SQL",
+                        ELIMINAR_SQL.formatted(CredencialAccesoDAO.marcadores(eliminadas.size())))) {
+                    CredencialAccesoDAO.setIds(stmt, eliminadas);
+                    stmt.executeUpdate();
+                }
+                if (outbox != null) {
+                    outbox.registrarLoteTx(ENTIDAD, eliminadas, TipoCambio.ELIMINADO, conn);
+                }
+            });
+            return m.ok(eliminadas);
+        }
+    }
+
+    /**
+     * Borra físicamente las credenciales del lote que siguen huérfanas, que dio de baja eliminar()
+     * y con actualizado_en (el momento de la baja) anterior a limite.
+     * @return ids efectivamente borrados
+     */
+    public List<Integer> purgar(List<Integer> ids, LocalDateTime limite) throws Exception {
+        List<Integer> purgadas = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return purgadas;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "purgarHuerfanas")) {
+            TransactionManager.enTransaccion(conn -> {
+                try (PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.SELECT_PURGABLES_SQL",
+                        SELECT_PURGABLES_SQL.formatted(CredencialAccesoDAO.marcadores(ids.size())))) {
+                    int i = CredencialAccesoDAO.setIds(stmt, ids);
+                    stmt.setTimestamp(i, Timestamp.valueOf(limite));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            purgadas.add(rs.getInt(1));
+                        }
+                    }
+                }
+                if (purgadas.isEmpty()) {
+                    return;
+                }
+                try (PreparedStatement stmt = StatementTracer.prepare(conn, "credenciales_acceso.PURGAR_HUERFANAS_SQL",
+                        PURGAR_SQL.formatted(CredencialAccesoDAO.marcadores(purgadas.size())))) {
+                    CredencialAccesoDAO.setIds(stmt, purgadas);
+                    stmt.executeUpdate();
+                }
+            });
+            return m.ok(purgadas);
+        }
+    }
+}
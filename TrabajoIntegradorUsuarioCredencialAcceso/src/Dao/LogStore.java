@@ -0,0 +1,556 @@
+package Dao;
+
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Almacén local append-only (log-structured) de filas de una tabla.
+ *
+ * Formato del archivo: secuencia de registros
+ * <pre>
+ * [int longitud][int crc32(payload)][payload = long lsn, byte tipo, datos de la fila]
+ * </pre>
+ * Cada escritura (insert, update o baja lógica) agrega la fila completa al final; la versión
+ * vigente de cada ID es la última del archivo. Nada se reescribe en el lugar.
+ *
+ * - Escritura: bajo lock exclusivo, sobre un MappedByteBuffer que crece por duplicación.
+ * - Lectura: índice hash en memoria (ID → offset del último registro) y decodificación directa
+ *   desde el mapeo (sin syscalls). Varias lecturas concurrentes comparten el lock de lectura.
+ * - Recuperación: al abrir se re-ejecuta el log desde el principio; el primer registro
+ *   incompleto o con CRC inválido (escritura cortada por un crash) marca el fin y se descarta.
+ * - Compactación: reescribe sólo la versión vigente de cada ID (y, si se pide, descarta las
+ *   eliminadas lógicamente) en un archivo nuevo que reemplaza al anterior con un move atómico.
+ *   El registro de secuencia conserva el mayor ID y el mayor LSN: los LSN nunca se reutilizan,
+ *   ni después de compactar ni al reabrir. Si el move falla se reabre el archivo original.
+ * - Diario de cambios: índice LSN → ID de la versión vigente, para leer en orden los cambios
+ *   posteriores a una posición (cambiosDesde). Una retención opcional impide que la compactación
+ *   purgue bajas que todavía no fueron consumidas (ver Replicador).
+ *
+ * Durabilidad: lo escrito en el mapeo sobrevive a la caída del proceso. Con sync=true además
+ * se fuerza a disco cada registro (sobrevive a la caída del sistema operativo, más lento).
+ *
+ * El tamaño máximo del archivo es de 2 GB (un único mapeo); la compactación lo mantiene
+ * proporcional a las filas vivas.
+ *
+ * @param <T> tipo de fila almacenada
+ */
+public final class LogStore<T> implements AutoCloseable {
+
+    /** Versión vigente de una fila junto con el LSN del registro que la escribió. */
+    public record Cambio<T>(long lsn, T fila) {
+    }
+
+    /**
+     * Serialización de una fila. La implementación define el formato de los datos;
+     * LogStore agrega encabezado, LSN y CRC.
+     */
+    public interface Codec<T> {
+        int id(T fila);
+
+        boolean eliminado(T fila);
+
+        void escribir(T fila, DataOutput out) throws IOException;
+
+        /** Lee la fila desde la posición actual del buffer (escrita con escribir()). */
+        T leer(ByteBuffer in);
+    }
+
+    private static final byte TIPO_FILA = 1;
+    /**
+     * Registro con el mayor ID asignado y, en su LSN, el mayor LSN asignado: evita reutilizar IDs
+     * y LSNs de filas purgadas en la compactación.
+     */
+    private static final byte TIPO_SECUENCIA = 2;
+
+    private static final int ENCABEZADO = 8;
+    private static final int CAPACIDAD_INICIAL = 1 << 20;
+    private static final long NULO = Long.MIN_VALUE;
+
+    private static final ScheduledExecutorService COMPACTADOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "logstore-compactacion");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Path archivo;
+    private final String nombre;
+    private final Codec<T> codec;
+    private final boolean sync;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** ID → (offset << 1) | eliminado. El bit de eliminado evita decodificar en getAll(). */
+    private final ConcurrentHashMap<Integer, Long> indice = new ConcurrentHashMap<>();
+
+    /** LSN de la versión vigente → ID (las versiones reemplazadas salen del índice). */
+    private final ConcurrentSkipListMap<Long, Integer> porLsn = new ConcurrentSkipListMap<>();
+
+    /** Las bajas con LSN mayor a este valor no se purgan al compactar. */
+    private volatile LongSupplier retencion = () -> Long.MAX_VALUE;
+
+    private FileChannel canal;
+    private MappedByteBuffer mapeo;
+    private int fin;
+    private long ultimoLsn;
+    private int maxId;
+    private long registros;
+    private int eliminados;
+
+    /**
+     * Abre (o crea) el log y reconstruye el índice re-ejecutando los registros.
+     * @param archivo ruta del archivo .log
+     * @param codec serialización de las filas
+     * @param sync true para forzar a disco cada escritura
+     * @throws IOException si no se puede abrir o mapear el archivo
+     */
+    public LogStore(Path archivo, Codec<T> codec, boolean sync) throws IOException {
+        this.archivo = archivo;
+        this.nombre = archivo.getFileName().toString().replaceFirst("\\.log$", "");
+        this.codec = codec;
+        this.sync = sync;
+        Path dir = archivo.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        abrir();
+
+        MetricsRegistry metrics = MetricsRegistry.global();
+        metrics.gauge("logstore." + nombre + ".bytes", () -> fin);
+        metrics.gauge("logstore." + nombre + ".vivas", indice::size);
+        metrics.gauge("logstore." + nombre + ".obsoletos", this::obsoletos);
+    }
+
+    // =======================
+    // Escritura
+    // =======================
+
+    /**
+     * Agrega la versión nueva de una fila al final del log.
+     * @return LSN asignado al registro
+     */
+    public long agregar(T fila) throws IOException {
+        byte[] datos = serializar(fila);
+        lock.writeLock().lock();
+        try {
+            long lsn = ++ultimoLsn;
+            int offset = escribirRegistro(lsn, TIPO_FILA, datos);
+            indexar(codec.id(fila), offset, codec.eliminado(fila), lsn);
+            registros++;
+            return lsn;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Reserva el próximo ID (equivalente al AUTO_INCREMENT). */
+    public int siguienteId() {
+        lock.writeLock().lock();
+        try {
+            return ++maxId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Mayor ID reservado hasta ahora (0 si no hay ninguno). */
+    public int ultimoId() {
+        lock.readLock().lock();
+        try {
+            return maxId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // =======================
+    // Lectura
+    // =======================
+
+    /** Última versión de la fila (incluidas las eliminadas lógicamente), o null si no existe. */
+    public T leer(int id) {
+        lock.readLock().lock();
+        try {
+            Long entrada = indice.get(id);
+            return entrada == null ? null : decodificar((int) (entrada >>> 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** true si existe una fila con ese ID (activa o eliminada). */
+    public boolean existe(int id) {
+        return indice.containsKey(id);
+    }
+
+    /**
+     * Versión vigente de todas las filas ordenadas por ID.
+     * @param incluirEliminadas false para omitir las eliminadas lógicamente
+     */
+    public List<T> filas(boolean incluirEliminadas) {
+        lock.readLock().lock();
+        try {
+            List<T> resultado = new ArrayList<>(indice.size());
+            for (int id : idsOrdenados()) {
+                long entrada = indice.get(id);
+                if (incluirEliminadas || (entrada & 1) == 0) {
+                    resultado.add(decodificar((int) (entrada >>> 1)));
+                }
+            }
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Versiones vigentes escritas después de la posición indicada, en orden de LSN.
+     * Si una fila cambió varias veces sólo aparece su última versión.
+     * @param lsn posición (exclusiva)
+     * @param maximo cantidad máxima de cambios a devolver
+     */
+    public List<Cambio<T>> cambiosDesde(long lsn, int maximo) {
+        lock.readLock().lock();
+        try {
+            List<Cambio<T>> cambios = new ArrayList<>(Math.min(maximo, 1024));
+            for (var e : porLsn.tailMap(lsn, false).entrySet()) {
+                if (cambios.size() >= maximo) {
+                    break;
+                }
+                long entrada = indice.get(e.getValue());
+                cambios.add(new Cambio<>(e.getKey(), decodificar((int) (entrada >>> 1))));
+            }
+            return cambios;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fija la retención de bajas: la compactación no purga filas eliminadas cuyo LSN
+     * sea mayor al valor devuelto (por ejemplo, la posición ya replicada).
+     */
+    public void setRetencion(LongSupplier lsnRetenido) {
+        this.retencion = lsnRetenido;
+    }
+
+    public long getUltimoLsn() {
+        lock.readLock().lock();
+        try {
+            return ultimoLsn;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // =======================
+    // Compactación
+    // =======================
+
+    /**
+     * Reescribe el log con la versión vigente de cada ID.
+     * @param purgarEliminadas true para descartar también las filas eliminadas lógicamente
+     */
+    public void compactar(boolean purgarEliminadas) throws IOException {
+        Path temporal = Paths.get(archivo + ".compactando");
+        lock.writeLock().lock();
+        try (Medicion m = MetricsRegistry.global().medir("logstore", nombre, "compactar")) {
+            boolean reemplazado = false;
+            try {
+                try (FileChannel destino = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    long retenido = retencion.getAsLong();
+                    ByteBuffer secuencia = ByteBuffer.allocate(4).putInt(0, maxId);
+                    escribirCompleto(destino, registro(ultimoLsn, TIPO_SECUENCIA, secuencia.array()));
+                    for (int id : idsOrdenados()) {
+                        long entrada = indice.get(id);
+                        int offset = (int) (entrada >>> 1);
+                        if (purgarEliminadas && (entrada & 1) == 1 && lsnEn(offset) <= retenido) {
+                            continue;
+                        }
+                        int longitud = ENCABEZADO + mapeo.getInt(offset);
+                        escribirCompleto(destino, mapeo.slice(offset, longitud));
+                    }
+                    destino.force(true);
+                }
+                mapeo.force();
+                mapeo = null;
+                canal.close();
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                reemplazado = true;
+            } finally {
+                if (!reemplazado) {
+                    Files.deleteIfExists(temporal);
+                }
+                // El archivo compactado o, si el move falló (archivo todavía mapeado en Windows,
+                // ATOMIC_MOVE no soportado), el original: el store sigue usable
+                if (mapeo == null) {
+                    abrir();
+                }
+            }
+            m.ok();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compacta si los registros obsoletos (versiones reemplazadas y filas eliminadas)
+     * superan a los vivos y al mínimo indicado.
+     * @return true si compactó
+     */
+    public boolean compactarSiConviene(long minimoObsoletos, boolean purgarEliminadas) throws IOException {
+        long obsoletos = obsoletos();
+        if (obsoletos < minimoObsoletos || obsoletos <= indice.size() - eliminados) {
+            return false;
+        }
+        compactar(purgarEliminadas);
+        return true;
+    }
+
+    /** Programa compactarSiConviene() periódicamente en un hilo daemon compartido. */
+    public void programarCompactacion(long segundos, long minimoObsoletos, boolean purgarEliminadas) {
+        COMPACTADOR.scheduleWithFixedDelay(() -> {
+            try {
+                compactarSiConviene(minimoObsoletos, purgarEliminadas);
+            } catch (IOException e) {
+                System.err.println("Error al compactar " + archivo + ": " + e.getMessage());
+            }
+        }, segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    /** Fuerza a disco lo escrito y libera el archivo. */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (canal != null && canal.isOpen()) {
+                mapeo.force();
+                canal.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // =======================
+    // Apertura y recuperación
+    // =======================
+
+    /** Mapea el archivo y re-ejecuta el log para reconstruir índice, LSN y secuencia. */
+    private void abrir() throws IOException {
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long tamaño = Math.max(canal.size(), CAPACIDAD_INICIAL);
+        if (tamaño > Integer.MAX_VALUE) {
+            throw new IOException("El log " + archivo + " supera el tamaño máximo de 2 GB");
+        }
+        mapeo = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamaño);
+
+        indice.clear();
+        porLsn.clear();
+        fin = 0;
+        ultimoLsn = 0;
+        maxId = 0;
+        registros = 0;
+        eliminados = 0;
+
+        int capacidad = mapeo.capacity();
+        while (fin + ENCABEZADO <= capacidad) {
+            int longitud = mapeo.getInt(fin);
+            if (longitud <= 0 || longitud > capacidad - fin - ENCABEZADO
+                    || crc(mapeo.slice(fin + ENCABEZADO, longitud)) != mapeo.getInt(fin + 4)) {
+                break;
+            }
+            ByteBuffer payload = mapeo.slice(fin + ENCABEZADO, longitud);
+            long lsn = payload.getLong();
+            byte tipo = payload.get();
+            if (tipo == TIPO_SECUENCIA) {
+                // Su LSN (abajo) restaura el mayor LSN aunque la compactación haya purgado esos registros
+                maxId = Math.max(maxId, payload.getInt());
+            } else {
+                T fila = codec.leer(payload);
+                indexar(codec.id(fila), fin, codec.eliminado(fila), lsn);
+                registros++;
+            }
+            ultimoLsn = Math.max(ultimoLsn, lsn);
+            fin += ENCABEZADO + longitud;
+        }
+        descartarCola(capacidad);
+    }
+
+    /** Pone en cero lo que quede después del último registro válido (escritura cortada). */
+    private void descartarCola(int capacidad) {
+        if (fin + ENCABEZADO > capacidad || mapeo.getInt(fin) == 0) {
+            return;
+        }
+        byte[] ceros = new byte[64 * 1024];
+        for (int pos = fin; pos < capacidad; pos += ceros.length) {
+            mapeo.put(pos, ceros, 0, Math.min(ceros.length, capacidad - pos));
+        }
+        mapeo.force();
+    }
+
+    // =======================
+    // Helpers internos
+    // =======================
+
+    private void indexar(int id, int offset, boolean eliminado, long lsn) {
+        Long anterior = indice.put(id, ((long) offset << 1) | (eliminado ? 1 : 0));
+        if (anterior != null) {
+            porLsn.remove(lsnEn((int) (anterior >>> 1)));
+            if ((anterior & 1) == 1) {
+                eliminados--;
+            }
+        }
+        porLsn.put(lsn, id);
+        if (eliminado) {
+            eliminados++;
+        }
+        maxId = Math.max(maxId, id);
+    }
+
+    private long obsoletos() {
+        lock.readLock().lock();
+        try {
+            return registros - indice.size() + eliminados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] idsOrdenados() {
+        int[] ids = indice.keySet().stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private long lsnEn(int offset) {
+        return mapeo.getLong(offset + ENCABEZADO);
+    }
+
+    private T decodificar(int offset) {
+        ByteBuffer payload = mapeo.slice(offset + ENCABEZADO, mapeo.getInt(offset));
+        payload.position(Long.BYTES + 1);
+        return codec.leer(payload);
+    }
+
+    private byte[] serializar(T fila) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        codec.escribir(fila, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    /** Escribe un registro al final del mapeo (creciendo si hace falta) y devuelve su offset. */
+    private int escribirRegistro(long lsn, byte tipo, byte[] datos) throws IOException {
+        ByteBuffer reg = registro(lsn, tipo, datos);
+        int longitud = reg.remaining();
+        asegurarCapacidad(longitud);
+        int offset = fin;
+        mapeo.put(offset, reg, 0, longitud);
+        if (sync) {
+            mapeo.force(offset, longitud);
+        }
+        fin += longitud;
+        return offset;
+    }
+
+    private static ByteBuffer registro(long lsn, byte tipo, byte[] datos) {
+        int longitud = Long.BYTES + 1 + datos.length;
+        ByteBuffer reg = ByteBuffer.allocate(ENCABEZADO + longitud);
+        reg.putInt(longitud).putInt(0).putLong(lsn).put(tipo).put(datos);
+        reg.putInt(4, crc(reg.slice(ENCABEZADO, longitud)));
+        return reg.flip();
+    }
+
+    private void asegurarCapacidad(int longitud) throws IOException {
+        long necesario = (long) fin + longitud + ENCABEZADO;
+        if (necesario <= mapeo.capacity()) {
+            return;
+        }
+        long nueva = Math.max((long) mapeo.capacity() * 2, necesario);
+        if (nueva > Integer.MAX_VALUE) {
+            if (necesario > Integer.MAX_VALUE) {
+                throw new IOException("El log " + archivo + " alcanzó el tamaño máximo de 2 GB; compactar");
+            }
+            nueva = Integer.MAX_VALUE;
+        }
+        mapeo = canal.map(FileChannel.MapMode.READ_WRITE, 0, nueva);
+    }
+
+    private static void escribirCompleto(FileChannel destino, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            destino.write(buffer);
+        }
+    }
+
+    private static int crc(ByteBuffer datos) {
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        return (int) crc.getValue();
+    }
+
+    // =======================
+    // Helpers de serialización para los Codec
+    // =======================
+
+    /** Texto UTF-8 con longitud (-1 = null). */
+    public static void escribirTexto(DataOutput out, String valor) throws IOException {
+        if (valor == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String leerTexto(ByteBuffer in) {
+        int longitud = in.getInt();
+        if (longitud < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Fecha como segundos + nanos en UTC (Long.MIN_VALUE = null). */
+    public static void escribirFecha(DataOutput out, LocalDateTime valor) throws IOException {
+        if (valor == null) {
+            out.writeLong(NULO);
+            return;
+        }
+        out.writeLong(valor.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(valor.getNano());
+    }
+
+    public static LocalDateTime leerFecha(ByteBuffer in) {
+        long segundos = in.getLong();
+        return segundos == NULO ? null : LocalDateTime.ofEpochSecond(segundos, in.getInt(), ZoneOffset.UTC);
+    }
+}
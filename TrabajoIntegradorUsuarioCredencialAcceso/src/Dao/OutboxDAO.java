@@ -0,0 +1,189 @@
+package Dao;
+
+import Config.DataBaseConnection;
+import Eventos.EventoCambio;
+import Eventos.TipoCambio;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object de la tabla outbox_eventos (patrón transactional outbox).
+ *
+ * UsuarioDAO y CredencialAccesoDAO registran aquí un evento por cada alta, modificación o
+ * baja lógica, en la MISMA transacción que el cambio: si la transacción hace rollback el
+ * evento tampoco existe, y si hace commit el evento queda garantizado. OutboxRelay lee la
+ * tabla en orden de id y publica los eventos a los suscriptores en proceso.
+ *
+ * Los eventos sólo llevan entidad, ID y tipo de cambio (nunca hashes, salts ni datos
+ * personales): el suscriptor que necesite el estado actual lo consulta por ID.
+ */
+public class OutboxDAO {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "outbox";
+
+    // =======================
+    // SQL BASE
+    // =======================
+
+    private static final String INSERT_SQL = """
+        INSERT INTO outbox_eventos (entidad, entidad_id, tipo)
+        VALUES (?, ?, ?)
+    """;
+
+    /** Lectura incremental por id (PK): nunca recorre eventos ya publicados. */
+    private static final String SELECT_DESDE_SQL = """
+        SELECT id, entidad, entidad_id, tipo, creado_en
+        FROM outbox_eventos
+        WHERE id > ?
+        ORDER BY id
+        LIMIT ?
+    """;
+
+    /** Relectura de huecos pendientes (el IN se completa con un ? por id). */
+    private static final String SELECT_IDS_SQL = """
+        SELECT id, entidad, entidad_id, tipo, creado_en
+        FROM outbox_eventos
+        WHERE id IN (%s)
+        ORDER BY id
+    """;
+
+    private static final String SELECT_MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM outbox_eventos";
+
+    /** Purga acotada por sentencia para no retener locks largos. */
+    private static final String PURGAR_SQL = """
+        DELETE FROM outbox_eventos
+        WHERE creado_en < ?
+        ORDER BY id
+        LIMIT ?
+    """;
+
+    // =======================
+    // Escritura (dentro de la transacción del cambio)
+    // =======================
+
+    /**
+     * Registra un evento. NO cierra la conexión.
+     * @param entidad "usuario" o "credencial"
+     */
+    public void registrarTx(String entidad, int entidadId, TipoCambio tipo, Connection conn) throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "registrarTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "outbox_eventos.INSERT_SQL", INSERT_SQL)) {
+            stmt.setString(1, entidad);
+            stmt.setInt(2, entidadId);
+            stmt.setString(3, tipo.name());
+            stmt.executeUpdate();
+            m.ok();
+        }
+    }
+
+    /** Registra un evento del mismo tipo por cada ID (JDBC batch). NO cierra la conexión. */
+    public void registrarLoteTx(String entidad, List<Integer> entidadIds, TipoCambio tipo, Connection conn) throws SQLException {
+        if (entidadIds.isEmpty()) {
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "registrarLoteTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "outbox_eventos.INSERT_SQL", INSERT_SQL)) {
+            for (int id : entidadIds) {
+                stmt.setString(1, entidad);
+                stmt.setInt(2, id);
+                stmt.setString(3, tipo.name());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            m.ok();
+        }
+    }
+
+    // =======================
+    // Lectura (relay)
+    // =======================
+
+    /**
+     * Eventos con id mayor a desdeId, en orden.
+     * @param max cantidad máxima de eventos
+     */
+    public List<EventoCambio> leerDesde(long desdeId, int max) throws SQLException {
+        List<EventoCambio> eventos = new ArrayList<>();
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "leerDesde");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "outbox_eventos.SELECT_DESDE_SQL", SELECT_DESDE_SQL)) {
+            stmt.setLong(1, desdeId);
+            stmt.setInt(2, max);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    eventos.add(mapEvento(rs));
+                }
+            }
+            m.ok();
+        }
+        return eventos;
+    }
+
+    /** Eventos con esos ids que ya existen (huecos que se confirmaron tarde), en orden. */
+    public List<EventoCambio> leerIds(List<Long> ids) throws SQLException {
+        List<EventoCambio> eventos = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return eventos;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "leerIds");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "outbox_eventos.SELECT_IDS_SQL",
+                     SELECT_IDS_SQL.formatted(CredencialAccesoDAO.marcadores(ids.size())))) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setLong(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    eventos.add(mapEvento(rs));
+                }
+            }
+            m.ok();
+        }
+        return eventos;
+    }
+
+    /** Id del último evento registrado (0 si la tabla está vacía). */
+    public long getMaxId() throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "getMaxId");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "outbox_eventos.SELECT_MAX_ID_SQL", SELECT_MAX_ID_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return m.ok(rs.getLong(1));
+        }
+    }
+
+    /**
+     * Borra hasta max eventos creados antes de la fecha indicada.
+     * @return filas borradas (si es igual a max puede quedar más por purgar)
+     */
+    public int purgarAnteriores(LocalDateTime limite, int max) throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "purgarAnteriores");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "outbox_eventos.PURGAR_SQL", PURGAR_SQL)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(limite));
+            stmt.setInt(2, max);
+            return m.ok(stmt.executeUpdate());
+        }
+    }
+
+    private static EventoCambio mapEvento(ResultSet rs) throws SQLException {
+        Timestamp creado = rs.getTimestamp("creado_en");
+        return new EventoCambio(
+                rs.getLong("id"),
+                rs.getString("entidad"),
+                rs.getInt("entidad_id"),
+                TipoCambio.valueOf(rs.getString("tipo")),
+                creado == null ? null : creado.toLocalDateTime());
+    }
+}
@@ -0,0 +1,14 @@
+package Dao;
+
+import java.util.List;
+
+/**
+ * Página del flujo de cambios.
+ *
+ * @param filas filas cambiadas (incluye bajas lógicas: isEliminado() = true), en orden keyset
+ * @param siguiente cursor desde el que pedir la página siguiente (igual al pedido si no hubo filas)
+ * @param hayMas true si la página vino llena y conviene pedir otra enseguida
+ * @param <T> entidad
+ */
+public record PaginaCambios<T>(List<T> filas, CursorCambios siguiente, boolean hayMas) {
+}
@@ -0,0 +1,35 @@
+package Dao;
+
+import Models.CredencialAcceso;
+
+import java.util.List;
+
+/**
+ * Operaciones para actualizar el esquema de hash de las credenciales sin pasar por actualizar().
+ *
+ * - reemplazarHash es un compare-and-set sobre hash_password: sólo escribe si la fila sigue
+ *   teniendo el hash que se leyó. Así un rehash asíncrono (login) o la migración en segundo
+ *   plano nunca pisan un cambio de contraseña que ocurrió en el medio.
+ * - No modifica ultimo_cambio: recalcular el hash no es un cambio de contraseña.
+ * - legadosEnRango recorre la tabla por rangos de id (PK): cada consulta toca a lo sumo
+ *   hastaId - desdeId filas, sin cargar la tabla completa.
+ */
+public interface RehashDAO {
+
+    /**
+     * Reemplaza hash y salt si la credencial (activa) sigue teniendo hashAnterior.
+     * @param marcarReset true para además exigir un cambio de contraseña (requiere_reset)
+     * @return false si la fila no existe, está eliminada o su hash ya cambió
+     */
+    boolean reemplazarHash(int id, String hashAnterior, String hashNuevo, String saltNuevo,
+                           boolean marcarReset) throws Exception;
+
+    /**
+     * Credenciales activas con id en (desdeId, hastaId] cuyo hash no tiene prefijo de esquema
+     * PBKDF2 (candidatas a legado), en orden de id.
+     */
+    List<CredencialAcceso> legadosEnRango(int desdeId, int hastaId) throws Exception;
+
+    /** Mayor id de credencial existente (0 si no hay ninguna). */
+    int maxId() throws Exception;
+}
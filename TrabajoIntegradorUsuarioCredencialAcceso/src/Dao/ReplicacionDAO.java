@@ -0,0 +1,158 @@
+package Dao;
+
+import Config.DataBaseConnection;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data Access Object del estado de replicación de un nodo local hacia la BD central.
+ *
+ * Tablas (en la BD central, se actualizan en la MISMA transacción que los datos replicados,
+ * así un reintento después de un fallo nunca aplica dos veces el mismo cambio):
+ * - replicacion_origen  : (nodo, tabla, id_local) → id_remoto + versión (LSN local) aplicada
+ * - replicacion_posicion: (nodo, tabla) → último LSN del diario local aplicado
+ * - replicacion_conflictos: cambios locales salteados por conflicto (gana la BD central)
+ */
+public class ReplicacionDAO {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "replicacion";
+
+    /** Fila de replicacion_origen: a qué ID central corresponde un ID local y qué versión se aplicó. */
+    public record Mapeo(int idRemoto, long version) {
+    }
+
+    // =======================
+    // SQL BASE
+    // =======================
+
+    private static final String SELECT_MAPEOS_SQL = """
+        SELECT id_local, id_remoto, version
+        FROM replicacion_origen
+        WHERE nodo = ? AND tabla = ?
+    """;
+
+    /** Upsert idempotente: la versión sólo avanza. */
+    private static final String UPSERT_MAPEO_SQL = """
+        INSERT INTO replicacion_origen (nodo, tabla, id_local, id_remoto, version)
+        VALUES (?, ?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE id_remoto = VALUES(id_remoto), version = GREATEST(version, VALUES(version))
+    """;
+
+    private static final String SELECT_POSICION_SQL = """
+        SELECT lsn FROM replicacion_posicion WHERE nodo = ? AND tabla = ?
+    """;
+
+    private static final String UPSERT_POSICION_SQL = """
+        INSERT INTO replicacion_posicion (nodo, tabla, lsn)
+        VALUES (?, ?, ?)
+        ON DUPLICATE KEY UPDATE lsn = GREATEST(lsn, VALUES(lsn))
+    """;
+
+    /** Idempotente: reintentar el salteo del mismo cambio sólo actualiza el error. */
+    private static final String UPSERT_CONFLICTO_SQL = """
+        INSERT INTO replicacion_conflictos (nodo, tabla, id_local, version, error)
+        VALUES (?, ?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE error = VALUES(error)
+    """;
+
+    // =======================
+    // Lectura (al iniciar)
+    // =======================
+
+    /**
+     * Carga todos los mapeos de un nodo y tabla.
+     * @return id_local → Mapeo
+     */
+    public Map<Integer, Mapeo> cargarMapeos(String nodo, String tabla) throws SQLException {
+        Map<Integer, Mapeo> mapeos = new HashMap<>();
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "cargarMapeos");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "replicacion_origen.SELECT_MAPEOS_SQL", SELECT_MAPEOS_SQL)) {
+            stmt.setFetchSize(1000);
+            stmt.setString(1, nodo);
+            stmt.setString(2, tabla);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    mapeos.put(rs.getInt("id_local"), new Mapeo(rs.getInt("id_remoto"), rs.getLong("version")));
+                }
+            }
+            m.ok();
+        }
+        return mapeos;
+    }
+
+    /** Último LSN aplicado (0 si el nodo nunca replicó esa tabla). */
+    public long getPosicion(String nodo, String tabla) throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "getPosicion");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "replicacion_posicion.SELECT_POSICION_SQL", SELECT_POSICION_SQL)) {
+            stmt.setString(1, nodo);
+            stmt.setString(2, tabla);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return m.ok(rs.next() ? rs.getLong("lsn") : 0L);
+            }
+        }
+    }
+
+    // =======================
+    // Escritura (dentro de la transacción del lote)
+    // =======================
+
+    /**
+     * Guarda (o avanza) los mapeos de un lote. NO cierra la conexión.
+     * @param mapeos id_local → Mapeo
+     */
+    public void guardarMapeosTx(String nodo, String tabla, Map<Integer, Mapeo> mapeos, Connection conn) throws SQLException {
+        if (mapeos.isEmpty()) {
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "guardarMapeosTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "replicacion_origen.UPSERT_MAPEO_SQL", UPSERT_MAPEO_SQL)) {
+            for (Map.Entry<Integer, Mapeo> e : mapeos.entrySet()) {
+                stmt.setString(1, nodo);
+                stmt.setString(2, tabla);
+                stmt.setInt(3, e.getKey());
+                stmt.setInt(4, e.getValue().idRemoto());
+                stmt.setLong(5, e.getValue().version());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            m.ok();
+        }
+    }
+
+    /** Guarda (o avanza) la posición de la tabla. NO cierra la conexión. */
+    public void guardarPosicionTx(String nodo, String tabla, long lsn, Connection conn) throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "guardarPosicionTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "replicacion_posicion.UPSERT_POSICION_SQL", UPSERT_POSICION_SQL)) {
+            stmt.setString(1, nodo);
+            stmt.setString(2, tabla);
+            stmt.setLong(3, lsn);
+            stmt.executeUpdate();
+            m.ok();
+        }
+    }
+
+    /** Registra un cambio salteado por conflicto. NO cierra la conexión. */
+    public void registrarConflictoTx(String nodo, String tabla, int idLocal, long version, String error,
+                                     Connection conn) throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "registrarConflictoTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "replicacion_conflictos.UPSERT_CONFLICTO_SQL", UPSERT_CONFLICTO_SQL)) {
+            stmt.setString(1, nodo);
+            stmt.setString(2, tabla);
+            stmt.setInt(3, idLocal);
+            stmt.setLong(4, version);
+            stmt.setString(5, error == null ? "" : error.length() > 500 ? error.substring(0, 500) : error);
+            stmt.executeUpdate();
+            m.ok();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package Dao;
+
+import Config.DataBaseConnection;
+import Config.TransactionManager;
+import Dao.LogStore.Cambio;
+import Dao.ReplicacionDAO.Mapeo;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+import Models.CredencialAcceso;
+import Models.Usuario;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replicación write-behind de un nodo local (DAOs en archivo) hacia la BD central dbtpiUsuarios.
+ *
+ * Funcionamiento:
+ * - Lee el diario de cada LogStore (cambiosDesde) a partir de la última posición aplicada.
+ * - Aplica los cambios en lotes ordenados por LSN, cada lote en UNA transacción
+ *   (TransactionManager) a través de los DAOs JDBC: insertarLoteTx / actualizarTx / eliminarTx.
+ * - En la misma transacción guarda el mapeo id_local → id_remoto y la posición (ReplicacionDAO),
+ *   por lo que reintentar un lote después de un fallo es idempotente.
+ * - Primero se drenan las credenciales y luego los usuarios (hasta el LSN observado al empezar),
+ *   así la FK credencial_id siempre apunta a una credencial ya replicada.
+ *
+ * Conflictos (resueltos por versión):
+ * - Cada mapeo guarda la versión (LSN local) aplicada: un cambio con versión menor o igual
+ *   ya está en la BD central y se omite.
+ * - Si un lote falla por un error que no es de conexión (por ejemplo username/email ya
+ *   usados en la BD central por otro nodo), se reintenta fila por fila; la fila que sigue
+ *   fallando queda como conflicto (gana la BD central), se informa por stderr y se registra en
+ *   replicacion_conflictos en la misma transacción que avanza la posición.
+ * - Los errores de conexión cortan la pasada; se reintenta en el próximo período.
+ *
+ * Posición: los LSN del log local nunca se reutilizan (LogStore guarda el mayor LSN aunque la
+ * compactación purgue los registros). Si la posición guardada en la BD central supera el último
+ * LSN local (log restaurado de un backup o reemplazado), la replicación se detiene: las escrituras
+ * nuevas tendrían LSN ya "aplicados" y se perderían en silencio.
+ *
+ * Métricas: replica{entidad=tabla,operacion=lote|aplicados|omitidos|conflictos|errores},
+ * gauges replica.&lt;tabla&gt;.lagLsn y replica.segundosDesdeSync.
+ */
+public class Replicador implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+
+    private final String nodo;
+    private final int lote;
+    private final ReplicacionDAO replicacionDAO;
+    private final Tabla<CredencialAcceso> credenciales;
+    private final Tabla<Usuario> usuarios;
+    private final LongAdder errores = METRICS.contador("replica", "nodo", "errores");
+
+    private boolean cargado;
+    private volatile long ultimaSincronizacion = System.currentTimeMillis();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param nodo identificador estable de este nodo (clave del estado en la BD central)
+     * @param credLocal DAO local de credenciales (origen)
+     * @param usrLocal DAO local de usuarios (origen)
+     * @param credRemoto DAO JDBC de credenciales (destino)
+     * @param usrRemoto DAO JDBC de usuarios (destino)
+     * @param replicacionDAO estado de replicación en la BD central
+     * @param lote cambios máximos por transacción
+     */
+    public Replicador(String nodo, CredencialAccesoDAOArchivo credLocal, UsuarioDAOArchivo usrLocal,
+                      CredencialAccesoDAO credRemoto, UsuarioDAO usrRemoto, ReplicacionDAO replicacionDAO, int lote) {
+        if (nodo == null || nodo.isBlank()) {
+            throw new IllegalArgumentException("El nodo no puede estar vacío");
+        }
+        if (lote <= 0) {
+            throw new IllegalArgumentException("El lote debe ser mayor a 0");
+        }
+        this.nodo = nodo;
+        this.lote = lote;
+        this.replicacionDAO = replicacionDAO;
+
+        this.credenciales = new Tabla<>("credenciales_acceso", credLocal.getStore()) {
+            @Override
+            int id(CredencialAcceso c) {
+                return c.getId();
+            }
+
+            @Override
+            boolean eliminado(CredencialAcceso c) {
+                return c.isEliminado();
+            }
+
+            @Override
+            CredencialAcceso remota(CredencialAcceso c, int idRemoto) {
+                return new CredencialAcceso(idRemoto, c.getHashPassword(), c.getSalt(), c.getUltimoCambio(),
+                        c.isRequiereReset());
+            }
+
+            @Override
+            void insertarLote(List<CredencialAcceso> filas, Connection conn) throws Exception {
+                credRemoto.insertarLoteTx(filas, conn);
+            }
+
+            @Override
+            void actualizar(CredencialAcceso c, Connection conn) throws Exception {
+                credRemoto.actualizarTx(c, conn);
+            }
+
+            @Override
+            void eliminar(int idRemoto, Connection conn) throws Exception {
+                credRemoto.eliminarTx(idRemoto, conn);
+            }
+        };
+
+        this.usuarios = new Tabla<>("usuarios", usrLocal.getStore()) {
+            @Override
+            int id(Usuario u) {
+                return u.getId();
+            }
+
+            @Override
+            boolean eliminado(Usuario u) {
+                return u.isEliminado();
+            }
+
+            /** Traduce credencial_id local al ID central. */
+            @Override
+            Usuario remota(Usuario u, int idRemoto) throws SQLException {
+                Usuario r = new Usuario(idRemoto, u.getUsername(), u.getEmail(), u.isActivo(), u.getFechaRegistro());
+                if (u.getCredencial() != null) {
+                    Mapeo cred = credenciales.mapeos.get(u.getCredencial().getId());
+                    if (cred == null) {
+                        throw new SQLIntegrityConstraintViolationException(
+                                "La credencial local " + u.getCredencial().getId() + " no fue replicada");
+                    }
+                    CredencialAcceso ref = new CredencialAcceso();
+                    ref.setId(cred.idRemoto());
+                    r.setCredencial(ref);
+                }
+                return r;
+            }
+
+            @Override
+            void insertarLote(List<Usuario> filas, Connection conn) throws Exception {
+                usrRemoto.insertarLoteTx(filas, conn);
+            }
+
+            @Override
+            void actualizar(Usuario u, Connection conn) throws Exception {
+                usrRemoto.actualizarTx(u, conn);
+            }
+
+            @Override
+            void eliminar(int idRemoto, Connection conn) throws Exception {
+                usrRemoto.eliminarTx(idRemoto, conn);
+            }
+        };
+
+        METRICS.gauge("replica.segundosDesdeSync",
+                () -> TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - ultimaSincronizacion));
+    }
+
+    /** Programa sincronizar() cada 'segundos' en un hilo daemon. */
+    public synchronized void iniciar(long segundos) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replicador-" + nodo);
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sincronizar();
+            } catch (Exception e) {
+                errores.increment();
+                System.err.println("Replicación pendiente (se reintenta): " + e.getMessage());
+            }
+        }, 0, segundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Una pasada completa: aplica todo lo pendiente de credenciales y luego de usuarios.
+     * @throws Exception si la BD central no está disponible (lo ya confirmado queda aplicado)
+     */
+    public synchronized void sincronizar() throws Exception {
+        if (!cargado) {
+            credenciales.cargar();
+            usuarios.cargar();
+            cargado = true;
+        }
+        long limiteUsuarios = usuarios.store.getUltimoLsn();
+        drenar(credenciales, Long.MAX_VALUE);
+        drenar(usuarios, limiteUsuarios);
+        ultimaSincronizacion = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    // =======================
+    // Aplicación de lotes
+    // =======================
+
+    private <T> void drenar(Tabla<T> tabla, long limite) throws Exception {
+        tabla.verificarPosicion();
+        while (true) {
+            List<Cambio<T>> cambios = tabla.store.cambiosDesde(tabla.posicion, lote);
+            boolean incompleto = cambios.size() < lote;
+            boolean recortado = cambios.removeIf(c -> c.lsn() > limite);
+            if (cambios.isEmpty()) {
+                return;
+            }
+            try {
+                aplicar(tabla, cambios);
+            } catch (Exception e) {
+                if (esErrorDeConexion(e)) {
+                    throw e;
+                }
+                aplicarUnoPorUno(tabla, cambios);
+            }
+            if (incompleto || recortado) {
+                return;
+            }
+        }
+    }
+
+    /** Reintenta un lote fallido de a una fila para aislar los conflictos. */
+    private <T> void aplicarUnoPorUno(Tabla<T> tabla, List<Cambio<T>> cambios) throws Exception {
+        for (Cambio<T> cambio : cambios) {
+            try {
+                aplicar(tabla, List.of(cambio));
+            } catch (Exception e) {
+                if (esErrorDeConexion(e)) {
+                    throw e;
+                }
+                tabla.conflictos.increment();
+                System.err.println("Conflicto de replicación en " + tabla.nombre + " (id local "
+                        + tabla.id(cambio.fila()) + ", versión " + cambio.lsn() + "): " + e.getMessage());
+                saltear(tabla, tabla.id(cambio.fila()), cambio.lsn(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Aplica un lote en una transacción: actualizaciones/bajas en orden, altas con JDBC batch,
+     * y luego mapeos y posición. El estado en memoria se actualiza sólo después del commit.
+     */
+    private <T> void aplicar(Tabla<T> tabla, List<Cambio<T>> cambios) throws Exception {
+        Map<Integer, Mapeo> nuevos = new HashMap<>();
+        List<T> altas = new ArrayList<>();
+        List<Cambio<T>> origenAltas = new ArrayList<>();
+        long lsn = cambios.get(cambios.size() - 1).lsn();
+        int omitidos = 0;
+
+        try (Medicion m = METRICS.medir("replica", tabla.nombre, "lote");
+             TransactionManager tx = new TransactionManager(DataBaseConnection.getConnection())) {
+            tx.startTransaction();
+            Connection conn = tx.getConnection();
+
+            for (Cambio<T> cambio : cambios) {
+                Mapeo mapeo = tabla.mapeos.get(tabla.id(cambio.fila()));
+                if (mapeo != null && mapeo.version() >= cambio.lsn()) {
+                    omitidos++;
+                } else if (mapeo == null) {
+                    altas.add(tabla.remota(cambio.fila(), 0));
+                    origenAltas.add(cambio);
+                } else {
+                    tabla.actualizar(tabla.remota(cambio.fila(), mapeo.idRemoto()), conn);
+                    if (tabla.eliminado(cambio.fila())) {
+                        tabla.eliminar(mapeo.idRemoto(), conn);
+                    }
+                    nuevos.put(tabla.id(cambio.fila()), new Mapeo(mapeo.idRemoto(), cambio.lsn()));
+                }
+            }
+
+            tabla.insertarLote(altas, conn);
+            for (int i = 0; i < altas.size(); i++) {
+                int idRemoto = tabla.id(altas.get(i));
+                Cambio<T> cambio = origenAltas.get(i);
+                if (tabla.eliminado(cambio.fila())) {
+                    tabla.eliminar(idRemoto, conn);
+                }
+                nuevos.put(tabla.id(cambio.fila()), new Mapeo(idRemoto, cambio.lsn()));
+            }
+
+            replicacionDAO.guardarMapeosTx(nodo, tabla.nombre, nuevos, conn);
+            replicacionDAO.guardarPosicionTx(nodo, tabla.nombre, lsn, conn);
+            tx.commit();
+            m.ok();
+        }
+
+        tabla.mapeos.putAll(nuevos);
+        tabla.posicion = lsn;
+        tabla.aplicados.add(nuevos.size());
+        tabla.omitidos.add(omitidos);
+    }
+
+    /** Registra el conflicto y avanza la posición sobre el cambio, en una transacción. */
+    private void saltear(Tabla<?> tabla, int idLocal, long lsn, String error) throws SQLException {
+        try (TransactionManager tx = new TransactionManager(DataBaseConnection.getConnection())) {
+            tx.startTransaction();
+            replicacionDAO.registrarConflictoTx(nodo, tabla.nombre, idLocal, lsn, error, tx.getConnection());
+            replicacionDAO.guardarPosicionTx(nodo, tabla.nombre, lsn, tx.getConnection());
+            tx.commit();
+        }
+        tabla.posicion = lsn;
+    }
+
+    /** Errores de conexión/transitorios: no son conflictos, se reintenta más tarde. */
+    private static boolean esErrorDeConexion(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientException || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // =======================
+    // Estado por tabla
+    // =======================
+
+    /** Origen, destino y estado de replicación de una tabla. Sólo se usa desde sincronizar(). */
+    private abstract class Tabla<T> {
+        final String nombre;
+        final LogStore<T> store;
+        final LongAdder aplicados;
+        final LongAdder omitidos;
+        final LongAdder conflictos;
+
+        Map<Integer, Mapeo> mapeos = new HashMap<>();
+        volatile long posicion;
+
+        Tabla(String nombre, LogStore<T> store) {
+            this.nombre = nombre;
+            this.store = store;
+            this.aplicados = METRICS.contador("replica", nombre, "aplicados");
+            this.omitidos = METRICS.contador("replica", nombre, "omitidos");
+            this.conflictos = METRICS.contador("replica", nombre, "conflictos");
+            // Las bajas no replicadas no se purgan al compactar (hasta cargar el estado, ninguna)
+            store.setRetencion(() -> posicion);
+            METRICS.gauge("replica." + nombre + ".lagLsn", () -> store.getUltimoLsn() - posicion);
+        }
+
+        void cargar() throws SQLException {
+            mapeos = replicacionDAO.cargarMapeos(nodo, nombre);
+            posicion = replicacionDAO.getPosicion(nodo, nombre);
+            verificarPosicion();
+        }
+
+        /** La posición aplicada nunca puede superar el último LSN local (ver javadoc de la clase). */
+        void verificarPosicion() {
+            long local = store.getUltimoLsn();
+            if (posicion > local) {
+                throw new IllegalStateException("La BD central aplicó " + nombre + " hasta el LSN " + posicion
+                        + " pero el log local llega a " + local + ": el log local retrocedió (¿restaurado o reemplazado?)."
+                        + " Replicación detenida para no perder escrituras");
+            }
+        }
+
+        abstract int id(T fila);
+
+        abstract boolean eliminado(T fila);
+
+        /** Copia de la fila local lista para la BD central (ID central y FKs traducidas). */
+        abstract T remota(T local, int idRemoto) throws SQLException;
+
+        abstract void insertarLote(List<T> filas, Connection conn) throws Exception;
+
+        abstract void actualizar(T fila, Connection conn) throws Exception;
+
+        abstract void eliminar(int idRemoto, Connection conn) throws Exception;
+    }
+}
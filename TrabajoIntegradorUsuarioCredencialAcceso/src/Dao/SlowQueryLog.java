@@ -0,0 +1,239 @@
+package Dao;
+
+import Metrics.MetricsRegistry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Log de consultas lentas de los DAOs.
+ *
+ * Cada ejecución que supera el umbral se registra con: id de la constante SQL, duración,
+ * filas y parámetros bind. Los parámetros de columnas sensibles (hash_password y salt,
+ * más las que se agreguen por configuración) se reemplazan SIEMPRE por "***".
+ *
+ * Escritura asíncrona:
+ * - El hilo que ejecuta la consulta sólo hace offer() en una cola acotada (nunca bloquea).
+ * - Un hilo daemon escribe en un archivo con rotación por tamaño (archivo.1 ... archivo.N).
+ * - Si la cola está llena, la entrada se descarta y se cuenta en slowlog{...,operacion=descartadas}.
+ *
+ * Configuración (system properties):
+ * - slowlog.umbralMs  : umbral en milisegundos, negativo para deshabilitar (default 500)
+ * - slowlog.archivo   : ruta del archivo (default logs/slow-query.log)
+ * - slowlog.maxBytes  : tamaño a partir del cual se rota (default 10 MB)
+ * - slowlog.archivos  : cantidad de archivos rotados a conservar (default 5)
+ * - slowlog.redactar  : columnas adicionales a redactar, separadas por coma
+ */
+public final class SlowQueryLog {
+
+    private static final long UMBRAL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("slowlog.umbralMs", 500L));
+    private static final boolean HABILITADO = Long.getLong("slowlog.umbralMs", 500L) >= 0;
+    private static final Path ARCHIVO = Paths.get(System.getProperty("slowlog.archivo", "logs/slow-query.log"));
+    private static final long MAX_BYTES = Long.getLong("slowlog.maxBytes", 10L * 1024 * 1024);
+    private static final int ARCHIVOS = Integer.getInteger("slowlog.archivos", 5);
+    private static final int MAX_VALOR = 64;
+
+    /** Columnas cuyo valor nunca se escribe en el log. */
+    private static final Set<String> SENSIBLES = columnasSensibles();
+
+    private static final BlockingQueue<String> COLA = new ArrayBlockingQueue<>(10_000);
+    private static final LongAdder DESCARTADAS = MetricsRegistry.global().contador("slowlog", "sql", "descartadas");
+
+    private static final Pattern COLUMNA_ANTES = Pattern.compile("(?:\\w+\\.)?(\\w+)\\s*(?:=|<>|!=|<=|>=|<|>|LIKE)\\s*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT_COLUMNAS = Pattern.compile("INSERT\\s+INTO\\s+\\w+\\s*\\(([^)]*)\\)\\s*VALUES",
+            Pattern.CASE_INSENSITIVE);
+
+    private static Thread escritor;
+
+    private SlowQueryLog() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /** true si el log está habilitado (permite evitar capturar binds cuando no hace falta). */
+    static boolean isHabilitado() {
+        return HABILITADO;
+    }
+
+    /** true si una ejecución de esa duración debe registrarse. */
+    static boolean esLenta(long nanos) {
+        return HABILITADO && nanos >= UMBRAL_NANOS;
+    }
+
+    /**
+     * Encola una entrada (no bloquea).
+     * @param sqlId identificador de la sentencia
+     * @param sql texto SQL (se usa para asociar cada '?' con su columna)
+     * @param nanos duración
+     * @param filas filas afectadas o leídas
+     * @param error true si la ejecución falló
+     * @param binds parámetros por índice JDBC (posición 0 sin uso), puede ser null
+     */
+    static void registrar(String sqlId, String sql, long nanos, long filas, boolean error, Object[] binds) {
+        iniciarEscritor();
+        String linea = String.format(Locale.ROOT, "%s sql=%s duracionMs=%.3f filas=%d error=%s binds=%s%n",
+                LocalDateTime.now(), sqlId, nanos / 1e6, filas, error, formatearBinds(sql, binds));
+        if (!COLA.offer(linea)) {
+            DESCARTADAS.increment();
+        }
+    }
+
+    // =======================
+    // Redacción de parámetros
+    // =======================
+
+    /**
+     * Formatea los binds como [columna=valor, ...] redactando las columnas sensibles.
+     * Si no se puede determinar la columna de un parámetro en una sentencia sobre
+     * credenciales_acceso, se redacta por precaución.
+     */
+    static String formatearBinds(String sql, Object[] binds) {
+        if (binds == null) {
+            return "[]";
+        }
+        List<String> columnas = columnasPorParametro(sql);
+        boolean tablaSensible = sql.toLowerCase(Locale.ROOT).contains("credenciales_acceso");
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 1; i < binds.length; i++) {
+            String columna = i - 1 < columnas.size() ? columnas.get(i - 1) : null;
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(columna == null ? "?" + i : columna).append('=');
+            boolean redactar = columna == null ? tablaSensible : SENSIBLES.contains(columna.toLowerCase(Locale.ROOT));
+            sb.append(redactar ? "***" : valor(binds[i]));
+        }
+        return sb.append(']').toString();
+    }
+
+    /** Nombre de columna de cada '?' en orden de aparición (null si no se puede deducir). */
+    private static List<String> columnasPorParametro(String sql) {
+        List<String> columnas = new ArrayList<>();
+        Matcher insert = INSERT_COLUMNAS.matcher(sql);
+        if (insert.find()) {
+            for (String c : insert.group(1).split(",")) {
+                columnas.add(c.trim());
+            }
+            return columnas;
+        }
+        for (int i = sql.indexOf('?'); i >= 0; i = sql.indexOf('?', i + 1)) {
+            Matcher m = COLUMNA_ANTES.matcher(sql.substring(0, i));
+            columnas.add(m.find() ? m.group(1) : null);
+        }
+        return columnas;
+    }
+
+    private static String valor(Object v) {
+        if (v == null) {
+            return "NULL";
+        }
+        String s = v.toString();
+        if (s.length() > MAX_VALOR) {
+            s = s.substring(0, MAX_VALOR) + "…";
+        }
+        return v instanceof CharSequence ? "'" + s + "'" : s;
+    }
+
+    private static Set<String> columnasSensibles() {
+        Set<String> set = new HashSet<>(Set.of("hash_password", "salt"));
+        String extra = System.getProperty("slowlog.redactar", "");
+        for (String c : extra.split(",")) {
+            if (!c.isBlank()) {
+                set.add(c.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return Set.copyOf(set);
+    }
+
+    // =======================
+    // Escritor asíncrono con rotación
+    // =======================
+
+    private static synchronized void iniciarEscritor() {
+        if (escritor != null) {
+            return;
+        }
+        escritor = new Thread(SlowQueryLog::escribirEnBucle, "slow-query-log");
+        escritor.setDaemon(true);
+        escritor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(SlowQueryLog::vaciar, "slow-query-log-flush"));
+    }
+
+    private static void escribirEnBucle() {
+        List<String> lote = new ArrayList<>();
+        while (true) {
+            try {
+                lote.add(COLA.take());
+                COLA.drainTo(lote, 999);
+                escribir(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            lote.clear();
+        }
+    }
+
+    /** Escribe lo que quede en la cola (shutdown hook). */
+    private static void vaciar() {
+        List<String> lote = new ArrayList<>();
+        COLA.drainTo(lote);
+        escribir(lote);
+    }
+
+    private static synchronized void escribir(List<String> lineas) {
+        if (lineas.isEmpty()) {
+            return;
+        }
+        try {
+            Path dir = ARCHIVO.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            if (Files.exists(ARCHIVO) && Files.size(ARCHIVO) >= MAX_BYTES) {
+                rotar();
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(ARCHIVO, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String linea : lineas) {
+                    out.write(linea);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al escribir el log de consultas lentas: " + e.getMessage());
+        }
+    }
+
+    /** archivo.(N-1) → archivo.N, ..., archivo → archivo.1 */
+    private static void rotar() throws IOException {
+        for (int i = ARCHIVOS - 1; i >= 1; i--) {
+            Path origen = Paths.get(ARCHIVO + "." + i);
+            if (Files.exists(origen)) {
+                Files.move(origen, Paths.get(ARCHIVO + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (ARCHIVOS >= 1) {
+            Files.move(ARCHIVO, Paths.get(ARCHIVO + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(ARCHIVO);
+        }
+    }
+}
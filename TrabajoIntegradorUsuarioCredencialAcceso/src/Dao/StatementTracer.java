@@ -0,0 +1,261 @@
+package Dao;
+
+import Metrics.SqlEjecucionEvent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Punto único de preparación de sentencias SQL de los DAOs.
+ *
+ * Devuelve un PreparedStatement que delega en el del driver y, al ejecutarse,
+ * emite un evento JFR (SqlEjecucionEvent) con el id de la sentencia, las filas y si hubo error.
+ * En consultas, el evento se cierra al cerrar el ResultSet: así incluye la lectura de filas,
+ * que es donde el driver realmente espera al servidor.
+ *
+ * Además, si la ejecución supera el umbral de SlowQueryLog, se registra en el log de
+ * consultas lentas junto con los parámetros bind capturados (redactados).
+ *
+ * Uso (reemplaza a conn.prepareStatement):
+ * <pre>
+ * try (PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.SELECT_BY_ID_SQL", SELECT_BY_ID_SQL)) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class StatementTracer {
+
+    private StatementTracer() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /**
+     * Prepara una sentencia identificada por sqlId.
+     * @param conn conexión (no se cierra)
+     * @param sqlId identificador estable de la sentencia (tabla.CONSTANTE)
+     * @param sql texto SQL
+     * @return PreparedStatement instrumentado
+     * @throws SQLException si el driver no puede preparar la sentencia
+     */
+    public static PreparedStatement prepare(Connection conn, String sqlId, String sql) throws SQLException {
+        return envolver(conn.prepareStatement(sql), sqlId, sql);
+    }
+
+    /**
+     * Igual que prepare(conn, sqlId, sql) pero indicando si se requieren claves generadas
+     * (Statement.RETURN_GENERATED_KEYS).
+     */
+    public static PreparedStatement prepare(Connection conn, String sqlId, String sql, int autoGeneratedKeys) throws SQLException {
+        return envolver(conn.prepareStatement(sql, autoGeneratedKeys), sqlId, sql);
+    }
+
+    private static PreparedStatement envolver(PreparedStatement stmt, String sqlId, String sql) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementTracer.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new Sentencia(stmt, sqlId, sql));
+    }
+
+    /** Invoca el método en el objeto real, propagando la excepción original. */
+    private static Object invocar(Object destino, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // =======================
+    // Sentencia instrumentada
+    // =======================
+
+    /**
+     * Handler del PreparedStatement: intercepta los set*(índice, valor), los execute*() y el close().
+     * Una sentencia puede ejecutarse varias veces; cada ejecución genera su propio evento.
+     */
+    private static final class Sentencia implements InvocationHandler {
+        private final PreparedStatement stmt;
+        private final String sqlId;
+        private final String sql;
+
+        /** Parámetros bind por índice JDBC (sólo se capturan si el slow-query log está habilitado). */
+        private Object[] binds;
+
+        /** Consulta en curso cuyo ResultSet todavía no se cerró. */
+        private Consulta abierta;
+
+        Sentencia(PreparedStatement stmt, String sqlId, String sql) {
+            this.stmt = stmt;
+            this.sqlId = sqlId;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            boolean sinArgumentos = args == null || args.length == 0;
+
+            if (nombre.equals("close")) {
+                cerrarConsultaAbierta();
+                return invocar(stmt, method, args);
+            }
+            // set*(índice, valor[, ...]); los setters de un solo argumento (setFetchSize, etc.) no son binds
+            if (nombre.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice) {
+                capturarBind(indice, nombre.equals("setNull") ? null : args[1]);
+                return invocar(stmt, method, args);
+            }
+            if (nombre.equals("clearParameters")) {
+                binds = null;
+                return invocar(stmt, method, args);
+            }
+            if (!sinArgumentos || !nombre.startsWith("execute")) {
+                return invocar(stmt, method, args);
+            }
+
+            cerrarConsultaAbierta();
+            Ejecucion ejecucion = new Ejecucion(sqlId, sql, binds);
+            Object resultado;
+            try {
+                resultado = invocar(stmt, method, args);
+            } catch (Throwable t) {
+                ejecucion.finalizar(0, true);
+                throw t;
+            }
+
+            if (resultado instanceof ResultSet rs) {
+                abierta = new Consulta(rs, ejecucion);
+                return Proxy.newProxyInstance(StatementTracer.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class}, abierta);
+            }
+            ejecucion.finalizar(filasAfectadas(resultado), false);
+            return resultado;
+        }
+
+        private void capturarBind(int indice, Object valor) {
+            if (!SlowQueryLog.isHabilitado() || indice <= 0) {
+                return;
+            }
+            if (binds == null || binds.length <= indice) {
+                Object[] nuevo = new Object[Math.max(indice + 1, 8)];
+                if (binds != null) {
+                    System.arraycopy(binds, 0, nuevo, 0, binds.length);
+                }
+                binds = nuevo;
+            }
+            binds[indice] = valor;
+        }
+
+        private void cerrarConsultaAbierta() {
+            if (abierta != null) {
+                abierta.finalizar();
+                abierta = null;
+            }
+        }
+
+        private long filasAfectadas(Object resultado) throws SQLException {
+            if (resultado instanceof Integer n) {
+                return n;
+            }
+            if (resultado instanceof Long n) {
+                return n;
+            }
+            if (resultado instanceof int[] lote) {
+                long total = 0;
+                for (int n : lote) {
+                    total += Math.max(n, 0);
+                }
+                return total;
+            }
+            if (resultado instanceof long[] lote) {
+                long total = 0;
+                for (long n : lote) {
+                    total += Math.max(n, 0);
+                }
+                return total;
+            }
+            // execute(): boolean; las filas quedan en getUpdateCount()
+            return Math.max(stmt.getUpdateCount(), 0);
+        }
+    }
+
+    /**
+     * Handler del ResultSet: cuenta las filas leídas y cierra el evento al cerrarse.
+     */
+    private static final class Consulta implements InvocationHandler {
+        private final ResultSet rs;
+        private final Ejecucion ejecucion;
+        private long filas;
+        private boolean finalizada;
+
+        Consulta(ResultSet rs, Ejecucion ejecucion) {
+            this.rs = rs;
+            this.ejecucion = ejecucion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            if (nombre.equals("next")) {
+                Object hay = invocar(rs, method, args);
+                if (Boolean.TRUE.equals(hay)) {
+                    filas++;
+                }
+                return hay;
+            }
+            if (nombre.equals("close")) {
+                finalizar();
+            }
+            return invocar(rs, method, args);
+        }
+
+        void finalizar() {
+            if (!finalizada) {
+                finalizada = true;
+                ejecucion.finalizar(filas, false);
+            }
+        }
+    }
+
+    /**
+     * Una ejecución medida: abre el evento JFR al crearse y lo confirma en finalizar(),
+     * donde también decide si corresponde registrarla en el slow-query log.
+     */
+    private static final class Ejecucion {
+        private final SqlEjecucionEvent evento = new SqlEjecucionEvent();
+        private final long inicio = System.nanoTime();
+        private final String sqlId;
+        private final String sql;
+        private final Object[] binds;
+
+        Ejecucion(String sqlId, String sql, Object[] binds) {
+            this.sqlId = sqlId;
+            this.sql = sql;
+            this.binds = binds;
+            if (evento.isEnabled()) {
+                evento.sqlId = sqlId;
+                evento.begin();
+            }
+        }
+
+        void finalizar(long filas, boolean error) {
+            long nanos = System.nanoTime() - inicio;
+            if (SlowQueryLog.esLenta(nanos)) {
+                SlowQueryLog.registrar(sqlId, sql, nanos, filas, error, binds == null ? null : binds.clone());
+            }
+            if (evento.isEnabled()) {
+                evento.end();
+                if (evento.shouldCommit()) {
+                    evento.filas = filas;
+                    evento.error = error;
+                    evento.commit();
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package Dao;
 
 import Config.DataBaseConnection;
+import Config.TransactionManager;
+import Eventos.TipoCambio;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
 import Models.CredencialAcceso;
 import Models.Usuario;
 
@@ -8,22 +12,33 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Data Access Object para la entidad Usuario.
  * Gestiona todas las operaciones de persistencia de usuarios en la base de datos.
  *
  * Características:
- * - Implementa GenericDAO<Usuario> para operaciones CRUD estándar
+ * - Implementa UsuarioGenericDAO (GenericDAO<Usuario> + búsquedas por username/email)
  * - Usa PreparedStatements en TODAS las consultas (protección contra SQL injection)
  * - Maneja LEFT JOIN con credenciales_acceso para cargar la relación de forma eager
  * - Implementa soft delete (eliminado=TRUE, no DELETE físico)
  * - Proporciona búsquedas especializadas (por username exacto, por email exacto)
- * - Soporta transacciones mediante insertTx() (recibe Connection externa)
+ * - Soporta transacciones mediante insertTx(), actualizarTx() y eliminarTx() (reciben Connection externa)
+ * - Consultas incrementales por actualizado_en (CambiosDAO), incluidas las bajas lógicas
  *
  * Patrón: DAO con try-with-resources para manejo automático de recursos JDBC
+ * Sentencias: se preparan con StatementTracer (evento JFR por cada ejecución SQL)
+ * IDs: por defecto AUTO_INCREMENT + RETURN_GENERATED_KEYS; con un HiLoIdAllocator el ID se asigna
+ *      del lado del cliente antes del INSERT (sin leer claves generadas)
+ * Métricas: cada operación se mide en MetricsRegistry como dao{entidad=usuario,operacion=...}
+ * Eventos: con un OutboxDAO cada alta/modificación/baja registra un evento en outbox_eventos en la
+ *          misma transacción (las versiones sin Tx abren su propia transacción)
  */
-public class UsuarioDAO implements GenericDAO<Usuario> {
+public class UsuarioDAO implements UsuarioGenericDAO, CambiosDAO<Usuario> {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "usuario";
 
     // =======================
     // SQL BASE
@@ -35,6 +50,12 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
         VALUES (?, ?, ?, ?, ?)
     """;
 
+    /** Igual que INSERT_SQL pero con el id asignado por HiLoIdAllocator (último parámetro). */
+    private static final String INSERT_CON_ID_SQL = """
+        INSERT INTO usuarios (username, email, activo, fecha_registro, credencial_id, id)
+        VALUES (?, ?, ?, ?, ?, ?)
+    """;
+
     /** Actualiza username, email, activo, fecha_registro y FK credencial_id. No toca 'eliminado'. */
     private static final String UPDATE_SQL = """
         UPDATE usuarios
@@ -89,6 +110,59 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
         WHERE u.eliminado = FALSE AND u.email = ?
     """;
 
+    /** Búsqueda por credencial (uq_usuarios_credencial). Solo activos. */
+    private static final String SEARCH_BY_CREDENCIAL_SQL = """
+        SELECT
+            u.id, u.username, u.email, u.activo, u.fecha_registro, u.credencial_id, u.eliminado,
+            c.id AS cred_id, c.hash_password, c.salt, c.ultimo_cambio, c.requiere_reset, c.eliminado AS cred_eliminado
+        FROM usuarios u
+        LEFT JOIN credenciales_acceso c ON u.credencial_id = c.id
+        WHERE u.eliminado = FALSE AND u.credencial_id = ?
+    """;
+
+    /**
+     * Cambios posteriores a un cursor (actualizado_en, id), incluidas las bajas lógicas.
+     * Keyset sobre idx_usuarios_actualizado (actualizado_en, id): no hay OFFSET.
+     */
+    private static final String SELECT_CAMBIOS_SQL = """
+        SELECT
+            u.id, u.username, u.email, u.activo, u.fecha_registro, u.credencial_id, u.eliminado, u.actualizado_en,
+            c.id AS cred_id, c.hash_password, c.salt, c.ultimo_cambio, c.requiere_reset, c.eliminado AS cred_eliminado
+        FROM usuarios u
+        LEFT JOIN credenciales_acceso c ON u.credencial_id = c.id
+        WHERE (u.actualizado_en > ? OR (u.actualizado_en = ? AND u.id > ?))
+          AND u.actualizado_en < NOW(6) - INTERVAL ? SECOND
+        ORDER BY u.actualizado_en, u.id
+        LIMIT ?
+    """;
+
+    /** Asignador de IDs por bloques; null = AUTO_INCREMENT. */
+    private final HiLoIdAllocator ids;
+
+    /** Outbox de eventos de cambio; null = sin eventos. */
+    private final OutboxDAO outbox;
+
+    /** DAO con IDs por AUTO_INCREMENT. */
+    public UsuarioDAO() {
+        this(null);
+    }
+
+    /**
+     * @param ids asignador de IDs por bloques (null = AUTO_INCREMENT)
+     */
+    public UsuarioDAO(HiLoIdAllocator ids) {
+        this(ids, null);
+    }
+
+    /**
+     * @param ids asignador de IDs por bloques (null = AUTO_INCREMENT)
+     * @param outbox outbox donde registrar los eventos de cambio (null = sin eventos)
+     */
+    public UsuarioDAO(HiLoIdAllocator ids, OutboxDAO outbox) {
+        this.ids = ids;
+        this.outbox = outbox;
+    }
+
     // =======================
     // CRUD (GenericDAO)
     // =======================
@@ -99,12 +173,18 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
      */
     @Override
     public void insertar(Usuario usuario) throws Exception {
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+        if (outbox != null) {
+            TransactionManager.enTransaccion(conn -> insertTx(usuario, conn));
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "insertar");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = prepararInsert(conn)) {
 
-            setUsuarioParameters(stmt, usuario);
+            setInsertParameters(stmt, usuario);
             stmt.executeUpdate();
             setGeneratedId(stmt, usuario);
+            m.ok();
         }
     }
 
@@ -114,10 +194,52 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
      */
     @Override
     public void insertTx(Usuario usuario, Connection conn) throws Exception {
-        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            setUsuarioParameters(stmt, usuario);
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "insertTx");
+             PreparedStatement stmt = prepararInsert(conn)) {
+            setInsertParameters(stmt, usuario);
             stmt.executeUpdate();
             setGeneratedId(stmt, usuario);
+            registrarEvento(usuario.getId(), TipoCambio.CREADO, conn);
+            m.ok();
+        }
+    }
+
+    /**
+     * Inserta un lote de usuarios dentro de una transacción existente (JDBC batch).
+     * Las credenciales asociadas ya deben tener ID (persistidas, o asignado por HiLoIdAllocator
+     * e insertadas antes en la misma transacción).
+     * Asigna a cada usuario el ID generado, en el mismo orden de la lista.
+     * NO cierra la conexión (responsabilidad del caller).
+     *
+     * Rendimiento: con MySQL conviene agregar rewriteBatchedStatements=true a la URL
+     * para que el driver envíe un único INSERT multi-fila por lote.
+     */
+    public void insertarLoteTx(List<Usuario> usuarios, Connection conn) throws Exception {
+        if (usuarios.isEmpty()) {
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "insertarLoteTx");
+             PreparedStatement stmt = prepararInsert(conn)) {
+            for (Usuario usuario : usuarios) {
+                setInsertParameters(stmt, usuario);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            if (ids == null) {
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    for (Usuario usuario : usuarios) {
+                        if (!keys.next()) {
+                            throw new SQLException("La inserción del lote de usuarios falló: faltan IDs generados");
+                        }
+                        usuario.setId(keys.getInt(1));
+                    }
+                }
+            }
+            if (outbox != null) {
+                List<Integer> creados = usuarios.stream().map(Usuario::getId).collect(Collectors.toList());
+                outbox.registrarLoteTx(ENTIDAD, creados, TipoCambio.CREADO, conn);
+            }
+            m.ok();
         }
     }
 
@@ -127,8 +249,13 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
      */
     @Override
     public void actualizar(Usuario usuario) throws Exception {
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+        if (outbox != null) {
+            TransactionManager.enTransaccion(conn -> actualizarTx(usuario, conn));
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "actualizar");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.UPDATE_SQL", UPDATE_SQL)) {
 
             stmt.setString(1, usuario.getUsername());
             stmt.setString(2, usuario.getEmail());
@@ -141,6 +268,7 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
             if (rows == 0) {
                 throw new SQLException("No se pudo actualizar el usuario con ID: " + usuario.getId());
             }
+            m.ok();
         }
     }
 
@@ -150,14 +278,59 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
      */
     @Override
     public void eliminar(int id) throws Exception {
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
+        if (outbox != null) {
+            TransactionManager.enTransaccion(conn -> eliminarTx(id, conn));
+            return;
+        }
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "eliminar");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.DELETE_SQL", DELETE_SQL)) {
 
             stmt.setInt(1, id);
             int rows = stmt.executeUpdate();
             if (rows == 0) {
                 throw new SQLException("No se encontró usuario con ID: " + id);
             }
+            m.ok();
+        }
+    }
+
+    /**
+     * Actualiza un usuario dentro de una transacción existente.
+     * NO cierra la conexión (responsabilidad del caller).
+     * Lanza excepción si no se afecta ninguna fila.
+     * @param usuario
+     * @param conn
+     */
+    public void actualizarTx(Usuario usuario, Connection conn) throws Exception {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "actualizarTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.UPDATE_SQL", UPDATE_SQL)) {
+            setUsuarioParameters(stmt, usuario);
+            stmt.setInt(6, usuario.getId());
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException("No se pudo actualizar el usuario con ID: " + usuario.getId());
+            }
+            registrarEvento(usuario.getId(), TipoCambio.ACTUALIZADO, conn);
+            m.ok();
+        }
+    }
+
+    /**
+     * Soft delete dentro de una transacción existente.
+     * NO cierra la conexión (responsabilidad del caller).
+     * Lanza excepción si no se afecta ninguna fila.
+     * @param id
+     * @param conn
+     */
+    public void eliminarTx(int id, Connection conn) throws Exception {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "eliminarTx");
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.DELETE_SQL", DELETE_SQL)) {
+            stmt.setInt(1, id);
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException("No se encontró usuario con ID: " + id);
+            }
+            registrarEvento(id, TipoCambio.ELIMINADO, conn);
+            m.ok();
         }
     }
 
@@ -167,19 +340,17 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
      */
     @Override
     public Usuario getById(int id) throws Exception {
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SELECT_BY_ID_SQL)) {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "getById");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.SELECT_BY_ID_SQL", SELECT_BY_ID_SQL)) {
 
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToUsuario(rs);
-                }
+                return m.ok(rs.next() ? mapResultSetToUsuario(rs) : null);
             }
         } catch (SQLException e) {
             throw new Exception("Error al obtener usuario por ID: " + e.getMessage(), e);
         }
-        return null;
     }
 
     /**
@@ -190,13 +361,15 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
     public List<Usuario> getAll() throws Exception {
         List<Usuario> usuarios = new ArrayList<>();
 
-        try (Connection conn = DataBaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(SELECT_ALL_SQL)) {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "getAll");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.SELECT_ALL_SQL", SELECT_ALL_SQL);
+             ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
                 usuarios.add(mapResultSetToUsuario(rs));
             }
+            m.ok();
         } catch (SQLException e) {
             throw new Exception("Error al obtener todos los usuarios: " + e.getMessage(), e);
         }
@@ -211,42 +384,97 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
      * Busca un usuario por username exacto (único en el sistema).
      * Retorna null si no existe o está eliminado.
      */
+    @Override
     public Usuario buscarPorUsername(String username) throws SQLException {
         if (username == null || username.trim().isEmpty()) {
             throw new IllegalArgumentException("El username no puede estar vacío");
         }
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SEARCH_BY_USERNAME_SQL)) {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "buscarPorUsername");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.SEARCH_BY_USERNAME_SQL", SEARCH_BY_USERNAME_SQL)) {
 
             stmt.setString(1, username.trim());
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToUsuario(rs);
-                }
+                return m.ok(rs.next() ? mapResultSetToUsuario(rs) : null);
             }
         }
-        return null;
     }
 
     /**
      * Busca un usuario por email exacto (único en el sistema).
      * Retorna null si no existe o está eliminado.
      */
+    @Override
     public Usuario buscarPorEmail(String email) throws SQLException {
         if (email == null || email.trim().isEmpty()) {
             throw new IllegalArgumentException("El email no puede estar vacío");
         }
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SEARCH_BY_EMAIL_SQL)) {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "buscarPorEmail");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.SEARCH_BY_EMAIL_SQL", SEARCH_BY_EMAIL_SQL)) {
 
             stmt.setString(1, email.trim());
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToUsuario(rs);
+                return m.ok(rs.next() ? mapResultSetToUsuario(rs) : null);
+            }
+        }
+    }
+
+    /**
+     * Busca el usuario que tiene la credencial (búsqueda por índice único).
+     * Retorna null si ninguno o si está eliminado.
+     */
+    @Override
+    public Usuario buscarPorCredencial(int credencialId) throws SQLException {
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "buscarPorCredencial");
+             Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.SEARCH_BY_CREDENCIAL_SQL", SEARCH_BY_CREDENCIAL_SQL)) {
+
+            stmt.setInt(1, credencialId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return m.ok(rs.next() ? mapResultSetToUsuario(rs) : null);
+            }
+        }
+    }
+
+    // =======================
+    // CAMBIOS INCREMENTALES (CambiosDAO)
+    // =======================
+
+    /**
+     * Usuarios modificados después del cursor, en orden (actualizado_en, id).
+     * Incluye los eliminados lógicamente (isEliminado() = true). La credencial se carga por
+     * LEFT JOIN, pero un cambio sólo de la credencial aparece en CredencialAccesoDAO.cambiosDesde().
+     * Lee del primario: el margen de CambiosDAO no cubre el atraso de una réplica y el cursor
+     * saltearía filas que todavía no llegaron.
+     */
+    @Override
+    public PaginaCambios<Usuario> cambiosDesde(CursorCambios desde, int max) throws SQLException {
+        if (max <= 0) {
+            throw new IllegalArgumentException("El máximo de filas debe ser mayor a 0");
+        }
+        List<Usuario> usuarios = new ArrayList<>();
+        CursorCambios siguiente = desde;
+        try (Medicion m = METRICS.medir("dao", ENTIDAD, "cambiosDesde");
+             Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = StatementTracer.prepare(conn, "usuarios.SELECT_CAMBIOS_SQL", SELECT_CAMBIOS_SQL)) {
+            Timestamp ts = Timestamp.valueOf(desde.actualizadoEn());
+            stmt.setTimestamp(1, ts);
+            stmt.setTimestamp(2, ts);
+            stmt.setInt(3, desde.id());
+            stmt.setInt(4, MARGEN_SEGUNDOS);
+            stmt.setInt(5, max);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Usuario u = mapResultSetToUsuario(rs);
+                    u.setEliminado(rs.getBoolean("eliminado"));
+                    usuarios.add(u);
+                    siguiente = new CursorCambios(rs.getTimestamp("actualizado_en").toLocalDateTime(), u.getId());
                 }
             }
+            m.ok();
         }
-        return null;
+        return new PaginaCambios<>(usuarios, siguiente, usuarios.size() == max);
     }
 
     // =======================
@@ -287,8 +515,33 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
         }
     }
 
+    /** INSERT según la estrategia de IDs: id explícito con HiLoIdAllocator, o AUTO_INCREMENT. */
+    private PreparedStatement prepararInsert(Connection conn) throws SQLException {
+        if (ids != null) {
+            return StatementTracer.prepare(conn, "usuarios.INSERT_CON_ID_SQL", INSERT_CON_ID_SQL);
+        }
+        return StatementTracer.prepare(conn, "usuarios.INSERT_SQL", INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    /**
+     * Setea los parámetros del INSERT. Con HiLoIdAllocator asigna el ID antes de ejecutar
+     * (si la entidad ya trae uno asignado, se respeta) y lo agrega como parámetro 6.
+     */
+    private void setInsertParameters(PreparedStatement stmt, Usuario usuario) throws SQLException {
+        setUsuarioParameters(stmt, usuario);
+        if (ids != null) {
+            if (usuario.getId() <= 0) {
+                usuario.setId(ids.siguiente());
+            }
+            stmt.setInt(6, usuario.getId());
+        }
+    }
+
     /** Asigna el ID autogenerado a la entidad Usuario. */
     private void setGeneratedId(PreparedStatement stmt, Usuario usuario) throws SQLException {
+        if (ids != null) {
+            return;
+        }
         try (ResultSet keys = stmt.getGeneratedKeys()) {
             if (keys.next()) {
                 usuario.setId(keys.getInt(1));
@@ -298,6 +551,13 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
         }
     }
 
+    /** Registra el evento de cambio en el outbox, en la transacción del caller. */
+    private void registrarEvento(int id, TipoCambio tipo, Connection conn) throws SQLException {
+        if (outbox != null) {
+            outbox.registrarTx(ENTIDAD, id, tipo, conn);
+        }
+    }
+
     // =======================
     // MAPEOS
     // =======================
@@ -327,6 +587,7 @@ public class UsuarioDAO implements GenericDAO<Usuario> {
             c.setUltimoCambio(tc == null ? null : tc.toLocalDateTime());
 
             c.setRequiereReset(rs.getBoolean("requiere_reset"));
+            c.setEliminado(rs.getBoolean("cred_eliminado"));
             u.setCredencial(c);
         }
 
@@ -0,0 +1,267 @@
+package Dao;
+
+import Models.CredencialAcceso;
+import Models.Usuario;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementación de UsuarioGenericDAO sobre un LogStore local (sin MySQL).
+ * Pensada para operar desconectado: búsquedas por ID, username y email desde índices
+ * hash en memoria + archivo mapeado, y datos persistentes entre reinicios.
+ *
+ * Semántica equivalente a UsuarioDAO + esquema (igual que UsuarioDAOMemoria):
+ * - UNIQUE(username), UNIQUE(email), UNIQUE(credencial_id) sin distinguir mayúsculas.
+ * - FK credencial_id contra el CredencialAccesoDAOArchivo asociado.
+ * - Soft delete; la credencial se une al leer (LEFT JOIN).
+ *
+ * Diferencia: si la compactación purga filas eliminadas, sus claves únicas quedan libres
+ * (en MySQL seguirían ocupadas por la fila eliminada).
+ *
+ * Los índices username/email se reconstruyen al abrir a partir del log. Las escrituras se
+ * serializan en el DAO; las lecturas no toman el monitor del DAO.
+ */
+public class UsuarioDAOArchivo implements UsuarioGenericDAO {
+
+    /** Formato: id, eliminado, username, email, activo, fecha_registro, credencial_id (0 = NULL). */
+    static final LogStore.Codec<Usuario> CODEC = new LogStore.Codec<>() {
+        @Override
+        public int id(Usuario u) {
+            return u.getId();
+        }
+
+        @Override
+        public boolean eliminado(Usuario u) {
+            return u.isEliminado();
+        }
+
+        @Override
+        public void escribir(Usuario u, DataOutput out) throws IOException {
+            out.writeInt(u.getId());
+            out.writeBoolean(u.isEliminado());
+            LogStore.escribirTexto(out, u.getUsername());
+            LogStore.escribirTexto(out, u.getEmail());
+            out.writeBoolean(u.isActivo());
+            LogStore.escribirFecha(out, u.getFechaRegistro());
+            out.writeInt(credencialId(u));
+        }
+
+        /** La credencial se devuelve sólo con su ID; el DAO la reemplaza por la fila unida. */
+        @Override
+        public Usuario leer(ByteBuffer in) {
+            int id = in.getInt();
+            boolean eliminado = in.get() != 0;
+            Usuario u = new Usuario(id, LogStore.leerTexto(in), LogStore.leerTexto(in), in.get() != 0,
+                    LogStore.leerFecha(in));
+            u.setEliminado(eliminado);
+            int credencialId = in.getInt();
+            if (credencialId > 0) {
+                CredencialAcceso ref = new CredencialAcceso();
+                ref.setId(credencialId);
+                u.setCredencial(ref);
+            }
+            return u;
+        }
+    };
+
+    private final LogStore<Usuario> store;
+    private final CredencialAccesoDAOArchivo credenciales;
+
+    private final ConcurrentHashMap<String, Integer> porUsername = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> porEmail = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> porCredencial = new ConcurrentHashMap<>();
+
+    /**
+     * @param archivo ruta del log (se crea si no existe; si existe se recupera)
+     * @param sync true para forzar a disco cada escritura
+     * @param credenciales DAO de credenciales con el que se resuelve la FK y el JOIN
+     * @throws IOException si no se puede abrir el log
+     */
+    public UsuarioDAOArchivo(Path archivo, boolean sync, CredencialAccesoDAOArchivo credenciales) throws IOException {
+        if (credenciales == null) {
+            throw new IllegalArgumentException("CredencialAccesoDAOArchivo no puede ser null");
+        }
+        this.credenciales = credenciales;
+        this.store = new LogStore<>(archivo, CODEC, sync);
+        for (Usuario u : store.filas(true)) {
+            indexar(u);
+        }
+    }
+
+    /** Log subyacente (compactación, cierre). */
+    public LogStore<Usuario> getStore() {
+        return store;
+    }
+
+    // =======================
+    // CRUD (GenericDAO)
+    // =======================
+
+    @Override
+    public synchronized void insertar(Usuario usuario) throws Exception {
+        int id = store.siguienteId();
+        Usuario nuevo = copia(id, usuario, false);
+        validarRestricciones(nuevo);
+        store.agregar(nuevo);
+        indexar(nuevo);
+        usuario.setId(id);
+    }
+
+    /** Igual que insertar(): el log local no participa de la transacción JDBC. */
+    @Override
+    public void insertTx(Usuario usuario, Connection conn) throws Exception {
+        insertar(usuario);
+    }
+
+    /** Actualiza username, email, activo, fecha_registro y credencial_id (no toca eliminado). */
+    @Override
+    public synchronized void actualizar(Usuario usuario) throws Exception {
+        Usuario actual = store.leer(usuario.getId());
+        if (actual == null) {
+            throw new SQLException("No se pudo actualizar el usuario con ID: " + usuario.getId());
+        }
+        Usuario nuevo = copia(usuario.getId(), usuario, actual.isEliminado());
+        validarRestricciones(nuevo);
+        store.agregar(nuevo);
+        desindexar(actual);
+        indexar(nuevo);
+    }
+
+    /** Soft delete: agrega la versión con eliminado=true (las claves únicas siguen ocupadas). */
+    @Override
+    public synchronized void eliminar(int id) throws Exception {
+        Usuario actual = store.leer(id);
+        if (actual == null) {
+            throw new SQLException("No se encontró usuario con ID: " + id);
+        }
+        actual.setEliminado(true);
+        store.agregar(actual);
+    }
+
+    @Override
+    public Usuario getById(int id) throws Exception {
+        return activo(store.leer(id));
+    }
+
+    @Override
+    public List<Usuario> getAll() throws Exception {
+        List<Usuario> usuarios = store.filas(false);
+        for (Usuario u : usuarios) {
+            unirCredencial(u);
+        }
+        return usuarios;
+    }
+
+    // =======================
+    // BÚSQUEDAS ESPECÍFICAS
+    // =======================
+
+    @Override
+    public Usuario buscarPorUsername(String username) throws SQLException {
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("El username no puede estar vacío");
+        }
+        Integer id = porUsername.get(clave(username.trim()));
+        return id == null ? null : activo(store.leer(id));
+    }
+
+    @Override
+    public Usuario buscarPorEmail(String email) throws SQLException {
+        if (email == null || email.trim().isEmpty()) {
+            throw new IllegalArgumentException("El email no puede estar vacío");
+        }
+        Integer id = porEmail.get(clave(email.trim()));
+        return id == null ? null : activo(store.leer(id));
+    }
+
+    // =======================
+    // Restricciones e índices
+    // =======================
+
+    /** Verifica FK y unicidad contra los índices (se llama con el monitor del DAO tomado). */
+    private void validarRestricciones(Usuario u) throws SQLException {
+        int credId = credencialId(u);
+        if (credId > 0 && !credenciales.existe(credId)) {
+            throw new SQLIntegrityConstraintViolationException(
+                    "Cannot add or update a child row: a foreign key constraint fails (fk_usuarios_credencial)");
+        }
+        if (ocupada(porUsername.get(clave(u.getUsername())), u.getId())) {
+            throw duplicado(u.getUsername(), "uq_usuarios_username");
+        }
+        if (ocupada(porEmail.get(clave(u.getEmail())), u.getId())) {
+            throw duplicado(u.getEmail(), "uq_usuarios_email");
+        }
+        if (credId > 0 && ocupada(porCredencial.get(credId), u.getId())) {
+            throw duplicado(String.valueOf(credId), "uq_usuarios_credencial");
+        }
+    }
+
+    /** La clave está ocupada si pertenece a otro ID que sigue en el log (no purgado). */
+    private boolean ocupada(Integer duenio, int id) {
+        return duenio != null && duenio != id && store.existe(duenio);
+    }
+
+    private void indexar(Usuario u) {
+        porUsername.put(clave(u.getUsername()), u.getId());
+        porEmail.put(clave(u.getEmail()), u.getId());
+        int credId = credencialId(u);
+        if (credId > 0) {
+            porCredencial.put(credId, u.getId());
+        }
+    }
+
+    private void desindexar(Usuario u) {
+        porUsername.remove(clave(u.getUsername()), u.getId());
+        porEmail.remove(clave(u.getEmail()), u.getId());
+        porCredencial.remove(credencialId(u), u.getId());
+    }
+
+    private static SQLIntegrityConstraintViolationException duplicado(String valor, String constraint) {
+        return new SQLIntegrityConstraintViolationException("Duplicate entry '" + valor + "' for key '" + constraint + "'");
+    }
+
+    /** Clave de índice: la collation de la BD no distingue mayúsculas. */
+    private static String clave(String valor) {
+        return valor.toLowerCase(Locale.ROOT);
+    }
+
+    // =======================
+    // MAPEOS
+    // =======================
+
+    private static int credencialId(Usuario u) {
+        CredencialAcceso c = u.getCredencial();
+        return (c != null && c.getId() > 0) ? c.getId() : 0;
+    }
+
+    private static Usuario copia(int id, Usuario u, boolean eliminado) {
+        Usuario copia = new Usuario(id, u.getUsername(), u.getEmail(), u.isActivo(), u.getFechaRegistro());
+        copia.setEliminado(eliminado);
+        copia.setCredencial(u.getCredencial());
+        return copia;
+    }
+
+    private Usuario activo(Usuario u) {
+        if (u == null || u.isEliminado()) {
+            return null;
+        }
+        unirCredencial(u);
+        return u;
+    }
+
+    /** Reemplaza la referencia por ID con la credencial completa (equivalente al LEFT JOIN). */
+    private void unirCredencial(Usuario u) {
+        if (u.getCredencial() != null) {
+            u.setCredencial(credenciales.buscarParaJoin(u.getCredencial().getId()));
+        }
+    }
+}
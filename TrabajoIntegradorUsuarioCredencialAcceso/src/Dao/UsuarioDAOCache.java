@@ -0,0 +1,340 @@
+package Dao;
+
+import Config.DataBaseConnection;
+import Config.TransactionManager;
+import Dao.CacheInvalidacionDAO.Invalidacion;
+import Metrics.MetricsRegistry;
+import Models.Usuario;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache de lectura (por ID, username y email) delante de UsuarioDAO, coherente entre nodos.
+ *
+ * - getById / buscarPorUsername / buscarPorEmail se sirven desde memoria si la entrada está
+ *   vigente (TTL como red de seguridad); getAll siempre va a la BD.
+ * - Las escrituras se hacen en una transacción junto con su registro en cache_invalidaciones
+ *   (CacheInvalidador); después del commit se desaloja en este nodo y los demás lo hacen al
+ *   leer la tabla.
+ * - Un registro de credencial desaloja al usuario que la tiene (la credencial viaja con el
+ *   usuario por el LEFT JOIN).
+ * - Carrera lectura/invalidación: cada carga anota la generación antes de ir a la BD; si una
+ *   invalidación la avanzó mientras tanto, la entrada recién cargada se descarta.
+ * - Las cargas leen del primario (DataBaseConnection.desdePrimario): una réplica atrasada
+ *   podría devolver justo la versión que una invalidación acaba de desalojar, y quedaría
+ *   cacheada hasta el TTL. Los aciertos no tocan la BD, así que esto no carga al primario.
+ * - Se devuelven copias: el service modifica los objetos que recibe.
+ * - Lleno (maxEntradas), cada alta desaloja una sola entrada: la menos usada de una muestra de
+ *   MUESTRA ranuras al azar (o una vencida de la muestra). Costo O(1) por alta, sin recorrer el
+ *   cache, y el conjunto caliente se queda: una entrada leída hace poco casi nunca pierde. Los
+ *   aciertos sólo anotan el último uso, sin locks; las altas y desalojos toman el lock de
+ *   ranuras (un fallo ya pagó una ida a la BD).
+ *
+ * Métricas: cache{entidad=usuario,operacion=aciertos|fallos|desalojos|expulsiones} y gauge cache.usuario.entradas.
+ */
+public final class UsuarioDAOCache implements UsuarioGenericDAO, CacheInvalidador.Oyente {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "usuario";
+    private static final String ENTIDAD_CREDENCIAL = "credencial";
+
+    /** Ranuras al azar que mira cada desalojo por tope. */
+    private static final int MUESTRA = 8;
+
+    /** Usuario cacheado (copia privada), su vencimiento, su último uso y su ranura. */
+    private static final class Entrada {
+        private final Usuario usuario;
+        private final long venceNanos;
+        private volatile long usoNanos;
+        /** Posición en ranuras (protegida por el lock de ranuras). */
+        private int ranura;
+
+        private Entrada(Usuario usuario, long venceNanos, long usoNanos) {
+            this.usuario = usuario;
+            this.venceNanos = venceNanos;
+            this.usoNanos = usoNanos;
+        }
+    }
+
+    private final UsuarioDAO delegado;
+    private final CacheInvalidador invalidador;
+    private final long ttlNanos;
+    private final int maxEntradas;
+
+    private final ConcurrentHashMap<Integer, Entrada> porId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> porUsername = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> porEmail = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> porCredencial = new ConcurrentHashMap<>();
+    private final AtomicLong generacion = new AtomicLong();
+
+    /** Ids cacheados en [0, ocupadas), para muestrear sin recorrer porId. Es también el lock de altas y desalojos. */
+    private final int[] ranuras;
+    private int ocupadas;
+
+    private final LongAdder aciertos = METRICS.contador("cache", ENTIDAD, "aciertos");
+    private final LongAdder fallos = METRICS.contador("cache", ENTIDAD, "fallos");
+    private final LongAdder desalojos = METRICS.contador("cache", ENTIDAD, "desalojos");
+    private final LongAdder expulsiones = METRICS.contador("cache", ENTIDAD, "expulsiones");
+
+    /**
+     * @param delegado DAO JDBC
+     * @param invalidador canal de invalidación entre nodos (este cache se registra como oyente)
+     * @param ttlSegundos vigencia máxima de una entrada
+     * @param maxEntradas usuarios cacheados como máximo (0 = sin cache)
+     */
+    public UsuarioDAOCache(UsuarioDAO delegado, CacheInvalidador invalidador, long ttlSegundos, int maxEntradas) {
+        if (delegado == null || invalidador == null) {
+            throw new IllegalArgumentException("El DAO y el invalidador no pueden ser null");
+        }
+        if (maxEntradas < 0) {
+            throw new IllegalArgumentException("El máximo de entradas no puede ser negativo");
+        }
+        this.delegado = delegado;
+        this.invalidador = invalidador;
+        this.ttlNanos = ttlSegundos * 1_000_000_000L;
+        this.maxEntradas = maxEntradas;
+        this.ranuras = new int[maxEntradas];
+        invalidador.agregarOyente(this);
+        METRICS.gauge("cache." + ENTIDAD + ".entradas", porId::size);
+    }
+
+    // =======================
+    // Escrituras
+    // =======================
+
+    /** Un alta no deja entradas viejas en ningún cache (no se cachean búsquedas sin resultado). */
+    @Override
+    public void insertar(Usuario usuario) throws Exception {
+        delegado.insertar(usuario);
+    }
+
+    @Override
+    public void insertTx(Usuario usuario, Connection conn) throws Exception {
+        delegado.insertTx(usuario, conn);
+    }
+
+    @Override
+    public void actualizar(Usuario usuario) throws Exception {
+        List<Invalidacion> registros = List.of(
+                invalidador.crear(ENTIDAD, usuario.getId(), usuario.getUsername(), usuario.getEmail()));
+        TransactionManager.enTransaccion(conn -> {
+            delegado.actualizarTx(usuario, conn);
+            invalidador.registrarTx(registros, conn);
+        });
+        invalidador.aplicarLocal(registros);
+    }
+
+    @Override
+    public void eliminar(int id) throws Exception {
+        List<Invalidacion> registros = List.of(invalidador.crear(ENTIDAD, id, null, null));
+        TransactionManager.enTransaccion(conn -> {
+            delegado.eliminarTx(id, conn);
+            invalidador.registrarTx(registros, conn);
+        });
+        invalidador.aplicarLocal(registros);
+    }
+
+    // =======================
+    // Lecturas
+    // =======================
+
+    @Override
+    public Usuario getById(int id) throws Exception {
+        Usuario cacheado = vigente(id);
+        if (cacheado != null) {
+            return cacheado;
+        }
+        long gen = generacion.get();
+        return guardar(DataBaseConnection.desdePrimario(() -> delegado.getById(id)), gen);
+    }
+
+    @Override
+    public List<Usuario> getAll() throws Exception {
+        return delegado.getAll();
+    }
+
+    /** Siempre va a la BD (no hay índice por credencial en memoria para usuarios no cacheados). */
+    @Override
+    public Usuario buscarPorCredencial(int credencialId) throws Exception {
+        return delegado.buscarPorCredencial(credencialId);
+    }
+
+    @Override
+    public Usuario buscarPorUsername(String username) throws Exception {
+        if (username == null || username.isBlank()) {
+            return delegado.buscarPorUsername(username);
+        }
+        Integer id = porUsername.get(clave(username));
+        Usuario cacheado = id == null ? null : vigente(id);
+        if (cacheado != null && cacheado.getUsername().equalsIgnoreCase(username.trim())) {
+            return cacheado;
+        }
+        long gen = generacion.get();
+        return guardar(DataBaseConnection.desdePrimario(() -> delegado.buscarPorUsername(username)), gen);
+    }
+
+    @Override
+    public Usuario buscarPorEmail(String email) throws Exception {
+        if (email == null || email.isBlank()) {
+            return delegado.buscarPorEmail(email);
+        }
+        Integer id = porEmail.get(clave(email));
+        Usuario cacheado = id == null ? null : vigente(id);
+        if (cacheado != null && cacheado.getEmail().equalsIgnoreCase(email.trim())) {
+            return cacheado;
+        }
+        long gen = generacion.get();
+        return guardar(DataBaseConnection.desdePrimario(() -> delegado.buscarPorEmail(email)), gen);
+    }
+
+    // =======================
+    // Invalidación (CacheInvalidador.Oyente)
+    // =======================
+
+    @Override
+    public void invalidar(List<Invalidacion> lote) {
+        generacion.incrementAndGet();
+        for (Invalidacion inv : lote) {
+            if (ENTIDAD_CREDENCIAL.equals(inv.entidad())) {
+                Integer usuarioId = porCredencial.get(inv.entidadId());
+                if (usuarioId != null) {
+                    desalojar(usuarioId);
+                }
+                continue;
+            }
+            desalojar(inv.entidadId());
+            if (inv.username() != null) {
+                Integer id = porUsername.get(clave(inv.username()));
+                if (id != null) {
+                    desalojar(id);
+                }
+            }
+            if (inv.email() != null) {
+                Integer id = porEmail.get(clave(inv.email()));
+                if (id != null) {
+                    desalojar(id);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void invalidarTodo() {
+        generacion.incrementAndGet();
+        synchronized (ranuras) {
+            porId.clear();
+            porUsername.clear();
+            porEmail.clear();
+            porCredencial.clear();
+            ocupadas = 0;
+        }
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    /** Copia del usuario cacheado si la entrada existe y no venció (null si no). */
+    private Usuario vigente(int id) {
+        Entrada entrada = porId.get(id);
+        long ahora = System.nanoTime();
+        if (entrada != null && entrada.venceNanos - ahora > 0) {
+            entrada.usoNanos = ahora;
+            aciertos.increment();
+            return new Usuario(entrada.usuario);
+        }
+        fallos.increment();
+        return null;
+    }
+
+    /**
+     * Cachea el usuario leído de la BD, salvo que una invalidación haya ocurrido desde que
+     * empezó la lectura (generación distinta). Con el cache lleno desaloja antes una sola
+     * entrada (expulsar). Devuelve el mismo objeto recibido.
+     */
+    private Usuario guardar(Usuario usuario, long gen) {
+        if (usuario == null || maxEntradas == 0) {
+            return usuario;
+        }
+        int id = usuario.getId();
+        synchronized (ranuras) {
+            desalojar(id);
+            if (ocupadas >= maxEntradas) {
+                expulsar();
+            }
+            long ahora = System.nanoTime();
+            Entrada entrada = new Entrada(new Usuario(usuario), ahora + ttlNanos, ahora);
+            entrada.ranura = ocupadas;
+            ranuras[ocupadas++] = id;
+            porId.put(id, entrada);
+            porUsername.put(clave(usuario.getUsername()), id);
+            porEmail.put(clave(usuario.getEmail()), id);
+            if (usuario.getCredencial() != null) {
+                porCredencial.put(usuario.getCredencial().getId(), id);
+            }
+            if (generacion.get() != gen) {
+                desalojar(id);
+            }
+        }
+        return usuario;
+    }
+
+    /**
+     * Desaloja la entrada vencida o, si no hay, la de uso más antiguo entre MUESTRA ranuras al
+     * azar. Llamar con el lock de ranuras y el cache lleno.
+     */
+    private void expulsar() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long ahora = System.nanoTime();
+        int victima = -1;
+        long usoVictima = 0;
+        for (int i = 0; i < MUESTRA; i++) {
+            int id = ranuras[random.nextInt(ocupadas)];
+            Entrada e = porId.get(id);
+            if (e.venceNanos - ahora <= 0) {
+                victima = id;
+                break;
+            }
+            if (victima < 0 || e.usoNanos - usoVictima < 0) {
+                victima = id;
+                usoVictima = e.usoNanos;
+            }
+        }
+        expulsiones.increment();
+        desalojar(victima);
+    }
+
+    /** Quita el usuario y sus claves alternativas (sólo si todavía apuntan a él). */
+    private void desalojar(int id) {
+        synchronized (ranuras) {
+            Entrada entrada = porId.remove(id);
+            if (entrada == null) {
+                return;
+            }
+            desalojos.increment();
+            // La última ranura ocupada pasa al lugar liberado.
+            int ultimo = ranuras[--ocupadas];
+            if (ultimo != id) {
+                ranuras[entrada.ranura] = ultimo;
+                porId.get(ultimo).ranura = entrada.ranura;
+            }
+            Usuario u = entrada.usuario;
+            porUsername.remove(clave(u.getUsername()), id);
+            porEmail.remove(clave(u.getEmail()), id);
+            if (u.getCredencial() != null) {
+                porCredencial.remove(u.getCredencial().getId(), id);
+            }
+        }
+    }
+
+    /** Clave de búsqueda: sin espacios y sin distinguir mayúsculas (collation utf8mb4_unicode_ci). */
+    private static String clave(String valor) {
+        return valor.trim().toLowerCase(Locale.ROOT);
+    }
+}
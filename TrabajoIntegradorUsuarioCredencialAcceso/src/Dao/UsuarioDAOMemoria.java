@@ -0,0 +1,237 @@
+package Dao;
+
+import Models.CredencialAcceso;
+import Models.Usuario;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementación en memoria de UsuarioGenericDAO (sin MySQL).
+ * Pensada para nodos edge y pruebas de integración.
+ *
+ * Semántica equivalente a UsuarioDAO + esquema de la BD:
+ * - UNIQUE(username), UNIQUE(email), UNIQUE(credencial_id): se aplican también a filas
+ *   eliminadas lógicamente (igual que en MySQL); la violación lanza
+ *   SQLIntegrityConstraintViolationException, como el driver.
+ * - Comparación sin distinguir mayúsculas (collation utf8mb4_unicode_ci).
+ * - FK credencial_id: debe existir en el CredencialAccesoDAOMemoria asociado.
+ * - Soft delete y filtros eliminado=false en getById/getAll/buscarPor*.
+ * - La credencial se "une" al leer (equivalente al LEFT JOIN).
+ *
+ * Concurrencia:
+ * - Índice primario ConcurrentSkipListMap (ordenado por ID).
+ * - Índices secundarios únicos ConcurrentHashMap (username, email, credencial_id → id):
+ *   la unicidad se reserva con putIfAbsent antes de publicar la fila, sin locks globales.
+ * - Las escrituras sobre un mismo ID se serializan con compute() del índice primario.
+ */
+public class UsuarioDAOMemoria implements UsuarioGenericDAO {
+
+    /** Fila almacenada (inmutable). credencialId = 0 representa NULL. */
+    private record Fila(int id, String username, String email, boolean activo,
+                        LocalDateTime fechaRegistro, int credencialId, boolean eliminado) {
+    }
+
+    private final CredencialAccesoDAOMemoria credenciales;
+
+    private final ConcurrentSkipListMap<Integer, Fila> filas = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Integer> porUsername = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> porEmail = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> porCredencial = new ConcurrentHashMap<>();
+    private final AtomicInteger secuencia = new AtomicInteger();
+
+    /**
+     * @param credenciales almacén de credenciales con el que se resuelve la FK y el JOIN
+     */
+    public UsuarioDAOMemoria(CredencialAccesoDAOMemoria credenciales) {
+        if (credenciales == null) {
+            throw new IllegalArgumentException("CredencialAccesoDAOMemoria no puede ser null");
+        }
+        this.credenciales = credenciales;
+    }
+
+    // =======================
+    // CRUD (GenericDAO)
+    // =======================
+
+    @Override
+    public void insertar(Usuario usuario) throws Exception {
+        int id = secuencia.incrementAndGet();
+        Fila nueva = aFila(id, usuario, false);
+        reservarClaves(nueva, null);
+        filas.put(id, nueva);
+        usuario.setId(id);
+    }
+
+    /** Igual que insertar(): en memoria no hay transacción que compartir. */
+    @Override
+    public void insertTx(Usuario usuario, Connection conn) throws Exception {
+        insertar(usuario);
+    }
+
+    /** Actualiza username, email, activo, fecha_registro y credencial_id (no toca eliminado). */
+    @Override
+    public void actualizar(Usuario usuario) throws Exception {
+        SQLException[] error = new SQLException[1];
+        Fila resultado = filas.computeIfPresent(usuario.getId(), (id, actual) -> {
+            Fila nueva = aFila(id, usuario, actual.eliminado());
+            try {
+                reservarClaves(nueva, actual);
+            } catch (SQLException e) {
+                error[0] = e;
+                return actual;
+            }
+            liberarClaves(actual, nueva);
+            return nueva;
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+        if (resultado == null) {
+            throw new SQLException("No se pudo actualizar el usuario con ID: " + usuario.getId());
+        }
+    }
+
+    /** Soft delete: marca eliminado=true (las claves únicas siguen reservadas, como en la BD). */
+    @Override
+    public void eliminar(int id) throws Exception {
+        Fila nueva = filas.computeIfPresent(id, (k, f) -> new Fila(k, f.username(), f.email(), f.activo(),
+                f.fechaRegistro(), f.credencialId(), true));
+        if (nueva == null) {
+            throw new SQLException("No se encontró usuario con ID: " + id);
+        }
+    }
+
+    @Override
+    public Usuario getById(int id) throws Exception {
+        return activo(filas.get(id));
+    }
+
+    @Override
+    public List<Usuario> getAll() throws Exception {
+        List<Usuario> usuarios = new ArrayList<>();
+        for (Fila f : filas.values()) {
+            if (!f.eliminado()) {
+                usuarios.add(aEntidad(f));
+            }
+        }
+        return usuarios;
+    }
+
+    // =======================
+    // BÚSQUEDAS ESPECÍFICAS
+    // =======================
+
+    @Override
+    public Usuario buscarPorUsername(String username) throws SQLException {
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("El username no puede estar vacío");
+        }
+        Integer id = porUsername.get(clave(username.trim()));
+        return id == null ? null : activo(filas.get(id));
+    }
+
+    @Override
+    public Usuario buscarPorEmail(String email) throws SQLException {
+        if (email == null || email.trim().isEmpty()) {
+            throw new IllegalArgumentException("El email no puede estar vacío");
+        }
+        Integer id = porEmail.get(clave(email.trim()));
+        return id == null ? null : activo(filas.get(id));
+    }
+
+    // =======================
+    // Índices únicos
+    // =======================
+
+    /**
+     * Reserva username/email/credencial_id de la fila nueva. Si alguna clave pertenece a otro ID,
+     * deshace lo reservado y lanza la violación de unicidad.
+     * @param anterior fila previa del mismo ID (null al insertar); sus claves ya le pertenecen
+     */
+    private void reservarClaves(Fila nueva, Fila anterior) throws SQLException {
+        int id = nueva.id();
+        String username = clave(nueva.username());
+        String email = clave(nueva.email());
+
+        if (nueva.credencialId() > 0 && !credenciales.existe(nueva.credencialId())) {
+            throw new SQLIntegrityConstraintViolationException(
+                    "Cannot add or update a child row: a foreign key constraint fails (fk_usuarios_credencial)");
+        }
+        if (!reservar(porUsername, username, id)) {
+            throw duplicado(nueva.username(), "uq_usuarios_username");
+        }
+        if (!reservar(porEmail, email, id)) {
+            liberarSiNueva(porUsername, username, id, anterior == null ? null : clave(anterior.username()));
+            throw duplicado(nueva.email(), "uq_usuarios_email");
+        }
+        if (nueva.credencialId() > 0 && !reservar(porCredencial, nueva.credencialId(), id)) {
+            liberarSiNueva(porUsername, username, id, anterior == null ? null : clave(anterior.username()));
+            liberarSiNueva(porEmail, email, id, anterior == null ? null : clave(anterior.email()));
+            throw duplicado(String.valueOf(nueva.credencialId()), "uq_usuarios_credencial");
+        }
+    }
+
+    /** Libera las claves de la fila anterior que ya no usa la fila nueva. */
+    private void liberarClaves(Fila anterior, Fila nueva) {
+        liberarSiNueva(porUsername, clave(anterior.username()), anterior.id(), clave(nueva.username()));
+        liberarSiNueva(porEmail, clave(anterior.email()), anterior.id(), clave(nueva.email()));
+        if (anterior.credencialId() > 0 && anterior.credencialId() != nueva.credencialId()) {
+            porCredencial.remove(anterior.credencialId(), anterior.id());
+        }
+    }
+
+    /** putIfAbsent que también acepta la clave si ya es del mismo ID. */
+    private static <K> boolean reservar(ConcurrentHashMap<K, Integer> indice, K clave, int id) {
+        Integer actual = indice.putIfAbsent(clave, id);
+        return actual == null || actual == id;
+    }
+
+    /** Quita clave → id salvo que sea la clave que se conserva. */
+    private static <K> void liberarSiNueva(ConcurrentHashMap<K, Integer> indice, K clave, int id, K conservar) {
+        if (!clave.equals(conservar)) {
+            indice.remove(clave, id);
+        }
+    }
+
+    private static SQLIntegrityConstraintViolationException duplicado(String valor, String constraint) {
+        return new SQLIntegrityConstraintViolationException("Duplicate entry '" + valor + "' for key '" + constraint + "'");
+    }
+
+    /** Clave de índice: la collation de la BD no distingue mayúsculas. */
+    private static String clave(String valor) {
+        return valor.toLowerCase(Locale.ROOT);
+    }
+
+    // =======================
+    // MAPEOS
+    // =======================
+
+    private static Fila aFila(int id, Usuario u, boolean eliminado) {
+        CredencialAcceso c = u.getCredencial();
+        int credId = (c != null && c.getId() > 0) ? c.getId() : 0;
+        return new Fila(id, u.getUsername(), u.getEmail(), u.isActivo(), u.getFechaRegistro(), credId, eliminado);
+    }
+
+    private Usuario activo(Fila f) {
+        return f == null || f.eliminado() ? null : aEntidad(f);
+    }
+
+    /** Equivalente a mapResultSetToUsuario: copia nueva con la credencial unida (puede ser null). */
+    private Usuario aEntidad(Fila f) {
+        Usuario u = new Usuario(f.id(), f.username(), f.email(), f.activo(), f.fechaRegistro());
+        u.setEliminado(f.eliminado());
+        if (f.credencialId() > 0) {
+            u.setCredencial(credenciales.buscarParaJoin(f.credencialId()));
+        }
+        return u;
+    }
+}
@@ -0,0 +1,231 @@
+package Dao;
+
+import Config.CircuitBreaker;
+import Dao.CacheInvalidacionDAO.Invalidacion;
+import Metrics.MetricsRegistry;
+import Models.Usuario;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lecturas de usuarios protegidas por un CircuitBreaker, con respaldo en el último valor conocido.
+ *
+ * - getById / buscarPorUsername / buscarPorEmail / getAll pasan por el circuito: si MySQL
+ *   está caído o lento, después de unas pocas fallas el circuito se abre y las lecturas
+ *   dejan de esperar el timeout del driver.
+ * - Cada lectura exitosa guarda una copia del usuario como "último conocido".
+ * - Si el circuito está abierto o la lectura falla por infraestructura, se devuelve ese
+ *   último conocido marcado con isObsoleto() = true (así el login sigue funcionando durante
+ *   un incidente). Si no hay uno, se propaga el error. getAll no tiene respaldo.
+ * - Las escrituras no pasan por el circuito y descartan el último conocido del usuario.
+ * - Como oyente de CacheInvalidador, cada cambio de credencial (de este u otro nodo, incluidos
+ *   rehash y vencimiento) descarta al usuario que la tiene: el respaldo nunca valida contra un
+ *   hash o salt viejo. Nunca se devuelve un respaldo cuya credencial está eliminada.
+ *
+ * Métricas: circuito{entidad=usuario,operacion=obsoletos} y gauge circuito.usuario.conocidos.
+ */
+public final class UsuarioDAOResiliente implements UsuarioGenericDAO, CacheInvalidador.Oyente {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "usuario";
+    private static final String ENTIDAD_CREDENCIAL = "credencial";
+
+    private final UsuarioGenericDAO delegado;
+    private final CircuitBreaker circuito;
+    private final int maxConocidos;
+
+    private final ConcurrentHashMap<Integer, Usuario> conocidos = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> porUsername = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> porEmail = new ConcurrentHashMap<>();
+    /** ID de credencial → ID del usuario conocido que la tiene. */
+    private final ConcurrentHashMap<Integer, Integer> porCredencial = new ConcurrentHashMap<>();
+
+    private final LongAdder obsoletos = METRICS.contador("circuito", ENTIDAD, "obsoletos");
+
+    /**
+     * @param delegado DAO real (JDBC, o el cache de UsuarioDAOCache)
+     * @param circuito circuito que protege las lecturas
+     * @param maxConocidos usuarios guardados como respaldo como máximo
+     */
+    public UsuarioDAOResiliente(UsuarioGenericDAO delegado, CircuitBreaker circuito, int maxConocidos) {
+        if (delegado == null || circuito == null) {
+            throw new IllegalArgumentException("El DAO y el circuito no pueden ser null");
+        }
+        this.delegado = delegado;
+        this.circuito = circuito;
+        this.maxConocidos = maxConocidos;
+        METRICS.gauge("circuito." + ENTIDAD + ".conocidos", conocidos::size);
+    }
+
+    // =======================
+    // Escrituras (sin circuito)
+    // =======================
+
+    @Override
+    public void insertar(Usuario usuario) throws Exception {
+        delegado.insertar(usuario);
+    }
+
+    @Override
+    public void insertTx(Usuario usuario, Connection conn) throws Exception {
+        delegado.insertTx(usuario, conn);
+    }
+
+    @Override
+    public void actualizar(Usuario usuario) throws Exception {
+        delegado.actualizar(usuario);
+        olvidar(usuario.getId());
+    }
+
+    @Override
+    public void eliminar(int id) throws Exception {
+        delegado.eliminar(id);
+        olvidar(id);
+    }
+
+    // =======================
+    // Lecturas (con circuito y respaldo)
+    // =======================
+
+    @Override
+    public Usuario getById(int id) throws Exception {
+        try {
+            Usuario u = circuito.ejecutar(() -> delegado.getById(id));
+            if (u == null) {
+                olvidar(id);
+            } else {
+                recordar(u);
+            }
+            return u;
+        } catch (Exception e) {
+            return respaldo(conocidos.get(id), e);
+        }
+    }
+
+    @Override
+    public List<Usuario> getAll() throws Exception {
+        return circuito.ejecutar(delegado::getAll);
+    }
+
+    /** Pasa por el circuito, sin respaldo (como getAll). */
+    @Override
+    public Usuario buscarPorCredencial(int credencialId) throws Exception {
+        return circuito.ejecutar(() -> delegado.buscarPorCredencial(credencialId));
+    }
+
+    @Override
+    public Usuario buscarPorUsername(String username) throws Exception {
+        try {
+            Usuario u = circuito.ejecutar(() -> delegado.buscarPorUsername(username));
+            if (u == null) {
+                porUsername.remove(clave(username));
+            } else {
+                recordar(u);
+            }
+            return u;
+        } catch (Exception e) {
+            Integer id = username == null ? null : porUsername.get(clave(username));
+            return respaldo(id == null ? null : conocidos.get(id), e);
+        }
+    }
+
+    @Override
+    public Usuario buscarPorEmail(String email) throws Exception {
+        try {
+            Usuario u = circuito.ejecutar(() -> delegado.buscarPorEmail(email));
+            if (u == null) {
+                porEmail.remove(clave(email));
+            } else {
+                recordar(u);
+            }
+            return u;
+        } catch (Exception e) {
+            Integer id = email == null ? null : porEmail.get(clave(email));
+            return respaldo(id == null ? null : conocidos.get(id), e);
+        }
+    }
+
+    // =======================
+    // Invalidación (CacheInvalidador.Oyente)
+    // =======================
+
+    @Override
+    public void invalidar(List<Invalidacion> lote) {
+        for (Invalidacion inv : lote) {
+            if (ENTIDAD_CREDENCIAL.equals(inv.entidad())) {
+                Integer usuarioId = porCredencial.get(inv.entidadId());
+                if (usuarioId != null) {
+                    olvidar(usuarioId);
+                }
+            } else {
+                olvidar(inv.entidadId());
+            }
+        }
+    }
+
+    @Override
+    public void invalidarTodo() {
+        conocidos.clear();
+        porUsername.clear();
+        porEmail.clear();
+        porCredencial.clear();
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    /**
+     * Devuelve una copia marcada como obsoleta si el error es de infraestructura y hay respaldo
+     * con una credencial vigente.
+     */
+    private Usuario respaldo(Usuario conocido, Exception e) throws Exception {
+        if (conocido == null || !CircuitBreaker.esFallaDeInfraestructura(e)
+                || (conocido.getCredencial() != null && conocido.getCredencial().isEliminado())) {
+            throw e;
+        }
+        obsoletos.increment();
+        Usuario copia = new Usuario(conocido);
+        copia.setObsoleto(true);
+        return copia;
+    }
+
+    private void recordar(Usuario u) {
+        if (conocidos.size() >= maxConocidos && !conocidos.containsKey(u.getId())) {
+            return;
+        }
+        Usuario anterior = conocidos.put(u.getId(), new Usuario(u));
+        if (anterior != null) {
+            quitarClaves(anterior);
+        }
+        porUsername.put(clave(u.getUsername()), u.getId());
+        porEmail.put(clave(u.getEmail()), u.getId());
+        if (u.getCredencial() != null) {
+            porCredencial.put(u.getCredencial().getId(), u.getId());
+        }
+    }
+
+    private void olvidar(int id) {
+        Usuario anterior = conocidos.remove(id);
+        if (anterior != null) {
+            quitarClaves(anterior);
+        }
+    }
+
+    private void quitarClaves(Usuario u) {
+        porUsername.remove(clave(u.getUsername()), u.getId());
+        porEmail.remove(clave(u.getEmail()), u.getId());
+        if (u.getCredencial() != null) {
+            porCredencial.remove(u.getCredencial().getId(), u.getId());
+        }
+    }
+
+    /** Clave de búsqueda sin distinguir mayúsculas (collation utf8mb4_unicode_ci). */
+    private static String clave(String valor) {
+        return valor == null ? "" : valor.trim().toLowerCase(Locale.ROOT);
+    }
+}
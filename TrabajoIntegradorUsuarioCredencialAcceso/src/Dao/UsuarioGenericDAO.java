@@ -0,0 +1,43 @@
+package Dao;
+
+import Models.Usuario;
+
+/**
+ * Contrato completo de persistencia de Usuario: CRUD de GenericDAO más las búsquedas
+ * exactas por username y email que usa UsuarioServiceImpl (validación de unicidad).
+ *
+ * Implementaciones:
+ * - UsuarioDAO: JDBC sobre MySQL/MariaDB
+ * - UsuarioDAOMemoria: en memoria, sin base de datos (nodos edge / pruebas de integración)
+ *
+ * La implementación a usar se elige por configuración en DAOFactory.
+ */
+public interface UsuarioGenericDAO extends GenericDAO<Usuario> {
+
+    /** Busca un usuario activo por username exacto (único). Retorna null si no existe o está eliminado.
+     * @param username
+     * @return 
+     * @throws java.lang.Exception */
+    Usuario buscarPorUsername(String username) throws Exception;
+
+    /** Busca un usuario activo por email exacto (único). Retorna null si no existe o está eliminado.
+     * @param email
+     * @return 
+     * @throws java.lang.Exception */
+    Usuario buscarPorEmail(String email) throws Exception;
+
+    /**
+     * Busca el usuario activo que tiene la credencial (a lo sumo uno). Retorna null si ninguno.
+     * Por defecto recorre getAll(); UsuarioDAO lo resuelve por uq_usuarios_credencial.
+     * @param credencialId
+     * @return
+     * @throws java.lang.Exception */
+    default Usuario buscarPorCredencial(int credencialId) throws Exception {
+        for (Usuario u : getAll()) {
+            if (u.getCredencial() != null && u.getCredencial().getId() == credencialId) {
+                return u;
+            }
+        }
+        return null;
+    }
+}
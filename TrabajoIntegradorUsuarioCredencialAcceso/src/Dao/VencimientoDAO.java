@@ -0,0 +1,39 @@
+package Dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Consultas para el vencimiento de contraseñas por antigüedad de ultimo_cambio.
+ *
+ * - porUltimoCambio recorre las credenciales activas y sin requiere_reset en orden
+ *   (ultimo_cambio, id), con cursor: en MySQL es un rango sobre idx_credenciales_vencimiento
+ *   (eliminado, requiere_reset, ultimo_cambio), nunca un recorrido de la tabla.
+ * - marcarVencidas pone requiere_reset en un lote de ids con una sola sentencia, pero sólo
+ *   en las que siguen vencidas respecto del límite: si la contraseña se cambió después de
+ *   leerla, la fila se omite.
+ * - Las credenciales con ultimo_cambio NULL no vencen (no hay fecha con qué compararlas).
+ */
+public interface VencimientoDAO {
+
+    /** Credencial activa y la fecha de su último cambio de contraseña. */
+    record Vencimiento(int id, LocalDateTime ultimoCambio) {
+    }
+
+    /** Valor de cursor anterior a cualquier fecha (DATETIME de MySQL empieza en el año 1000). */
+    LocalDateTime INICIO = LocalDateTime.of(1000, 1, 1, 0, 0);
+
+    /**
+     * Credenciales activas sin requiere_reset con (ultimo_cambio, id) posterior al cursor
+     * (desde, desdeId) y ultimo_cambio anterior a hasta, en ese orden.
+     * @param max cantidad máxima de filas
+     */
+    List<Vencimiento> porUltimoCambio(LocalDateTime desde, int desdeId, LocalDateTime hasta, int max) throws Exception;
+
+    /**
+     * Marca requiere_reset en las credenciales del lote que siguen activas, sin reset y con
+     * ultimo_cambio anterior a limite. No modifica ultimo_cambio.
+     * @return ids efectivamente marcados
+     */
+    List<Integer> marcarVencidas(List<Integer> ids, LocalDateTime limite) throws Exception;
+}
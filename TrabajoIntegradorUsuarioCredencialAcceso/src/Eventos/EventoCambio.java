@@ -0,0 +1,18 @@
+package Eventos;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de cambio publicado a los suscriptores en proceso.
+ *
+ * Sólo lleva identificadores (nunca hash_password ni salt): quien necesite el estado
+ * actual lo consulta con el DAO correspondiente.
+ *
+ * @param id id del evento en outbox_eventos (creciente)
+ * @param entidad "usuario" o "credencial"
+ * @param entidadId id de la fila afectada
+ * @param tipo tipo de cambio
+ * @param creadoEn momento en que se confirmó la escritura
+ */
+public record EventoCambio(long id, String entidad, int entidadId, TipoCambio tipo, LocalDateTime creadoEn) {
+}
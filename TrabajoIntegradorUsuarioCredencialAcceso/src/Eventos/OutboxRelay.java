@@ -0,0 +1,212 @@
+package Eventos;
+
+import Dao.DAOFactory;
+import Dao.HuecosPendientes;
+import Dao.OutboxDAO;
+import Metrics.MetricsRegistry;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lee outbox_eventos en orden de id y publica los eventos en un RingBuffer a los
+ * suscriptores en proceso (un único hilo productor).
+ *
+ * - Arranca desde el último evento existente (sólo cambios nuevos) o desde -Doutbox.desdeId.
+ * - Huecos: los ids AUTO_INCREMENT se asignan al insertar pero se ven al hacer commit, así
+ *   que un id faltante puede ser una transacción todavía abierta. El relay no se detiene: lo
+ *   anota (HuecosPendientes), lo vuelve a buscar en cada lectura y publica el evento cuando
+ *   aparece, después de otros con id mayor. Lo descarta sólo cuando ninguna transacción
+ *   abierta puede confirmarlo (rollback). Requiere el privilegio PROCESS.
+ * - Backpressure: si un suscriptor se atrasa, publicar() bloquea al relay, que deja de leer
+ *   la tabla; los eventos esperan en la BD, no en memoria.
+ * - Purga periódicamente los eventos con más de outbox.retencionHoras.
+ *
+ * Configuración (-D):
+ *   outbox.capacidad=4096   slots del buffer (potencia de 2)
+ *   outbox.lote=500         eventos por lectura y por entrega a un suscriptor
+ *   outbox.periodoMs=200    espera entre lecturas cuando no hay eventos nuevos
+ *   outbox.retencionHoras=24
+ *   outbox.desdeId          id desde el que empezar (exclusivo)
+ *
+ * Métricas: outbox{entidad=relay,operacion=huecos|tardios|errores} y gauge outbox.ultimoId.
+ */
+public final class OutboxRelay implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+
+    /** Lecturas entre purgas (con el período por defecto, ~1 por minuto). */
+    private static final int LECTURAS_POR_PURGA = 300;
+
+    /** Huecos pendientes como máximo (por encima se descartan los más viejos). */
+    private static final int MAX_HUECOS = 10_000;
+
+    private static OutboxRelay global;
+
+    private final OutboxDAO outbox;
+    private final RingBuffer<EventoCambio> buffer;
+    private final int lote;
+    private final long periodoMs;
+    private final long retencionHoras;
+    private final HuecosPendientes pendientes = new HuecosPendientes(MAX_HUECOS);
+
+    private final LongAdder huecos = METRICS.contador("outbox", "relay", "huecos");
+    private final LongAdder tardios = METRICS.contador("outbox", "relay", "tardios");
+    private final LongAdder errores = METRICS.contador("outbox", "relay", "errores");
+
+    private volatile long ultimoId = -1;
+    private volatile boolean detenido;
+    private Thread hilo;
+
+    public OutboxRelay(OutboxDAO outbox, int capacidad, int lote, long periodoMs, long retencionHoras) {
+        this.outbox = outbox;
+        this.buffer = new RingBuffer<>("cambios", capacidad, lote);
+        this.lote = lote;
+        this.periodoMs = periodoMs;
+        this.retencionHoras = retencionHoras;
+        METRICS.gauge("outbox.ultimoId", () -> ultimoId);
+    }
+
+    /**
+     * Relay del proceso, configurado por propiedades e iniciado en la primera llamada.
+     * @throws IllegalStateException si dao.outbox no está habilitado
+     */
+    public static synchronized OutboxRelay global() {
+        if (global == null) {
+            OutboxDAO outbox = DAOFactory.outbox();
+            if (outbox == null) {
+                throw new IllegalStateException("El outbox no está habilitado; configurar -Ddao.outbox=true");
+            }
+            global = new OutboxRelay(outbox,
+                    Integer.getInteger("outbox.capacidad", 4096),
+                    Integer.getInteger("outbox.lote", 500),
+                    Long.getLong("outbox.periodoMs", 200L),
+                    Long.getLong("outbox.retencionHoras", 24L));
+            global.iniciar(Long.getLong("outbox.desdeId", -1L));
+        }
+        return global;
+    }
+
+    /**
+     * Registra un suscriptor; recibe los eventos publicados desde ese momento, en lotes.
+     * Una excepción del suscriptor se registra y el lote se da por consumido.
+     */
+    public void suscribir(String nombre, Suscriptor<EventoCambio> suscriptor) {
+        buffer.suscribir(nombre, suscriptor);
+    }
+
+    /**
+     * Inicia el hilo del relay.
+     * @param desdeId id desde el que publicar (exclusivo); negativo = desde el último existente
+     */
+    public synchronized void iniciar(long desdeId) {
+        if (hilo != null) {
+            return;
+        }
+        hilo = new Thread(() -> ejecutar(desdeId), "outbox-relay");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /** Último id publicado (-1 si el relay todavía no se posicionó). */
+    public long getUltimoId() {
+        return ultimoId;
+    }
+
+    @Override
+    public synchronized void close() {
+        detenido = true;
+        if (hilo != null) {
+            hilo.interrupt();
+            hilo = null;
+        }
+        buffer.close();
+    }
+
+    private void ejecutar(long desdeId) {
+        long esperaError = periodoMs;
+        while (!detenido && ultimoId < 0) {
+            try {
+                ultimoId = desdeId >= 0 ? desdeId : outbox.getMaxId();
+            } catch (SQLException e) {
+                errores.increment();
+                System.err.println("Error al posicionar el relay del outbox: " + e.getMessage());
+                esperaError = dormir(esperaError);
+            }
+        }
+
+        int lecturas = 0;
+        while (!detenido) {
+            try {
+                List<EventoCambio> eventos = outbox.leerDesde(ultimoId, lote);
+                // La marca se lee después de la lectura: la transacción de cada hueco ya había empezado.
+                HuecosPendientes.Marca vistos = conHuecos(eventos) ? HuecosPendientes.leerMarca() : null;
+                for (EventoCambio evento : eventos) {
+                    if (evento.id() != ultimoId + 1) {
+                        descartarExcedidos(pendientes.registrar(ultimoId, evento.id(), vistos));
+                    }
+                    buffer.publicar(evento);
+                    ultimoId = evento.id();
+                }
+                if (!pendientes.isEmpty()) {
+                    releerHuecos();
+                }
+                if (++lecturas >= LECTURAS_POR_PURGA) {
+                    lecturas = 0;
+                    outbox.purgarAnteriores(LocalDateTime.now().minusHours(retencionHoras), lote * 10);
+                }
+                esperaError = periodoMs;
+                if (eventos.size() < lote) {
+                    dormir(periodoMs);
+                }
+            } catch (SQLException e) {
+                errores.increment();
+                System.err.println("Error en el relay del outbox: " + e.getMessage());
+                esperaError = dormir(esperaError);
+            } catch (IllegalStateException e) {
+                // buffer cerrado mientras esperaba espacio
+                return;
+            }
+        }
+    }
+
+    /** Hay algún id salteado entre ultimoId y los eventos leídos. */
+    private boolean conHuecos(List<EventoCambio> eventos) {
+        return !eventos.isEmpty() && eventos.get(eventos.size() - 1).id() != ultimoId + eventos.size();
+    }
+
+    /**
+     * Publica los huecos que se confirmaron y descarta los que ya no puede confirmar ninguna
+     * transacción. La marca se lee antes de releer: lo que terminó antes de la marca ya es visible.
+     */
+    private void releerHuecos() throws SQLException {
+        HuecosPendientes.Marca marca = HuecosPendientes.leerMarca();
+        for (EventoCambio evento : outbox.leerIds(pendientes.primeros(lote))) {
+            buffer.publicar(evento);
+            pendientes.llegado(evento.id());
+            tardios.increment();
+        }
+        huecos.add(pendientes.resolver(marca));
+    }
+
+    /** Huecos descartados por superar MAX_HUECOS: se cuentan y se avisa. */
+    private void descartarExcedidos(int n) {
+        if (n > 0) {
+            huecos.add(n);
+            System.err.println("Relay del outbox: " + n + " huecos descartados por superar " + MAX_HUECOS + " pendientes");
+        }
+    }
+
+    /** Duerme y devuelve la próxima espera ante errores (backoff hasta 30 s). */
+    private long dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            detenido = true;
+        }
+        return Math.min(ms * 2, 30_000L);
+    }
+}
@@ -0,0 +1,180 @@
+package Eventos;
+
+import Metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffer circular acotado y lock-free, de un productor y varios suscriptores
+ * (estilo Disruptor).
+ *
+ * - Los eventos se guardan en un arreglo de tamaño potencia de 2; la posición de la
+ *   secuencia s es s & (capacidad - 1). No hay locks ni objetos nuevos por evento.
+ * - El productor publica escribiendo el slot y luego el cursor (escritura volatile).
+ * - Cada suscriptor tiene su hilo y su propia secuencia consumida: lee en lotes todo lo
+ *   publicado desde su posición (hasta maxLote) y recién después libera los slots.
+ * - Backpressure: el productor no pisa un slot que algún suscriptor todavía no consumió;
+ *   si el buffer está lleno espera (spin → yield → park) hasta que el más lento avance.
+ *
+ * Un solo hilo puede llamar a publicar() (lo garantiza OutboxRelay).
+ *
+ * Métricas: eventos{entidad=nombre,operacion=publicados|esperas|errores} y
+ * gauge eventos.&lt;nombre&gt;.pendientes (eventos sin consumir por el suscriptor más lento).
+ *
+ * @param <E> tipo de evento
+ */
+public final class RingBuffer<E> implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+
+    private final String nombre;
+    private final Object[] entradas;
+    private final int mascara;
+    private final int maxLote;
+
+    /** Última secuencia publicada (-1 = ninguna). */
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final CopyOnWriteArrayList<Consumidor> consumidores = new CopyOnWriteArrayList<>();
+
+    /** Mínimo consumido visto la última vez (evita recorrer los consumidores en cada publicación). */
+    private long minimoCacheado = -1;
+    private volatile boolean cerrado;
+
+    private final LongAdder publicados;
+    private final LongAdder esperas;
+    private final LongAdder errores;
+
+    /**
+     * @param nombre nombre para métricas e hilos
+     * @param capacidad cantidad de slots (potencia de 2)
+     * @param maxLote eventos máximos por llamada a un suscriptor
+     */
+    public RingBuffer(String nombre, int capacidad, int maxLote) {
+        if (capacidad <= 0 || Integer.bitCount(capacidad) != 1) {
+            throw new IllegalArgumentException("La capacidad debe ser una potencia de 2: " + capacidad);
+        }
+        if (maxLote <= 0) {
+            throw new IllegalArgumentException("El lote máximo debe ser mayor a 0");
+        }
+        this.nombre = nombre;
+        this.entradas = new Object[capacidad];
+        this.mascara = capacidad - 1;
+        this.maxLote = maxLote;
+        this.publicados = METRICS.contador("eventos", nombre, "publicados");
+        this.esperas = METRICS.contador("eventos", nombre, "esperas");
+        this.errores = METRICS.contador("eventos", nombre, "errores");
+        METRICS.gauge("eventos." + nombre + ".pendientes", () -> cursor.get() - minimoConsumido());
+    }
+
+    /**
+     * Registra un suscriptor. Recibe sólo los eventos publicados a partir de ahora.
+     * @param nombreSuscriptor nombre del hilo consumidor
+     */
+    public synchronized void suscribir(String nombreSuscriptor, Suscriptor<E> suscriptor) {
+        if (cerrado) {
+            throw new IllegalStateException("El buffer " + nombre + " está cerrado");
+        }
+        Consumidor consumidor = new Consumidor(suscriptor, cursor.get());
+        consumidores.add(consumidor);
+        Thread hilo = new Thread(consumidor, nombre + "-" + nombreSuscriptor);
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Publica un evento. Si el buffer está lleno espera a que el suscriptor más lento libere
+     * espacio (backpressure). Sólo debe llamarse desde un único hilo productor.
+     * @throws IllegalStateException si el buffer se cerró mientras esperaba
+     */
+    public void publicar(E evento) {
+        long siguiente = cursor.get() + 1;
+        long limite = siguiente - entradas.length;
+        if (limite > minimoCacheado) {
+            int intentos = 0;
+            while ((minimoCacheado = minimoConsumido()) < limite) {
+                if (cerrado) {
+                    throw new IllegalStateException("El buffer " + nombre + " está cerrado");
+                }
+                if (intentos == 0) {
+                    esperas.increment();
+                }
+                esperar(intentos++);
+            }
+        }
+        entradas[(int) (siguiente & mascara)] = evento;
+        cursor.set(siguiente);
+        publicados.increment();
+    }
+
+    /** Detiene los suscriptores después de que consuman lo ya publicado. */
+    @Override
+    public void close() {
+        cerrado = true;
+    }
+
+    /** Menor secuencia consumida entre los suscriptores (el cursor si no hay ninguno). */
+    private long minimoConsumido() {
+        long minimo = cursor.get();
+        for (Consumidor c : consumidores) {
+            minimo = Math.min(minimo, c.consumido.get());
+        }
+        return minimo;
+    }
+
+    /** Espera progresiva: spin, luego yield, luego park creciente hasta 1 ms. */
+    private static void esperar(int intentos) {
+        if (intentos < 100) {
+            Thread.onSpinWait();
+        } else if (intentos < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(1_000_000L, 1_000L << Math.min(intentos - 200, 10)));
+        }
+    }
+
+    /** Hilo de un suscriptor con su secuencia consumida. */
+    private final class Consumidor implements Runnable {
+        private final Suscriptor<E> suscriptor;
+        private final AtomicLong consumido;
+
+        Consumidor(Suscriptor<E> suscriptor, long desde) {
+            this.suscriptor = suscriptor;
+            this.consumido = new AtomicLong(desde);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            List<E> lote = new ArrayList<>(maxLote);
+            long siguiente = consumido.get() + 1;
+            int intentos = 0;
+            while (!cerrado || siguiente <= cursor.get()) {
+                long disponible = cursor.get();
+                if (disponible < siguiente) {
+                    esperar(intentos++);
+                    continue;
+                }
+                intentos = 0;
+                long hasta = Math.min(disponible, siguiente + maxLote - 1);
+                lote.clear();
+                for (long s = siguiente; s <= hasta; s++) {
+                    lote.add((E) entradas[(int) (s & mascara)]);
+                }
+                try {
+                    suscriptor.onEventos(lote);
+                } catch (Exception e) {
+                    errores.increment();
+                    System.err.println("Error en suscriptor de " + nombre + ": " + e.getMessage());
+                }
+                consumido.set(hasta);
+                siguiente = hasta + 1;
+            }
+            consumidores.remove(this);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package Eventos;
+
+import java.util.List;
+
+/**
+ * Consumidor de un RingBuffer. Recibe los eventos en lotes, en orden de publicación,
+ * desde un hilo dedicado a este suscriptor.
+ *
+ * @param <E> tipo de evento
+ */
+@FunctionalInterface
+public interface Suscriptor<E> {
+
+    /**
+     * Procesa un lote (nunca vacío). Mientras no retorne, el productor puede llegar a
+     * esperar si el buffer se llena (backpressure).
+     * @param lote eventos consecutivos; la lista no debe conservarse después de retornar
+     * @throws Exception se informa y el lote se da por consumido
+     */
+    void onEventos(List<E> lote) throws Exception;
+}
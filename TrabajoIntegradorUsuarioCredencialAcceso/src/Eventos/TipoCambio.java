@@ -0,0 +1,12 @@
+package Eventos;
+
+/**
+ * Tipo de cambio registrado en outbox_eventos.
+ * Se persiste con name() en la columna tipo.
+ */
+public enum TipoCambio {
+    CREADO,
+    ACTUALIZADO,
+    /** Baja lógica (eliminado = TRUE). */
+    ELIMINADO
+}
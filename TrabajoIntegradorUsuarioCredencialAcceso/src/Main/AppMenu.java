@@ -1,11 +1,30 @@
 package Main;
 
-import Dao.CredencialAccesoDAO;
-import Dao.UsuarioDAO;
+import Config.MigradorEsquema;
+import Dao.ActividadDAO;
+import Dao.ArchivadoDAO;
+import Dao.AuditoriaDAO;
+import Dao.DAOFactory;
+import Dao.GenericDAO;
+import Dao.HuerfanasDAO;
+import Dao.RehashDAO;
+import Dao.UsuarioGenericDAO;
+import Dao.VencimientoDAO;
+import Metrics.MetricsExporter;
+import Models.CredencialAcceso;
+import Service.Archivador;
+import Service.AuditoriaCredenciales;
+import Service.AutenticacionService;
 import Service.CredencialAccesoServiceImpl;
+import Service.MigracionHashes;
+import Service.RecolectorHuerfanas;
+import Service.RegistroActividad;
 import Service.UsuarioServiceImpl;
+import Service.VencimientoCredenciales;
 
+import java.sql.SQLException;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Orquestador principal del menú de la aplicación.
@@ -28,6 +47,27 @@ public class AppMenu {
     /** Handler que ejecuta las operaciones del menú (capa de presentación). */
     private final MenuHandler menuHandler;
 
+    /** Servicio de autenticación (dueño del pool de hashing, se cierra al salir). */
+    private final AutenticacionService autenticacionService;
+
+    /** Auditoría asíncrona de cambios de credenciales (null si -Dauth.auditoria no está habilitado). */
+    private final AuditoriaCredenciales auditoria;
+
+    /** Registro write-behind de ultimo_login / intentos_fallidos (null si -Dauth.actividad no está habilitado). */
+    private final RegistroActividad actividad;
+
+    /** Migración de hashes de legado en segundo plano (null si no se pidió con -Dauth.migracion.iniciar). */
+    private final MigracionHashes migracion;
+
+    /** Vencimiento de contraseñas por antigüedad (null si -Dauth.vencimiento.dias no está configurado). */
+    private final VencimientoCredenciales vencimiento;
+
+    /** Recolector de credenciales huérfanas (null si no se pidió con -Dmantenimiento.huerfanas.iniciar). */
+    private final RecolectorHuerfanas recolector;
+
+    /** Archivo de filas eliminadas (null si no se pidió con -Dmantenimiento.archivo.iniciar). */
+    private final Archivador archivador;
+
     /** Flag que controla el loop principal (se apaga con la opción 0). */
     private boolean running;
 
@@ -35,15 +75,32 @@ public class AppMenu {
      * Constructor: ensambla dependencias y deja listo el ciclo del menú.
      *
      * Flujo:
-     * 1) Crea Scanner único
-     * 2) Crea cadena DAOs → Services
-     * 3) Crea MenuHandler con Scanner y UsuarioService
-     * 4) Setea running=true
+     * 1) Aplica o valida las migraciones del esquema (modo mysql); no arranca si el esquema no coincide
+     * 2) Crea Scanner único
+     * 3) Publica métricas (JMX y volcado periódico opcional)
+     * 4) Inicia la auditoría de credenciales si -Dauth.auditoria=true
+     * 5) Crea cadena DAOs → Services
+     * 6) Inicia el registro de actividad si -Dauth.actividad=true
+     * 7) Crea AutenticacionService y MenuHandler con Scanner y los services
+     * 8) Inicia la migración de hashes de legado si -Dauth.migracion.iniciar=true
+     * 9) Inicia el vencimiento de contraseñas si -Dauth.vencimiento.dias &gt; 0
+     * 10) Inicia el recolector de credenciales huérfanas si -Dmantenimiento.huerfanas.iniciar=true
+     * 11) Inicia el archivo de filas eliminadas si -Dmantenimiento.archivo.iniciar=true
+     * 12) Setea running=true
      */
     public AppMenu() {
+        prepararEsquema();
+        MetricsExporter.iniciar();
         this.scanner = new Scanner(System.in);
-        UsuarioServiceImpl usuarioService = createUsuarioService();
-        this.menuHandler = new MenuHandler(scanner, usuarioService);
+        this.auditoria = iniciarAuditoria();
+        UsuarioServiceImpl usuarioService = createUsuarioService(auditoria);
+        this.actividad = iniciarActividad();
+        this.autenticacionService = AutenticacionService.desdePropiedades(usuarioService, actividad);
+        this.menuHandler = new MenuHandler(scanner, usuarioService, autenticacionService);
+        this.migracion = iniciarMigracion(auditoria);
+        this.vencimiento = iniciarVencimiento(auditoria);
+        this.recolector = iniciarRecolector(auditoria);
+        this.archivador = iniciarArchivador();
         this.running = true;
     }
 
@@ -73,6 +130,25 @@ public class AppMenu {
                 System.out.println("Entrada inválida. Por favor, ingrese un número.");
             }
         }
+        if (migracion != null) {
+            migracion.close();
+        }
+        if (vencimiento != null) {
+            vencimiento.close();
+        }
+        if (recolector != null) {
+            recolector.close();
+        }
+        if (archivador != null) {
+            archivador.close();
+        }
+        autenticacionService.close();
+        if (actividad != null) {
+            actividad.close();
+        }
+        if (auditoria != null) {
+            auditoria.close();
+        }
         scanner.close();
     }
 
@@ -90,6 +166,7 @@ public class AppMenu {
      * 8  → Eliminar credencial por ID (soft delete directo)
      * 9  → Actualizar credencial por ID de usuario
      * 10 → Eliminar credencial por ID de usuario (secuencias seguras de desasociación + delete)
+     * 11 → Iniciar sesión (verificar username y contraseña)
      * 0  → Salir
      */
     private void processOption(int opcion) {
@@ -106,6 +183,8 @@ public class AppMenu {
             case 9 -> menuHandler.actualizarCredencialPorUsuario();
             case 10 -> menuHandler.eliminarCredencialPorUsuario();
 
+            case 11 -> menuHandler.iniciarSesion();
+
             case 0 -> {
                 System.out.println("Saliendo...");
                 running = false;
@@ -118,18 +197,98 @@ public class AppMenu {
      * Factory Method que crea la cadena de dependencias (bottom-up).
      *
      * Orden:
-     * 1) DAOs: UsuarioDAO, CredencialAccesoDAO
-     * 2) Services: CredencialAccesoServiceImpl (→ DAO credenciales),
+     * 1) DAOs: según dao.modo (DAOFactory): JDBC o en memoria
+     * 2) Services: CredencialAccesoServiceImpl (→ DAO credenciales + auditoría),
      *              UsuarioServiceImpl (→ DAO usuarios + service credenciales)
      *
      * De esta forma, UsuarioServiceImpl puede coordinar operaciones que
      * involucren persistencia de usuario y su credencial asociada.
      */
-    private UsuarioServiceImpl createUsuarioService() {
-        CredencialAccesoDAO credencialDAO = new CredencialAccesoDAO();
-        UsuarioDAO usuarioDAO = new UsuarioDAO();
+    private UsuarioServiceImpl createUsuarioService(AuditoriaCredenciales auditoria) {
+        GenericDAO<CredencialAcceso> credencialDAO = DAOFactory.credencialDAO();
+        UsuarioGenericDAO usuarioDAO = DAOFactory.usuarioDAO();
 
-        CredencialAccesoServiceImpl credencialService = new CredencialAccesoServiceImpl(credencialDAO);
+        CredencialAccesoServiceImpl credencialService = new CredencialAccesoServiceImpl(credencialDAO, auditoria);
         return new UsuarioServiceImpl(usuarioDAO, credencialService);
     }
+
+    /** Auditoría de credenciales con su hilo escritor, si está habilitada y el modo lo soporta (mysql). */
+    private static AuditoriaCredenciales iniciarAuditoria() {
+        AuditoriaDAO dao = DAOFactory.auditoriaDAO();
+        AuditoriaCredenciales auditoria = dao == null ? null : AuditoriaCredenciales.desdePropiedades(dao);
+        if (auditoria != null) {
+            auditoria.iniciar();
+        }
+        return auditoria;
+    }
+
+    /**
+     * Migraciones del esquema (Config.MigradorEsquema), sólo en modo mysql.
+     * @throws IllegalStateException si el esquema no coincide o una migración falla: la aplicación no arranca
+     */
+    private static void prepararEsquema() {
+        if (!DAOFactory.MODO_MYSQL.equals(DAOFactory.getModo())) {
+            return;
+        }
+        try {
+            MigradorEsquema.alIniciar();
+        } catch (SQLException | IllegalArgumentException e) {
+            throw new IllegalStateException("No se puede iniciar: " + e.getMessage(), e);
+        }
+    }
+
+    /** Registro de actividad con volcados periódicos, si está habilitado y el modo lo soporta (mysql). */
+    private static RegistroActividad iniciarActividad() {
+        ActividadDAO dao = DAOFactory.actividadDAO();
+        RegistroActividad actividad = dao == null ? null : RegistroActividad.desdePropiedades(dao);
+        if (actividad != null) {
+            actividad.iniciar();
+        }
+        return actividad;
+    }
+
+    /** Migración de hashes de legado en un hilo daemon, si está pedida y el DAO la soporta. */
+    private static MigracionHashes iniciarMigracion(AuditoriaCredenciales auditoria) {
+        if (!Boolean.getBoolean("auth.migracion.iniciar")
+                || !(DAOFactory.credencialDAO() instanceof RehashDAO dao)) {
+            return null;
+        }
+        MigracionHashes migracion = MigracionHashes.desdePropiedades(dao, auditoria);
+        migracion.iniciar();
+        return migracion;
+    }
+
+    /** Vencimiento de contraseñas en un hilo daemon, si está configurado y el DAO lo soporta. */
+    private static VencimientoCredenciales iniciarVencimiento(AuditoriaCredenciales auditoria) {
+        if (!(DAOFactory.credencialDAO() instanceof VencimientoDAO dao)) {
+            return null;
+        }
+        VencimientoCredenciales vencimiento = VencimientoCredenciales.desdePropiedades(dao, auditoria);
+        if (vencimiento != null) {
+            vencimiento.iniciar();
+        }
+        return vencimiento;
+    }
+
+    /** Recolector de credenciales huérfanas en un hilo daemon, si está pedido y el modo lo soporta (mysql). */
+    private static RecolectorHuerfanas iniciarRecolector(AuditoriaCredenciales auditoria) {
+        HuerfanasDAO dao = DAOFactory.huerfanasDAO();
+        if (!Boolean.getBoolean("mantenimiento.huerfanas.iniciar") || dao == null) {
+            return null;
+        }
+        RecolectorHuerfanas recolector = RecolectorHuerfanas.desdePropiedades(dao, auditoria);
+        recolector.iniciar(TimeUnit.HOURS.toMillis(Integer.getInteger("mantenimiento.huerfanas.periodoHoras", 24)));
+        return recolector;
+    }
+
+    /** Archivo de usuarios y credenciales eliminados en un hilo daemon, si está pedido y el modo lo soporta (mysql). */
+    private static Archivador iniciarArchivador() {
+        ArchivadoDAO dao = DAOFactory.archivadoDAO();
+        if (!Boolean.getBoolean("mantenimiento.archivo.iniciar") || dao == null) {
+            return null;
+        }
+        Archivador archivador = Archivador.desdePropiedades(dao);
+        archivador.iniciar(TimeUnit.HOURS.toMillis(Integer.getInteger("mantenimiento.archivo.periodoHoras", 24)));
+        return archivador;
+    }
 }
@@ -0,0 +1,143 @@
+package Main;
+
+import Service.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de throughput y latencia de PasswordHasher para distintos costos y niveles de
+ * concurrencia. Sirve para elegir auth.pbkdf2.iteraciones y auth.hash.hilos: el costo fija la
+ * latencia de un login y los hilos, cuántos logins por segundo soporta el proceso.
+ *
+ * Configuración (system properties):
+ * - bench.iteraciones    : costos a medir (default "100000,310000,600000")
+ * - bench.hilos          : hilos concurrentes a medir (default "1,&lt;núcleos&gt;")
+ * - bench.duracion       : segundos de medición por combinación (default 5)
+ * - bench.calentamiento  : segundos iniciales descartados por combinación (default 2)
+ *
+ * No usa la BD. Uso:
+ * <pre>
+ * java -Dbench.iteraciones=210000,310000 -cp build/classes Main.BenchmarkHash
+ * </pre>
+ */
+public class BenchmarkHash {
+
+    private final int[] costos;
+    private final int[] hilos;
+    private final long duracionNanos;
+    private final long calentamientoNanos;
+
+    public BenchmarkHash() {
+        this.costos = parsearEnteros(System.getProperty("bench.iteraciones", "100000,310000,600000"));
+        this.hilos = parsearEnteros(System.getProperty("bench.hilos",
+                "1," + Runtime.getRuntime().availableProcessors()));
+        this.duracionNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("bench.duracion", 5));
+        this.calentamientoNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("bench.calentamiento", 2));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new BenchmarkHash().ejecutar();
+    }
+
+    public void ejecutar() throws InterruptedException {
+        System.out.printf("Benchmark PBKDF2-HMAC-SHA256: %d núcleos, %d s por combinación%n",
+                Runtime.getRuntime().availableProcessors(), TimeUnit.NANOSECONDS.toSeconds(duracionNanos));
+        System.out.printf(Locale.ROOT, "%12s %6s %10s %10s %10s %10s %10s%n",
+                "iteraciones", "hilos", "hashes", "hash/s", "p50(ms)", "p99(ms)", "max(ms)");
+        calentarJit();
+        for (int costo : costos) {
+            PasswordHasher hasher = new PasswordHasher(costo);
+            for (int n : hilos) {
+                medir(hasher, n);
+            }
+        }
+    }
+
+    /**
+     * Hashea a costo mínimo antes de medir, para que el JIT compile HMAC-SHA256 y la primera
+     * combinación no pague la interpretación.
+     */
+    private void calentarJit() {
+        PasswordHasher minimo = new PasswordHasher(1_000);
+        char[] password = "calentamiento".toCharArray();
+        String salt = minimo.generarSalt();
+        long fin = System.nanoTime() + calentamientoNanos;
+        while (System.nanoTime() < fin) {
+            minimo.hashear(password, salt);
+        }
+    }
+
+    /** Corre n hilos hasheando sin pausa y muestra una fila del reporte. */
+    private void medir(PasswordHasher hasher, int n) throws InterruptedException {
+        List<HistogramaLatencia> histogramas = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch largada = new CountDownLatch(1);
+        long inicio = System.nanoTime();
+        long finCalentamiento = inicio + calentamientoNanos;
+        long fin = finCalentamiento + duracionNanos;
+
+        for (int i = 0; i < n; i++) {
+            HistogramaLatencia h = new HistogramaLatencia();
+            histogramas.add(h);
+            Thread t = new Thread(() -> correr(hasher, h, largada, finCalentamiento, fin), "bench-hash-" + i);
+            threads.add(t);
+            t.start();
+        }
+        largada.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        HistogramaLatencia total = new HistogramaLatencia();
+        histogramas.forEach(total::merge);
+        double segundos = duracionNanos / 1e9;
+        System.out.printf(Locale.ROOT, "%12d %6d %10d %10.1f %10.1f %10.1f %10.1f%n",
+                hasher.getIteraciones(), n, total.getTotal(), total.getTotal() / segundos,
+                ms(total.percentil(50)), ms(total.percentil(99)), ms(total.getMaximo()));
+    }
+
+    private static void correr(PasswordHasher hasher, HistogramaLatencia h,
+                               CountDownLatch largada, long finCalentamiento, long fin) {
+        try {
+            largada.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        char[] password = "benchmark-password".toCharArray();
+        String salt = hasher.generarSalt();
+        boolean calentando = true;
+        long ahora;
+        while ((ahora = System.nanoTime()) < fin) {
+            if (calentando && ahora >= finCalentamiento) {
+                calentando = false;
+                h.reset();
+            }
+            long t0 = System.nanoTime();
+            hasher.hashear(password, salt);
+            h.registrar(System.nanoTime() - t0);
+        }
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /** "1,4,4" → {1, 4}: sin repetidos (con un solo núcleo el default sería "1,1"). */
+    private static int[] parsearEnteros(String valor) {
+        String[] partes = valor.split(",");
+        int[] numeros = new int[partes.length];
+        for (int i = 0; i < partes.length; i++) {
+            numeros[i] = Integer.parseInt(partes[i].trim());
+            if (numeros[i] <= 0) {
+                throw new IllegalArgumentException("Los valores deben ser mayores a 0: " + valor);
+            }
+        }
+        return Arrays.stream(numeros).distinct().toArray();
+    }
+}
@@ -0,0 +1,229 @@
+package Main;
+
+import Config.DataBaseConnection;
+import Config.TransactionManager;
+import Dao.CredencialAccesoDAO;
+import Dao.DAOFactory;
+import Dao.UsuarioDAO;
+import Models.CredencialAcceso;
+import Models.Usuario;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador determinístico de datos sintéticos (usuarios + credenciales) para
+ * benchmarks y pruebas de capacidad.
+ *
+ * Características:
+ * - Determinístico: el usuario N depende sólo de (semilla, N); misma semilla → mismos datos,
+ *   sin importar el tamaño de lote ni la cantidad de hilos.
+ * - Username y email únicos por construcción (incluyen el índice en base 36).
+ * - Dominios de email con sesgo realista (pocos proveedores concentran la mayoría).
+ * - Proporción configurable de usuarios con credencial.
+ * - Escribe con JDBC batch (insertarLoteTx) en transacciones por lote, sin pasar por
+ *   las validaciones de Service (los datos son válidos por construcción).
+ *
+ * Configuración (system properties):
+ * - gen.usuarios         : cantidad de usuarios (default 1.000.000)
+ * - gen.desde            : índice inicial, para continuar una carga previa (default 0)
+ * - gen.semilla          : semilla (default 12345)
+ * - gen.ratioCredencial  : proporción de usuarios con credencial, 0..1 (default 0.8)
+ * - gen.lote             : filas por transacción (default 5000)
+ * - gen.hilos            : hilos escritores (default 4)
+ * - dao.ids=hilo         : IDs asignados por bloques (HiLoIdAllocator) en lugar de leer las claves
+ *                          generadas de cada lote; credenciales y usuarios se vinculan antes del INSERT
+ *
+ * Recomendado: -Ddb.url=jdbc:mysql://localhost:3306/dbtpiUsuarios?rewriteBatchedStatements=true
+ */
+public class GeneradorDatos {
+
+    private static final String[] NOMBRES = {
+        "ana", "juan", "maria", "lucas", "sofia", "mateo", "valentina", "martin", "camila", "diego",
+        "lucia", "tomas", "julieta", "nicolas", "florencia", "santiago", "agustina", "facundo", "paula", "bruno"
+    };
+
+    private static final String[] APELLIDOS = {
+        "gonzalez", "rodriguez", "gomez", "fernandez", "lopez", "diaz", "martinez", "perez", "garcia", "sanchez",
+        "romero", "sosa", "alvarez", "torres", "ruiz", "ramirez", "flores", "benitez", "acosta", "medina"
+    };
+
+    /** Dominios y su peso relativo (sesgo tipo Zipf: pocos proveedores concentran la mayoría). */
+    private static final String[] DOMINIOS = {
+        "gmail.com", "hotmail.com", "yahoo.com.ar", "outlook.com", "live.com.ar", "icloud.com", "fibertel.com.ar"
+    };
+    private static final int[] PESOS_DOMINIOS = {450, 180, 90, 70, 40, 25, 15};
+
+    /** Cantidad de dominios corporativos sintéticos de la "cola larga" (peso restante). */
+    private static final int DOMINIOS_CORPORATIVOS = 500;
+    private static final int PESO_TOTAL = 1000;
+
+    private final long semilla;
+    private final double ratioCredencial;
+    private final LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public GeneradorDatos(long semilla, double ratioCredencial) {
+        if (ratioCredencial < 0 || ratioCredencial > 1) {
+            throw new IllegalArgumentException("gen.ratioCredencial debe estar entre 0 y 1");
+        }
+        this.semilla = semilla;
+        this.ratioCredencial = ratioCredencial;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long cantidad = Long.getLong("gen.usuarios", 1_000_000L);
+        long desde = Long.getLong("gen.desde", 0L);
+        int lote = Integer.getInteger("gen.lote", 5000);
+        int hilos = Integer.getInteger("gen.hilos", 4);
+        GeneradorDatos generador = new GeneradorDatos(
+                Long.getLong("gen.semilla", 12345L),
+                Double.parseDouble(System.getProperty("gen.ratioCredencial", "0.8")));
+
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            if (!conn.getMetaData().getURL().contains("rewriteBatchedStatements=true")) {
+                System.out.println("Aviso: sin rewriteBatchedStatements=true en db.url la carga será varias veces más lenta.");
+            }
+        }
+        generador.cargar(desde, cantidad, lote, hilos);
+    }
+
+    /**
+     * Genera e inserta los usuarios [desde, desde + cantidad) repartidos en lotes entre varios hilos.
+     */
+    public void cargar(long desde, long cantidad, int lote, int hilos) throws Exception {
+        if (lote <= 0 || hilos <= 0) {
+            throw new IllegalArgumentException("gen.lote y gen.hilos deben ser mayores a 0");
+        }
+        UsuarioDAO usuarioDAO = new UsuarioDAO(DAOFactory.idsPara("usuarios"));
+        CredencialAccesoDAO credencialDAO = new CredencialAccesoDAO(DAOFactory.idsPara("credenciales_acceso"));
+        AtomicLong insertados = new AtomicLong();
+        AtomicLong proximoLote = new AtomicLong(desde);
+        long hasta = desde + cantidad;
+        long inicio = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            tareas.add(executor.submit(() -> {
+                long d;
+                while ((d = proximoLote.getAndAdd(lote)) < hasta) {
+                    long h2 = Math.min(d + lote, hasta);
+                    escribirLote(d, h2, usuarioDAO, credencialDAO);
+                    long total = insertados.addAndGet(h2 - d);
+                    if ((total / lote) % 20 == 0) {
+                        reportarProgreso(total, cantidad, inicio);
+                    }
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<?> t : tareas) {
+                t.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        reportarProgreso(insertados.get(), cantidad, inicio);
+    }
+
+    /** Inserta un lote en una única transacción: primero credenciales, luego usuarios. */
+    private void escribirLote(long desde, long hasta, UsuarioDAO usuarioDAO, CredencialAccesoDAO credencialDAO) throws Exception {
+        List<Usuario> usuarios = new ArrayList<>((int) (hasta - desde));
+        List<CredencialAcceso> credenciales = new ArrayList<>();
+        for (long i = desde; i < hasta; i++) {
+            Usuario u = generarUsuario(i);
+            usuarios.add(u);
+            if (u.getCredencial() != null) {
+                credenciales.add(u.getCredencial());
+            }
+        }
+
+        try (TransactionManager tx = new TransactionManager(DataBaseConnection.getConnection())) {
+            tx.startTransaction();
+            credencialDAO.insertarLoteTx(credenciales, tx.getConnection());
+            usuarioDAO.insertarLoteTx(usuarios, tx.getConnection());
+            tx.commit();
+        }
+    }
+
+    /**
+     * Construye el usuario de índice i (y su credencial, según el ratio) sin persistirlo.
+     * El resultado depende sólo de la semilla y del índice.
+     */
+    public Usuario generarUsuario(long i) {
+        long r1 = mezclar(semilla + i);
+        long r2 = mezclar(r1);
+        long r3 = mezclar(r2);
+
+        String nombre = NOMBRES[(int) Long.remainderUnsigned(r1, NOMBRES.length)];
+        String apellido = APELLIDOS[(int) Long.remainderUnsigned(r1 >>> 20, APELLIDOS.length)];
+        String username = nombre + "." + apellido + "." + Long.toString(i, 36);
+        String email = username + "@" + elegirDominio(r2);
+
+        boolean activo = Long.remainderUnsigned(r2 >>> 32, 100) < 92;
+        LocalDateTime registro = base.minusMinutes(Long.remainderUnsigned(r3, 5L * 365 * 24 * 60));
+
+        Usuario u = new Usuario(0, username, email, activo, registro);
+        if (unitario(r3 >>> 11) < ratioCredencial) {
+            long r4 = mezclar(r3);
+            long r5 = mezclar(r4);
+            CredencialAcceso c = new CredencialAcceso();
+            c.setHashPassword(hex(r4) + hex(r5) + hex(mezclar(r5)) + hex(mezclar(r4 ^ r5)));
+            c.setSalt(hex(mezclar(r5 + 1)) + hex(mezclar(r5 + 2)));
+            c.setUltimoCambio(base.minusMinutes(Long.remainderUnsigned(r4, 2L * 365 * 24 * 60)));
+            c.setRequiereReset(Long.remainderUnsigned(r5, 100) < 5);
+            u.setCredencial(c);
+        }
+        return u;
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    private String elegirDominio(long r) {
+        int x = (int) Long.remainderUnsigned(r, PESO_TOTAL);
+        for (int i = 0; i < DOMINIOS.length; i++) {
+            if (x < PESOS_DOMINIOS[i]) {
+                return DOMINIOS[i];
+            }
+            x -= PESOS_DOMINIOS[i];
+        }
+        // Cola larga: dominios corporativos, también sesgados (los primeros son más frecuentes)
+        long empresa = Long.remainderUnsigned(r >>> 16, DOMINIOS_CORPORATIVOS);
+        empresa = empresa * empresa / DOMINIOS_CORPORATIVOS;
+        return "empresa" + empresa + ".com.ar";
+    }
+
+    /** Función de mezcla SplitMix64: convierte un long en otro pseudoaleatorio y bien distribuido. */
+    private static long mezclar(long z) {
+        z = (z + 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double unitario(long bits) {
+        return (bits & ((1L << 53) - 1)) / (double) (1L << 53);
+    }
+
+    private static String hex(long v) {
+        return String.format("%016x", v);
+    }
+
+    private static void reportarProgreso(long total, long objetivo, long inicio) {
+        double seg = Math.max(1e-3, (System.nanoTime() - inicio) / 1e9);
+        System.out.printf(Locale.ROOT, "%,d / %,d usuarios (%.0f filas/s, %d s)%n",
+                total, objetivo, total / seg, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inicio));
+    }
+}
@@ -0,0 +1,94 @@
+package Main;
+
+import Metrics.BucketsLogLineales;
+
+/**
+ * Histograma de latencias de rango dinámico alto (estilo HdrHistogram, sin dependencias).
+ *
+ * Estructura:
+ * - Los valores (nanosegundos) se agrupan en buckets log-lineales (Metrics.BucketsLogLineales,
+ *   el mismo cálculo que Metrics.Timer): cada potencia de 2 se divide en 64 sub-buckets, lo
+ *   que da un error relativo máximo menor al 1,6%.
+ * - Valores menores a 128 ns se guardan exactos.
+ * - Cubre desde 1 ns hasta ~2^44 ns (~4,8 horas) con ~2500 contadores long.
+ *
+ * Concurrencia:
+ * - NO es thread-safe a propósito: cada hilo de carga registra en su propio histograma
+ *   (sin contención en el camino caliente) y al final se combinan con merge().
+ */
+public final class HistogramaLatencia {
+
+    /** 64 sub-buckets por potencia de 2, 38 potencias por encima del tramo exacto. */
+    private static final BucketsLogLineales BUCKETS = new BucketsLogLineales(6, 38);
+
+    private final long[] cuentas = new long[BUCKETS.cantidad()];
+    private long total;
+    private long maximo;
+    private long suma;
+
+    /**
+     * Registra una latencia.
+     * @param nanos duración en nanosegundos (valores negativos se toman como 0)
+     */
+    public void registrar(long nanos) {
+        long v = Math.max(0, nanos);
+        cuentas[BUCKETS.indice(v)]++;
+        total++;
+        suma += v;
+        if (v > maximo) {
+            maximo = v;
+        }
+    }
+
+    /** Suma las cuentas de otro histograma en éste. */
+    public void merge(HistogramaLatencia otro) {
+        for (int i = 0; i < cuentas.length; i++) {
+            cuentas[i] += otro.cuentas[i];
+        }
+        total += otro.total;
+        suma += otro.suma;
+        maximo = Math.max(maximo, otro.maximo);
+    }
+
+    /** Descarta todo lo registrado (usado al terminar el calentamiento). */
+    public void reset() {
+        java.util.Arrays.fill(cuentas, 0);
+        total = 0;
+        suma = 0;
+        maximo = 0;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMaximo() {
+        return maximo;
+    }
+
+    public double getPromedio() {
+        return total == 0 ? 0 : (double) suma / total;
+    }
+
+    /**
+     * Devuelve el valor en el percentil indicado (cota superior del bucket).
+     * @param percentil valor entre 0 y 100 (ej. 99.9)
+     * @return latencia en nanosegundos, 0 si no hay registros
+     */
+    public long percentil(double percentil) {
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = (long) Math.ceil((percentil / 100.0) * total);
+        objetivo = Math.max(1, Math.min(objetivo, total));
+        long acumulado = 0;
+        for (int i = 0; i < cuentas.length; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) {
+                // El último bucket acumula todo lo que excede el rango: se informa el máximo real
+                return i == cuentas.length - 1 ? maximo : Math.min(BUCKETS.limiteSuperior(i), maximo);
+            }
+        }
+        return maximo;
+    }
+}
@@ -30,11 +30,14 @@ public final class MenuDisplay {
      * Opciones de Credenciales (5-10):
      * 5. Crear credencial: Crea credencial independiente (sin asociar a usuario)
      * 6. Listar credenciales: Lista todas las credenciales activas
-     * 7. Actualizar credencial por ID: Actualiza credencial directamente (hash/salt/reset)
+     * 7. Actualizar credencial por ID: Actualiza credencial directamente (contraseña/reset)
      * 8. Eliminar credencial por ID: PELIGROSO - si está referenciada puede dejar FK huérfana
      * 9. Actualizar credencial por ID de usuario: Busca usuario primero, luego actualiza su credencial
      * 10. Eliminar credencial por ID de usuario: SEGURO - desasocia FK primero y luego elimina
      *
+     * Opción de autenticación (11):
+     * 11. Iniciar sesión: verifica username y contraseña contra la credencial del usuario
+     *
      * Opción de salida:
      * 0. Salir: Termina la aplicación
      *
@@ -57,6 +60,7 @@ public final class MenuDisplay {
         System.out.println("8. Eliminar credencial por ID");
         System.out.println("9. Actualizar credencial por ID de usuario");
         System.out.println("10. Eliminar credencial por ID de usuario");
+        System.out.println("11. Iniciar sesión");
         System.out.println("0. Salir");
         System.out.print("Ingrese una opcion: ");
     }
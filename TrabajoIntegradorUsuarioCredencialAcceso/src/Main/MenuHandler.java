@@ -2,6 +2,7 @@ package Main;
 
 import Models.CredencialAcceso;
 import Models.Usuario;
+import Service.AutenticacionService;
 import Service.UsuarioServiceImpl;
 
 import java.time.LocalDateTime;
@@ -29,20 +30,28 @@ public class MenuHandler {
     /** Servicio de usuarios (expone también operaciones de credenciales mediante getCredencialService()) */
     private final UsuarioServiceImpl usuarioService;
 
+    /** Servicio de autenticación (hash de contraseñas e inicio de sesión) */
+    private final AutenticacionService autenticacionService;
+
     /**
      * Constructor con inyección de dependencias.
      * @param scanner Scanner a usar para leer desde consola
      * @param usuarioService Servicio de usuarios
+     * @param autenticacionService Servicio de autenticación
      */
-    public MenuHandler(Scanner scanner, UsuarioServiceImpl usuarioService) {
+    public MenuHandler(Scanner scanner, UsuarioServiceImpl usuarioService, AutenticacionService autenticacionService) {
         if (scanner == null) {
             throw new IllegalArgumentException("Scanner no puede ser null");
         }
         if (usuarioService == null) {
             throw new IllegalArgumentException("UsuarioService no puede ser null");
         }
+        if (autenticacionService == null) {
+            throw new IllegalArgumentException("AutenticacionService no puede ser null");
+        }
         this.scanner = scanner;
         this.usuarioService = usuarioService;
+        this.autenticacionService = autenticacionService;
     }
 
     // =============================================================================
@@ -54,7 +63,7 @@ public class MenuHandler {
      * Flujo:
      * 1) Solicita username, email, activo (s/n)
      * 2) Pregunta si desea agregar credencial (s/n)
-     * 3) Si sí, captura hash y salt, y marca requiereReset opcional
+     * 3) Si sí, captura la contraseña (se guarda hasheada) y marca requiereReset opcional
      * 4) Inserta usuario; si hay credencial, se inserta/actualiza primero desde Service
      */
     public void crearUsuario() {
@@ -166,10 +175,11 @@ public class MenuHandler {
             else if (act.equalsIgnoreCase("n")) u.setActivo(false);
 
             // Manejo de credencial
+            boolean contrasenaCambiada = false;
             if (u.getCredencial() != null) {
                 System.out.print("El usuario tiene credencial. ¿Desea actualizarla? (s/n): ");
                 if (scanner.nextLine().trim().equalsIgnoreCase("s")) {
-                    actualizarCredencialInPlace(u.getCredencial());
+                    contrasenaCambiada = actualizarCredencialInPlace(u.getCredencial());
                 }
             } else {
                 System.out.print("El usuario no tiene credencial. ¿Desea agregar una? (s/n): ");
@@ -180,6 +190,9 @@ public class MenuHandler {
             }
 
             usuarioService.actualizar(u);
+            if (contrasenaCambiada) {
+                autenticacionService.cerrarSesiones(u.getId());
+            }
             System.out.println("Usuario actualizado exitosamente.");
         } catch (Exception e) {
             System.err.println("Error al actualizar usuario: " + e.getMessage());
@@ -262,7 +275,7 @@ public class MenuHandler {
 
     /**
      * Opción: Actualizar credencial por ID.
-     * Permite cambiar hash, salt, requiereReset y último cambio.
+     * Permite cambiar la contraseña y requiereReset.
      */
     public void actualizarCredencialPorId() {
         try {
@@ -273,8 +286,14 @@ public class MenuHandler {
                 System.out.println("Credencial no encontrada.");
                 return;
             }
-            actualizarCredencialInPlace(c);
+            boolean contrasenaCambiada = actualizarCredencialInPlace(c);
             usuarioService.getCredencialService().actualizar(c);
+            if (contrasenaCambiada) {
+                Usuario dueño = usuarioService.buscarPorCredencial(c.getId());
+                if (dueño != null) {
+                    autenticacionService.cerrarSesiones(dueño.getId());
+                }
+            }
             System.out.println("Credencial actualizada exitosamente.");
         } catch (Exception e) {
             System.err.println("Error al actualizar credencial: " + e.getMessage());
@@ -300,46 +319,37 @@ public class MenuHandler {
     // Helpers de captura e impresión
     // =============================================================================
 
-    /** Crea un objeto CredencialAcceso capturando datos por consola (no persiste). */
-    private CredencialAcceso crearCredencial() {
-        System.out.print("Hash de contraseña (string ya hasheado): ");
-        String hash = scanner.nextLine().trim();
-
-        System.out.print("Salt (opcional, Enter para omitir): ");
-        String salt = scanner.nextLine().trim();
-        if (salt.isEmpty()) salt = null;
+    /**
+     * Crea un objeto CredencialAcceso capturando la contraseña por consola (no persiste).
+     * La contraseña nunca se guarda: AutenticacionService calcula salt y hash.
+     */
+    private CredencialAcceso crearCredencial() throws Exception {
+        System.out.print("Contraseña: ");
+        char[] password = scanner.nextLine().toCharArray();
 
         System.out.print("¿Requiere reset en próximo login? (s/n): ");
         boolean requiereReset = scanner.nextLine().trim().equalsIgnoreCase("s");
 
-        CredencialAcceso c = new CredencialAcceso();
-        c.setHashPassword(hash);
-        c.setSalt(salt);
-        c.setRequiereReset(requiereReset);
-        c.setUltimoCambio(LocalDateTime.now());
-        return c;
+        return autenticacionService.crearCredencial(password, requiereReset);
     }
 
-    /** Actualiza in-place una credencial ya cargada, con patrón "Enter para mantener". */
-    private void actualizarCredencialInPlace(CredencialAcceso c) {
-        System.out.print("Nuevo hash (Enter para mantener): ");
-        String nh = scanner.nextLine().trim();
-        if (!nh.isEmpty()) c.setHashPassword(nh);
-
-        System.out.print("Nuevo salt (Enter para mantener, o '-' para limpiar): ");
-        String ns = scanner.nextLine().trim();
-        if (!ns.isEmpty()) {
-            if (ns.equals("-")) c.setSalt(null);
-            else c.setSalt(ns);
+    /**
+     * Actualiza in-place una credencial ya cargada, con patrón "Enter para mantener" (no persiste).
+     * @return true si cambió la contraseña: el caller cierra las sesiones del dueño después de persistir
+     */
+    private boolean actualizarCredencialInPlace(CredencialAcceso c) throws Exception {
+        System.out.print("Nueva contraseña (Enter para mantener): ");
+        String np = scanner.nextLine();
+        boolean contrasenaCambiada = !np.isEmpty();
+        if (contrasenaCambiada) {
+            autenticacionService.establecerContrasena(c, np.toCharArray());
         }
 
         System.out.print("¿Requiere reset? (actual: " + (c.isRequiereReset() ? "sí" : "no") + ") (s/n/Enter): ");
         String rr = scanner.nextLine().trim();
         if (rr.equalsIgnoreCase("s")) c.setRequiereReset(true);
         else if (rr.equalsIgnoreCase("n")) c.setRequiereReset(false);
-
-        // Se actualiza timestamp de último cambio por conveniencia
-        c.setUltimoCambio(LocalDateTime.now());
+        return contrasenaCambiada;
     }
     
     /**
@@ -363,12 +373,14 @@ public class MenuHandler {
 
             CredencialAcceso cred = usuario.getCredencial();
 
+            boolean contrasenaCambiada = false;
             System.out.print("¿Desea cambiar la contraseña? (s/n): ");
             if (scanner.nextLine().equalsIgnoreCase("s")) {
                 System.out.print("Nueva contraseña: ");
-                String nuevaPass = scanner.nextLine().trim();
+                String nuevaPass = scanner.nextLine();
                 if (!nuevaPass.isEmpty()) {
-                    cred.setHashPassword(nuevaPass); 
+                    autenticacionService.establecerContrasena(cred, nuevaPass.toCharArray());
+                    contrasenaCambiada = true;
                 }
             }
 
@@ -378,6 +390,10 @@ public class MenuHandler {
             }
 
             usuarioService.getCredencialService().actualizar(cred);
+            if (contrasenaCambiada) {
+                // Las sesiones emitidas con la contraseña anterior dejan de valer
+                autenticacionService.cerrarSesiones(usuarioId);
+            }
             System.out.println("Credencial actualizada exitosamente.");
 
         } catch (Exception e) {
@@ -416,6 +432,34 @@ public class MenuHandler {
     }
 
 
+    // =============================================================================
+    // AUTENTICACIÓN
+    // =============================================================================
+
+    /**
+     * Opción: Iniciar sesión (verifica username y contraseña y, si es correcta, emite un token de sesión).
+     */
+    public void iniciarSesion() {
+        try {
+            System.out.print("Username: ");
+            String username = scanner.nextLine().trim();
+
+            System.out.print("Contraseña: ");
+            char[] password = scanner.nextLine().toCharArray();
+
+            AutenticacionService.InicioSesion inicio = autenticacionService.iniciarSesion(username, password);
+            switch (inicio.resultado()) {
+                case OK -> System.out.println("Inicio de sesión correcto. Token de sesión: " + inicio.token());
+                case REQUIERE_RESET -> System.out.println("Contraseña correcta, pero debe cambiarla (opción 9).");
+                case USUARIO_INACTIVO -> System.out.println("El usuario está inactivo.");
+                case CREDENCIALES_INVALIDAS -> System.out.println("Usuario o contraseña incorrectos.");
+                case BLOQUEADO -> System.out.println("Demasiados intentos. Espere un momento y vuelva a intentar.");
+            }
+        } catch (Exception e) {
+            System.err.println("Error al iniciar sesión: " + e.getMessage());
+        }
+    }
+
     /** Imprime datos relevantes de un usuario sin exponer datos sensibles de la credencial. */
     private void imprimirUsuario(Usuario u) {
         System.out.println(
@@ -0,0 +1,265 @@
+package Main;
+
+import Dao.DAOFactory;
+import Models.Usuario;
+import Service.CredencialAccesoServiceImpl;
+import Service.UsuarioServiceImpl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generador de carga concurrente sobre UsuarioServiceImpl.
+ * Ejecuta una mezcla configurable de inserciones, búsquedas, actualizaciones y bajas lógicas
+ * desde N clientes concurrentes y reporta throughput y percentiles de latencia por operación.
+ *
+ * Configuración (system properties):
+ * - carga.clientes      : clientes concurrentes (default 50)
+ * - carga.duracion      : duración de la medición en segundos (default 30)
+ * - carga.calentamiento : segundos iniciales que se descartan (default 5)
+ * - carga.mezcla        : pesos por operación (default "insertar:20,buscar:60,actualizar:15,eliminar:5")
+ * - carga.virtuales     : true para usar virtual threads en lugar de un pool fijo (default false)
+ * - carga.semilla       : semilla base para la elección de operaciones (default 42)
+ * - dao.modo            : mysql (default) o memoria, ver DAOFactory
+ *
+ * Uso:
+ * <pre>
+ * java -Dcarga.clientes=200 -Dcarga.duracion=60 -cp "build/classes:&lt;mysql-jar&gt;" Main.PruebaCarga
+ * </pre>
+ *
+ * Nota: cada cliente sólo actualiza/elimina los usuarios que él mismo insertó,
+ * por lo que las operaciones no compiten por las mismas filas entre clientes.
+ */
+public class PruebaCarga {
+
+    /** Operaciones que componen la mezcla de carga. */
+    enum Operacion { INSERTAR, BUSCAR, ACTUALIZAR, ELIMINAR }
+
+    private final UsuarioServiceImpl usuarioService;
+    private final int clientes;
+    private final long duracionNanos;
+    private final long calentamientoNanos;
+    private final int[] pesosAcumulados;
+    private final boolean virtuales;
+    private final long semilla;
+
+    /** Prefijo único por ejecución para no chocar con datos de corridas anteriores. */
+    private final String prefijo = "lt" + Long.toString(System.currentTimeMillis() % 1_000_000L, 36);
+
+    public PruebaCarga(UsuarioServiceImpl usuarioService) {
+        this.usuarioService = usuarioService;
+        this.clientes = Integer.getInteger("carga.clientes", 50);
+        this.duracionNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("carga.duracion", 30));
+        this.calentamientoNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("carga.calentamiento", 5));
+        this.pesosAcumulados = parsearMezcla(System.getProperty("carga.mezcla",
+                "insertar:20,buscar:60,actualizar:15,eliminar:5"));
+        this.virtuales = Boolean.getBoolean("carga.virtuales");
+        this.semilla = Long.getLong("carga.semilla", 42L);
+
+        if (clientes <= 0) {
+            throw new IllegalArgumentException("carga.clientes debe ser mayor a 0");
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        CredencialAccesoServiceImpl credencialService = new CredencialAccesoServiceImpl(DAOFactory.credencialDAO());
+        UsuarioServiceImpl usuarioService = new UsuarioServiceImpl(DAOFactory.usuarioDAO(), credencialService);
+        new PruebaCarga(usuarioService).ejecutar();
+    }
+
+    /**
+     * Lanza los clientes, espera a que terminen y muestra el reporte.
+     */
+    public void ejecutar() throws InterruptedException {
+        System.out.printf("Prueba de carga: %d clientes (%s), %d s de medición + %d s de calentamiento%n",
+                clientes, virtuales ? "virtual threads" : "pool fijo",
+                TimeUnit.NANOSECONDS.toSeconds(duracionNanos), TimeUnit.NANOSECONDS.toSeconds(calentamientoNanos));
+
+        List<Cliente> lista = new ArrayList<>();
+        for (int i = 0; i < clientes; i++) {
+            lista.add(new Cliente(i));
+        }
+
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = virtuales
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(clientes);
+        long inicio = System.nanoTime();
+        long finCalentamiento = inicio + calentamientoNanos;
+        long fin = finCalentamiento + duracionNanos;
+        try {
+            for (Cliente c : lista) {
+                executor.execute(() -> c.correr(largada, finCalentamiento, fin));
+            }
+            largada.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        if (!executor.awaitTermination(duracionNanos + calentamientoNanos + TimeUnit.MINUTES.toNanos(2), TimeUnit.NANOSECONDS)) {
+            System.err.println("Advertencia: algunos clientes no terminaron a tiempo");
+            executor.shutdownNow();
+        }
+
+        imprimirReporte(lista);
+    }
+
+    // =======================
+    // Cliente de carga
+    // =======================
+
+    /**
+     * Un cliente simulado. Cada uno tiene sus propios histogramas (sin contención)
+     * y su propio conjunto de usuarios insertados.
+     */
+    private final class Cliente {
+        private final int numero;
+        private final SplittableRandom random;
+        private final List<Usuario> propios = new ArrayList<>();
+        private final Map<Operacion, HistogramaLatencia> histogramas = new EnumMap<>(Operacion.class);
+        private final Map<Operacion, long[]> errores = new EnumMap<>(Operacion.class);
+        private int secuencia;
+
+        Cliente(int numero) {
+            this.numero = numero;
+            this.random = new SplittableRandom(semilla + numero);
+            for (Operacion op : Operacion.values()) {
+                histogramas.put(op, new HistogramaLatencia());
+                errores.put(op, new long[1]);
+            }
+        }
+
+        void correr(CountDownLatch largada, long finCalentamiento, long fin) {
+            try {
+                largada.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            boolean calentando = true;
+            long ahora;
+            while ((ahora = System.nanoTime()) < fin) {
+                if (calentando && ahora >= finCalentamiento) {
+                    calentando = false;
+                    histogramas.values().forEach(HistogramaLatencia::reset);
+                    errores.values().forEach(e -> e[0] = 0);
+                }
+                Operacion op = elegirOperacion();
+                long t0 = System.nanoTime();
+                try {
+                    ejecutar(op);
+                } catch (Exception e) {
+                    errores.get(op)[0]++;
+                }
+                histogramas.get(op).registrar(System.nanoTime() - t0);
+            }
+        }
+
+        private Operacion elegirOperacion() {
+            int r = random.nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+            Operacion op = Operacion.values()[0];
+            for (int i = 0; i < pesosAcumulados.length; i++) {
+                if (r < pesosAcumulados[i]) {
+                    op = Operacion.values()[i];
+                    break;
+                }
+            }
+            // Sin usuarios propios no hay qué buscar/actualizar/eliminar: se inserta primero
+            return propios.isEmpty() ? Operacion.INSERTAR : op;
+        }
+
+        private void ejecutar(Operacion op) throws Exception {
+            switch (op) {
+                case INSERTAR -> {
+                    String username = prefijo + "c" + numero + "n" + (secuencia++);
+                    Usuario u = new Usuario(0, username, username + "@carga.test", true, LocalDateTime.now());
+                    usuarioService.insertar(u);
+                    propios.add(u);
+                }
+                case BUSCAR -> {
+                    Usuario u = propios.get(random.nextInt(propios.size()));
+                    if (random.nextBoolean()) {
+                        usuarioService.getById(u.getId());
+                    } else {
+                        usuarioService.buscarPorUsername(u.getUsername());
+                    }
+                }
+                case ACTUALIZAR -> {
+                    Usuario u = propios.get(random.nextInt(propios.size()));
+                    u.setActivo(!u.isActivo());
+                    usuarioService.actualizar(u);
+                }
+                case ELIMINAR -> {
+                    Usuario u = propios.remove(random.nextInt(propios.size()));
+                    usuarioService.eliminar(u.getId());
+                }
+            }
+        }
+    }
+
+    // =======================
+    // Reporte
+    // =======================
+
+    private void imprimirReporte(List<Cliente> lista) {
+        double segundos = duracionNanos / 1e9;
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-11s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operacion", "total", "errores", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+
+        long totalGeneral = 0;
+        for (Operacion op : Operacion.values()) {
+            HistogramaLatencia h = new HistogramaLatencia();
+            long err = 0;
+            for (Cliente c : lista) {
+                h.merge(c.histogramas.get(op));
+                err += c.errores.get(op)[0];
+            }
+            totalGeneral += h.getTotal();
+            System.out.printf(Locale.ROOT, "%-11s %10d %8d %10.1f %10.3f %10.3f %10.3f %10.3f%n",
+                    op.name().toLowerCase(Locale.ROOT), h.getTotal(), err, h.getTotal() / segundos,
+                    ms(h.percentil(50)), ms(h.percentil(99)), ms(h.percentil(99.9)), ms(h.getMaximo()));
+        }
+        System.out.printf(Locale.ROOT, "%nThroughput total: %.1f ops/s%n", totalGeneral / segundos);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Convierte "insertar:20,buscar:60,..." en pesos acumulados en el orden de Operacion.
+     * Las operaciones no mencionadas tienen peso 0.
+     */
+    private static int[] parsearMezcla(String mezcla) {
+        int[] pesos = new int[Operacion.values().length];
+        for (String parte : mezcla.split(",")) {
+            String[] kv = parte.trim().split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Formato de carga.mezcla inválido: " + parte);
+            }
+            Operacion op = Operacion.valueOf(kv[0].trim().toUpperCase(Locale.ROOT));
+            pesos[op.ordinal()] = Integer.parseInt(kv[1].trim());
+        }
+        int acumulado = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            if (pesos[i] < 0) {
+                throw new IllegalArgumentException("Los pesos de carga.mezcla no pueden ser negativos");
+            }
+            acumulado += pesos[i];
+            pesos[i] = acumulado;
+        }
+        if (acumulado == 0) {
+            throw new IllegalArgumentException("carga.mezcla debe tener al menos un peso mayor a 0");
+        }
+        return pesos;
+    }
+}
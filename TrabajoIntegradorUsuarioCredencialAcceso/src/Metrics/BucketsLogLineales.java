@@ -0,0 +1,60 @@
+package Metrics;
+
+/**
+ * Cálculo de buckets log-lineales (estilo HdrHistogram) compartido por Timer y
+ * Main.HistogramaLatencia, para que los dos histogramas no puedan divergir.
+ *
+ * - Valores menores a 2 * 2^subBits se guardan exactos.
+ * - Por encima, cada potencia de 2 se divide en 2^subBits sub-buckets: error relativo menor a
+ *   1 / 2^subBits.
+ * - Los valores que exceden maxShift potencias caen en el último bucket.
+ *
+ * Inmutable y sin estado por valor: una instancia se comparte entre hilos.
+ */
+public final class BucketsLogLineales {
+
+    private final int subBits;
+    private final int subCount;
+    private final int lineal;
+    private final int cantidad;
+
+    /**
+     * @param subBits bits de precisión (2^subBits sub-buckets por potencia de 2)
+     * @param maxShift potencias de 2 cubiertas por encima del tramo exacto
+     */
+    public BucketsLogLineales(int subBits, int maxShift) {
+        if (subBits <= 0 || maxShift <= 0 || subBits + maxShift > 62) {
+            throw new IllegalArgumentException("Los bits de precisión y el rango deben ser mayores a 0 y caber en un long");
+        }
+        this.subBits = subBits;
+        this.subCount = 1 << subBits;
+        this.lineal = subCount * 2;
+        this.cantidad = lineal + maxShift * subCount;
+    }
+
+    /** Cantidad de buckets (largo del arreglo de cuentas). */
+    public int cantidad() {
+        return cantidad;
+    }
+
+    /** Bucket del valor (negativos = 0). */
+    public int indice(long v) {
+        if (v < lineal) {
+            return (int) Math.max(0, v);
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(v) - subBits;
+        int indice = lineal + (shift - 1) * subCount + (int) ((v >>> shift) - subCount);
+        return Math.min(indice, cantidad - 1);
+    }
+
+    /** Mayor valor que cae en el bucket. */
+    public long limiteSuperior(int indice) {
+        if (indice < lineal) {
+            return indice;
+        }
+        int rel = indice - lineal;
+        int shift = rel / subCount + 1;
+        long sub = rel % subCount + subCount;
+        return ((sub + 1) << shift) - 1;
+    }
+}
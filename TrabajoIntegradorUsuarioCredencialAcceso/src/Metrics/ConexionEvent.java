@@ -0,0 +1,22 @@
+package Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR: obtención de una conexión JDBC en DataBaseConnection.getConnection().
+ * Permite ver cuánto tiempo se pierde esperando/abriendo conexiones.
+ */
+@Name("trabajointegrador.ObtenerConexion")
+@Label("Obtener conexión")
+@Category({"TrabajoIntegrador", "JDBC"})
+@Description("Apertura de una conexión a la base de datos")
+@StackTrace(false)
+public class ConexionEvent extends jdk.jfr.Event {
+
+    @Label("Exitosa")
+    public boolean exitosa;
+}
@@ -0,0 +1,48 @@
+package Metrics;
+
+/**
+ * Medición en curso de un Timer, pensada para usarse con try-with-resources.
+ *
+ * Uso:
+ * <pre>
+ * try (Medicion m = metrics.medir("dao", "usuario", "getById")) {
+ *     ...
+ *     return m.ok(resultado);
+ * }
+ * </pre>
+ *
+ * Si el bloque termina sin llamar a ok() (por ejemplo, por una excepción),
+ * la ejecución se registra como error.
+ */
+public final class Medicion implements AutoCloseable {
+
+    private final Timer timer;
+    private final long inicio;
+    private boolean ok;
+
+    Medicion(Timer timer) {
+        this.timer = timer;
+        this.inicio = System.nanoTime();
+    }
+
+    /** Marca la medición como exitosa. */
+    public void ok() {
+        this.ok = true;
+    }
+
+    /**
+     * Marca la medición como exitosa y devuelve el valor recibido (para usar en un return).
+     * @param <R> tipo del resultado
+     * @param resultado valor a devolver
+     * @return el mismo resultado
+     */
+    public <R> R ok(R resultado) {
+        this.ok = true;
+        return resultado;
+    }
+
+    @Override
+    public void close() {
+        timer.registrar(System.nanoTime() - inicio, ok);
+    }
+}
@@ -0,0 +1,114 @@
+package Metrics;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Exporta MetricsRegistry hacia afuera del proceso.
+ *
+ * - JMX: registra un MXBean "TrabajoIntegrador:type=Metrics" en el MBeanServer de la plataforma.
+ * - Volcado periódico en texto, configurable:
+ *   -Dmetrics.volcado.segundos=N  (0 = deshabilitado, default)
+ *   -Dmetrics.volcado.archivo=ruta (default: System.err, para no mezclarse con el menú)
+ *
+ * Uso: MetricsExporter.iniciar() una sola vez al arrancar (AppMenu lo hace).
+ */
+public final class MetricsExporter {
+
+    private static final String OBJECT_NAME = "TrabajoIntegrador:type=Metrics";
+
+    private static boolean iniciado;
+
+    private MetricsExporter() {
+        throw new UnsupportedOperationException("Esta es una clase utilitaria y no debe ser instanciada");
+    }
+
+    /**
+     * Registra el MXBean y, si está configurado, el volcado periódico.
+     * Llamadas repetidas no tienen efecto.
+     */
+    public static synchronized void iniciar() {
+        if (iniciado) {
+            return;
+        }
+        iniciado = true;
+        registrarJmx(MetricsRegistry.global());
+
+        int segundos = Integer.getInteger("metrics.volcado.segundos", 0);
+        if (segundos > 0) {
+            iniciarVolcado(MetricsRegistry.global(), segundos, System.getProperty("metrics.volcado.archivo"));
+        }
+    }
+
+    private static void registrarJmx(MetricsRegistry registry) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(nombre)) {
+                server.registerMBean(new Vista(registry), nombre);
+            }
+        } catch (JMException e) {
+            System.err.println("No se pudieron registrar las métricas en JMX: " + e.getMessage());
+        }
+    }
+
+    private static void iniciarVolcado(MetricsRegistry registry, int segundos, String archivo) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-volcado");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            String texto = "# métricas " + LocalDateTime.now() + "\n" + registry.volcar();
+            if (archivo == null || archivo.isBlank()) {
+                System.err.print(texto);
+                return;
+            }
+            try (PrintStream out = new PrintStream(new FileOutputStream(archivo, true), false, StandardCharsets.UTF_8)) {
+                out.print(texto);
+            } catch (IOException e) {
+                System.err.println("Error al volcar métricas en " + archivo + ": " + e.getMessage());
+            }
+        }, segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    /** Adaptador MXBean sobre el registro. */
+    private static final class Vista implements MetricsMXBean {
+        private final MetricsRegistry registry;
+
+        Vista(MetricsRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Map<String, Long> getContadores() {
+            return registry.getContadores();
+        }
+
+        @Override
+        public Map<String, Long> getGauges() {
+            return registry.getGauges();
+        }
+
+        @Override
+        public Map<String, String> getTimers() {
+            return registry.getTimers();
+        }
+
+        @Override
+        public String volcar() {
+            return registry.volcar();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package Metrics;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de MetricsRegistry.
+ * Registrada como "TrabajoIntegrador:type=Metrics" (visible en JConsole / VisualVM / JMC).
+ */
+public interface MetricsMXBean {
+
+    /** Contadores actuales (nombre con tags → valor). */
+    Map<String, Long> getContadores();
+
+    /** Gauges evaluados al momento de la lectura. */
+    Map<String, Long> getGauges();
+
+    /** Timers resumidos (count, errores, media, p50, p99, max). */
+    Map<String, String> getTimers();
+
+    /** Todas las métricas en el formato del volcado de texto. */
+    String volcar();
+}
@@ -0,0 +1,108 @@
+package Metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro central de métricas de la aplicación (contadores, gauges y timers).
+ *
+ * Diseño:
+ * - Lock-free: ConcurrentHashMap para el registro y LongAdder/atomics para los valores.
+ * - Las métricas se identifican por nombre + tags, con formato estilo Prometheus:
+ *   dao{entidad=usuario,operacion=getById}
+ * - Instancia única global (global()), igual que DataBaseConnection: hay un solo proceso
+ *   y una sola vista de métricas.
+ *
+ * Exportación: ver MetricsExporter (JMX + volcado periódico en texto).
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, LongAdder> contadores = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /** Registro compartido por toda la aplicación. */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    // =======================
+    // Alta / obtención
+    // =======================
+
+    /** Obtiene (o crea) el timer para nombre + entidad + operación. */
+    public Timer timer(String nombre, String entidad, String operacion) {
+        return timers.computeIfAbsent(clave(nombre, entidad, operacion), k -> new Timer());
+    }
+
+    /** Atajo: inicia una medición sobre el timer indicado (usar con try-with-resources). */
+    public Medicion medir(String nombre, String entidad, String operacion) {
+        return timer(nombre, entidad, operacion).iniciar();
+    }
+
+    /** Obtiene (o crea) un contador para nombre + entidad + operación. */
+    public LongAdder contador(String nombre, String entidad, String operacion) {
+        return contadores.computeIfAbsent(clave(nombre, entidad, operacion), k -> new LongAdder());
+    }
+
+    /**
+     * Registra un gauge: un valor que se lee al momento de exportar.
+     * Si ya existía uno con el mismo nombre, se reemplaza.
+     */
+    public void gauge(String nombre, LongSupplier valor) {
+        gauges.put(nombre, valor);
+    }
+
+    // =======================
+    // Lectura / exportación
+    // =======================
+
+    /** Copia ordenada de los contadores actuales. */
+    public Map<String, Long> getContadores() {
+        Map<String, Long> copia = new TreeMap<>();
+        contadores.forEach((k, v) -> copia.put(k, v.sum()));
+        return copia;
+    }
+
+    /** Copia ordenada de los gauges, evaluados en este momento. */
+    public Map<String, Long> getGauges() {
+        Map<String, Long> copia = new TreeMap<>();
+        gauges.forEach((k, v) -> copia.put(k, v.getAsLong()));
+        return copia;
+    }
+
+    /** Copia ordenada de los timers (resumen en texto por timer). */
+    public Map<String, String> getTimers() {
+        Map<String, String> copia = new TreeMap<>();
+        timers.forEach((k, t) -> copia.put(k, resumen(t)));
+        return copia;
+    }
+
+    /** Todas las métricas en texto, una por línea (formato del volcado periódico). */
+    public String volcar() {
+        StringBuilder sb = new StringBuilder();
+        getContadores().forEach((k, v) -> sb.append(k).append(' ').append(v).append('\n'));
+        getGauges().forEach((k, v) -> sb.append(k).append(' ').append(v).append('\n'));
+        getTimers().forEach((k, v) -> sb.append(k).append(' ').append(v).append('\n'));
+        return sb.toString();
+    }
+
+    private static String resumen(Timer t) {
+        return String.format(Locale.ROOT, "count=%d errores=%d media=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                t.getCantidad(), t.getErrores(), t.getPromedioNanos() / 1e6,
+                t.percentil(50) / 1e6, t.percentil(99) / 1e6, t.getMaximoNanos() / 1e6);
+    }
+
+    private static String clave(String nombre, String entidad, String operacion) {
+        return nombre + "{entidad=" + entidad + ",operacion=" + operacion + "}";
+    }
+}
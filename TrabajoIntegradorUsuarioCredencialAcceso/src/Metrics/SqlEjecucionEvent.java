@@ -0,0 +1,33 @@
+package Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR: ejecución de una sentencia SQL de los DAOs.
+ * La duración del evento cubre la ejecución y, en consultas, la lectura del ResultSet
+ * (que es donde el driver hace las lecturas de socket).
+ *
+ * Se emite desde Dao.StatementTracer; visible en JMC bajo "TrabajoIntegrador / JDBC".
+ */
+@Name("trabajointegrador.SqlEjecucion")
+@Label("Ejecución SQL")
+@Category({"TrabajoIntegrador", "JDBC"})
+@Description("Ejecución de una sentencia SQL de un DAO (id de la constante SQL, filas, error)")
+@StackTrace(false)
+public class SqlEjecucionEvent extends jdk.jfr.Event {
+
+    @Label("SQL")
+    @Description("Identificador de la sentencia, ej. usuarios.SELECT_BY_ID_SQL")
+    public String sqlId;
+
+    @Label("Filas")
+    @Description("Filas afectadas (DML) o leídas (SELECT)")
+    public long filas;
+
+    @Label("Error")
+    public boolean error;
+}
@@ -0,0 +1,95 @@
+package Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Temporizador de latencias lock-free.
+ *
+ * Registra:
+ * - cantidad de llamadas y cantidad de errores (LongAdder: sin contención entre hilos)
+ * - suma y máximo de las duraciones
+ * - histograma log-lineal (BucketsLogLineales: 8 sub-buckets por potencia de 2, error relativo
+ *   menor al 12,5%) en un AtomicLongArray, suficiente para p50/p99 aproximados sin locks
+ *
+ * Se obtiene siempre desde MetricsRegistry (no se instancia directamente).
+ */
+public final class Timer {
+
+    private static final BucketsLogLineales BUCKETS = new BucketsLogLineales(3, 40);
+
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder sumaNanos = new LongAdder();
+    private final AtomicLong maximoNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.cantidad());
+
+    Timer() {
+    }
+
+    /**
+     * Registra una ejecución.
+     * @param nanos duración en nanosegundos
+     * @param ok true si terminó sin excepción
+     */
+    public void registrar(long nanos, boolean ok) {
+        long v = Math.max(0, nanos);
+        cantidad.increment();
+        if (!ok) {
+            errores.increment();
+        }
+        sumaNanos.add(v);
+        maximoNanos.accumulateAndGet(v, Math::max);
+        buckets.incrementAndGet(BUCKETS.indice(v));
+    }
+
+    /** Inicia una medición que se registra al cerrarse (usar con try-with-resources). */
+    public Medicion iniciar() {
+        return new Medicion(this);
+    }
+
+    public long getCantidad() {
+        return cantidad.sum();
+    }
+
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    public long getMaximoNanos() {
+        return maximoNanos.get();
+    }
+
+    public double getPromedioNanos() {
+        long n = cantidad.sum();
+        return n == 0 ? 0 : (double) sumaNanos.sum() / n;
+    }
+
+    /**
+     * Percentil aproximado (cota superior del bucket).
+     * La lectura no es atómica respecto de escrituras concurrentes; es suficiente para monitoreo.
+     * @param percentil entre 0 y 100
+     * @return nanosegundos, 0 si no hay registros
+     */
+    public long percentil(double percentil) {
+        long total = 0;
+        long[] copia = new long[buckets.length()];
+        for (int i = 0; i < copia.length; i++) {
+            copia[i] = buckets.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(percentil / 100.0 * total));
+        long acumulado = 0;
+        for (int i = 0; i < copia.length; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) {
+                return Math.min(BUCKETS.limiteSuperior(i), getMaximoNanos());
+            }
+        }
+        return getMaximoNanos();
+    }
+}
@@ -0,0 +1,21 @@
+package Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento JFR: ciclo de vida de una transacción de TransactionManager.
+ * Comienza en startTransaction() y se cierra en commit() o rollback().
+ */
+@Name("trabajointegrador.Transaccion")
+@Label("Transacción")
+@Category({"TrabajoIntegrador", "JDBC"})
+@Description("Transacción desde startTransaction() hasta commit/rollback")
+public class TransaccionEvent extends jdk.jfr.Event {
+
+    @Label("Resultado")
+    @Description("commit, rollback o error")
+    public String resultado;
+}
@@ -28,6 +28,12 @@ public abstract class Base {
      */
     private boolean eliminado;
 
+    /**
+     * Indica que la entidad NO se leyó de la base de datos sino del último valor conocido en
+     * memoria (la BD no respondía). Puede no reflejar cambios recientes. No se persiste.
+     */
+    private boolean obsoleto;
+
     /**
      * Constructor completo con todos los campos.
      * Usado por los DAOs al reconstruir entidades desde la base de datos.
@@ -49,6 +55,17 @@ public abstract class Base {
         this.eliminado = false;
     }
 
+    /**
+     * Constructor de copia de los campos comunes (id, eliminado, obsoleto).
+     *
+     * @param otra Entidad a copiar
+     */
+    protected Base(Base otra) {
+        this.id = otra.id;
+        this.eliminado = otra.eliminado;
+        this.obsoleto = otra.obsoleto;
+    }
+
     /**
      * Obtiene el ID de la entidad.
      * @return ID de la entidad, 0 si aún no ha sido persistida
@@ -84,4 +101,16 @@ public abstract class Base {
     public void setEliminado(boolean eliminado) {
         this.eliminado = eliminado;
     }
+
+    /**
+     * Verifica si la entidad es un valor de respaldo (último conocido) y no una lectura de la BD.
+     * @return true si puede estar desactualizada
+     */
+    public boolean isObsoleto() {
+        return obsoleto;
+    }
+
+    public void setObsoleto(boolean obsoleto) {
+        this.obsoleto = obsoleto;
+    }
 }
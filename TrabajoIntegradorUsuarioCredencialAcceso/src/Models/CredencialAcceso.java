@@ -71,6 +71,15 @@ public class CredencialAcceso extends Base{
         super();
     }
 
+    /** Constructor de copia. */
+    public CredencialAcceso(CredencialAcceso otra) {
+        super(otra);
+        this.hashPassword = otra.hashPassword;
+        this.salt = otra.salt;
+        this.ultimoCambio = otra.ultimoCambio;
+        this.requiereReset = otra.requiereReset;
+    }
+
     // --------------------
     // Getters / Setters
     // --------------------
@@ -80,6 +80,19 @@ public class Usuario extends Base {
         super();
     }
 
+    /**
+     * Constructor de copia (incluye una copia de la credencial).
+     * Lo usan los caches de los DAOs para no compartir instancias mutables.
+     */
+    public Usuario(Usuario otro) {
+        super(otro);
+        this.username = otro.username;
+        this.email = otro.email;
+        this.activo = otro.activo;
+        this.fechaRegistro = otro.fechaRegistro;
+        this.credencial = otro.credencial == null ? null : new CredencialAcceso(otro.credencial);
+    }
+
     // --------------------
     // Getters / Setters
     // --------------------
@@ -0,0 +1,527 @@
+package Service;
+
+import Metrics.MetricsRegistry;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Almacén de sesiones en memoria: emite tokens aleatorios y los valida sin tocar MySQL.
+ *
+ * Almacenamiento fuera del heap:
+ * - Cada sesión ocupa una ranura de 56 bytes en slabs ByteBuffer.allocateDirect de 65536
+ *   ranuras (3,5 MB), que se reservan a medida que hacen falta y se reutilizan con una
+ *   lista de libres. Con millones de sesiones el heap no crece ni hay objetos por sesión
+ *   que el GC tenga que recorrer.
+ * - El token lleva la ranura y su generación (la ranura sube de generación al liberarse):
+ *   validar es O(1), sin tabla hash. El resto del token es un secreto de 192 bits; en la
+ *   ranura sólo se guarda su SHA-256 truncado a 128 bits, que se compara en tiempo constante.
+ *
+ * Vencimiento con rueda temporal jerárquica, enlazada dentro de las mismas ranuras:
+ * - Nivel 0: 256 cubetas de un tick; niveles 1 a 3: 64 cubetas de 256, 256*64 y 256*64*64
+ *   ticks. Con ticks de 1 s cubre ~2 años; un vencimiento más lejano se acota al máximo.
+ * - Cuando el nivel 0 completa una vuelta, la cubeta que toca del nivel 1 se redistribuye
+ *   en el nivel 0 (y así hacia arriba). Cada tick cuesta O(1) más las sesiones que vencen.
+ * - validar() compara el vencimiento exacto: la rueda sólo decide cuándo se libera la ranura.
+ *
+ * Revocación:
+ * - revocar(token) (cierre de sesión) libera la ranura enseguida.
+ * - revocarUsuario(id) invalida todas las sesiones emitidas hasta ese momento para el usuario
+ *   (por ejemplo, al cambiar la contraseña) sin recorrerlas: cada sesión guarda su número de
+ *   emisión y se compara con el de la revocación. Sus ranuras se liberan al vencer.
+ *
+ * Concurrencia: validar() es una lectura optimista con StampedLock (no bloquea ni escribe
+ * memoria compartida salvo las métricas); emitir, revocar y el tick toman el lock de escritura.
+ *
+ * Configuración: -Dauth.sesiones.max (1000000), -Dauth.sesiones.ttlMin (30),
+ * -Dauth.sesiones.tickMs (1000). La memoria directa se limita con -XX:MaxDirectMemorySize
+ * (por defecto, igual al heap máximo): 1.000.000 de sesiones ocupan ~56 MB.
+ *
+ * Métricas: sesion{entidad=sesion,operacion=emitidas|validas|invalidas|revocadas|expiradas|rechazadas}
+ * y gauges sesion.activas / sesion.bytesDirectos.
+ */
+public final class AlmacenSesiones implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "sesion";
+
+    // Formato de una ranura
+    private static final int OFF_GENERACION = 0;   // int: sube cada vez que la ranura se libera
+    private static final int OFF_USUARIO = 4;      // int
+    private static final int OFF_EMISION = 8;      // long: número de emisión (0 = libre)
+    private static final int OFF_EXPIRA = 16;      // long: vencimiento en ms epoch
+    private static final int OFF_SIGUIENTE = 24;   // int: siguiente en la cubeta o en la lista de libres
+    private static final int OFF_ANTERIOR = 28;    // int: anterior en la cubeta
+    private static final int OFF_CUBETA = 32;      // int: cubeta de la rueda
+    private static final int OFF_DIGEST = 40;      // 16 bytes: SHA-256 truncado del secreto
+    private static final int TAM_RANURA = 56;
+
+    private static final int BITS_SLAB = 16;
+    private static final int RANURAS_POR_SLAB = 1 << BITS_SLAB;
+
+    private static final int SECRETO_BYTES = 24;
+    private static final int TOKEN_BYTES = 8 + SECRETO_BYTES;
+    private static final int NINGUNO = -1;
+
+    // Rueda: nivel 0 de 2^8 cubetas, niveles 1..3 de 2^6
+    private static final int BITS_N0 = 8;
+    private static final int BITS_N = 6;
+    private static final int CUBETAS_N0 = 1 << BITS_N0;
+    private static final int CUBETAS_N = 1 << BITS_N;
+    private static final int NIVELES = 4;
+    private static final long ALCANCE = 1L << (BITS_N0 + (NIVELES - 1) * BITS_N);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible en esta JVM", e);
+        }
+    });
+
+    /** Revocación de un usuario: sesiones con emisión menor o igual quedan inválidas. */
+    private record Revocacion(long emision, long ms) {
+    }
+
+    private final int capacidad;
+    private final long ttlMs;
+    private final long tickMs;
+    private final ByteBuffer[] slabs;
+    private final int[] cabezas = new int[CUBETAS_N0 + (NIVELES - 1) * CUBETAS_N];
+    private final ConcurrentHashMap<Integer, Revocacion> revocaciones = new ConcurrentHashMap<>();
+    private final StampedLock lock = new StampedLock();
+
+    // Protegidos por el lock de escritura
+    private int tope;
+    private int libres = NINGUNO;
+    private int activas;
+    private long emisiones;
+    private long tickActual;
+
+    private final LongAdder emitidas = METRICS.contador("sesion", ENTIDAD, "emitidas");
+    private final LongAdder validas = METRICS.contador("sesion", ENTIDAD, "validas");
+    private final LongAdder invalidas = METRICS.contador("sesion", ENTIDAD, "invalidas");
+    private final LongAdder revocadas = METRICS.contador("sesion", ENTIDAD, "revocadas");
+    private final LongAdder expiradas = METRICS.contador("sesion", ENTIDAD, "expiradas");
+    private final LongAdder rechazadas = METRICS.contador("sesion", ENTIDAD, "rechazadas");
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param capacidad sesiones activas como máximo
+     * @param ttl duración de una sesión
+     * @param tickMs resolución de la rueda (y período del vencimiento)
+     */
+    public AlmacenSesiones(int capacidad, Duration ttl, long tickMs) {
+        if (capacidad <= 0 || ttl == null || ttl.isNegative() || ttl.isZero() || tickMs <= 0) {
+            throw new IllegalArgumentException("La capacidad, el TTL y el tick deben ser mayores a 0");
+        }
+        this.capacidad = capacidad;
+        this.ttlMs = ttl.toMillis();
+        this.tickMs = tickMs;
+        this.slabs = new ByteBuffer[(capacidad + RANURAS_POR_SLAB - 1) / RANURAS_POR_SLAB];
+        Arrays.fill(cabezas, NINGUNO);
+        this.tickActual = System.currentTimeMillis() / tickMs;
+        METRICS.gauge("sesion.activas", this::getActivas);
+        METRICS.gauge("sesion.bytesDirectos", this::getBytesDirectos);
+    }
+
+    /** Almacén configurado por system properties, con el vencimiento ya iniciado. */
+    public static AlmacenSesiones desdePropiedades() {
+        AlmacenSesiones almacen = new AlmacenSesiones(Integer.getInteger("auth.sesiones.max", 1_000_000),
+                Duration.ofMinutes(Integer.getInteger("auth.sesiones.ttlMin", 30)),
+                Long.getLong("auth.sesiones.tickMs", 1000L));
+        almacen.iniciar();
+        return almacen;
+    }
+
+    // ============================================================
+    // Operaciones
+    // ============================================================
+
+    /**
+     * Emite una sesión para el usuario.
+     * @return token opaco (Base64 URL-safe, 43 caracteres)
+     * @throws IllegalStateException si se alcanzó la capacidad
+     */
+    public String emitir(int usuarioId) {
+        byte[] secreto = new byte[SECRETO_BYTES];
+        RANDOM.nextBytes(secreto);
+        long[] digest = digest(secreto, 0);
+        long ahora = System.currentTimeMillis();
+        int ranura;
+        int generacion;
+        long stamp = lock.writeLock();
+        try {
+            ranura = reservar();
+            ByteBuffer s = slab(ranura);
+            int base = base(ranura);
+            generacion = s.getInt(base + OFF_GENERACION);
+            s.putInt(base + OFF_USUARIO, usuarioId);
+            s.putLong(base + OFF_EMISION, ++emisiones);
+            s.putLong(base + OFF_EXPIRA, ahora + ttlMs);
+            s.putLong(base + OFF_DIGEST, digest[0]);
+            s.putLong(base + OFF_DIGEST + 8, digest[1]);
+            programar(ranura, tickDe(ahora + ttlMs));
+            activas++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        emitidas.increment();
+        ByteBuffer token = ByteBuffer.allocate(TOKEN_BYTES).putInt(ranura).putInt(generacion).put(secreto);
+        Arrays.fill(secreto, (byte) 0);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.array());
+    }
+
+    /**
+     * Valida un token.
+     * @return id del usuario de la sesión, o -1 si el token no existe, venció o fue revocado
+     */
+    public int validar(String token) {
+        byte[] bytes = decodificar(token);
+        if (bytes == null) {
+            invalidas.increment();
+            return -1;
+        }
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        int ranura = b.getInt(0);
+        int generacion = b.getInt(4);
+        long[] digest = digest(bytes, 8);
+        long ahora = System.currentTimeMillis();
+
+        long[] sesion = new long[2];
+        long stamp = lock.tryOptimisticRead();
+        boolean encontrada = leer(ranura, generacion, digest, ahora, sesion);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                encontrada = leer(ranura, generacion, digest, ahora, sesion);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        int usuarioId = (int) sesion[0];
+        if (!encontrada || revocada(usuarioId, sesion[1])) {
+            invalidas.increment();
+            return -1;
+        }
+        validas.increment();
+        return usuarioId;
+    }
+
+    /**
+     * Cierra una sesión y libera su ranura.
+     * @return false si el token no correspondía a una sesión activa
+     */
+    public boolean revocar(String token) {
+        byte[] bytes = decodificar(token);
+        if (bytes == null) {
+            return false;
+        }
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        int ranura = b.getInt(0);
+        int generacion = b.getInt(4);
+        long[] digest = digest(bytes, 8);
+        long stamp = lock.writeLock();
+        try {
+            if (!leer(ranura, generacion, digest, Long.MIN_VALUE, new long[2])) {
+                return false;
+            }
+            quitar(ranura);
+            liberar(ranura);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        revocadas.increment();
+        return true;
+    }
+
+    /** Invalida todas las sesiones emitidas hasta ahora para el usuario. */
+    public void revocarUsuario(int usuarioId) {
+        long stamp = lock.writeLock();
+        try {
+            revocaciones.put(usuarioId, new Revocacion(emisiones, System.currentTimeMillis()));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Avanza la rueda hasta ahoraMs liberando las sesiones vencidas, y descarta las
+     * revocaciones de usuario más viejas que el TTL (ya no queda ninguna sesión afectada).
+     * @return sesiones liberadas
+     */
+    public int vencer(long ahoraMs) {
+        int liberadas = 0;
+        long hasta = ahoraMs / tickMs;
+        long stamp = lock.writeLock();
+        try {
+            while (tickActual < hasta) {
+                tickActual++;
+                cascada(tickActual);
+                liberadas += vaciar(tickActual & (CUBETAS_N0 - 1));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        revocaciones.values().removeIf(r -> ahoraMs - r.ms() > ttlMs);
+        expiradas.add(liberadas);
+        return liberadas;
+    }
+
+    /** Vence sesiones cada tick en un hilo daemon ("sesiones-vencimiento"). */
+    public synchronized void iniciar() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sesiones-vencimiento");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> vencer(System.currentTimeMillis()), tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Detiene el vencimiento y suelta los slabs (las sesiones dejan de ser válidas). */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(slabs, null);
+            Arrays.fill(cabezas, NINGUNO);
+            tope = 0;
+            libres = NINGUNO;
+            activas = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    public int getActivas() {
+        long stamp = lock.readLock();
+        try {
+            return activas;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Memoria directa reservada por los slabs. */
+    public long getBytesDirectos() {
+        long stamp = lock.readLock();
+        try {
+            return (long) ((tope + RANURAS_POR_SLAB - 1) / RANURAS_POR_SLAB) * RANURAS_POR_SLAB * TAM_RANURA;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ============================================================
+    // Ranuras
+    // ============================================================
+
+    /**
+     * Lee la sesión de la ranura si coincide con el token (generación y digest) y no venció.
+     * Tolera lecturas concurrentes con escrituras (el caller valida el stamp): nunca lanza.
+     * @param sesion salida: [0] = id del usuario, [1] = número de emisión
+     */
+    private boolean leer(int ranura, int generacion, long[] digest, long ahora, long[] sesion) {
+        if (ranura < 0 || ranura >= capacidad) {
+            return false;
+        }
+        ByteBuffer s = slabs[ranura >>> BITS_SLAB];
+        if (s == null) {
+            return false;
+        }
+        int base = base(ranura);
+        long emision = s.getLong(base + OFF_EMISION);
+        long distinto = (s.getLong(base + OFF_DIGEST) ^ digest[0]) | (s.getLong(base + OFF_DIGEST + 8) ^ digest[1]);
+        if (s.getInt(base + OFF_GENERACION) != generacion || emision == 0 || distinto != 0
+                || s.getLong(base + OFF_EXPIRA) <= ahora) {
+            return false;
+        }
+        sesion[0] = s.getInt(base + OFF_USUARIO);
+        sesion[1] = emision;
+        return true;
+    }
+
+    /** true si la sesión es anterior a una revocación del usuario. */
+    private boolean revocada(int usuarioId, long emision) {
+        Revocacion r = revocaciones.get(usuarioId);
+        return r != null && emision <= r.emision();
+    }
+
+    /** Ranura libre (reutilizada o nueva, reservando un slab si hace falta). */
+    private int reservar() {
+        if (libres != NINGUNO) {
+            int ranura = libres;
+            libres = slab(ranura).getInt(base(ranura) + OFF_SIGUIENTE);
+            return ranura;
+        }
+        if (tope >= capacidad) {
+            rechazadas.increment();
+            throw new IllegalStateException("Se alcanzó el máximo de sesiones activas (" + capacidad + ")");
+        }
+        int ranura = tope++;
+        if (slabs[ranura >>> BITS_SLAB] == null) {
+            slabs[ranura >>> BITS_SLAB] = ByteBuffer.allocateDirect(RANURAS_POR_SLAB * TAM_RANURA);
+        }
+        return ranura;
+    }
+
+    /** Devuelve la ranura a la lista de libres con una generación nueva (invalida el token). */
+    private void liberar(int ranura) {
+        ByteBuffer s = slab(ranura);
+        int base = base(ranura);
+        s.putInt(base + OFF_GENERACION, s.getInt(base + OFF_GENERACION) + 1);
+        s.putLong(base + OFF_EMISION, 0);
+        s.putLong(base + OFF_DIGEST, 0);
+        s.putLong(base + OFF_DIGEST + 8, 0);
+        s.putInt(base + OFF_SIGUIENTE, libres);
+        libres = ranura;
+        activas--;
+    }
+
+    private ByteBuffer slab(int ranura) {
+        return slabs[ranura >>> BITS_SLAB];
+    }
+
+    private static int base(int ranura) {
+        return (ranura & (RANURAS_POR_SLAB - 1)) * TAM_RANURA;
+    }
+
+    // ============================================================
+    // Rueda jerárquica
+    // ============================================================
+
+    /** Tick en que la sesión ya venció (redondeo hacia arriba). */
+    private long tickDe(long ms) {
+        return (ms + tickMs - 1) / tickMs;
+    }
+
+    /** Enlaza la ranura en la cubeta que corresponde a su tick de vencimiento. */
+    private void programar(int ranura, long tick) {
+        long t = Math.max(tick, tickActual + 1);
+        long delta = t - tickActual;
+        if (delta >= ALCANCE) {
+            t = tickActual + ALCANCE - 1;
+            delta = ALCANCE - 1;
+        }
+        int cubeta;
+        if (delta < CUBETAS_N0) {
+            cubeta = (int) (t & (CUBETAS_N0 - 1));
+        } else {
+            int nivel = 1;
+            int bits = BITS_N0 + BITS_N;
+            while (delta >= 1L << bits) {
+                nivel++;
+                bits += BITS_N;
+            }
+            int desplazamiento = bits - BITS_N;
+            cubeta = CUBETAS_N0 + (nivel - 1) * CUBETAS_N + (int) ((t >>> desplazamiento) & (CUBETAS_N - 1));
+        }
+        ByteBuffer s = slab(ranura);
+        int base = base(ranura);
+        int cabeza = cabezas[cubeta];
+        s.putInt(base + OFF_SIGUIENTE, cabeza);
+        s.putInt(base + OFF_ANTERIOR, NINGUNO);
+        s.putInt(base + OFF_CUBETA, cubeta);
+        if (cabeza != NINGUNO) {
+            slab(cabeza).putInt(base(cabeza) + OFF_ANTERIOR, ranura);
+        }
+        cabezas[cubeta] = ranura;
+    }
+
+    /** Desenlaza la ranura de su cubeta. */
+    private void quitar(int ranura) {
+        ByteBuffer s = slab(ranura);
+        int base = base(ranura);
+        int siguiente = s.getInt(base + OFF_SIGUIENTE);
+        int anterior = s.getInt(base + OFF_ANTERIOR);
+        if (anterior == NINGUNO) {
+            cabezas[s.getInt(base + OFF_CUBETA)] = siguiente;
+        } else {
+            slab(anterior).putInt(base(anterior) + OFF_SIGUIENTE, siguiente);
+        }
+        if (siguiente != NINGUNO) {
+            slab(siguiente).putInt(base(siguiente) + OFF_ANTERIOR, anterior);
+        }
+    }
+
+    /** Al completar una vuelta de un nivel, redistribuye la cubeta que toca del nivel superior. */
+    private void cascada(long tick) {
+        int bits = BITS_N0;
+        for (int nivel = 1; nivel < NIVELES && (tick & ((1L << bits) - 1)) == 0; nivel++) {
+            int cubeta = CUBETAS_N0 + (nivel - 1) * CUBETAS_N + (int) ((tick >>> bits) & (CUBETAS_N - 1));
+            int ranura = cabezas[cubeta];
+            cabezas[cubeta] = NINGUNO;
+            while (ranura != NINGUNO) {
+                ByteBuffer s = slab(ranura);
+                int base = base(ranura);
+                int siguiente = s.getInt(base + OFF_SIGUIENTE);
+                programar(ranura, tickDe(s.getLong(base + OFF_EXPIRA)));
+                ranura = siguiente;
+            }
+            bits += BITS_N;
+        }
+    }
+
+    /** Libera todas las sesiones de una cubeta del nivel 0 (su tick ya llegó). */
+    private int vaciar(long indice) {
+        int cubeta = (int) indice;
+        int ranura = cabezas[cubeta];
+        cabezas[cubeta] = NINGUNO;
+        int liberadas = 0;
+        while (ranura != NINGUNO) {
+            int siguiente = slab(ranura).getInt(base(ranura) + OFF_SIGUIENTE);
+            liberar(ranura);
+            liberadas++;
+            ranura = siguiente;
+        }
+        return liberadas;
+    }
+
+    // ============================================================
+    // Tokens
+    // ============================================================
+
+    private static byte[] decodificar(String token) {
+        if (token == null || token.length() != 43) {
+            return null;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            return bytes.length == TOKEN_BYTES ? bytes : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** SHA-256 de los bytes desde desde, truncado a 128 bits (dos longs). */
+    private static long[] digest(byte[] bytes, int desde) {
+        MessageDigest md = SHA256.get();
+        md.update(bytes, desde, bytes.length - desde);
+        ByteBuffer d = ByteBuffer.wrap(md.digest());
+        return new long[]{d.getLong(0), d.getLong(8)};
+    }
+}
@@ -0,0 +1,151 @@
+package Service;
+
+import Dao.ArchivadoDAO;
+import Metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Archivo de usuarios y credenciales eliminados lógicamente hace más de N días.
+ *
+ * - Mueve las filas a usuarios_archivo / credenciales_acceso_archivo con ArchivadoDAO, de a
+ *   lote filas por transacción y con pausaMs entre transacciones: cada transacción bloquea
+ *   pocas filas durante poco tiempo.
+ * - Primero los usuarios y después las credenciales: así las credenciales de los usuarios
+ *   recién archivados dejan de estar referenciadas y pueden archivarse en la misma pasada.
+ * - La credencial todavía activa de un usuario archivado se da de baja en la misma transacción
+ *   y se archiva cuando cumple su propia antigüedad.
+ * - Las tablas activas quedan sólo con filas vivas y las recientemente eliminadas; los filtros
+ *   eliminado = FALSE dejan de pagar por el historial.
+ * - Los DAOs no cambian: nunca devolvían filas eliminadas. Las archivadas se consultan
+ *   explícitamente con ArchivadoDAO.
+ * - Cada pasada informa el resumen por stdout.
+ *
+ * Configuración: -Dmantenimiento.archivo.dias (90), -Dmantenimiento.archivo.lote (500),
+ * -Dmantenimiento.archivo.pausaMs (200), -Dmantenimiento.archivo.periodoHoras (24).
+ *
+ * Métricas: mantenimiento{entidad=archivo,operacion=usuarios|credenciales|errores}.
+ */
+public final class Archivador implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "archivo";
+
+    /** Totales de una pasada. */
+    public record Resumen(int usuarios, int credenciales) {
+    }
+
+    private final ArchivadoDAO dao;
+    private final Duration antiguedad;
+    private final int lote;
+    private final long pausaMs;
+
+    private final LongAdder usuarios = METRICS.contador("mantenimiento", ENTIDAD, "usuarios");
+    private final LongAdder credenciales = METRICS.contador("mantenimiento", ENTIDAD, "credenciales");
+    private final LongAdder errores = METRICS.contador("mantenimiento", ENTIDAD, "errores");
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param dao movimiento al archivo
+     * @param antiguedad tiempo mínimo desde la baja lógica
+     * @param lote filas por transacción
+     * @param pausaMs espera entre transacciones
+     */
+    public Archivador(ArchivadoDAO dao, Duration antiguedad, int lote, long pausaMs) {
+        if (dao == null || antiguedad == null) {
+            throw new IllegalArgumentException("El DAO y la antigüedad no pueden ser null");
+        }
+        if (antiguedad.isNegative() || lote <= 0 || pausaMs < 0) {
+            throw new IllegalArgumentException("El lote debe ser mayor a 0, y la antigüedad y la pausa no pueden ser negativas");
+        }
+        this.dao = dao;
+        this.antiguedad = antiguedad;
+        this.lote = lote;
+        this.pausaMs = pausaMs;
+    }
+
+    /** Archivador configurado por system properties (ver javadoc de la clase). */
+    public static Archivador desdePropiedades(ArchivadoDAO dao) {
+        return new Archivador(dao,
+                Duration.ofDays(Integer.getInteger("mantenimiento.archivo.dias", 90)),
+                Integer.getInteger("mantenimiento.archivo.lote", 500),
+                Long.getLong("mantenimiento.archivo.pausaMs", 200L));
+    }
+
+    /**
+     * Archiva todo lo eliminado antes de ahora - antigüedad.
+     * @throws InterruptedException si se interrumpe durante una pausa
+     */
+    public Resumen ejecutar() throws Exception {
+        LocalDateTime limite = LocalDateTime.now().minus(antiguedad);
+        int totalUsuarios = 0;
+        int n;
+        do {
+            n = dao.archivarUsuarios(limite, lote).size();
+            totalUsuarios += n;
+            usuarios.add(n);
+            pausar(n);
+        } while (n == lote);
+        int totalCredenciales = 0;
+        do {
+            n = dao.archivarCredenciales(limite, lote).size();
+            totalCredenciales += n;
+            credenciales.add(n);
+            pausar(n);
+        } while (n == lote);
+        return new Resumen(totalUsuarios, totalCredenciales);
+    }
+
+    /**
+     * Una pasada al iniciar y luego una por período, en un hilo daemon ("archivador").
+     * @param periodoMs espera entre pasadas (0 = una sola pasada)
+     */
+    public synchronized void iniciar(long periodoMs) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "archivador");
+            t.setDaemon(true);
+            return t;
+        });
+        if (periodoMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::ejecutarSeguro, 0, periodoMs, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler.execute(this::ejecutarSeguro);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /** Pausa entre transacciones, sólo si quedó algo por mover. */
+    private void pausar(int movidas) throws InterruptedException {
+        if (movidas == lote && pausaMs > 0) {
+            Thread.sleep(pausaMs);
+        }
+    }
+
+    private void ejecutarSeguro() {
+        try {
+            Resumen r = ejecutar();
+            System.out.printf("Archivo: %d usuarios y %d credenciales movidos%n", r.usuarios(), r.credenciales());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            errores.increment();
+            System.err.println("Archivador: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package Service;
+
+import Dao.AuditoriaDAO;
+import Dao.AuditoriaDAO.Registro;
+import Metrics.MetricsRegistry;
+import Models.CredencialAcceso;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Auditoría asíncrona de los cambios de credenciales (tabla auditoria_credenciales).
+ *
+ * - registrar() arma el registro (quién, qué, cuándo, antes y después) y lo encola con
+ *   offer(): nunca bloquea ni hace I/O en el hilo de la operación.
+ * - Escritores: CredencialAccesoServiceImpl (altas, modificaciones, bajas y el rehash al
+ *   iniciar sesión), MigracionHashes (registrarRehash) y VencimientoCredenciales
+ *   (registrarVencimiento) y RecolectorHuerfanas (registrarRecoleccion), que escriben por
+ *   RehashDAO / VencimientoDAO / HuerfanasDAO sin pasar por el servicio.
+ * - Un único hilo ("auditoria-escritor") vacía la cola de a lote registros y los inserta con
+ *   un JDBC batch por transacción (AuditoriaDAO.insertarLote).
+ * - Si la BD falla, el lote se reintenta cada reintentoMs sin perderse; mientras tanto la
+ *   cola sigue aceptando registros hasta su capacidad. Con la cola llena el registro se
+ *   descarta (métrica descartados y aviso por stderr): la operación nunca espera a la auditoría.
+ * - close() (y el shutdown hook, si el proceso termina sin cerrar) deja de aceptar registros
+ *   y espera hasta cierreMs a que se escriba todo lo encolado.
+ * - Secretos: antes/despues describen el esquema y costo del hash (o "legado"),
+ *   requiere_reset, ultimo_cambio y eliminado. Nunca el hash ni el salt.
+ *
+ * Configuración: -Dauth.auditoria=false (habilita la auditoría), -Dauth.auditoria.actor
+ * (default usuario del sistema operativo), -Dauth.auditoria.capacidad (10000),
+ * -Dauth.auditoria.lote (200), -Dauth.auditoria.reintentoMs (1000), -Dauth.auditoria.cierreMs (10000).
+ *
+ * Métricas: auditoria{entidad=credencial,operacion=encolados|escritos|descartados|perdidos|errores}
+ * y gauge auditoria.credencial.enCola.
+ */
+public final class AuditoriaCredenciales implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "credencial";
+
+    /** Tipo de cambio auditado. */
+    public enum Accion {
+        ALTA,
+        /** Cambio de requiere_reset o ultimo_cambio sin cambiar la contraseña. */
+        MODIFICACION,
+        CAMBIO_CONTRASENA,
+        /**
+         * Mismo password con otro esquema/costo (al iniciar sesión o en MigracionHashes), o
+         * requiere_reset marcado por MigracionHashes sobre un legado que no se puede migrar.
+         */
+        REHASH,
+        /** requiere_reset marcado por VencimientoCredenciales (contraseña vencida). */
+        VENCIMIENTO,
+        BAJA,
+        /** Borrado físico de una huérfana que RecolectorHuerfanas había dado de baja. */
+        PURGA
+    }
+
+    private final AuditoriaDAO dao;
+    private final String actor;
+    private final int lote;
+    private final long reintentoMs;
+    private final long cierreMs;
+    private final ArrayBlockingQueue<Registro> cola;
+
+    private final LongAdder encolados = METRICS.contador("auditoria", ENTIDAD, "encolados");
+    private final LongAdder escritos = METRICS.contador("auditoria", ENTIDAD, "escritos");
+    private final LongAdder descartados = METRICS.contador("auditoria", ENTIDAD, "descartados");
+    private final LongAdder perdidos = METRICS.contador("auditoria", ENTIDAD, "perdidos");
+    private final LongAdder errores = METRICS.contador("auditoria", ENTIDAD, "errores");
+
+    private volatile boolean cerrada;
+    /** Instante (nanoTime) hasta el que se reintenta después de cerrar. */
+    private volatile long limiteCierre;
+    private Thread escritor;
+    private Thread cierre;
+
+    /**
+     * @param dao escritura de los registros
+     * @param actor quién figura como autor de los cambios
+     * @param capacidad registros en cola como máximo
+     * @param lote registros por transacción
+     * @param reintentoMs espera entre reintentos de un lote fallido
+     * @param cierreMs espera máxima al cerrar
+     */
+    public AuditoriaCredenciales(AuditoriaDAO dao, String actor, int capacidad, int lote, long reintentoMs, long cierreMs) {
+        if (dao == null || actor == null || actor.isBlank()) {
+            throw new IllegalArgumentException("El DAO y el actor no pueden ser null ni vacíos");
+        }
+        if (capacidad <= 0 || lote <= 0 || reintentoMs <= 0 || cierreMs < 0) {
+            throw new IllegalArgumentException("Capacidad, lote y reintento deben ser mayores a 0, y el cierre no puede ser negativo");
+        }
+        this.dao = dao;
+        this.actor = actor;
+        this.lote = lote;
+        this.reintentoMs = reintentoMs;
+        this.cierreMs = cierreMs;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        METRICS.gauge("auditoria.credencial.enCola", cola::size);
+    }
+
+    /**
+     * Auditoría configurada por system properties (ver javadoc de la clase).
+     * @return null si auth.auditoria no está habilitado
+     */
+    public static AuditoriaCredenciales desdePropiedades(AuditoriaDAO dao) {
+        if (!Boolean.getBoolean("auth.auditoria")) {
+            return null;
+        }
+        return new AuditoriaCredenciales(dao,
+                System.getProperty("auth.auditoria.actor", System.getProperty("user.name", "desconocido")),
+                Integer.getInteger("auth.auditoria.capacidad", 10_000),
+                Integer.getInteger("auth.auditoria.lote", 200),
+                Long.getLong("auth.auditoria.reintentoMs", 1000L),
+                Long.getLong("auth.auditoria.cierreMs", 10_000L));
+    }
+
+    /**
+     * Encola el registro de un cambio. No bloquea.
+     * @param antes estado anterior (null en un alta o si no se conoce)
+     * @param despues estado posterior (null si no se conoce)
+     * @return false si la auditoría está cerrada o la cola está llena (registro descartado)
+     */
+    public boolean registrar(Accion accion, int credencialId, CredencialAcceso antes, CredencialAcceso despues) {
+        return encolar(new Registro(credencialId, accion.name(), actor, LocalDateTime.now(),
+                describir(antes), describir(despues)));
+    }
+
+    /**
+     * Encola un reemplazo de hash (rehash o marca de reset) sin leer la credencial. No bloquea.
+     * @return false si la auditoría está cerrada o la cola está llena (registro descartado)
+     */
+    public boolean registrarRehash(int credencialId, String hashAnterior, String hashNuevo, boolean marcarReset) {
+        String despues = "esquema=" + esquema(hashNuevo) + (marcarReset ? "; requiere_reset=true" : "");
+        return encolar(new Registro(credencialId, Accion.REHASH.name(), actor, LocalDateTime.now(),
+                "esquema=" + esquema(hashAnterior), despues));
+    }
+
+    /**
+     * Encola la marca de requiere_reset de una contraseña vencida. No bloquea.
+     * @return false si la auditoría está cerrada o la cola está llena (registro descartado)
+     */
+    public boolean registrarVencimiento(int credencialId) {
+        return encolar(new Registro(credencialId, Accion.VENCIMIENTO.name(), actor, LocalDateTime.now(),
+                "requiere_reset=false", "requiere_reset=true"));
+    }
+
+    /**
+     * Encola la baja (o el borrado físico) de una credencial huérfana por RecolectorHuerfanas. No bloquea.
+     * @param purga true = borrado físico (PURGA), false = baja lógica (BAJA)
+     * @return false si la auditoría está cerrada o la cola está llena (registro descartado)
+     */
+    public boolean registrarRecoleccion(int credencialId, boolean purga) {
+        return purga
+                ? encolar(new Registro(credencialId, Accion.PURGA.name(), actor, LocalDateTime.now(),
+                        "eliminado=true; huerfana=true", null))
+                : encolar(new Registro(credencialId, Accion.BAJA.name(), actor, LocalDateTime.now(),
+                        "eliminado=false", "eliminado=true; huerfana=true"));
+    }
+
+    /** Inicia el hilo escritor (daemon) y el shutdown hook que vacía la cola al terminar. */
+    public synchronized void iniciar() {
+        if (escritor != null || cerrada) {
+            return;
+        }
+        escritor = new Thread(this::escribir, "auditoria-escritor");
+        escritor.setDaemon(true);
+        escritor.start();
+        cierre = new Thread(this::detenerYEsperar, "auditoria-cierre");
+        Runtime.getRuntime().addShutdownHook(cierre);
+    }
+
+    /** Deja de aceptar registros y espera (hasta cierreMs) a que se escriba lo encolado. */
+    @Override
+    public synchronized void close() {
+        if (cierre != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(cierre);
+            } catch (IllegalStateException e) {
+                // El proceso ya está terminando: el hook hace la espera
+            }
+            cierre = null;
+        }
+        detenerYEsperar();
+    }
+
+    /** Registros esperando ser escritos. */
+    public int getEnCola() {
+        return cola.size();
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    private boolean encolar(Registro r) {
+        if (cerrada) {
+            descartados.increment();
+            return false;
+        }
+        if (!cola.offer(r)) {
+            descartados.increment();
+            System.err.println("Auditoría de credenciales: cola llena, se descartó " + r.accion() + " de la credencial " + r.credencialId());
+            return false;
+        }
+        encolados.increment();
+        return true;
+    }
+
+    /** Bucle del hilo escritor: termina cuando se cerró y la cola quedó vacía. */
+    private void escribir() {
+        List<Registro> lista = new ArrayList<>(lote);
+        while (!cerrada || !cola.isEmpty()) {
+            try {
+                Registro r = cola.poll(200, TimeUnit.MILLISECONDS);
+                if (r == null) {
+                    continue;
+                }
+                lista.add(r);
+                cola.drainTo(lista, lote - 1);
+                escribirLote(lista);
+                lista.clear();
+            } catch (InterruptedException e) {
+                // Sólo se interrumpe al vencer la espera del cierre
+                perdidos.add(lista.size() + cola.size());
+                return;
+            }
+        }
+    }
+
+    /** Inserta el lote, reintentando hasta que funcione o venza la espera del cierre. */
+    private void escribirLote(List<Registro> lista) throws InterruptedException {
+        while (true) {
+            try {
+                dao.insertarLote(lista);
+                escritos.add(lista.size());
+                return;
+            } catch (Exception e) {
+                errores.increment();
+                if (cerrada && System.nanoTime() - limiteCierre > 0) {
+                    perdidos.add(lista.size());
+                    System.err.println("Auditoría de credenciales: se perdieron " + lista.size() + " registros al cerrar: " + e.getMessage());
+                    return;
+                }
+                System.err.println("Auditoría de credenciales (se reintenta): " + e.getMessage());
+                Thread.sleep(reintentoMs);
+            }
+        }
+    }
+
+    private void detenerYEsperar() {
+        Thread t;
+        synchronized (this) {
+            if (!cerrada) {
+                limiteCierre = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cierreMs);
+                cerrada = true;
+            }
+            t = escritor;
+        }
+        if (t == null) {
+            return;
+        }
+        try {
+            t.join(Math.max(cierreMs, 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (t.isAlive()) {
+            t.interrupt();
+            System.err.println("Auditoría de credenciales: el cierre venció con " + cola.size() + " registros sin escribir");
+        }
+    }
+
+    /** Estado de la credencial sin secretos. */
+    private static String describir(CredencialAcceso c) {
+        if (c == null) {
+            return null;
+        }
+        return "esquema=" + esquema(c.getHashPassword())
+                + "; requiere_reset=" + c.isRequiereReset()
+                + "; ultimo_cambio=" + c.getUltimoCambio()
+                + "; eliminado=" + c.isEliminado();
+    }
+
+    /** Esquema y costo del hash ("pbkdf2_sha256$310000"), o "legado". Nunca la clave derivada. */
+    private static String esquema(String hash) {
+        if (hash == null) {
+            return "sin hash";
+        }
+        if (PasswordHasher.esLegado(hash)) {
+            return "legado";
+        }
+        int fin = hash.lastIndexOf('$');
+        return fin > 0 ? hash.substring(0, fin) : "desconocido";
+    }
+}
@@ -0,0 +1,395 @@
+package Service;
+
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
+import Models.CredencialAcceso;
+import Models.Usuario;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servicio de autenticación: inicio de sesión y cambio de contraseña sobre las credenciales.
+ *
+ * - Las contraseñas se derivan con PasswordHasher (PBKDF2 con el salt de la credencial).
+ * - El hashing corre en un pool dedicado de tamaño fijo (por defecto, un hilo por núcleo)
+ *   con cola acotada: una ráfaga de logins ocupa como máximo esos núcleos y el resto de la
+ *   JVM sigue respondiendo. Si la cola está llena, el intento se rechaza enseguida con
+ *   RejectedExecutionException en lugar de acumular trabajo.
+ * - Antes de leer la BD o hashear, LimitadorLogin controla los intentos por username y por
+ *   origen: un intento bloqueado no cuesta CPU ni conexiones.
+ * - Un username inexistente también paga un hash completo, para que el tiempo de respuesta
+ *   no revele qué usuarios existen.
+ * - Las contraseñas se reciben como char[] y se borran al terminar.
+ * - Sesiones: iniciarSesion() emite un token en AlmacenSesiones (fuera del heap, sin MySQL);
+ *   validarSesion() lo resuelve al id del usuario. Cambiar la contraseña revoca todas las
+ *   sesiones del usuario.
+ * - Rehash al iniciar sesión: si la contraseña es correcta y el hash guardado es de legado o
+ *   usa otro esquema/costo (PasswordHasher.requiereRehash), se recalcula en el mismo pool
+ *   DESPUÉS de responder, y se guarda con un compare-and-set (reemplazarHash): si la
+ *   contraseña cambió entretanto, el rehash se descarta. Si el pool está lleno se omite; el
+ *   próximo login lo vuelve a intentar.
+ * - Actividad: con un RegistroActividad, cada login correcto y cada contraseña incorrecta de
+ *   un usuario existente se acumulan en memoria y se escriben en usuarios de a lotes
+ *   (ultimo_login, intentos_fallidos), sin sumar una escritura por login.
+ *
+ * Configuración: -Dauth.pbkdf2.iteraciones (310000), -Dauth.hash.esquema (pbkdf2_sha256),
+ * -Dauth.hash.hilos (núcleos), -Dauth.hash.cola (64).
+ *
+ * Métricas: auth{entidad=login,operacion=ok|requiereReset|invalidas|inactivo|bloqueados},
+ * auth{entidad=hash,operacion=rechazos}, auth{entidad=rehash,operacion=ok|omitidos|conflictos|errores},
+ * timer auth{entidad=hash,operacion=derivar} y gauges auth.hash.activos / auth.hash.enCola.
+ */
+public final class AutenticacionService implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+
+    private static final int PASSWORD_MIN = 8;
+    private static final int PASSWORD_MAX = 128;
+
+    /** Resultado de un intento de inicio de sesión. */
+    public enum Resultado {
+        /** Contraseña correcta. */
+        OK,
+        /** Contraseña correcta, pero la credencial pide cambiarla antes de continuar. */
+        REQUIERE_RESET,
+        /** Usuario inexistente, sin credencial o contraseña incorrecta (no se distingue). */
+        CREDENCIALES_INVALIDAS,
+        /** Contraseña correcta de un usuario inactivo. */
+        USUARIO_INACTIVO,
+        /** Demasiados intentos del username o del origen: no se verificó la contraseña. */
+        BLOQUEADO
+    }
+
+    /** Resultado de iniciarSesion(): el token sólo existe si el resultado es OK. */
+    public record InicioSesion(Resultado resultado, String token) {
+    }
+
+    /** Resultado de la verificación y usuario al que corresponde (-1 si no se identificó). */
+    private record Intento(Resultado resultado, int usuarioId) {
+    }
+
+    /** Origen de los intentos hechos desde el menú de consola. */
+    public static final String ORIGEN_LOCAL = "local";
+
+    private final UsuarioServiceImpl usuarioService;
+    private final PasswordHasher hasher;
+    private final LimitadorLogin limitador;
+    private final AlmacenSesiones sesiones;
+    /** Actividad de login por usuario (null = no se registra). */
+    private final RegistroActividad actividad;
+    private final ThreadPoolExecutor pool;
+
+    /** Hash de referencia para los usernames inexistentes (mismo costo que uno real). */
+    private final String saltFicticio;
+    private final String hashFicticio;
+
+    private final LongAdder loginOk = METRICS.contador("auth", "login", "ok");
+    private final LongAdder loginReset = METRICS.contador("auth", "login", "requiereReset");
+    private final LongAdder loginInvalido = METRICS.contador("auth", "login", "invalidas");
+    private final LongAdder loginInactivo = METRICS.contador("auth", "login", "inactivo");
+    private final LongAdder loginBloqueado = METRICS.contador("auth", "login", "bloqueados");
+    private final LongAdder rechazos = METRICS.contador("auth", "hash", "rechazos");
+    private final LongAdder rehashOk = METRICS.contador("auth", "rehash", "ok");
+    private final LongAdder rehashOmitidos = METRICS.contador("auth", "rehash", "omitidos");
+    private final LongAdder rehashConflictos = METRICS.contador("auth", "rehash", "conflictos");
+    private final LongAdder rehashErrores = METRICS.contador("auth", "rehash", "errores");
+
+    /**
+     * @param usuarioService servicio de usuarios (y de credenciales, vía getCredencialService())
+     * @param hasher derivación de claves
+     * @param limitador límite de intentos por username y origen
+     * @param sesiones almacén de sesiones emitidas
+     * @param actividad registro de ultimo_login / intentos_fallidos (null = no se registra)
+     * @param hilos hilos del pool de hashing
+     * @param cola hashes en espera como máximo
+     */
+    public AutenticacionService(UsuarioServiceImpl usuarioService, PasswordHasher hasher, LimitadorLogin limitador,
+                                AlmacenSesiones sesiones, RegistroActividad actividad, int hilos, int cola) {
+        if (usuarioService == null || hasher == null || limitador == null || sesiones == null) {
+            throw new IllegalArgumentException("UsuarioService, PasswordHasher, LimitadorLogin y AlmacenSesiones no pueden ser null");
+        }
+        if (hilos <= 0 || cola <= 0) {
+            throw new IllegalArgumentException("Los hilos y la cola del pool de hashing deben ser mayores a 0");
+        }
+        this.usuarioService = usuarioService;
+        this.hasher = hasher;
+        this.limitador = limitador;
+        this.sesiones = sesiones;
+        this.actividad = actividad;
+        AtomicInteger numero = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                r -> {
+                    Thread t = new Thread(r, "hash-" + numero.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.saltFicticio = hasher.generarSalt();
+        this.hashFicticio = hasher.hashear("ficticia".toCharArray(), saltFicticio);
+        METRICS.gauge("auth.hash.activos", pool::getActiveCount);
+        METRICS.gauge("auth.hash.enCola", () -> pool.getQueue().size());
+        // Un usuario eliminado o desactivado pierde sus sesiones enseguida, sin esperar el TTL
+        usuarioService.agregarOyenteBaja(this::cerrarSesiones);
+    }
+
+    /** Servicio configurado por system properties (ver javadoc de la clase), sin registro de actividad. */
+    public static AutenticacionService desdePropiedades(UsuarioServiceImpl usuarioService) {
+        return desdePropiedades(usuarioService, null);
+    }
+
+    /**
+     * Servicio configurado por system properties (ver javadoc de la clase).
+     * @param actividad registro de actividad (null = no se registra); no se cierra con el servicio
+     */
+    public static AutenticacionService desdePropiedades(UsuarioServiceImpl usuarioService, RegistroActividad actividad) {
+        return new AutenticacionService(usuarioService, PasswordHasher.desdePropiedades(),
+                LimitadorLogin.desdePropiedades(), AlmacenSesiones.desdePropiedades(), actividad,
+                Integer.getInteger("auth.hash.hilos", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("auth.hash.cola", 64));
+    }
+
+    // ============================================================
+    // Inicio de sesión
+    // ============================================================
+
+    /** Verifica username y contraseña de un intento hecho desde la consola (ORIGEN_LOCAL). */
+    public Resultado autenticar(String username, char[] password) throws Exception {
+        return autenticar(username, password, ORIGEN_LOCAL);
+    }
+
+    /**
+     * Verifica username y contraseña.
+     * @param password se borra al terminar
+     * @param origen de dónde viene el intento (IP, terminal), para el límite por origen
+     * @throws RejectedExecutionException si el pool de hashing está saturado
+     */
+    public Resultado autenticar(String username, char[] password, String origen) throws Exception {
+        return verificar(username, password, origen).resultado();
+    }
+
+    /** Inicia sesión desde la consola (ORIGEN_LOCAL). */
+    public InicioSesion iniciarSesion(String username, char[] password) throws Exception {
+        return iniciarSesion(username, password, ORIGEN_LOCAL);
+    }
+
+    /**
+     * Verifica username y contraseña y, si el resultado es OK, emite un token de sesión.
+     * @param password se borra al terminar
+     * @throws IllegalStateException si el almacén de sesiones está lleno
+     */
+    public InicioSesion iniciarSesion(String username, char[] password, String origen) throws Exception {
+        Intento intento = verificar(username, password, origen);
+        String token = intento.resultado() == Resultado.OK ? sesiones.emitir(intento.usuarioId()) : null;
+        return new InicioSesion(intento.resultado(), token);
+    }
+
+    /**
+     * Resuelve un token de sesión, sin tocar la BD.
+     * @return id del usuario, o -1 si el token no existe, venció o fue revocado
+     */
+    public int validarSesion(String token) {
+        return sesiones.validar(token);
+    }
+
+    /** Cierra la sesión del token. @return false si no estaba activa */
+    public boolean cerrarSesion(String token) {
+        return sesiones.revocar(token);
+    }
+
+    /** Invalida todas las sesiones abiertas del usuario. */
+    public void cerrarSesiones(int usuarioId) {
+        sesiones.revocarUsuario(usuarioId);
+    }
+
+    private Intento verificar(String username, char[] password, String origen) throws Exception {
+        try (Medicion m = METRICS.medir("service", "autenticacion", "autenticar")) {
+            if (!limitador.intentar(username, origen)) {
+                loginBloqueado.increment();
+                return m.ok(new Intento(Resultado.BLOQUEADO, -1));
+            }
+            if (username == null || username.isBlank() || password == null || password.length == 0) {
+                loginInvalido.increment();
+                return m.ok(new Intento(Resultado.CREDENCIALES_INVALIDAS, -1));
+            }
+            Usuario u = usuarioService.buscarPorUsername(username.trim());
+            CredencialAcceso c = u == null ? null : u.getCredencial();
+            // Sin exigir salt: las credenciales de legado pueden no tenerlo
+            boolean utilizable = c != null && !c.isEliminado() && c.getHashPassword() != null;
+
+            String salt = utilizable ? c.getSalt() : saltFicticio;
+            String hash = utilizable ? c.getHashPassword() : hashFicticio;
+            boolean correcta = enPool(() -> hasher.verificar(password, salt, hash)) && utilizable;
+
+            if (!correcta) {
+                if (utilizable && actividad != null) {
+                    actividad.registrarFallo(u.getId());
+                }
+                loginInvalido.increment();
+                return m.ok(new Intento(Resultado.CREDENCIALES_INVALIDAS, -1));
+            }
+            Resultado r;
+            if (!u.isActivo()) {
+                loginInactivo.increment();
+                r = Resultado.USUARIO_INACTIVO;
+            } else if (c.isRequiereReset()) {
+                loginReset.increment();
+                r = Resultado.REQUIERE_RESET;
+            } else {
+                loginOk.increment();
+                r = Resultado.OK;
+            }
+            limitador.registrarExito(username);
+            if (actividad != null && r != Resultado.USUARIO_INACTIVO) {
+                actividad.registrarLogin(u.getId());
+            }
+            if (hasher.requiereRehash(hash)) {
+                rehashEnSegundoPlano(c.getId(), hash, password);
+            }
+            return m.ok(new Intento(r, u.getId()));
+        } finally {
+            PasswordHasher.borrar(password);
+        }
+    }
+
+    // ============================================================
+    // Cambio de contraseña
+    // ============================================================
+
+    /**
+     * Asigna una contraseña nueva a la credencial (salt nuevo, hash, ultimoCambio = ahora,
+     * requiereReset = false). NO persiste: el caller la guarda con el service que corresponda.
+     * @param password se borra al terminar
+     */
+    public void establecerContrasena(CredencialAcceso credencial, char[] password) throws Exception {
+        try {
+            if (credencial == null) {
+                throw new IllegalArgumentException("La credencial no puede ser null");
+            }
+            validarPassword(password);
+            String salt = hasher.generarSalt();
+            String hash = enPool(() -> hasher.hashear(password, salt));
+            credencial.setSalt(salt);
+            credencial.setHashPassword(hash);
+            credencial.setUltimoCambio(LocalDateTime.now());
+            credencial.setRequiereReset(false);
+        } finally {
+            PasswordHasher.borrar(password);
+        }
+    }
+
+    /** Credencial nueva (sin persistir) con la contraseña indicada. */
+    public CredencialAcceso crearCredencial(char[] password, boolean requiereReset) throws Exception {
+        CredencialAcceso c = new CredencialAcceso();
+        establecerContrasena(c, password);
+        c.setRequiereReset(requiereReset);
+        return c;
+    }
+
+    /**
+     * Cambia la contraseña de la credencial de un usuario, la persiste y cierra sus sesiones.
+     * @param password se borra al terminar
+     */
+    public void cambiarContrasena(int usuarioId, char[] password) throws Exception {
+        try (Medicion m = METRICS.medir("service", "autenticacion", "cambiarContrasena")) {
+            Usuario u = usuarioService.getById(usuarioId);
+            if (u == null || u.getCredencial() == null) {
+                PasswordHasher.borrar(password);
+                throw new IllegalArgumentException("El usuario no existe o no tiene credencial asociada");
+            }
+            CredencialAcceso c = u.getCredencial();
+            establecerContrasena(c, password);
+            usuarioService.getCredencialService().actualizar(c);
+            sesiones.revocarUsuario(usuarioId);
+            m.ok();
+        }
+    }
+
+    @Override
+    public void close() {
+        limitador.close();
+        sesiones.close();
+        pool.shutdown();
+    }
+
+    // ============================================================
+    // Helpers
+    // ============================================================
+
+    /**
+     * Recalcula el hash con el esquema actual en el pool de hashing, sin que el login lo espere.
+     * Trabaja sobre una copia de la contraseña (la original se borra al responder).
+     */
+    private void rehashEnSegundoPlano(int credencialId, String hashAnterior, char[] password) {
+        char[] copia = password.clone();
+        try {
+            pool.execute(() -> {
+                try {
+                    String salt = hasher.generarSalt();
+                    String hash;
+                    try (Medicion m = METRICS.medir("auth", "hash", "derivar")) {
+                        hash = m.ok(hasher.hashear(copia, salt));
+                    }
+                    if (usuarioService.getCredencialService().reemplazarHash(credencialId, hashAnterior, hash, salt, false)) {
+                        rehashOk.increment();
+                    } else {
+                        rehashConflictos.increment();
+                    }
+                } catch (Exception e) {
+                    rehashErrores.increment();
+                } finally {
+                    PasswordHasher.borrar(copia);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            PasswordHasher.borrar(copia);
+            rehashOmitidos.increment();
+        }
+    }
+
+    /** Ejecuta la tarea en el pool de hashing y espera el resultado. */
+    private <T> T enPool(Callable<T> tarea) throws Exception {
+        Future<T> futuro;
+        try {
+            futuro = pool.submit(() -> {
+                try (Medicion m = METRICS.medir("auth", "hash", "derivar")) {
+                    return m.ok(tarea.call());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rechazos.increment();
+            throw new RejectedExecutionException("Demasiados inicios de sesión simultáneos, reintente en unos segundos");
+        }
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof Exception ex) {
+                throw ex;
+            }
+            throw e;
+        }
+    }
+
+    private static void validarPassword(char[] password) {
+        if (password == null || password.length < PASSWORD_MIN) {
+            throw new IllegalArgumentException("La contraseña debe tener al menos " + PASSWORD_MIN + " caracteres");
+        }
+        if (password.length > PASSWORD_MAX) {
+            throw new IllegalArgumentException("La contraseña excede la longitud máxima permitida (" + PASSWORD_MAX + ")");
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package Service;
 
 import Dao.GenericDAO;
+import Dao.RehashDAO;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
 import Models.CredencialAcceso;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Servicio de negocio para la entidad CredencialAcceso.
@@ -14,6 +18,9 @@ import java.util.List;
  * - Validar que los datos de la credencial sean correctos antes de persistir.
  * - Coordinar inserciones/actualizaciones asegurando consistencia de datos.
  * - Implementar baja lógica (soft delete).
+ * - Con AuditoriaCredenciales, encolar un registro (sin secretos) por cada alta, modificación,
+ *   cambio de contraseña, rehash y baja. Para tener el "antes" se lee la credencial previa
+ *   (una lectura más por escritura, sólo con la auditoría habilitada).
  */
 public class CredencialAccesoServiceImpl implements GenericService<CredencialAcceso> {
 
@@ -23,15 +30,30 @@ public class CredencialAccesoServiceImpl implements GenericService<CredencialAcc
      */
     private final GenericDAO<CredencialAcceso> credencialDAO;
 
+    /** Auditoría de cambios (null = sin auditoría). */
+    private final AuditoriaCredenciales auditoria;
+
     // Límites de longitud (acordes al esquema de BD sugerido)
     private static final int HASH_MAX = 255;
     private static final int SALT_MAX = 64;
 
+    /** Métricas: service{entidad=credencial,operacion=...} */
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "credencial";
+
     public CredencialAccesoServiceImpl(GenericDAO<CredencialAcceso> credencialDAO) {
+        this(credencialDAO, null);
+    }
+
+    /**
+     * @param auditoria auditoría de cambios (null = sin auditoría)
+     */
+    public CredencialAccesoServiceImpl(GenericDAO<CredencialAcceso> credencialDAO, AuditoriaCredenciales auditoria) {
         if (credencialDAO == null) {
             throw new IllegalArgumentException("CredencialDAO no puede ser null");
         }
         this.credencialDAO = credencialDAO;
+        this.auditoria = auditoria;
     }
 
     /**
@@ -43,8 +65,14 @@ public class CredencialAccesoServiceImpl implements GenericService<CredencialAcc
      */
     @Override
     public void insertar(CredencialAcceso credencial) throws Exception {
-        validateCredencial(credencial);
-        credencialDAO.insertar(credencial);
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "insertar")) {
+            validateCredencial(credencial);
+            credencialDAO.insertar(credencial);
+            if (auditoria != null) {
+                auditoria.registrar(AuditoriaCredenciales.Accion.ALTA, credencial.getId(), null, credencial);
+            }
+            m.ok();
+        }
     }
 
     /**
@@ -56,11 +84,20 @@ public class CredencialAccesoServiceImpl implements GenericService<CredencialAcc
      */
     @Override
     public void actualizar(CredencialAcceso credencial) throws Exception {
-        validateCredencial(credencial);
-        if (credencial.getId() <= 0) {
-            throw new IllegalArgumentException("El ID de la credencial debe ser mayor a 0 para actualizar");
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "actualizar")) {
+            validateCredencial(credencial);
+            if (credencial.getId() <= 0) {
+                throw new IllegalArgumentException("El ID de la credencial debe ser mayor a 0 para actualizar");
+            }
+            CredencialAcceso antes = auditoria != null ? credencialDAO.getById(credencial.getId()) : null;
+            credencialDAO.actualizar(credencial);
+            if (auditoria != null) {
+                boolean cambioContrasena = antes == null || !Objects.equals(antes.getHashPassword(), credencial.getHashPassword());
+                auditoria.registrar(cambioContrasena ? AuditoriaCredenciales.Accion.CAMBIO_CONTRASENA
+                        : AuditoriaCredenciales.Accion.MODIFICACION, credencial.getId(), antes, credencial);
+            }
+            m.ok();
         }
-        credencialDAO.actualizar(credencial);
     }
 
     /**
@@ -68,10 +105,22 @@ public class CredencialAccesoServiceImpl implements GenericService<CredencialAcc
      */
     @Override
     public void eliminar(int id) throws Exception {
-        if (id <= 0) {
-            throw new IllegalArgumentException("El ID debe ser mayor a 0");
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "eliminar")) {
+            if (id <= 0) {
+                throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            }
+            CredencialAcceso antes = auditoria != null ? credencialDAO.getById(id) : null;
+            credencialDAO.eliminar(id);
+            if (auditoria != null) {
+                CredencialAcceso despues = null;
+                if (antes != null) {
+                    despues = new CredencialAcceso(antes);
+                    despues.setEliminado(true);
+                }
+                auditoria.registrar(AuditoriaCredenciales.Accion.BAJA, id, antes, despues);
+            }
+            m.ok();
         }
-        credencialDAO.eliminar(id);
     }
 
     /**
@@ -79,10 +128,12 @@ public class CredencialAccesoServiceImpl implements GenericService<CredencialAcc
      */
     @Override
     public CredencialAcceso getById(int id) throws Exception {
-        if (id <= 0) {
-            throw new IllegalArgumentException("El ID debe ser mayor a 0");
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "getById")) {
+            if (id <= 0) {
+                throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            }
+            return m.ok(credencialDAO.getById(id));
         }
-        return credencialDAO.getById(id);
     }
 
     /**
@@ -90,7 +141,31 @@ public class CredencialAccesoServiceImpl implements GenericService<CredencialAcc
      */
     @Override
     public List<CredencialAcceso> getAll() throws Exception {
-        return credencialDAO.getAll();
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "getAll")) {
+            return m.ok(credencialDAO.getAll());
+        }
+    }
+
+    /**
+     * Reemplaza hash y salt de una credencial si sigue teniendo hashAnterior (ver RehashDAO).
+     * No cuenta como cambio de contraseña: ultimo_cambio no se modifica.
+     * @return false si la credencial cambió mientras tanto, o si el DAO no soporta rehash
+     */
+    public boolean reemplazarHash(int id, String hashAnterior, String hashNuevo, String saltNuevo,
+                                  boolean marcarReset) throws Exception {
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "reemplazarHash")) {
+            if (!(credencialDAO instanceof RehashDAO rehash)) {
+                return m.ok(false);
+            }
+            if (hashNuevo == null || hashNuevo.length() > HASH_MAX || (saltNuevo != null && saltNuevo.length() > SALT_MAX)) {
+                throw new IllegalArgumentException("El hash o el salt exceden la longitud máxima permitida");
+            }
+            boolean reemplazado = rehash.reemplazarHash(id, hashAnterior, hashNuevo, saltNuevo, marcarReset);
+            if (reemplazado && auditoria != null) {
+                auditoria.registrarRehash(id, hashAnterior, hashNuevo, marcarReset);
+            }
+            return m.ok(reemplazado);
+        }
     }
 
     // ============================================================
@@ -106,7 +181,7 @@ public class CredencialAccesoServiceImpl implements GenericService<CredencialAcc
      * - requiereReset: boolean (no necesita validación adicional)
      *
      * Nota: Nunca se trabaja con contraseñas en texto plano aquí;
-     *       se espera que hashPassword ya venga calculado en capas superiores.
+     *       hashPassword y salt los calcula AutenticacionService (PasswordHasher).
      */
     private void validateCredencial(CredencialAcceso c) {
         if (c == null) {
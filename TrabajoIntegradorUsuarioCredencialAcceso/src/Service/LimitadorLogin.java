@@ -0,0 +1,217 @@
+package Service;
+
+import Metrics.MetricsRegistry;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limitador de intentos de inicio de sesión por username y por origen, sin locks.
+ *
+ * - Cada clave es un token bucket implementado como GCRA: un único AtomicLong con el
+ *   "tiempo teórico de llegada" (tat). Un intento avanza tat en un intervalo
+ *   (60 s / porMinuto) y se permite si tat no se adelanta más de rafaga intervalos al
+ *   reloj. Los tokens se recuperan solos con el tiempo; el chequeo es O(1): un get y un CAS.
+ * - Se consulta ANTES de leer la BD o hashear: un ataque de credential stuffing no consume
+ *   CPU de PBKDF2 ni conexiones una vez agotado su presupuesto.
+ * - Un intento consume de ambas cubetas: el origen se revisa primero, así un origen
+ *   bloqueado no gasta el presupuesto de los usernames que prueba.
+ * - Memoria acotada: una clave con tat en el pasado está "llena" (equivale a no existir) y
+ *   el barrido periódico la quita. Si aun así se llega a maxClaves, las claves nuevas
+ *   comparten una cubeta de desborde por tipo: un aluvión de usernames aleatorios queda
+ *   limitado en conjunto en lugar de agotar el heap.
+ * - Un login correcto borra la cubeta del username (los errores previos no penalizan al
+ *   usuario legítimo).
+ *
+ * Configuración: -Dauth.limite.usuario.rafaga (5), -Dauth.limite.usuario.porMinuto (5),
+ * -Dauth.limite.origen.rafaga (20), -Dauth.limite.origen.porMinuto (60),
+ * -Dauth.limite.maxClaves (100000), -Dauth.limite.barridoMs (30000).
+ *
+ * Métricas: auth{entidad=limitador,operacion=permitidos|bloqueadosUsuario|bloqueadosOrigen|
+ * desalojos|desbordes} y gauge auth.limitador.claves.
+ */
+public final class LimitadorLogin implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "limitador";
+
+    /** Límite de una familia de claves: rafaga intentos seguidos, luego porMinuto. */
+    public record Regla(int rafaga, int porMinuto) {
+        public Regla {
+            if (rafaga <= 0 || porMinuto <= 0) {
+                throw new IllegalArgumentException("La ráfaga y los intentos por minuto deben ser mayores a 0");
+            }
+        }
+
+        long intervaloNanos() {
+            return TimeUnit.MINUTES.toNanos(1) / porMinuto;
+        }
+    }
+
+    /** Cubeta GCRA: sólo el tiempo teórico de llegada. */
+    private static final class Cubeta {
+        final AtomicLong tat;
+
+        Cubeta(long ahora) {
+            this.tat = new AtomicLong(ahora);
+        }
+    }
+
+    private final Regla reglaUsuario;
+    private final Regla reglaOrigen;
+    private final long intervaloUsuario;
+    private final long toleranciaUsuario;
+    private final long intervaloOrigen;
+    private final long toleranciaOrigen;
+    private final int maxClaves;
+
+    private final ConcurrentHashMap<String, Cubeta> porUsuario = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Cubeta> porOrigen = new ConcurrentHashMap<>();
+    private final Cubeta desbordeUsuario = new Cubeta(System.nanoTime());
+    private final Cubeta desbordeOrigen = new Cubeta(System.nanoTime());
+
+    private final LongAdder permitidos = METRICS.contador("auth", ENTIDAD, "permitidos");
+    private final LongAdder bloqueadosUsuario = METRICS.contador("auth", ENTIDAD, "bloqueadosUsuario");
+    private final LongAdder bloqueadosOrigen = METRICS.contador("auth", ENTIDAD, "bloqueadosOrigen");
+    private final LongAdder desalojos = METRICS.contador("auth", ENTIDAD, "desalojos");
+    private final LongAdder desbordes = METRICS.contador("auth", ENTIDAD, "desbordes");
+
+    private ScheduledExecutorService barrendero;
+
+    /**
+     * @param reglaUsuario límite por username
+     * @param reglaOrigen límite por origen (IP, terminal, etc.)
+     * @param maxClaves claves por familia como máximo
+     */
+    public LimitadorLogin(Regla reglaUsuario, Regla reglaOrigen, int maxClaves) {
+        this.reglaUsuario = reglaUsuario;
+        this.reglaOrigen = reglaOrigen;
+        this.intervaloUsuario = reglaUsuario.intervaloNanos();
+        this.toleranciaUsuario = intervaloUsuario * reglaUsuario.rafaga();
+        this.intervaloOrigen = reglaOrigen.intervaloNanos();
+        this.toleranciaOrigen = intervaloOrigen * reglaOrigen.rafaga();
+        this.maxClaves = maxClaves;
+        METRICS.gauge("auth.limitador.claves", () -> porUsuario.size() + porOrigen.size());
+    }
+
+    /** Limitador configurado por system properties, con el barrido ya iniciado. */
+    public static LimitadorLogin desdePropiedades() {
+        LimitadorLogin limitador = new LimitadorLogin(
+                new Regla(Integer.getInteger("auth.limite.usuario.rafaga", 5),
+                        Integer.getInteger("auth.limite.usuario.porMinuto", 5)),
+                new Regla(Integer.getInteger("auth.limite.origen.rafaga", 20),
+                        Integer.getInteger("auth.limite.origen.porMinuto", 60)),
+                Integer.getInteger("auth.limite.maxClaves", 100_000));
+        limitador.iniciar(Long.getLong("auth.limite.barridoMs", 30_000L));
+        return limitador;
+    }
+
+    public Regla getReglaUsuario() {
+        return reglaUsuario;
+    }
+
+    public Regla getReglaOrigen() {
+        return reglaOrigen;
+    }
+
+    /**
+     * Registra un intento y dice si puede seguir.
+     * @return false si el origen o el username agotaron su presupuesto
+     */
+    public boolean intentar(String username, String origen) {
+        long ahora = System.nanoTime();
+        if (!consumir(cubeta(porOrigen, desbordeOrigen, clave(origen), ahora), ahora, intervaloOrigen, toleranciaOrigen)) {
+            bloqueadosOrigen.increment();
+            return false;
+        }
+        if (!consumir(cubeta(porUsuario, desbordeUsuario, clave(username), ahora), ahora, intervaloUsuario, toleranciaUsuario)) {
+            bloqueadosUsuario.increment();
+            return false;
+        }
+        permitidos.increment();
+        return true;
+    }
+
+    /** Login correcto: el username vuelve a tener su ráfaga completa. */
+    public void registrarExito(String username) {
+        porUsuario.remove(clave(username));
+    }
+
+    /** Quita periódicamente las cubetas llenas (inactivas) en un hilo daemon. */
+    public synchronized void iniciar(long periodoMs) {
+        if (barrendero != null) {
+            return;
+        }
+        barrendero = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "limitador-login");
+            t.setDaemon(true);
+            return t;
+        });
+        barrendero.scheduleWithFixedDelay(this::barrer, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (barrendero != null) {
+            barrendero.shutdown();
+            barrendero = null;
+        }
+    }
+
+    /**
+     * Quita las cubetas cuyo tat ya pasó. Si otro hilo la está usando en ese momento puede
+     * perderse un intento de esa clave; a cambio, el chequeo no necesita locks.
+     */
+    void barrer() {
+        long ahora = System.nanoTime();
+        barrer(porUsuario, ahora);
+        barrer(porOrigen, ahora);
+    }
+
+    private void barrer(ConcurrentHashMap<String, Cubeta> mapa, long ahora) {
+        mapa.forEach((k, c) -> {
+            if (c.tat.get() - ahora <= 0 && mapa.remove(k, c)) {
+                desalojos.increment();
+            }
+        });
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    private Cubeta cubeta(ConcurrentHashMap<String, Cubeta> mapa, Cubeta desborde, String clave, long ahora) {
+        Cubeta c = mapa.get(clave);
+        if (c != null) {
+            return c;
+        }
+        if (mapa.size() >= maxClaves) {
+            desbordes.increment();
+            return desborde;
+        }
+        return mapa.computeIfAbsent(clave, k -> new Cubeta(ahora));
+    }
+
+    /** GCRA: avanza tat un intervalo si no se adelanta más de la tolerancia al reloj. */
+    private static boolean consumir(Cubeta c, long ahora, long intervalo, long tolerancia) {
+        while (true) {
+            long tat = c.tat.get();
+            long nuevo = Math.max(tat - ahora, 0) + ahora + intervalo;
+            if (nuevo - ahora > tolerancia) {
+                return false;
+            }
+            if (c.tat.compareAndSet(tat, nuevo)) {
+                return true;
+            }
+        }
+    }
+
+    private static String clave(String valor) {
+        return valor == null ? "" : valor.trim().toLowerCase(Locale.ROOT);
+    }
+}
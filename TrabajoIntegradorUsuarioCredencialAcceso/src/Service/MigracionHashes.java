@@ -0,0 +1,206 @@
+package Service;
+
+import Dao.RehashDAO;
+import Metrics.MetricsRegistry;
+import Models.CredencialAcceso;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Migración en segundo plano de las credenciales de legado (hash_password sin prefijo de esquema).
+ *
+ * - Recorre credenciales_acceso por rangos de id de tamaño lote (RehashDAO.legadosEnRango),
+ *   hasta el mayor id que había al empezar: nunca carga la tabla completa y cada consulta
+ *   recorre como máximo lote filas por PK.
+ * - Entre rangos duerme pausaMs, y hashea en un único hilo: como máximo ocupa un núcleo y
+ *   deja pasar las transacciones del sistema.
+ * - Modo MIGRAR (default): si PasswordHasher acepta el legado como texto plano, el valor
+ *   guardado ES la contraseña y se reemplaza por su hash PBKDF2; el usuario no nota nada.
+ * - Modo MARCAR (o legado que no es texto plano): no se puede derivar el hash sin la
+ *   contraseña, así que sólo se marca requiere_reset; el login correcto lo rehashea igual.
+ * - Cada escritura es un compare-and-set (reemplazarHash): si la credencial cambió o ya fue
+ *   rehasheada por un login, se cuenta como conflicto y se sigue.
+ * - Es reanudable por naturaleza: una pasada nueva sólo encuentra lo que quedó de legado.
+ * - Cada migración y cada marca se registran como REHASH en AuditoriaCredenciales (si hay).
+ *
+ * Configuración: -Dauth.migracion.modo (migrar | marcar), -Dauth.migracion.lote (500),
+ * -Dauth.migracion.pausaMs (200).
+ *
+ * Métricas: migracion{entidad=hash,operacion=revisadas|migradas|marcadas|conflictos|errores}
+ * y gauge migracion.hash.ultimoId (último id recorrido).
+ */
+public final class MigracionHashes implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "hash";
+
+    public enum Modo {
+        MIGRAR,
+        MARCAR
+    }
+
+    /** Totales de una pasada. */
+    public record Resumen(int revisadas, int migradas, int marcadas, int conflictos) {
+    }
+
+    private final RehashDAO dao;
+    private final PasswordHasher hasher;
+    private final Modo modo;
+    private final int lote;
+    private final long pausaMs;
+    private final AuditoriaCredenciales auditoria;
+
+    private final LongAdder revisadas = METRICS.contador("migracion", ENTIDAD, "revisadas");
+    private final LongAdder migradas = METRICS.contador("migracion", ENTIDAD, "migradas");
+    private final LongAdder marcadas = METRICS.contador("migracion", ENTIDAD, "marcadas");
+    private final LongAdder conflictos = METRICS.contador("migracion", ENTIDAD, "conflictos");
+    private final LongAdder errores = METRICS.contador("migracion", ENTIDAD, "errores");
+
+    private volatile int ultimoId;
+    private volatile boolean detenida;
+    private Thread hilo;
+
+    /**
+     * @param dao acceso a las credenciales (compare-and-set y recorrido por rangos)
+     * @param hasher esquema y costo de destino
+     * @param modo MIGRAR o MARCAR
+     * @param lote ids por rango
+     * @param pausaMs espera entre rangos
+     * @param auditoria auditoría de las escrituras (null = sin auditoría)
+     */
+    public MigracionHashes(RehashDAO dao, PasswordHasher hasher, Modo modo, int lote, long pausaMs,
+                           AuditoriaCredenciales auditoria) {
+        if (dao == null || hasher == null || modo == null) {
+            throw new IllegalArgumentException("El DAO, el hasher y el modo no pueden ser null");
+        }
+        if (lote <= 0 || pausaMs < 0) {
+            throw new IllegalArgumentException("El lote debe ser mayor a 0 y la pausa no puede ser negativa");
+        }
+        this.dao = dao;
+        this.hasher = hasher;
+        this.modo = modo;
+        this.lote = lote;
+        this.pausaMs = pausaMs;
+        this.auditoria = auditoria;
+        METRICS.gauge("migracion.hash.ultimoId", () -> ultimoId);
+    }
+
+    /** Migración configurada por system properties (ver javadoc de la clase), sin auditoría. */
+    public static MigracionHashes desdePropiedades(RehashDAO dao) {
+        return desdePropiedades(dao, null);
+    }
+
+    /**
+     * Migración configurada por system properties (ver javadoc de la clase).
+     * @param auditoria auditoría de las escrituras (null = sin auditoría); no se cierra con la migración
+     */
+    public static MigracionHashes desdePropiedades(RehashDAO dao, AuditoriaCredenciales auditoria) {
+        Modo modo = Modo.valueOf(System.getProperty("auth.migracion.modo", "migrar").trim().toUpperCase(Locale.ROOT));
+        return new MigracionHashes(dao, PasswordHasher.desdePropiedades(), modo,
+                Integer.getInteger("auth.migracion.lote", 500),
+                Long.getLong("auth.migracion.pausaMs", 200L), auditoria);
+    }
+
+    /**
+     * Recorre la tabla una vez. Se corta (sin error) si se llama a close().
+     * @throws InterruptedException si se interrumpe durante una pausa
+     */
+    public Resumen ejecutar() throws Exception {
+        int hasta = dao.maxId();
+        int totalRevisadas = 0;
+        int totalMigradas = 0;
+        int totalMarcadas = 0;
+        int totalConflictos = 0;
+        for (int desde = 0; desde < hasta && !detenida; desde += lote) {
+            List<CredencialAcceso> legados = dao.legadosEnRango(desde, Math.min(desde + lote, hasta));
+            for (CredencialAcceso c : legados) {
+                if (detenida) {
+                    break;
+                }
+                totalRevisadas++;
+                revisadas.increment();
+                String hash = c.getHashPassword();
+                if (!PasswordHasher.esLegado(hash)) {
+                    continue;
+                }
+                if (modo == Modo.MIGRAR && hasher.isLegadoTextoPlano()) {
+                    if (migrar(c.getId(), hash)) {
+                        totalMigradas++;
+                        migradas.increment();
+                    } else {
+                        totalConflictos++;
+                        conflictos.increment();
+                    }
+                } else if (!c.isRequiereReset()) {
+                    if (dao.reemplazarHash(c.getId(), hash, hash, c.getSalt(), true)) {
+                        auditar(c.getId(), hash, hash, true);
+                        totalMarcadas++;
+                        marcadas.increment();
+                    } else {
+                        totalConflictos++;
+                        conflictos.increment();
+                    }
+                }
+            }
+            ultimoId = Math.min(desde + lote, hasta);
+            if (pausaMs > 0 && !detenida) {
+                Thread.sleep(pausaMs);
+            }
+        }
+        return new Resumen(totalRevisadas, totalMigradas, totalMarcadas, totalConflictos);
+    }
+
+    /** Ejecuta una pasada en un hilo daemon ("migracion-hashes") e informa el resumen por stdout. */
+    public synchronized void iniciar() {
+        if (hilo != null) {
+            return;
+        }
+        hilo = new Thread(() -> {
+            try {
+                Resumen r = ejecutar();
+                System.out.printf("Migración de hashes: %d revisadas, %d migradas, %d marcadas, %d conflictos%n",
+                        r.revisadas(), r.migradas(), r.marcadas(), r.conflictos());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                errores.increment();
+                System.err.println("Migración de hashes interrumpida en el id " + ultimoId + ": " + e.getMessage());
+            }
+        }, "migracion-hashes");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        detenida = true;
+        if (hilo != null) {
+            hilo.interrupt();
+            hilo = null;
+        }
+    }
+
+    /** Reemplaza el valor de legado (texto plano) por su hash con el esquema actual. */
+    private boolean migrar(int id, String legado) throws Exception {
+        char[] password = legado.toCharArray();
+        try {
+            String salt = hasher.generarSalt();
+            String hash = hasher.hashear(password, salt);
+            if (!dao.reemplazarHash(id, legado, hash, salt, false)) {
+                return false;
+            }
+            auditar(id, legado, hash, false);
+            return true;
+        } finally {
+            PasswordHasher.borrar(password);
+        }
+    }
+
+    private void auditar(int id, String hashAnterior, String hashNuevo, boolean marcarReset) {
+        if (auditoria != null) {
+            auditoria.registrarRehash(id, hashAnterior, hashNuevo, marcarReset);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package Service;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Derivación de claves para contraseñas con PBKDF2 (incluido en el JDK), con formato versionado.
+ *
+ * Formato almacenado:
+ * - credenciales_acceso.salt: 16 bytes aleatorios en Base64 (24 caracteres).
+ * - credenciales_acceso.hash_password: "&lt;esquema&gt;$&lt;iteraciones&gt;$&lt;clave en Base64&gt;",
+ *   p. ej. "pbkdf2_sha256$310000$..." (32 bytes de clave, ~70 caracteres).
+ *
+ * Versionado: el esquema y las iteraciones viajan con cada hash, así que cambiar el esquema
+ * o subir el costo no invalida los hashes existentes: se verifican con sus propios
+ * parámetros y requiereRehash() indica cuáles conviene recalcular (AutenticacionService lo
+ * hace al próximo login correcto).
+ *
+ * Legado: un valor sin prefijo de esquema es anterior a esta clase (el menú guardaba lo que
+ * se tipeaba). Si auth.legado.textoPlano=true (default) se verifica comparándolo con la
+ * contraseña en tiempo constante, pagando igual un hash completo para no delatar por tiempo
+ * qué credenciales son de legado. MigracionHashes los convierte o marca en segundo plano.
+ *
+ * El costo es tiempo de CPU por intento: ~310.000 iteraciones son del orden de 100-300 ms
+ * en un núcleo actual (ver Main.BenchmarkHash). Es intencionalmente caro; por eso
+ * AutenticacionService lo ejecuta en un pool acotado y no en los hilos de quien llama.
+ *
+ * Thread-safe: no guarda estado mutable (SecretKeyFactory se obtiene por llamada).
+ */
+public final class PasswordHasher {
+
+    /** Algoritmos soportados; el id es el prefijo en hash_password. */
+    public enum Esquema {
+        PBKDF2_SHA256("pbkdf2_sha256", "PBKDF2WithHmacSHA256"),
+        PBKDF2_SHA512("pbkdf2_sha512", "PBKDF2WithHmacSHA512");
+
+        private final String id;
+        private final String jca;
+
+        Esquema(String id, String jca) {
+            this.id = id;
+            this.jca = jca;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /** Esquema con ese id, o null si no es uno conocido. */
+        public static Esquema deId(String id) {
+            for (Esquema e : values()) {
+                if (e.id.equals(id)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final int SALT_BYTES = 16;
+    private static final int CLAVE_BITS = 256;
+
+    /** Iteraciones por defecto (recomendación OWASP para PBKDF2-HMAC-SHA256, 2021). */
+    public static final int ITERACIONES_POR_DEFECTO = 310_000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Esquema esquema;
+    private final int iteraciones;
+    private final boolean legadoTextoPlano;
+    /** Salt fijo para el hash de relleno de las verificaciones de legado. */
+    private final byte[] saltRelleno = new byte[SALT_BYTES];
+
+    /**
+     * @param esquema algoritmo para los hashes nuevos
+     * @param iteraciones costo para los hashes nuevos
+     * @param legadoTextoPlano aceptar valores de legado comparándolos como texto plano
+     */
+    public PasswordHasher(Esquema esquema, int iteraciones, boolean legadoTextoPlano) {
+        if (esquema == null) {
+            throw new IllegalArgumentException("El esquema no puede ser null");
+        }
+        if (iteraciones < 1_000) {
+            throw new IllegalArgumentException("Las iteraciones de PBKDF2 deben ser al menos 1000");
+        }
+        this.esquema = esquema;
+        this.iteraciones = iteraciones;
+        this.legadoTextoPlano = legadoTextoPlano;
+        RANDOM.nextBytes(saltRelleno);
+    }
+
+    /** PBKDF2-HMAC-SHA256 con el costo indicado, aceptando legado. */
+    public PasswordHasher(int iteraciones) {
+        this(Esquema.PBKDF2_SHA256, iteraciones, true);
+    }
+
+    /**
+     * Hasher configurado por -Dauth.hash.esquema (pbkdf2_sha256 | pbkdf2_sha512),
+     * -Dauth.pbkdf2.iteraciones (310000) y -Dauth.legado.textoPlano (true).
+     */
+    public static PasswordHasher desdePropiedades() {
+        String id = System.getProperty("auth.hash.esquema", Esquema.PBKDF2_SHA256.getId()).trim().toLowerCase(Locale.ROOT);
+        Esquema esquema = Esquema.deId(id);
+        if (esquema == null) {
+            throw new IllegalArgumentException("auth.hash.esquema inválido: '" + id + "'");
+        }
+        return new PasswordHasher(esquema,
+                Integer.getInteger("auth.pbkdf2.iteraciones", ITERACIONES_POR_DEFECTO),
+                Boolean.parseBoolean(System.getProperty("auth.legado.textoPlano", "true")));
+    }
+
+    public Esquema getEsquema() {
+        return esquema;
+    }
+
+    public int getIteraciones() {
+        return iteraciones;
+    }
+
+    /** true si los valores de legado se interpretan como contraseñas en texto plano. */
+    public boolean isLegadoTextoPlano() {
+        return legadoTextoPlano;
+    }
+
+    /** Salt aleatorio nuevo, en Base64. */
+    public String generarSalt() {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return Base64.getEncoder().encodeToString(salt);
+    }
+
+    /**
+     * Calcula el hash a guardar en hash_password con el esquema y costo actuales.
+     * @param password contraseña (no se modifica)
+     * @param salt salt en Base64 (el de generarSalt())
+     */
+    public String hashear(char[] password, String salt) {
+        byte[] clave = derivar(esquema, password, decodificar(salt), iteraciones);
+        return esquema.getId() + "$" + iteraciones + "$" + Base64.getEncoder().encodeToString(clave);
+    }
+
+    /**
+     * Verifica la contraseña contra un hash guardado, en tiempo constante respecto del
+     * contenido de la clave. Un valor con prefijo de esquema pero mal formado nunca verifica.
+     */
+    public boolean verificar(char[] password, String salt, String hashGuardado) {
+        if (hashGuardado == null) {
+            return false;
+        }
+        if (esLegado(hashGuardado)) {
+            return verificarLegado(password, hashGuardado);
+        }
+        String[] partes = hashGuardado.split("\\$");
+        Esquema e = partes.length == 3 ? Esquema.deId(partes[0]) : null;
+        if (e == null || salt == null) {
+            return false;
+        }
+        int iter;
+        byte[] esperada;
+        byte[] saltBytes;
+        try {
+            iter = Integer.parseInt(partes[1]);
+            esperada = Base64.getDecoder().decode(partes[2]);
+            saltBytes = decodificar(salt);
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        if (iter < 1 || esperada.length == 0) {
+            return false;
+        }
+        byte[] calculada = derivar(e, password, saltBytes, iter);
+        return MessageDigest.isEqual(calculada, esperada);
+    }
+
+    /**
+     * true si el hash no usa el esquema o el costo actuales (incluye los de legado):
+     * después de un login correcto conviene recalcularlo.
+     */
+    public boolean requiereRehash(String hashGuardado) {
+        if (hashGuardado == null || esLegado(hashGuardado)) {
+            return true;
+        }
+        String[] partes = hashGuardado.split("\\$");
+        if (partes.length != 3 || Esquema.deId(partes[0]) != esquema) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(partes[1]) < iteraciones;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /** true si el valor no tiene el prefijo de ningún esquema conocido (anterior al versionado). */
+    public static boolean esLegado(String hashGuardado) {
+        int fin = hashGuardado.indexOf('$');
+        return fin < 0 || Esquema.deId(hashGuardado.substring(0, fin)) == null;
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    /** Compara con el valor de legado; paga un hash completo para igualar el tiempo. */
+    private boolean verificarLegado(char[] password, String guardado) {
+        derivar(esquema, password, saltRelleno, iteraciones);
+        if (!legadoTextoPlano) {
+            return false;
+        }
+        byte[] ingresada = utf8(password);
+        try {
+            return MessageDigest.isEqual(ingresada, guardado.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            Arrays.fill(ingresada, (byte) 0);
+        }
+    }
+
+    private static byte[] derivar(Esquema esquema, char[] password, byte[] salt, int iteraciones) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iteraciones, CLAVE_BITS);
+        try {
+            return SecretKeyFactory.getInstance(esquema.jca).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(esquema.jca + " no disponible en esta JVM", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] decodificar(String salt) {
+        byte[] bytes = Base64.getDecoder().decode(salt);
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("El salt no puede estar vacío");
+        }
+        return bytes;
+    }
+
+    private static byte[] utf8(char[] password) {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        if (buffer.hasArray()) {
+            Arrays.fill(buffer.array(), (byte) 0);
+        }
+        return bytes;
+    }
+
+    /** Borra el contenido de una contraseña en memoria. */
+    static void borrar(char[] password) {
+        if (password != null) {
+            Arrays.fill(password, '\0');
+        }
+    }
+}
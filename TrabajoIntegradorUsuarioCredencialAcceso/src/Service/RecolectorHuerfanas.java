@@ -0,0 +1,210 @@
+package Service;
+
+import Dao.HuerfanasDAO;
+import Dao.HuerfanasDAO.Huerfana;
+import Metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recolector de credenciales huérfanas (sin usuario que las referencie).
+ *
+ * - Recorre credenciales_acceso por rangos de id de tamaño lote hasta el mayor id que había al
+ *   empezar (HuerfanasDAO.enRango, anti-join por índice) y duerme pausaMs entre rangos: nunca
+ *   carga la tabla y deja pasar las transacciones del sistema.
+ * - Sólo considera filas sin cambios en el período de gracia (actualizado_en), así no compite
+ *   con un alta de usuario en curso.
+ * - Modo REPORTAR (default): sólo cuenta. Las credenciales independientes (opción 5 del menú)
+ *   también son huérfanas hasta que se asignan, así que borrar es una decisión explícita.
+ * - Modo ELIMINAR: baja lógica de las huérfanas activas, de a un lote por sentencia, con la
+ *   marca baja_huerfana.
+ * - Modo PURGAR: además borra físicamente las huérfanas que este recolector dio de baja antes
+ *   del período de gracia. Con ELIMINAR primero y PURGAR después, una huérfana pasa una gracia
+ *   completa dada de baja (y recuperable) antes de desaparecer. Las credenciales que dio de baja
+ *   el servicio nunca se purgan: siguen el camino normal del Archivador.
+ * - Con auditoría, cada baja queda como BAJA y cada borrado como PURGA en auditoria_credenciales.
+ * - Cada pasada informa el resumen por stdout.
+ *
+ * Configuración: -Dmantenimiento.huerfanas.modo (reportar | eliminar | purgar),
+ * -Dmantenimiento.huerfanas.graciaHoras (24), -Dmantenimiento.huerfanas.lote (1000),
+ * -Dmantenimiento.huerfanas.pausaMs (200), -Dmantenimiento.huerfanas.periodoHoras (24).
+ *
+ * Métricas: mantenimiento{entidad=huerfana,operacion=encontradas|eliminadas|purgadas|errores}.
+ */
+public final class RecolectorHuerfanas implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "huerfana";
+
+    public enum Modo {
+        REPORTAR,
+        ELIMINAR,
+        PURGAR
+    }
+
+    /**
+     * Totales de una pasada.
+     * @param activas huérfanas sin eliminar encontradas
+     * @param yaEliminadas huérfanas ya eliminadas encontradas
+     */
+    public record Resumen(int activas, int yaEliminadas, int eliminadas, int purgadas) {
+    }
+
+    private final HuerfanasDAO dao;
+    private final Modo modo;
+    private final Duration gracia;
+    private final int lote;
+    private final long pausaMs;
+    private final AuditoriaCredenciales auditoria;
+
+    private final LongAdder encontradas = METRICS.contador("mantenimiento", ENTIDAD, "encontradas");
+    private final LongAdder eliminadas = METRICS.contador("mantenimiento", ENTIDAD, "eliminadas");
+    private final LongAdder purgadas = METRICS.contador("mantenimiento", ENTIDAD, "purgadas");
+    private final LongAdder errores = METRICS.contador("mantenimiento", ENTIDAD, "errores");
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param dao consultas de huérfanas
+     * @param modo REPORTAR, ELIMINAR o PURGAR
+     * @param gracia antigüedad mínima (actualizado_en) de una fila para tocarla
+     * @param lote ids por rango (y por sentencia)
+     * @param pausaMs espera entre rangos
+     * @param auditoria auditoría de bajas y purgas (null = sin auditoría)
+     */
+    public RecolectorHuerfanas(HuerfanasDAO dao, Modo modo, Duration gracia, int lote, long pausaMs,
+                               AuditoriaCredenciales auditoria) {
+        if (dao == null || modo == null || gracia == null) {
+            throw new IllegalArgumentException("El DAO, el modo y la gracia no pueden ser null");
+        }
+        if (gracia.isNegative() || lote <= 0 || pausaMs < 0) {
+            throw new IllegalArgumentException("El lote debe ser mayor a 0, y la gracia y la pausa no pueden ser negativas");
+        }
+        this.dao = dao;
+        this.modo = modo;
+        this.gracia = gracia;
+        this.lote = lote;
+        this.pausaMs = pausaMs;
+        this.auditoria = auditoria;
+    }
+
+    /** Recolector configurado por system properties (ver javadoc de la clase), sin auditoría. */
+    public static RecolectorHuerfanas desdePropiedades(HuerfanasDAO dao) {
+        return desdePropiedades(dao, null);
+    }
+
+    /**
+     * Recolector configurado por system properties (ver javadoc de la clase).
+     * @param auditoria auditoría de bajas y purgas (null = sin auditoría); no se cierra con el recolector
+     */
+    public static RecolectorHuerfanas desdePropiedades(HuerfanasDAO dao, AuditoriaCredenciales auditoria) {
+        Modo modo = Modo.valueOf(System.getProperty("mantenimiento.huerfanas.modo", "reportar").trim().toUpperCase(Locale.ROOT));
+        return new RecolectorHuerfanas(dao, modo,
+                Duration.ofHours(Integer.getInteger("mantenimiento.huerfanas.graciaHoras", 24)),
+                Integer.getInteger("mantenimiento.huerfanas.lote", 1000),
+                Long.getLong("mantenimiento.huerfanas.pausaMs", 200L), auditoria);
+    }
+
+    /**
+     * Recorre la tabla una vez.
+     * @throws InterruptedException si se interrumpe durante una pausa
+     */
+    public Resumen ejecutar() throws Exception {
+        LocalDateTime limite = LocalDateTime.now().minus(gracia);
+        int hasta = dao.maxId();
+        int activas = 0;
+        int yaEliminadas = 0;
+        int totalEliminadas = 0;
+        int totalPurgadas = 0;
+        for (int desde = 0; desde < hasta; desde += lote) {
+            List<Integer> paraEliminar = new ArrayList<>();
+            List<Integer> paraPurgar = new ArrayList<>();
+            List<Huerfana> enRango = dao.enRango(desde, Math.min(desde + lote, hasta), limite);
+            for (Huerfana h : enRango) {
+                if (!h.eliminado()) {
+                    paraEliminar.add(h.id());
+                    activas++;
+                } else {
+                    yaEliminadas++;
+                    if (h.bajaHuerfana()) {
+                        paraPurgar.add(h.id());
+                    }
+                }
+            }
+            encontradas.add(enRango.size());
+            if (modo == Modo.PURGAR) {
+                List<Integer> borradas = dao.purgar(paraPurgar, limite);
+                auditar(borradas, true);
+                totalPurgadas += borradas.size();
+                purgadas.add(borradas.size());
+            }
+            if (modo != Modo.REPORTAR) {
+                List<Integer> dadasDeBaja = dao.eliminar(paraEliminar, limite);
+                auditar(dadasDeBaja, false);
+                totalEliminadas += dadasDeBaja.size();
+                eliminadas.add(dadasDeBaja.size());
+            }
+            if (pausaMs > 0) {
+                Thread.sleep(pausaMs);
+            }
+        }
+        return new Resumen(activas, yaEliminadas, totalEliminadas, totalPurgadas);
+    }
+
+    /**
+     * Una pasada al iniciar y luego una por período, en un hilo daemon ("recolector-huerfanas").
+     * @param periodoMs espera entre pasadas (0 = una sola pasada)
+     */
+    public synchronized void iniciar(long periodoMs) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "recolector-huerfanas");
+            t.setDaemon(true);
+            return t;
+        });
+        if (periodoMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::ejecutarSeguro, 0, periodoMs, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler.execute(this::ejecutarSeguro);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void auditar(List<Integer> ids, boolean purga) {
+        if (auditoria != null) {
+            for (int id : ids) {
+                auditoria.registrarRecoleccion(id, purga);
+            }
+        }
+    }
+
+    private void ejecutarSeguro() {
+        try {
+            Resumen r = ejecutar();
+            System.out.printf("Credenciales huérfanas (%s): %d activas, %d ya eliminadas, %d eliminadas, %d purgadas%n",
+                    modo.name().toLowerCase(Locale.ROOT), r.activas(), r.yaEliminadas(), r.eliminadas(), r.purgadas());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            errores.increment();
+            System.err.println("Recolector de credenciales huérfanas: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package Service;
+
+import Dao.ActividadDAO;
+import Dao.ActividadDAO.Actividad;
+import Metrics.MetricsRegistry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro write-behind de la actividad de inicio de sesión (ultimo_login e intentos_fallidos).
+ *
+ * - registrarLogin() / registrarFallo() no tocan la BD: acumulan en un ConcurrentHashMap por
+ *   usuario. Varios intentos del mismo usuario entre dos volcados se combinan en una sola
+ *   entrada, y por lo tanto en un solo UPDATE.
+ * - Un login correcto reinicia el contador: fallo, fallo, login, fallo queda como
+ *   "ultimo_login = t, intentos_fallidos = 0 + 1".
+ * - volcar() corre cada periodoMs en un hilo daemon ("actividad-volcado"): quita cada entrada
+ *   del mapa de forma atómica (remove) y la aplica de a lote usuarios por transacción
+ *   (ActividadDAO.aplicarLote). Lo que llega durante el volcado queda para el siguiente.
+ * - Si un lote falla, sus entradas vuelven al mapa combinadas con lo acumulado mientras tanto
+ *   y se reintentan en el próximo volcado.
+ * - Al cerrar (close() o fin del proceso) se hace un último volcado. Sólo se pierde la
+ *   actividad de un proceso que muere sin ejecutar los shutdown hooks.
+ *
+ * Configuración: -Dauth.actividad=false (habilita el registro), -Dauth.actividad.periodoMs (5000),
+ * -Dauth.actividad.lote (500).
+ *
+ * Métricas: actividad{entidad=usuario,operacion=registros|escrituras|errores} y gauge
+ * actividad.usuario.pendientes (usuarios esperando el volcado). registros / escrituras es la
+ * cantidad de intentos que se combinó en cada UPDATE.
+ */
+public final class RegistroActividad implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "usuario";
+
+    private final ActividadDAO dao;
+    private final long periodoMs;
+    private final int lote;
+    private final ConcurrentHashMap<Integer, Actividad> pendientes = new ConcurrentHashMap<>();
+
+    private final LongAdder registros = METRICS.contador("actividad", ENTIDAD, "registros");
+    private final LongAdder escrituras = METRICS.contador("actividad", ENTIDAD, "escrituras");
+    private final LongAdder errores = METRICS.contador("actividad", ENTIDAD, "errores");
+
+    private ScheduledExecutorService scheduler;
+    private Thread cierre;
+
+    /**
+     * @param dao escritura de la actividad
+     * @param periodoMs espera entre volcados
+     * @param lote usuarios por transacción
+     */
+    public RegistroActividad(ActividadDAO dao, long periodoMs, int lote) {
+        if (dao == null) {
+            throw new IllegalArgumentException("El DAO no puede ser null");
+        }
+        if (periodoMs <= 0 || lote <= 0) {
+            throw new IllegalArgumentException("El período y el lote deben ser mayores a 0");
+        }
+        this.dao = dao;
+        this.periodoMs = periodoMs;
+        this.lote = lote;
+        METRICS.gauge("actividad.usuario.pendientes", pendientes::size);
+    }
+
+    /**
+     * Registro configurado por system properties (ver javadoc de la clase).
+     * @return null si auth.actividad no está habilitado
+     */
+    public static RegistroActividad desdePropiedades(ActividadDAO dao) {
+        if (!Boolean.getBoolean("auth.actividad")) {
+            return null;
+        }
+        return new RegistroActividad(dao, Long.getLong("auth.actividad.periodoMs", 5000L),
+                Integer.getInteger("auth.actividad.lote", 500));
+    }
+
+    /** Inicio de sesión correcto: ultimo_login = ahora e intentos_fallidos = 0. */
+    public void registrarLogin(int usuarioId) {
+        acumular(new Actividad(usuarioId, LocalDateTime.now(), true, 0));
+    }
+
+    /** Contraseña incorrecta de un usuario existente: intentos_fallidos + 1. */
+    public void registrarFallo(int usuarioId) {
+        acumular(new Actividad(usuarioId, null, false, 1));
+    }
+
+    /**
+     * Aplica la actividad acumulada hasta ahora.
+     * @return usuarios escritos
+     * @throws Exception si falla un lote (sus entradas vuelven a quedar pendientes)
+     */
+    public synchronized int volcar() throws Exception {
+        int total = 0;
+        List<Actividad> lista = new ArrayList<>(Math.min(lote, pendientes.size()));
+        for (Integer id : pendientes.keySet()) {
+            Actividad a = pendientes.remove(id);
+            if (a == null) {
+                continue;
+            }
+            lista.add(a);
+            if (lista.size() == lote) {
+                total += aplicar(lista);
+                lista.clear();
+            }
+        }
+        return total + aplicar(lista);
+    }
+
+    /** Un volcado cada periodoMs en un hilo daemon, y uno final al terminar el proceso. */
+    public synchronized void iniciar() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "actividad-volcado");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::volcarSeguro, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+        cierre = new Thread(this::volcarSeguro, "actividad-cierre");
+        Runtime.getRuntime().addShutdownHook(cierre);
+    }
+
+    /** Detiene los volcados periódicos y aplica lo pendiente. */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (cierre != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(cierre);
+            } catch (IllegalStateException e) {
+                // El proceso ya está terminando: el hook hace el volcado
+            }
+            cierre = null;
+        }
+        volcarSeguro();
+    }
+
+    /** Usuarios con actividad sin volcar. */
+    public int getPendientes() {
+        return pendientes.size();
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    private void acumular(Actividad a) {
+        registros.increment();
+        pendientes.merge(a.usuarioId(), a, RegistroActividad::combinar);
+    }
+
+    /** Escribe el lote; si falla, lo devuelve al mapa delante de lo acumulado mientras tanto. */
+    private int aplicar(List<Actividad> lista) throws Exception {
+        if (lista.isEmpty()) {
+            return 0;
+        }
+        try {
+            dao.aplicarLote(lista);
+            escrituras.add(lista.size());
+            return lista.size();
+        } catch (Exception e) {
+            errores.increment();
+            for (Actividad a : lista) {
+                pendientes.merge(a.usuarioId(), a, (nueva, anterior) -> combinar(anterior, nueva));
+            }
+            throw e;
+        }
+    }
+
+    /** Actividad equivalente a aplicar anterior y después siguiente. */
+    private static Actividad combinar(Actividad anterior, Actividad siguiente) {
+        LocalDateTime ultimoLogin = anterior.ultimoLogin();
+        if (siguiente.ultimoLogin() != null && (ultimoLogin == null || siguiente.ultimoLogin().isAfter(ultimoLogin))) {
+            ultimoLogin = siguiente.ultimoLogin();
+        }
+        if (siguiente.reiniciarFallidos()) {
+            return new Actividad(anterior.usuarioId(), ultimoLogin, true, siguiente.fallidos());
+        }
+        return new Actividad(anterior.usuarioId(), ultimoLogin, anterior.reiniciarFallidos(),
+                anterior.fallidos() + siguiente.fallidos());
+    }
+
+    private void volcarSeguro() {
+        try {
+            volcar();
+        } catch (Exception e) {
+            System.err.println("Registro de actividad (" + pendientes.size() + " usuarios pendientes): " + e.getMessage());
+        }
+    }
+}
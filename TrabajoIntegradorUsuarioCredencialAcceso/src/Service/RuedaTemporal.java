@@ -0,0 +1,119 @@
+package Service;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Rueda temporal (hashed timing wheel) de vencimientos: ids con un instante de vencimiento.
+ *
+ * - El tiempo se divide en ticks de tickMs; cada tick cae en una ranura (tick mod ranuras).
+ *   programar() es O(1) y avanzar() sólo recorre las ranuras de los ticks transcurridos,
+ *   sin importar cuántas entradas haya en total.
+ * - Un vencimiento más lejano que una vuelta completa se guarda igual en su ranura y se
+ *   saltea en las vueltas anteriores (se compara su instante exacto).
+ * - Un vencimiento ya pasado se entrega en el próximo avanzar().
+ * - Cada ranura guarda ids e instantes en dos arreglos long[] paralelos (sin objetos por entrada).
+ * - No hay cancelación: quien consume el vencimiento revalida contra el estado actual
+ *   (por ejemplo, el UPDATE condicional de VencimientoDAO).
+ *
+ * Thread-safe (métodos sincronizados); avanzar() llama al consumidor con el monitor tomado.
+ */
+public final class RuedaTemporal {
+
+    private static final int CAPACIDAD_INICIAL = 8;
+
+    /** Entradas de una ranura en arreglos paralelos. */
+    private static final class Ranura {
+        long[] ids = new long[CAPACIDAD_INICIAL];
+        long[] vencimientos = new long[CAPACIDAD_INICIAL];
+        int cantidad;
+
+        void agregar(long id, long vencimientoMs) {
+            if (cantidad == ids.length) {
+                ids = Arrays.copyOf(ids, cantidad * 2);
+                vencimientos = Arrays.copyOf(vencimientos, cantidad * 2);
+            }
+            ids[cantidad] = id;
+            vencimientos[cantidad] = vencimientoMs;
+            cantidad++;
+        }
+    }
+
+    private final long tickMs;
+    private final int mascara;
+    private final Ranura[] ranuras;
+    /** Último tick procesado. */
+    private long tickActual;
+    private int pendientes;
+
+    /**
+     * @param ranuras cantidad de ranuras (se redondea a potencia de 2); una vuelta = ranuras * tickMs
+     * @param tickMs resolución de la rueda
+     * @param ahoraMs instante inicial
+     */
+    public RuedaTemporal(int ranuras, long tickMs, long ahoraMs) {
+        if (ranuras <= 0 || tickMs <= 0) {
+            throw new IllegalArgumentException("Las ranuras y el tick deben ser mayores a 0");
+        }
+        int n = Integer.highestOneBit(Math.max(ranuras - 1, 1)) << 1;
+        this.tickMs = tickMs;
+        this.mascara = n - 1;
+        this.ranuras = new Ranura[n];
+        for (int i = 0; i < n; i++) {
+            this.ranuras[i] = new Ranura();
+        }
+        this.tickActual = ahoraMs / tickMs;
+    }
+
+    /** Programa el vencimiento de un id. Un mismo id puede programarse más de una vez. */
+    public synchronized void programar(long id, long vencimientoMs) {
+        long tick = Math.max(vencimientoMs / tickMs, tickActual + 1);
+        ranuras[(int) (tick & mascara)].agregar(id, vencimientoMs);
+        pendientes++;
+    }
+
+    /**
+     * Entrega al consumidor los ids vencidos hasta ahoraMs y los quita de la rueda.
+     * @return cantidad de ids entregados
+     */
+    public synchronized int avanzar(long ahoraMs, LongConsumer alVencer) {
+        long hasta = ahoraMs / tickMs;
+        long pasos = Math.min(hasta - tickActual, ranuras.length);
+        int entregados = 0;
+        for (long t = 1; t <= pasos; t++) {
+            entregados += vaciar(ranuras[(int) ((tickActual + t) & mascara)], ahoraMs, alVencer);
+        }
+        if (hasta > tickActual) {
+            tickActual = hasta;
+        }
+        pendientes -= entregados;
+        return entregados;
+    }
+
+    /** Entradas programadas todavía no entregadas. */
+    public synchronized int getPendientes() {
+        return pendientes;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    /** Entrega las entradas vencidas de la ranura y compacta las que quedan para otra vuelta. */
+    private static int vaciar(Ranura r, long ahoraMs, LongConsumer alVencer) {
+        int quedan = 0;
+        int entregados = 0;
+        for (int i = 0; i < r.cantidad; i++) {
+            if (r.vencimientos[i] <= ahoraMs) {
+                alVencer.accept(r.ids[i]);
+                entregados++;
+            } else {
+                r.ids[quedan] = r.ids[i];
+                r.vencimientos[quedan] = r.vencimientos[i];
+                quedan++;
+            }
+        }
+        r.cantidad = quedan;
+        return entregados;
+    }
+}
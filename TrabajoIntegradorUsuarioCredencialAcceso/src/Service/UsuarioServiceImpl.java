@@ -1,11 +1,15 @@
 package Service;
 
 
-import Dao.UsuarioDAO;
+import Dao.UsuarioGenericDAO;
+import Metrics.Medicion;
+import Metrics.MetricsRegistry;
 import Models.CredencialAcceso;
 import Models.Usuario;
 
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
 import java.util.regex.Pattern;
 
 /**
@@ -21,16 +25,24 @@ import java.util.regex.Pattern;
  */
 public class UsuarioServiceImpl implements GenericService<Usuario> {
 
-    private final UsuarioDAO usuarioDAO;
+    /** DAO de usuarios (JDBC o en memoria, según DAOFactory). */
+    private final UsuarioGenericDAO usuarioDAO;
     private final CredencialAccesoServiceImpl credencialService;
 
+    /** Reciben el ID de cada usuario eliminado o desactivado (AutenticacionService cierra sus sesiones). */
+    private final List<IntConsumer> oyentesBaja = new CopyOnWriteArrayList<>();
+
     private static final int USERNAME_MAX = 30;
     private static final int EMAIL_MAX = 120;
 
     private static final Pattern EMAIL_PATTERN =
             Pattern.compile("^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
 
-    public UsuarioServiceImpl(UsuarioDAO usuarioDAO, CredencialAccesoServiceImpl credencialService) {
+    /** Métricas: service{entidad=usuario,operacion=...} */
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "usuario";
+
+    public UsuarioServiceImpl(UsuarioGenericDAO usuarioDAO, CredencialAccesoServiceImpl credencialService) {
         if (usuarioDAO == null) {
             throw new IllegalArgumentException("UsuarioDAO no puede ser null");
         }
@@ -53,20 +65,23 @@ public class UsuarioServiceImpl implements GenericService<Usuario> {
      */
     @Override
     public void insertar(Usuario usuario) throws Exception {
-        validateUsuario(usuario);
-        validateUsernameUnique(usuario.getUsername(), null);
-        validateEmailUnique(usuario.getEmail(), null);
-
-        if (usuario.getCredencial() != null) {
-            CredencialAcceso cred = usuario.getCredencial();
-            if (cred.getId() == 0) {
-                credencialService.insertar(cred);
-            } else {
-                credencialService.actualizar(cred);
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "insertar")) {
+            validateUsuario(usuario);
+            validateUsernameUnique(usuario.getUsername(), null);
+            validateEmailUnique(usuario.getEmail(), null);
+
+            if (usuario.getCredencial() != null) {
+                CredencialAcceso cred = usuario.getCredencial();
+                if (cred.getId() == 0) {
+                    credencialService.insertar(cred);
+                } else {
+                    credencialService.actualizar(cred);
+                }
             }
-        }
 
-        usuarioDAO.insertar(usuario);
+            usuarioDAO.insertar(usuario);
+            m.ok();
+        }
     }
 
     /**
@@ -77,24 +92,30 @@ public class UsuarioServiceImpl implements GenericService<Usuario> {
      */
     @Override
     public void actualizar(Usuario usuario) throws Exception {
-        if (usuario == null || usuario.getId() <= 0) {
-            throw new IllegalArgumentException("El ID del usuario debe ser mayor a 0 para actualizar");
-        }
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "actualizar")) {
+            if (usuario == null || usuario.getId() <= 0) {
+                throw new IllegalArgumentException("El ID del usuario debe ser mayor a 0 para actualizar");
+            }
 
-        validateUsuario(usuario);
-        validateUsernameUnique(usuario.getUsername(), usuario.getId());
-        validateEmailUnique(usuario.getEmail(), usuario.getId());
+            validateUsuario(usuario);
+            validateUsernameUnique(usuario.getUsername(), usuario.getId());
+            validateEmailUnique(usuario.getEmail(), usuario.getId());
+
+            if (usuario.getCredencial() != null) {
+                CredencialAcceso cred = usuario.getCredencial();
+                if (cred.getId() == 0) {
+                    credencialService.insertar(cred);
+                } else {
+                    credencialService.actualizar(cred);
+                }
+            }
 
-        if (usuario.getCredencial() != null) {
-            CredencialAcceso cred = usuario.getCredencial();
-            if (cred.getId() == 0) {
-                credencialService.insertar(cred);
-            } else {
-                credencialService.actualizar(cred);
+            usuarioDAO.actualizar(usuario);
+            if (!usuario.isActivo()) {
+                notificarBaja(usuario.getId());
             }
+            m.ok();
         }
-
-        usuarioDAO.actualizar(usuario);
     }
 
     /**
@@ -103,10 +124,28 @@ public class UsuarioServiceImpl implements GenericService<Usuario> {
      */
     @Override
     public void eliminar(int id) throws Exception {
-        if (id <= 0) {
-            throw new IllegalArgumentException("El ID debe ser mayor a 0");
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "eliminar")) {
+            if (id <= 0) {
+                throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            }
+            usuarioDAO.eliminar(id);
+            notificarBaja(id);
+            m.ok();
+        }
+    }
+
+    /**
+     * Registra un oyente que se llama, después de la escritura, con el ID de cada usuario
+     * eliminado o guardado con activo = false.
+     */
+    public void agregarOyenteBaja(IntConsumer oyente) {
+        oyentesBaja.add(oyente);
+    }
+
+    private void notificarBaja(int usuarioId) {
+        for (IntConsumer oyente : oyentesBaja) {
+            oyente.accept(usuarioId);
         }
-        usuarioDAO.eliminar(id);
     }
 
     /**
@@ -115,10 +154,12 @@ public class UsuarioServiceImpl implements GenericService<Usuario> {
      */
     @Override
     public Usuario getById(int id) throws Exception {
-        if (id <= 0) {
-            throw new IllegalArgumentException("El ID debe ser mayor a 0");
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "getById")) {
+            if (id <= 0) {
+                throw new IllegalArgumentException("El ID debe ser mayor a 0");
+            }
+            return m.ok(usuarioDAO.getById(id));
         }
-        return usuarioDAO.getById(id);
     }
 
     /**
@@ -126,7 +167,9 @@ public class UsuarioServiceImpl implements GenericService<Usuario> {
      */
     @Override
     public List<Usuario> getAll() throws Exception {
-        return usuarioDAO.getAll();
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "getAll")) {
+            return m.ok(usuarioDAO.getAll());
+        }
     }
 
     // ============================================================
@@ -175,20 +218,34 @@ public class UsuarioServiceImpl implements GenericService<Usuario> {
     // ============================================================
 
     public Usuario buscarPorUsername(String username) throws Exception {
-        if (username == null || username.trim().isEmpty()) {
-            throw new IllegalArgumentException("El username no puede estar vacío");
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "buscarPorUsername")) {
+            if (username == null || username.trim().isEmpty()) {
+                throw new IllegalArgumentException("El username no puede estar vacío");
+            }
+            return m.ok(usuarioDAO.buscarPorUsername(username));
         }
-        return usuarioDAO.buscarPorUsername(username);
     }
 
     public Usuario buscarPorEmail(String email) throws Exception {
-        if (email == null || email.trim().isEmpty()) {
-            throw new IllegalArgumentException("El email no puede estar vacío");
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "buscarPorEmail")) {
+            if (email == null || email.trim().isEmpty()) {
+                throw new IllegalArgumentException("El email no puede estar vacío");
+            }
+            if (!EMAIL_PATTERN.matcher(email).matches()) {
+                throw new IllegalArgumentException("El formato del email no es válido");
+            }
+            return m.ok(usuarioDAO.buscarPorEmail(email));
         }
-        if (!EMAIL_PATTERN.matcher(email).matches()) {
-            throw new IllegalArgumentException("El formato del email no es válido");
+    }
+
+    /** Usuario activo que tiene la credencial, o null si ninguno. */
+    public Usuario buscarPorCredencial(int credencialId) throws Exception {
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "buscarPorCredencial")) {
+            if (credencialId <= 0) {
+                throw new IllegalArgumentException("El ID de la credencial debe ser mayor a 0");
+            }
+            return m.ok(usuarioDAO.buscarPorCredencial(credencialId));
         }
-        return usuarioDAO.buscarPorEmail(email);
     }
 
     public CredencialAccesoServiceImpl getCredencialService() {
@@ -212,23 +269,26 @@ public class UsuarioServiceImpl implements GenericService<Usuario> {
      *                   la credencial no pertenece al usuario, o falla BD
      */
     public void eliminarCredencialDeUsuario(int usuarioId, int credencialId) throws Exception {
-        if (usuarioId <= 0 || credencialId <= 0) {
-            throw new IllegalArgumentException("Los IDs deben ser mayores a 0");
-        }
+        try (Medicion m = METRICS.medir("service", ENTIDAD, "eliminarCredencialDeUsuario")) {
+            if (usuarioId <= 0 || credencialId <= 0) {
+                throw new IllegalArgumentException("Los IDs deben ser mayores a 0");
+            }
 
-        Usuario usuario = usuarioDAO.getById(usuarioId);
-        if (usuario == null) {
-            throw new IllegalArgumentException("No existe un usuario con ID: " + usuarioId);
-        }
+            Usuario usuario = usuarioDAO.getById(usuarioId);
+            if (usuario == null) {
+                throw new IllegalArgumentException("No existe un usuario con ID: " + usuarioId);
+            }
 
-        if (usuario.getCredencial() == null || usuario.getCredencial().getId() != credencialId) {
-            throw new IllegalArgumentException("La credencial no pertenece a este usuario");
-        }
+            if (usuario.getCredencial() == null || usuario.getCredencial().getId() != credencialId) {
+                throw new IllegalArgumentException("La credencial no pertenece a este usuario");
+            }
 
-        usuario.setCredencial(null);
-        usuarioDAO.actualizar(usuario);
+            usuario.setCredencial(null);
+            usuarioDAO.actualizar(usuario);
 
-        credencialService.eliminar(credencialId);
+            credencialService.eliminar(credencialId);
+            m.ok();
+        }
     }
 
 }
@@ -0,0 +1,263 @@
+package Service;
+
+import Dao.VencimientoDAO;
+import Dao.VencimientoDAO.Vencimiento;
+import Metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Vencimiento de contraseñas: marca requiere_reset cuando ultimo_cambio supera la edad máxima.
+ *
+ * Funcionamiento:
+ * - Al iniciar, barrer() marca las credenciales ya vencidas: consulta por rango de
+ *   ultimo_cambio (índice idx_credenciales_vencimiento) y marca de a lote ids por sentencia.
+ * - Después mantiene en memoria una RuedaTemporal con los vencimientos del próximo horizonte.
+ *   En cada tick carga sólo la franja de ultimo_cambio que acaba de entrar en el horizonte
+ *   (con cursor, nunca desde el principio) y marca lo que venció en la rueda.
+ * - Nunca recorre credenciales_acceso completa: cada consulta es un rango del índice.
+ * - Marcar es un UPDATE condicional (VencimientoDAO.marcarVencidas): si la contraseña se
+ *   cambió después de programarla, la fila ya no está vencida y se omite.
+ * - Las filas que entran al rango con una fecha ya pasada (cargas masivas, replicación) las
+ *   recoge el barrido periódico, que también es un rango sobre las vencidas sin marcar.
+ * - Un lote que falla se reprograma para el tick siguiente.
+ * - Cada marca se registra como VENCIMIENTO en AuditoriaCredenciales (si hay).
+ *
+ * Configuración: -Dauth.vencimiento.dias (0 = deshabilitado), -Dauth.vencimiento.tickSeg (60),
+ * -Dauth.vencimiento.horizonteMin (60), -Dauth.vencimiento.lote (500),
+ * -Dauth.vencimiento.barridoHoras (24).
+ *
+ * Métricas: vencimiento{entidad=credencial,operacion=programadas|marcadas|vigentes|errores} y
+ * gauge vencimiento.credencial.pendientes (vencimientos en la rueda).
+ */
+public final class VencimientoCredenciales implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final String ENTIDAD = "credencial";
+
+    private final VencimientoDAO dao;
+    private final Duration edad;
+    private final Duration horizonte;
+    private final int lote;
+    private final long barridoMs;
+    private final RuedaTemporal rueda;
+    private final AuditoriaCredenciales auditoria;
+    private final ZoneId zona = ZoneId.systemDefault();
+
+    private final LongAdder programadas = METRICS.contador("vencimiento", ENTIDAD, "programadas");
+    private final LongAdder marcadas = METRICS.contador("vencimiento", ENTIDAD, "marcadas");
+    private final LongAdder vigentes = METRICS.contador("vencimiento", ENTIDAD, "vigentes");
+    private final LongAdder errores = METRICS.contador("vencimiento", ENTIDAD, "errores");
+
+    /** Cursor (ultimo_cambio, id) de la última credencial cargada en la rueda. */
+    private LocalDateTime cursorFecha;
+    private int cursorId;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param dao consultas de vencimiento
+     * @param edad antigüedad máxima de una contraseña
+     * @param tickMs resolución de la rueda (y período del chequeo)
+     * @param horizonte anticipación con que se cargan los vencimientos en memoria
+     * @param lote ids por sentencia (y filas por consulta)
+     * @param barridoMs período del barrido de vencidas sin marcar
+     * @param auditoria auditoría de las marcas (null = sin auditoría)
+     */
+    public VencimientoCredenciales(VencimientoDAO dao, Duration edad, long tickMs, Duration horizonte,
+                                   int lote, long barridoMs, AuditoriaCredenciales auditoria) {
+        if (dao == null || edad == null || horizonte == null) {
+            throw new IllegalArgumentException("El DAO, la edad y el horizonte no pueden ser null");
+        }
+        if (edad.isNegative() || edad.isZero() || tickMs <= 0 || horizonte.toMillis() < tickMs || lote <= 0 || barridoMs <= 0) {
+            throw new IllegalArgumentException("Edad, tick, lote y barrido deben ser mayores a 0, y el horizonte al menos un tick");
+        }
+        this.dao = dao;
+        this.edad = edad;
+        this.horizonte = horizonte;
+        this.lote = lote;
+        this.barridoMs = barridoMs;
+        this.auditoria = auditoria;
+        this.rueda = new RuedaTemporal((int) Math.min(horizonte.toMillis() / tickMs + 1, 1 << 16), tickMs,
+                System.currentTimeMillis());
+        METRICS.gauge("vencimiento.credencial.pendientes", rueda::getPendientes);
+    }
+
+    /**
+     * Vencimiento configurado por system properties (ver javadoc de la clase), sin auditoría.
+     * @return null si auth.vencimiento.dias no es mayor a 0
+     */
+    public static VencimientoCredenciales desdePropiedades(VencimientoDAO dao) {
+        return desdePropiedades(dao, null);
+    }
+
+    /**
+     * Vencimiento configurado por system properties (ver javadoc de la clase).
+     * @param auditoria auditoría de las marcas (null = sin auditoría); no se cierra con el vencimiento
+     * @return null si auth.vencimiento.dias no es mayor a 0
+     */
+    public static VencimientoCredenciales desdePropiedades(VencimientoDAO dao, AuditoriaCredenciales auditoria) {
+        int dias = Integer.getInteger("auth.vencimiento.dias", 0);
+        if (dias <= 0) {
+            return null;
+        }
+        return new VencimientoCredenciales(dao, Duration.ofDays(dias),
+                TimeUnit.SECONDS.toMillis(Integer.getInteger("auth.vencimiento.tickSeg", 60)),
+                Duration.ofMinutes(Integer.getInteger("auth.vencimiento.horizonteMin", 60)),
+                Integer.getInteger("auth.vencimiento.lote", 500),
+                TimeUnit.HOURS.toMillis(Integer.getInteger("auth.vencimiento.barridoHoras", 24)), auditoria);
+    }
+
+    /** Barrido inicial y luego un tick por período, en un hilo daemon ("vencimiento-credenciales"). */
+    public synchronized void iniciar() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vencimiento-credenciales");
+            t.setDaemon(true);
+            return t;
+        });
+        long tickMs = rueda.getTickMs();
+        scheduler.execute(this::barrerSeguro);
+        scheduler.scheduleWithFixedDelay(this::tickSeguro, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::barrerSeguro, barridoMs, barridoMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Marca todas las credenciales ya vencidas (rango por ultimo_cambio, de a lote).
+     * La primera vez deja el cursor de la rueda en el límite usado.
+     * @return cantidad de credenciales marcadas
+     */
+    public synchronized int barrer() throws Exception {
+        LocalDateTime limite = limite(System.currentTimeMillis());
+        int total = 0;
+        LocalDateTime desde = VencimientoDAO.INICIO;
+        int desdeId = 0;
+        List<Vencimiento> pagina;
+        do {
+            pagina = dao.porUltimoCambio(desde, desdeId, limite, lote);
+            if (!pagina.isEmpty()) {
+                Vencimiento ultima = pagina.get(pagina.size() - 1);
+                desde = ultima.ultimoCambio();
+                desdeId = ultima.id();
+                total += marcar(ids(pagina), limite);
+            }
+        } while (pagina.size() == lote);
+        if (cursorFecha == null) {
+            cursorFecha = limite;
+            cursorId = 0;
+        }
+        return total;
+    }
+
+    /**
+     * Carga en la rueda la franja nueva del horizonte y marca lo vencido hasta ahoraMs. Si un
+     * lote falla, ese lote y los que faltaban vuelven a la rueda antes de propagar el error.
+     * @return cantidad de credenciales marcadas
+     */
+    public synchronized int tick(long ahoraMs) throws Exception {
+        if (cursorFecha == null) {
+            cursorFecha = limite(ahoraMs);
+            cursorId = 0;
+        }
+        cargarHorizonte(ahoraMs);
+        List<Integer> vencidas = new ArrayList<>();
+        rueda.avanzar(ahoraMs, id -> vencidas.add((int) id));
+        LocalDateTime limite = limite(ahoraMs);
+        int total = 0;
+        for (int i = 0; i < vencidas.size(); i += lote) {
+            List<Integer> ids = vencidas.subList(i, Math.min(i + lote, vencidas.size()));
+            try {
+                total += marcar(ids, limite);
+            } catch (Exception e) {
+                // El lote fallido y los siguientes ya salieron de la rueda: vuelven para el próximo tick.
+                for (int id : vencidas.subList(i, vencidas.size())) {
+                    rueda.programar(id, ahoraMs);
+                }
+                throw e;
+            }
+        }
+        return total;
+    }
+
+    // =======================
+    // Helpers
+    // =======================
+
+    /** Programa los vencimientos con ultimo_cambio entre el cursor y ahora - edad + horizonte. */
+    private void cargarHorizonte(long ahoraMs) throws Exception {
+        LocalDateTime hasta = limite(ahoraMs).plus(horizonte);
+        List<Vencimiento> pagina;
+        do {
+            pagina = dao.porUltimoCambio(cursorFecha, cursorId, hasta, lote);
+            for (Vencimiento v : pagina) {
+                rueda.programar(v.id(), v.ultimoCambio().plus(edad).atZone(zona).toInstant().toEpochMilli());
+                cursorFecha = v.ultimoCambio();
+                cursorId = v.id();
+            }
+            programadas.add(pagina.size());
+        } while (pagina.size() == lote);
+    }
+
+    private int marcar(List<Integer> ids, LocalDateTime limite) throws Exception {
+        List<Integer> marcadasAhora = dao.marcarVencidas(ids, limite);
+        if (auditoria != null) {
+            for (int id : marcadasAhora) {
+                auditoria.registrarVencimiento(id);
+            }
+        }
+        int n = marcadasAhora.size();
+        marcadas.add(n);
+        vigentes.add(ids.size() - n);
+        return n;
+    }
+
+    /** ultimo_cambio a partir del cual una contraseña ya está vencida en ahoraMs (inclusive). */
+    private LocalDateTime limite(long ahoraMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(ahoraMs + 1), zona).minus(edad);
+    }
+
+    private static List<Integer> ids(List<Vencimiento> vencimientos) {
+        List<Integer> ids = new ArrayList<>(vencimientos.size());
+        for (Vencimiento v : vencimientos) {
+            ids.add(v.id());
+        }
+        return ids;
+    }
+
+    private void tickSeguro() {
+        try {
+            tick(System.currentTimeMillis());
+        } catch (Exception e) {
+            errores.increment();
+            System.err.println("Vencimiento de credenciales: " + e.getMessage());
+        }
+    }
+
+    private void barrerSeguro() {
+        try {
+            barrer();
+        } catch (Exception e) {
+            errores.increment();
+            System.err.println("Vencimiento de credenciales (barrido): " + e.getMessage());
+        }
+    }
+}